@@ -27,6 +27,7 @@ import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.layout.TableLayoutStrategy;
 import org.apache.rya.api.layout.TablePrefixLayoutStrategy;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
+import org.apache.rya.api.persist.query.ObjectFilter;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 
 import com.google.common.base.Joiner;
@@ -50,10 +51,23 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
     public static final String CONF_USE_SELECTIVITY = "query.useselectivity";
     public static final String CONF_TBL_PREFIX = "query.tblprefix";
     public static final String CONF_BATCH_SIZE = "query.batchsize";
+    public static final String CONF_BINDJOIN_BATCH_SIZE = "query.bindjoin.batchsize";
+    public static final String CONF_BINDJOIN_MIN_BATCH_SIZE = "query.bindjoin.batchsize.min";
+    public static final String CONF_BINDJOIN_MAX_BATCH_SIZE = "query.bindjoin.batchsize.max";
+    public static final String CONF_BINDJOIN_TARGET_LATENCY = "query.bindjoin.latency.target";
+    public static final String CONF_BINDJOIN_MAX_BATCH_RESULTS = "query.bindjoin.results.max";
+    public static final String CONF_PARALLEL_JOIN = "query.paralleljoin";
+    public static final String CONF_PARALLEL_JOIN_QUEUE_SIZE = "query.paralleljoin.queuesize";
     public static final String CONF_OFFSET = "query.offset";
     public static final String CONF_LIMIT = "query.limit";
     public static final String CONF_QUERYPLAN_FLAG = "query.printqueryplan";
+    public static final String CONF_QUERY_PROFILE = "query.profile";
+    public static final String CONF_FILTER_PUSHDOWN = "query.filterpushdown";
+    public static final String CONF_OBJECT_FILTER = "query.objectfilter";
     public static final String CONF_QUERY_AUTH = "query.auth";
+    public static final String CONF_QUERY_PLAN_CACHE_ENABLED = "query.plancache.enabled";
+    public static final String CONF_QUERY_PLAN_CACHE_SIZE = "query.plancache.size";
+    public static final String CONF_QUERY_PLAN_CACHE_EXPIRY = "query.plancache.expiry";
     public static final String CONF_RESULT_FORMAT = "query.resultformat";
     public static final String CONF_CV = "conf.cv";
     public static final String CONF_TBL_SPO = "tbl.spo";
@@ -68,6 +82,9 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
     public static final String CONF_STATEMENT_METADATA_PROPERTIES = "statement.metadata.properites";
     public static final String CONF_USE_STATEMENT_METADATA = "use.statement.metadata";
     public static final String STATS_PUSH_EMPTY_RDFTYPE_DOWN = "conf.stats.rdftype.down";
+    public static final String STATS_CACHE_ENABLED = "conf.stats.cache.enabled";
+    public static final String STATS_CACHE_SIZE = "conf.stats.cache.size";
+    public static final String STATS_CACHE_TTL = "conf.stats.cache.ttl";
     public static final String INFER_INCLUDE_ALL_VALUES_FROM = "infer.include.allvaluesfrom";
     public static final String INFER_INCLUDE_DOMAIN_RANGE = "infer.include.domainrange";
     public static final String INFER_INCLUDE_HAS_SELF = "infer.include.hasself";
@@ -83,6 +100,8 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
     public static final String INFER_INCLUDE_SUBPROPOF = "infer.include.subpropof";
     public static final String INFER_INCLUDE_SYMMPROP = "infer.include.symmprop";
     public static final String INFER_INCLUDE_TRANSITIVEPROP = "infer.include.transprop";
+    public static final String INFER_CLOSURE_INDEX = "infer.closure.index";
+    public static final String INFER_CLOSURE_INDEX_MAX_SIZE = "infer.closure.index.maxsize";
 
     public static final String RDF_DAO_CLASS = "class.rdf.dao";
     public static final String RDF_EVAL_STATS_DAO_CLASS = "class.rdf.evalstats";
@@ -231,6 +250,88 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setLong(CONF_BATCH_SIZE, batchSize);
     }
 
+    /**
+     * @return The number of left hand bindings that the first batch of a bind
+     * join pushes into its right hand statement pattern. Defaults to 1000.
+     */
+    public int getBindJoinBatchSize() {
+        return getInt(CONF_BINDJOIN_BATCH_SIZE, 1000);
+    }
+
+    public void setBindJoinBatchSize(final int batchSize) {
+        setInt(CONF_BINDJOIN_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return The smallest batch an adaptive bind join will shrink to. Defaults to 50.
+     */
+    public int getBindJoinMinBatchSize() {
+        return getInt(CONF_BINDJOIN_MIN_BATCH_SIZE, 50);
+    }
+
+    public void setBindJoinMinBatchSize(final int batchSize) {
+        setInt(CONF_BINDJOIN_MIN_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return The largest batch an adaptive bind join will grow to. Defaults to 10000.
+     */
+    public int getBindJoinMaxBatchSize() {
+        return getInt(CONF_BINDJOIN_MAX_BATCH_SIZE, 10000);
+    }
+
+    public void setBindJoinMaxBatchSize(final int batchSize) {
+        setInt(CONF_BINDJOIN_MAX_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return The number of milliseconds a single bind join batch should take to
+     * scan. Batches that are faster grow, batches that are slower shrink. Defaults to 250.
+     */
+    public long getBindJoinTargetLatency() {
+        return getLong(CONF_BINDJOIN_TARGET_LATENCY, 250L);
+    }
+
+    public void setBindJoinTargetLatency(final long millis) {
+        setLong(CONF_BINDJOIN_TARGET_LATENCY, millis);
+    }
+
+    /**
+     * @return The number of results a single bind join batch is allowed to
+     * produce. This bounds the memory a query may hold for one batch. Defaults to 100000.
+     */
+    public long getBindJoinMaxBatchResults() {
+        return getLong(CONF_BINDJOIN_MAX_BATCH_RESULTS, 100000L);
+    }
+
+    public void setBindJoinMaxBatchResults(final long maxResults) {
+        setLong(CONF_BINDJOIN_MAX_BATCH_RESULTS, maxResults);
+    }
+
+    /**
+     * @return {@code true} if joins that can not be evaluated as bind joins
+     * evaluate their right hand side on a worker pool. Defaults to {@code false}.
+     */
+    public boolean isParallelJoin() {
+        return getBoolean(CONF_PARALLEL_JOIN, false);
+    }
+
+    public void setParallelJoin(final boolean val) {
+        setBoolean(CONF_PARALLEL_JOIN, val);
+    }
+
+    /**
+     * @return The number of results each parallel join worker may buffer before
+     * it blocks waiting on the consumer. Defaults to 1000.
+     */
+    public int getParallelJoinQueueSize() {
+        return getInt(CONF_PARALLEL_JOIN_QUEUE_SIZE, 1000);
+    }
+
+    public void setParallelJoinQueueSize(final int queueSize) {
+        setInt(CONF_PARALLEL_JOIN_QUEUE_SIZE, queueSize);
+    }
+
     public Long getOffset() {
         final String val = get(CONF_OFFSET);
         if (val != null) {
@@ -269,6 +370,87 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(CONF_QUERYPLAN_FLAG, val);
     }
 
+    /**
+     * @return {@code true} if queries are profiled. A profiled query is run to
+     * completion and, instead of its results, returns a single binding set that
+     * holds the optimized plan annotated with what each node did, bound to
+     * {@link #CONF_QUERY_PROFILE}. Defaults to {@code false}.
+     */
+    public Boolean isQueryProfile() {
+        return getBoolean(CONF_QUERY_PROFILE, false);
+    }
+
+    public void setQueryProfile(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(CONF_QUERY_PROFILE, val);
+    }
+
+    /**
+     * @return {@code true} if FILTER conditions on the object of a statement
+     * pattern are handed to query engines that can evaluate them while they
+     * scan. Defaults to {@code false}.
+     */
+    public boolean isFilterPushdown() {
+        return getBoolean(CONF_FILTER_PUSHDOWN, false);
+    }
+
+    public void setFilterPushdown(final boolean val) {
+        setBoolean(CONF_FILTER_PUSHDOWN, val);
+    }
+
+    /**
+     * @return The filter a query engine applies to the objects of the statements
+     * it scans, or {@code null} if every statement is returned.
+     */
+    public ObjectFilter getObjectFilter() {
+        final String val = get(CONF_OBJECT_FILTER);
+        return val == null ? null : ObjectFilter.decode(val);
+    }
+
+    public void setObjectFilter(final ObjectFilter filter) {
+        Preconditions.checkNotNull(filter);
+        set(CONF_OBJECT_FILTER, filter.encode());
+    }
+
+    /**
+     * @return {@code true} if optimized query plans are cached and reused for
+     * repeated queries. Defaults to {@code false}.
+     */
+    public Boolean isQueryPlanCacheEnabled() {
+        return getBoolean(CONF_QUERY_PLAN_CACHE_ENABLED, false);
+    }
+
+    public void setQueryPlanCacheEnabled(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(CONF_QUERY_PLAN_CACHE_ENABLED, val);
+    }
+
+    /**
+     * @return The maximum number of optimized query plans that are cached. Defaults to 1000.
+     */
+    public Long getQueryPlanCacheSize() {
+        return getLong(CONF_QUERY_PLAN_CACHE_SIZE, 1000L);
+    }
+
+    public void setQueryPlanCacheSize(final Long size) {
+        Preconditions.checkNotNull(size);
+        setLong(CONF_QUERY_PLAN_CACHE_SIZE, size);
+    }
+
+    /**
+     * @return How long, in milliseconds, an optimized query plan is cached before it is
+     * rebuilt, or 0 if plans never expire. This bounds how long PCJs and indices that
+     * another process created or dropped are ignored. Defaults to 60000.
+     */
+    public Long getQueryPlanCacheExpiry() {
+        return getLong(CONF_QUERY_PLAN_CACHE_EXPIRY, 60000L);
+    }
+
+    public void setQueryPlanCacheExpiry(final Long expiryMillis) {
+        Preconditions.checkNotNull(expiryMillis);
+        setLong(CONF_QUERY_PLAN_CACHE_EXPIRY, expiryMillis);
+    }
+
     /**
      * @return
      * @deprecated
@@ -335,6 +517,43 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(STATS_PUSH_EMPTY_RDFTYPE_DOWN, val);
     }
 
+    /**
+     * @return {@code true} if cardinality lookups against the {@link RdfEvalStatsDAO}
+     * are cached by the store. Defaults to {@code false}.
+     */
+    public Boolean isStatsCacheEnabled() {
+        return getBoolean(STATS_CACHE_ENABLED, false);
+    }
+
+    public void setStatsCacheEnabled(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(STATS_CACHE_ENABLED, val);
+    }
+
+    /**
+     * @return The maximum number of cardinalities held by the statistics cache. Defaults to 10000.
+     */
+    public Long getStatsCacheSize() {
+        return getLong(STATS_CACHE_SIZE, 10000L);
+    }
+
+    public void setStatsCacheSize(final Long size) {
+        Preconditions.checkNotNull(size);
+        setLong(STATS_CACHE_SIZE, size);
+    }
+
+    /**
+     * @return The number of milliseconds a cached cardinality stays valid. Defaults to 5 minutes.
+     */
+    public Long getStatsCacheTtl() {
+        return getLong(STATS_CACHE_TTL, 5L * 60L * 1000L);
+    }
+
+    public void setStatsCacheTtl(final Long ttl) {
+        Preconditions.checkNotNull(ttl);
+        setLong(STATS_CACHE_TTL, ttl);
+    }
+
     /**
      * @return {@code true} if owl:allValuesFrom inferencing is enabled.
      * {@code false} otherwise. Defaults to {@code true} if nothing is
@@ -620,6 +839,49 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(INFER_INCLUDE_TRANSITIVEPROP, val);
     }
 
+    /**
+     * @return {@code true} if the inference engine keeps an in memory index of
+     * owl:sameAs equivalence classes and transitive property edges so that
+     * sameAs and transitive property expansion do not scan the store once per
+     * hop. {@code false} otherwise. Defaults to {@code false} if nothing is
+     * specified. The index only sees the writes made through the Rya sail;
+     * see {@code InferenceEngine#rebuildClosureIndex()}.
+     */
+    public Boolean isInferClosureIndex() {
+        return getBoolean(INFER_CLOSURE_INDEX, false);
+    }
+
+    /**
+     * Sets whether the inference engine keeps an owl:sameAs and transitive
+     * property closure index.
+     * @param value {@code true} if the closure index is enabled.
+     * {@code false} otherwise.
+     */
+    public void setInferClosureIndex(final Boolean value) {
+        Preconditions.checkNotNull(value);
+        setBoolean(INFER_CLOSURE_INDEX, value);
+    }
+
+    /**
+     * @return The largest number of sameAs and transitive property edges the
+     * closure index holds. If the store holds more, the index is dropped and
+     * sameAs and transitive property expansion scan the store once per hop.
+     * Defaults to 1,000,000 if nothing is specified.
+     */
+    public Long getInferClosureIndexMaxSize() {
+        return getLong(INFER_CLOSURE_INDEX_MAX_SIZE, 1000000L);
+    }
+
+    /**
+     * Sets the largest number of edges the closure index holds.
+     * @param maxSize The largest number of edges. (greater than 0)
+     */
+    public void setInferClosureIndexMaxSize(final Long maxSize) {
+        Preconditions.checkNotNull(maxSize);
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be greater than 0");
+        setLong(INFER_CLOSURE_INDEX_MAX_SIZE, maxSize);
+    }
+
     public void setRdfEvalStatsDaoClass(final Class<? extends RdfEvalStatsDAO> rdfEvalStatsDaoClass) {
         Preconditions.checkNotNull(rdfEvalStatsDaoClass);
         setClass(RDF_EVAL_STATS_DAO_CLASS, rdfEvalStatsDaoClass, RdfEvalStatsDAO.class);
@@ -42,4 +42,19 @@ public interface ExecuteSparqlQuery extends Closeable {
      * @throws RyaClientException Something caused the command to fail.
      */
     public TupleQueryResult executeSparqlQuery(String ryaInstanceName, String sparqlQuery) throws InstanceDoesNotExistException, RyaClientException;
+
+    /**
+     * Executes a SPARQL Query against an instance of Rya, optionally profiling it. A profiled query
+     * is run to completion and its result holds a single {@link BindingSet} that binds
+     * {@code query.profile} to the plan the query was evaluated with, annotated with what each node
+     * of the plan did.
+     *
+     * @param ryaInstanceName - The name of the Rya instance the query will be executed against. (not null)
+     * @param sparqlQuery - A SPARQL Query. (not null)
+     * @param profile - {@code true} if the query's plan should be returned instead of its results.
+     * @return A {@link TupleQueryResult} of the resulting {@link BindingSet}s.
+     * @throws InstanceDoesNotExistException No instance of Rya exists for the provided name.
+     * @throws RyaClientException Something caused the command to fail.
+     */
+    public TupleQueryResult executeSparqlQuery(String ryaInstanceName, String sparqlQuery, boolean profile) throws InstanceDoesNotExistException, RyaClientException;
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.instance;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A process wide counter that changes every time this process changes the
+ * index metadata of a Rya instance, such as its {@link RyaDetails} or the set
+ * of PCJs that may answer queries. Anything derived from that metadata, such as
+ * a cached query plan, may be keyed on this value.
+ * <p>
+ * Changes made by other processes are not counted, so caches that must see
+ * them also need to expire their entries.
+ */
+@DefaultAnnotation(NonNull.class)
+public final class IndexMetadataVersion {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private IndexMetadataVersion() { }
+
+    /**
+     * @return The current version of the index metadata.
+     */
+    public static long get() {
+        return VERSION.get();
+    }
+
+    /**
+     * Records that the index metadata has changed.
+     */
+    public static void increment() {
+        VERSION.incrementAndGet();
+    }
+}
@@ -117,6 +117,7 @@ public class RyaDetailsUpdater {
                 final RyaDetails mutated = mutator.mutate(original);
                 repo.update(original, mutated);
                 updated = true;
+                IndexMetadataVersion.increment();
             } catch(final ConcurrentUpdateException e) {
                 log.debug("Failed to update the details because another application changed them. Trying again.", e);
             }
@@ -0,0 +1,217 @@
+package org.apache.rya.api.persist;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A {@link RdfEvalStatsDAO} that caches the cardinalities returned by another
+ * {@link RdfEvalStatsDAO}. The cache is bounded in size and entries expire a
+ * fixed amount of time after they were loaded, so statistics that are
+ * recomputed by the Prospector are eventually picked up.
+ * <p>
+ * Cardinalities are cached per set of authorizations because the statistics
+ * table may be protected by visibilities.
+ */
+@DefaultAnnotation(NonNull.class)
+public class CachingRdfEvalStatsDAO<C extends RdfCloudTripleStoreConfiguration> implements RdfEvalStatsDAO<C> {
+
+    private final RdfEvalStatsDAO<C> delegate;
+    private final Cache<CacheKey, Double> cache;
+
+    /**
+     * Constructs an instance of {@link CachingRdfEvalStatsDAO}.
+     *
+     * @param delegate - The DAO that cache misses are resolved against. (not null)
+     * @param maxSize - The maximum number of cardinalities that will be cached.
+     * @param ttl - How long a cardinality stays in the cache after it has been loaded.
+     * @param ttlUnit - The unit of {@code ttl}. (not null)
+     */
+    public CachingRdfEvalStatsDAO(final RdfEvalStatsDAO<C> delegate, final long maxSize, final long ttl, final TimeUnit ttlUnit) {
+        this.delegate = requireNonNull(delegate);
+        requireNonNull(ttlUnit);
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, ttlUnit)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return The DAO that cache misses are resolved against.
+     */
+    public RdfEvalStatsDAO<C> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void init() throws RdfDAOException {
+        delegate.init();
+    }
+
+    @Override
+    public boolean isInitialized() throws RdfDAOException {
+        return delegate.isInitialized();
+    }
+
+    @Override
+    public void destroy() throws RdfDAOException {
+        cache.invalidateAll();
+        delegate.destroy();
+    }
+
+    @Override
+    public double getCardinality(final C conf, final CARDINALITY_OF card, final List<Value> val) throws RdfDAOException {
+        return getCardinality(conf, card, val, null);
+    }
+
+    @Override
+    public double getCardinality(final C conf, final CARDINALITY_OF card, final List<Value> val, final Resource context) throws RdfDAOException {
+        final CacheKey key = new CacheKey(Arrays.asList(conf.getAuths()), new CardinalityRequest(card, val, context));
+        final Double cached = cache.getIfPresent(key);
+        if(cached != null) {
+            return cached;
+        }
+
+        final double cardinality = delegate.getCardinality(conf, card, val, context);
+        cache.put(key, cardinality);
+        return cardinality;
+    }
+
+    @Override
+    public Map<CardinalityRequest, Double> getCardinalities(final C conf, final Collection<CardinalityRequest> requests) throws RdfDAOException {
+        final List<String> auths = Arrays.asList(conf.getAuths());
+        final Map<CardinalityRequest, Double> cardinalities = new HashMap<>();
+
+        // Find the values that have already been looked up.
+        final List<CacheKey> keys = new ArrayList<>(requests.size());
+        for(final CardinalityRequest request : requests) {
+            keys.add(new CacheKey(auths, request));
+        }
+        final Map<CacheKey, Double> cached = cache.getAllPresent(keys);
+        for(final Map.Entry<CacheKey, Double> entry : cached.entrySet()) {
+            cardinalities.put(entry.getKey().request, entry.getValue());
+        }
+
+        // Resolve everything else with a single call to the delegate.
+        final List<CardinalityRequest> missing = new ArrayList<>();
+        for(final CacheKey key : keys) {
+            if(!cached.containsKey(key)) {
+                missing.add(key.request);
+            }
+        }
+        if(!missing.isEmpty()) {
+            final Map<CardinalityRequest, Double> loaded = delegate.getCardinalities(conf, missing);
+            for(final Map.Entry<CardinalityRequest, Double> entry : loaded.entrySet()) {
+                cache.put(new CacheKey(auths, entry.getKey()), entry.getValue());
+                cardinalities.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return cardinalities;
+    }
+
+    @Override
+    public void setConf(final C conf) {
+        delegate.setConf(conf);
+    }
+
+    @Override
+    public C getConf() {
+        return delegate.getConf();
+    }
+
+    /**
+     * Removes every cached cardinality.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return The number of lookups that were answered by the cache.
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * @return The number of lookups that had to be resolved by the delegate.
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * @return A snapshot of the cache's hit, miss, and eviction counts.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Identifies a cached cardinality: the request and the authorizations it was resolved with.
+     */
+    private static final class CacheKey {
+        private final List<String> auths;
+        private final CardinalityRequest request;
+
+        CacheKey(final List<String> auths, final CardinalityRequest request) {
+            this.auths = auths;
+            this.request = request;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(auths, request);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(o instanceof CacheKey) {
+                final CacheKey other = (CacheKey) o;
+                return auths.equals(other.auths) && request.equals(other.request);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.apache.rya.api.persist;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * A single cardinality lookup against a {@link RdfEvalStatsDAO}: the kind of
+ * cardinality, the values that make up the composite index, and an optional
+ * context. Instances are immutable and may be used as cache or map keys.
+ */
+@DefaultAnnotation(NonNull.class)
+public final class CardinalityRequest {
+
+    private final CARDINALITY_OF card;
+    private final List<Value> values;
+    private final Resource context;
+
+    /**
+     * Constructs an instance of {@link CardinalityRequest}.
+     *
+     * @param card - The kind of cardinality that is being looked up. (not null)
+     * @param values - The values of the composite index. (not null)
+     * @param context - The context the cardinality is scoped to. (optional)
+     */
+    public CardinalityRequest(final CARDINALITY_OF card, final List<Value> values, @Nullable final Resource context) {
+        this.card = requireNonNull(card);
+        this.values = Collections.unmodifiableList(new ArrayList<>(requireNonNull(values)));
+        this.context = context;
+    }
+
+    /**
+     * @return The kind of cardinality that is being looked up.
+     */
+    public CARDINALITY_OF getCardinalityOf() {
+        return card;
+    }
+
+    /**
+     * @return The values of the composite index.
+     */
+    public List<Value> getValues() {
+        return values;
+    }
+
+    /**
+     * @return The context the cardinality is scoped to, or {@code null} if it spans every context.
+     */
+    public @Nullable Resource getContext() {
+        return context;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(card, values, context);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(o instanceof CardinalityRequest) {
+            final CardinalityRequest other = (CardinalityRequest) o;
+            return Objects.equals(card, other.card) &&
+                    Objects.equals(values, other.values) &&
+                    Objects.equals(context, other.context);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "CardinalityRequest{card=" + card + ", values=" + values + ", context=" + context + "}";
+    }
+}
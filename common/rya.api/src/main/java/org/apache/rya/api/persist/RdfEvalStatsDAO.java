@@ -19,7 +19,10 @@ package org.apache.rya.api.persist;
  * under the License.
  */
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.eclipse.rdf4j.model.Resource;
@@ -45,6 +48,26 @@ public interface RdfEvalStatsDAO<C extends RdfCloudTripleStoreConfiguration> {
     public double getCardinality(C conf, CARDINALITY_OF card, List<Value> val) throws RdfDAOException;
     public double getCardinality(C conf, CARDINALITY_OF card, List<Value> val, Resource context) throws RdfDAOException;
 
+    /**
+     * Resolves many cardinalities at once. Implementations that can look the
+     * values up in a single round trip should override this; the default
+     * resolves each request individually.
+     *
+     * @param conf - The configuration the lookups are performed with.
+     * @param requests - The cardinalities to look up.
+     * @return The cardinality of every request, -1 if none could be found.
+     * @throws RdfDAOException A lookup could not be performed.
+     */
+    public default Map<CardinalityRequest, Double> getCardinalities(final C conf, final Collection<CardinalityRequest> requests) throws RdfDAOException {
+        final Map<CardinalityRequest, Double> cardinalities = new HashMap<>();
+        for(final CardinalityRequest request : requests) {
+            if(!cardinalities.containsKey(request)) {
+                cardinalities.put(request, getCardinality(conf, request.getCardinalityOf(), request.getValues(), request.getContext()));
+            }
+        }
+        return cardinalities;
+    }
+
     public void setConf(C conf);
 
     public C getConf();
@@ -50,6 +50,19 @@ public interface RyaSecondaryIndexer extends Closeable, Flushable, Configurable
 
     public void deleteStatement(RyaStatement stmt) throws IOException;
 
+    /**
+     * Deletes a batch of statements. Indexers that can remove many entries with
+     * a single request should override this; the default deletes them one at a time.
+     *
+     * @param statements - The statements to delete. (not null)
+     * @throws IOException The statements could not be deleted.
+     */
+    public default void deleteStatements(final Collection<RyaStatement> statements) throws IOException {
+        for (final RyaStatement statement : statements) {
+            deleteStatement(statement);
+        }
+    }
+
     public void dropGraph(RyaIRI... graphs);
 
     /**
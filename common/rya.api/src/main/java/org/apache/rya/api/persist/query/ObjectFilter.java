@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.persist.query;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaToRdfConversions;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.string.StrStarts;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+/**
+ * A conjunction of SPARQL filter conditions on the object of a statement
+ * pattern that a {@link RyaQueryEngine} may evaluate while it scans, instead of
+ * shipping every matching statement back to be filtered by the query.
+ * <p>
+ * Each condition is evaluated the same way the query evaluation strategy
+ * evaluates the expression it was compiled from. An object that makes a
+ * condition raise an evaluation error is rejected, just as a FILTER rejects it.
+ * <p>
+ * Filters are immutable and may be {@link #encode() encoded} as a string so they
+ * can be carried by a configuration or handed to a server side iterator.
+ */
+public class ObjectFilter {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final String CONDITION_DELIM = ";";
+    private static final String FIELD_DELIM = ",";
+
+    private static final String COMPARE = "compare";
+    private static final String REGEX = "regex";
+    private static final String STRSTARTS = "strstarts";
+    private static final String LANGMATCHES = "langmatches";
+
+    private final List<Condition> conditions;
+
+    /**
+     * Constructs an instance of {@link ObjectFilter}.
+     *
+     * @param conditions - The conditions an object must satisfy to be accepted. (not null, not empty)
+     */
+    public ObjectFilter(final List<Condition> conditions) {
+        requireNonNull(conditions);
+        checkArgument(!conditions.isEmpty(), "An object filter needs at least one condition.");
+        this.conditions = Collections.unmodifiableList(new ArrayList<>(conditions));
+    }
+
+    /**
+     * @return The conditions an object must satisfy to be accepted.
+     */
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * @param object - The object of a stored statement. (not null)
+     * @return {@code true} if the object satisfies every condition of this filter.
+     */
+    public boolean accept(final RyaType object) {
+        requireNonNull(object);
+        return accept(RyaToRdfConversions.convertValue(object));
+    }
+
+    /**
+     * @param object - The object of a statement. (not null)
+     * @return {@code true} if the object satisfies every condition of this filter.
+     */
+    public boolean accept(final Value object) {
+        requireNonNull(object);
+        for (final Condition condition : conditions) {
+            try {
+                if (!condition.accept(object)) {
+                    return false;
+                }
+            } catch (final ValueExprEvaluationException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A string that {@link #decode(String)} turns back into this filter.
+     */
+    public String encode() {
+        final List<String> encoded = new ArrayList<>(conditions.size());
+        for (final Condition condition : conditions) {
+            final List<String> fields = new ArrayList<>();
+            for (final String field : condition.fields()) {
+                fields.add(encodeField(field));
+            }
+            encoded.add(Joiner.on(FIELD_DELIM).join(fields));
+        }
+        return Joiner.on(CONDITION_DELIM).join(encoded);
+    }
+
+    /**
+     * @param encoded - A filter that was written by {@link #encode()}. (not null)
+     * @return The decoded filter.
+     * @throws IllegalArgumentException The string is not an encoded filter.
+     */
+    public static ObjectFilter decode(final String encoded) {
+        requireNonNull(encoded);
+        final List<Condition> conditions = new ArrayList<>();
+        for (final String line : Splitter.on(CONDITION_DELIM).split(encoded)) {
+            final List<String> fields = new ArrayList<>();
+            for (final String field : Splitter.on(FIELD_DELIM).split(line)) {
+                fields.add(decodeField(field));
+            }
+            conditions.add(decodeCondition(fields));
+        }
+        return new ObjectFilter(conditions);
+    }
+
+    private static Condition decodeCondition(final List<String> fields) {
+        final String kind = fields.get(0);
+        try {
+            switch (kind) {
+                case COMPARE:
+                    final Value constant;
+                    if (fields.get(3).equals("iri")) {
+                        constant = VF.createIRI(fields.get(4));
+                    } else if (!fields.get(6).isEmpty()) {
+                        constant = VF.createLiteral(fields.get(4), fields.get(6));
+                    } else {
+                        constant = VF.createLiteral(fields.get(4), VF.createIRI(fields.get(5)));
+                    }
+                    return compare(CompareOp.valueOf(fields.get(1)), constant, Boolean.parseBoolean(fields.get(2)));
+                case REGEX:
+                    return regex(fields.get(1), fields.get(2));
+                case STRSTARTS:
+                    return strStarts(fields.get(1));
+                case LANGMATCHES:
+                    return langMatches(fields.get(1));
+                default:
+                    throw new IllegalArgumentException("Unknown object filter condition: " + kind);
+            }
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("The " + kind + " condition is missing fields: " + fields, e);
+        }
+    }
+
+    private static String encodeField(final String field) {
+        try {
+            return URLEncoder.encode(field, StandardCharsets.UTF_8.name());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decodeField(final String field) {
+        try {
+            return URLDecoder.decode(field, StandardCharsets.UTF_8.name());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a condition that compares the object to a constant, like the
+     * FILTER expression {@code ?o < 5}.
+     *
+     * @param op - How the values are compared. (not null)
+     * @param constant - The value the object is compared to. (not null)
+     * @param objectOnLeft - {@code true} if the object is the left operand of the comparison.
+     * @return The condition.
+     */
+    public static Condition compare(final CompareOp op, final Value constant, final boolean objectOnLeft) {
+        return new CompareCondition(op, constant, objectOnLeft);
+    }
+
+    /**
+     * Creates a condition that matches the object against a regular expression,
+     * like the FILTER expression {@code REGEX(?o, "^a", "i")}.
+     *
+     * @param pattern - The regular expression. (not null)
+     * @param flags - The SPARQL regex flags. (not null)
+     * @return The condition.
+     * @throws IllegalArgumentException The pattern or its flags are not valid.
+     */
+    public static Condition regex(final String pattern, final String flags) {
+        return new RegexCondition(pattern, flags);
+    }
+
+    /**
+     * Creates a condition that checks the object starts with a plain string,
+     * like the FILTER expression {@code STRSTARTS(?o, "a")}.
+     *
+     * @param prefix - The string the object must start with. (not null)
+     * @return The condition.
+     */
+    public static Condition strStarts(final String prefix) {
+        return new StrStartsCondition(prefix);
+    }
+
+    /**
+     * Creates a condition that checks the language tag of the object, like the
+     * FILTER expression {@code LANGMATCHES(LANG(?o), "en")}.
+     *
+     * @param langRange - The language range the tag must match. (not null)
+     * @return The condition.
+     */
+    public static Condition langMatches(final String langRange) {
+        return new LangMatchesCondition(langRange);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof ObjectFilter && conditions.equals(((ObjectFilter) o).conditions);
+    }
+
+    @Override
+    public int hashCode() {
+        return conditions.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return conditions.toString();
+    }
+
+    /**
+     * A single condition of an {@link ObjectFilter}.
+     */
+    public static abstract class Condition {
+
+        /**
+         * @param object - The object of a statement. (not null)
+         * @return {@code true} if the object satisfies this condition.
+         * @throws ValueExprEvaluationException The condition could not be evaluated for the object.
+         */
+        protected abstract boolean accept(Value object) throws ValueExprEvaluationException;
+
+        /**
+         * @return The kind of this condition followed by its arguments.
+         */
+        protected abstract List<String> fields();
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || o != null && getClass() == o.getClass() && fields().equals(((Condition) o).fields());
+        }
+
+        @Override
+        public int hashCode() {
+            return fields().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return fields().toString();
+        }
+    }
+
+    private static class CompareCondition extends Condition {
+        private final CompareOp op;
+        private final Value constant;
+        private final boolean objectOnLeft;
+
+        CompareCondition(final CompareOp op, final Value constant, final boolean objectOnLeft) {
+            this.op = requireNonNull(op);
+            this.constant = requireNonNull(constant);
+            checkArgument(constant instanceof IRI || constant instanceof Literal, "Only IRIs and literals may be compared.");
+            this.objectOnLeft = objectOnLeft;
+        }
+
+        @Override
+        protected boolean accept(final Value object) throws ValueExprEvaluationException {
+            return objectOnLeft ? QueryEvaluationUtil.compare(object, constant, op)
+                    : QueryEvaluationUtil.compare(constant, object, op);
+        }
+
+        @Override
+        protected List<String> fields() {
+            final List<String> fields = new ArrayList<>();
+            fields.add(COMPARE);
+            fields.add(op.name());
+            fields.add(Boolean.toString(objectOnLeft));
+            if (constant instanceof IRI) {
+                fields.add("iri");
+                fields.add(constant.stringValue());
+                fields.add("");
+                fields.add("");
+            } else {
+                final Literal literal = (Literal) constant;
+                fields.add("literal");
+                fields.add(literal.getLabel());
+                fields.add(literal.getDatatype().stringValue());
+                fields.add(literal.getLanguage().orElse(""));
+            }
+            return fields;
+        }
+    }
+
+    private static class RegexCondition extends Condition {
+        private final String regex;
+        private final String flags;
+        private final Pattern pattern;
+
+        RegexCondition(final String regex, final String flags) {
+            this.regex = requireNonNull(regex);
+            this.flags = requireNonNull(flags);
+            this.pattern = Pattern.compile(regex, toPatternFlags(flags));
+        }
+
+        /**
+         * Translates SPARQL regex flags the same way the query evaluation strategy does.
+         */
+        private static int toPatternFlags(final String flags) {
+            int f = 0;
+            for (final char c : flags.toCharArray()) {
+                switch (c) {
+                    case 's':
+                        f |= Pattern.DOTALL;
+                        break;
+                    case 'm':
+                        f |= Pattern.MULTILINE;
+                        break;
+                    case 'i':
+                        f |= Pattern.CASE_INSENSITIVE;
+                        f |= Pattern.UNICODE_CASE;
+                        break;
+                    case 'x':
+                        f |= Pattern.COMMENTS;
+                        break;
+                    case 'd':
+                        f |= Pattern.UNIX_LINES;
+                        break;
+                    case 'u':
+                        f |= Pattern.UNICODE_CASE;
+                        break;
+                    case 'q':
+                        f |= Pattern.LITERAL;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported regex flags: " + flags);
+                }
+            }
+            return f;
+        }
+
+        @Override
+        protected boolean accept(final Value object) {
+            return QueryEvaluationUtil.isStringLiteral(object) && pattern.matcher(((Literal) object).getLabel()).find();
+        }
+
+        @Override
+        protected List<String> fields() {
+            final List<String> fields = new ArrayList<>();
+            fields.add(REGEX);
+            fields.add(regex);
+            fields.add(flags);
+            return fields;
+        }
+    }
+
+    private static class StrStartsCondition extends Condition {
+        private static final StrStarts STR_STARTS = new StrStarts();
+
+        private final Literal prefix;
+
+        StrStartsCondition(final String prefix) {
+            this.prefix = VF.createLiteral(requireNonNull(prefix));
+        }
+
+        @Override
+        protected boolean accept(final Value object) throws ValueExprEvaluationException {
+            return ((Literal) STR_STARTS.evaluate(VF, object, prefix)).booleanValue();
+        }
+
+        @Override
+        protected List<String> fields() {
+            final List<String> fields = new ArrayList<>();
+            fields.add(STRSTARTS);
+            fields.add(prefix.getLabel());
+            return fields;
+        }
+    }
+
+    private static class LangMatchesCondition extends Condition {
+        private final String langRange;
+
+        LangMatchesCondition(final String langRange) {
+            this.langRange = requireNonNull(langRange);
+        }
+
+        @Override
+        protected boolean accept(final Value object) throws ValueExprEvaluationException {
+            if (!(object instanceof Literal)) {
+                // LANG() of a resource is an error.
+                throw new ValueExprEvaluationException();
+            }
+            final String langTag = ((Literal) object).getLanguage().orElse("");
+            if (langRange.equals("*")) {
+                return !langTag.isEmpty();
+            } else if (langTag.length() == langRange.length()) {
+                return langTag.equalsIgnoreCase(langRange);
+            } else if (langTag.length() > langRange.length()) {
+                return langTag.substring(0, langRange.length()).equalsIgnoreCase(langRange)
+                        && langTag.charAt(langRange.length()) == '-';
+            }
+            return false;
+        }
+
+        @Override
+        protected List<String> fields() {
+            final List<String> fields = new ArrayList<>();
+            fields.add(LANGMATCHES);
+            fields.add(langRange);
+            return fields;
+        }
+    }
+}
@@ -61,6 +61,33 @@ public interface RyaQueryEngine<C extends RdfCloudTripleStoreConfiguration> exte
     public CloseableIteration<? extends Map.Entry<RyaStatement, BindingSet>, RyaDAOException>
     queryWithBindingSet(Collection<Map.Entry<RyaStatement, BindingSet>> stmts, C conf) throws RyaDAOException;
 
+    /**
+     * Batch query that reports the work done to answer it. Engines that do not
+     * measure their scans ignore the metrics.
+     *
+     * @param stmts
+     * @param conf
+     * @param metrics - Receives the ranges issued and bytes read. (not null)
+     * @return
+     * @throws RyaDAOException
+     */
+    public default CloseableIteration<? extends Map.Entry<RyaStatement, BindingSet>, RyaDAOException>
+    queryWithBindingSet(Collection<Map.Entry<RyaStatement, BindingSet>> stmts, C conf, ScanMetrics metrics) throws RyaDAOException {
+        return queryWithBindingSet(stmts, conf);
+    }
+
+    /**
+     * Indicates whether the batch queries of this engine apply the
+     * {@link RdfCloudTripleStoreConfiguration#getObjectFilter() object filter}
+     * of the configuration they are given. Callers must not rely on a filter
+     * being applied by an engine that does not support it.
+     *
+     * @return {@code true} if object filters are applied. Defaults to {@code false}.
+     */
+    public default boolean supportsObjectFilters() {
+        return false;
+    }
+
     /**
      * Performs intersection joins.
      *
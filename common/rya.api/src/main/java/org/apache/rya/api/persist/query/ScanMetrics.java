@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.persist.query;
+
+/**
+ * Receives measurements of the work a {@link RyaQueryEngine} does to answer a
+ * query. Implementations must be thread safe, since results may be read on
+ * several threads at once.
+ */
+public interface ScanMetrics {
+
+    /**
+     * Called when the engine starts scanning.
+     *
+     * @param count - The number of ranges that were issued to the backing store.
+     */
+    public void rangesIssued(int count);
+
+    /**
+     * Called as the engine reads entries from the backing store.
+     *
+     * @param bytes - The size of the entries that were read.
+     */
+    public void bytesRead(long bytes);
+}
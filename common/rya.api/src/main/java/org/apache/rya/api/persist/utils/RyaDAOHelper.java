@@ -29,6 +29,7 @@ import org.apache.rya.api.RdfCloudTripleStoreUtils;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.persist.query.ScanMetrics;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
 import org.apache.rya.api.resolver.RyaToRdfConversions;
 import org.apache.rya.api.utils.NullableStatementImpl;
@@ -110,6 +111,13 @@ public class RyaDAOHelper {
     }
 
     public static CloseableIteration<? extends Map.Entry<Statement, BindingSet>, QueryEvaluationException> query(RyaDAO ryaDAO, Collection<Map.Entry<Statement, BindingSet>> statements, RdfCloudTripleStoreConfiguration conf) throws QueryEvaluationException {
+        return query(ryaDAO, statements, conf, null);
+    }
+
+    /**
+     * Batch query that reports the ranges issued and bytes read to {@code metrics}, if it is provided.
+     */
+    public static CloseableIteration<? extends Map.Entry<Statement, BindingSet>, QueryEvaluationException> query(RyaDAO ryaDAO, Collection<Map.Entry<Statement, BindingSet>> statements, RdfCloudTripleStoreConfiguration conf, ScanMetrics metrics) throws QueryEvaluationException {
         Collection<Map.Entry<RyaStatement, BindingSet>> ryaStatements = new ArrayList<Map.Entry<RyaStatement, BindingSet>>(statements.size());
         for (Map.Entry<Statement, BindingSet> entry : statements) {
             ryaStatements.add(new RdfCloudTripleStoreUtils.CustomEntry<RyaStatement, BindingSet>
@@ -117,7 +125,8 @@ public class RyaDAOHelper {
         }
         final CloseableIteration<? extends Map.Entry<RyaStatement, BindingSet>, RyaDAOException> query;
         try {
-            query = ryaDAO.getQueryEngine().queryWithBindingSet(ryaStatements, conf);
+            query = metrics == null ? ryaDAO.getQueryEngine().queryWithBindingSet(ryaStatements, conf)
+                    : ryaDAO.getQueryEngine().queryWithBindingSet(ryaStatements, conf, metrics);
         } catch (RyaDAOException e) {
             throw new QueryEvaluationException(e);
         }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.query.strategy.dictionary;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.LAST_BYTES;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaRange;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.query.strategy.ByteRange;
+import org.apache.rya.api.query.strategy.TriplePatternStrategy;
+import org.apache.rya.api.resolver.triple.TripleRowRegex;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+
+import com.google.common.primitives.Bytes;
+
+/**
+ * Defines the ranges of the rows a {@link org.apache.rya.api.resolver.triple.dictionary.DictionaryTripleRowResolver}
+ * writes to one of the tables. The bound terms of a pattern are replaced by
+ * their ids, which form the prefix of the rows that match it.
+ * <p>
+ * Ids are not ordered like the terms they stand for, so patterns with
+ * {@link RyaRange ranges} are not handled, and regular expressions can not be
+ * evaluated against the rows.
+ */
+public class DictionaryTriplePatternStrategy implements TriplePatternStrategy {
+
+    /**
+     * A row no id starts with, so a range of only this row matches nothing.
+     */
+    private static final byte[] NO_ROW = LAST_BYTES;
+
+    private final TABLE_LAYOUT layout;
+    private final TermDictionary dictionary;
+
+    /**
+     * Constructs an instance of {@link DictionaryTriplePatternStrategy}.
+     *
+     * @param layout - The table the ranges are defined for. (not null)
+     * @param dictionary - Maps the terms of the patterns to their ids. (not null)
+     */
+    public DictionaryTriplePatternStrategy(final TABLE_LAYOUT layout, final TermDictionary dictionary) {
+        this.layout = requireNonNull(layout);
+        this.dictionary = requireNonNull(dictionary);
+    }
+
+    @Override
+    public TABLE_LAYOUT getLayout() {
+        return layout;
+    }
+
+    @Override
+    public Map.Entry<TABLE_LAYOUT, ByteRange> defineRange(final RyaIRI subject, final RyaIRI predicate, final RyaType object,
+            final RyaIRI context, final RdfCloudTripleStoreConfiguration conf) throws IOException {
+        if (!handles(subject, predicate, object, context)) {
+            return null;
+        }
+
+        final RyaType[] terms;
+        switch (layout) {
+            case SPO:
+                terms = new RyaType[] { subject, predicate, object };
+                break;
+            case PO:
+                terms = new RyaType[] { predicate, object, subject };
+                break;
+            default:
+                terms = new RyaType[] { object, subject, predicate };
+                break;
+        }
+
+        byte[] prefix = new byte[0];
+        try {
+            for (final RyaType term : terms) {
+                if (term == null) {
+                    break;
+                }
+                final byte[] id = dictionary.getId(term);
+                if (id == null) {
+                    // A term that was never stored can not match any statement.
+                    return new RdfCloudTripleStoreUtils.CustomEntry<>(layout, new ByteRange(NO_ROW, NO_ROW));
+                }
+                prefix = Bytes.concat(prefix, id);
+            }
+        } catch (final TripleRowResolverException e) {
+            throw new IOException(e);
+        }
+        return new RdfCloudTripleStoreUtils.CustomEntry<>(layout, new ByteRange(prefix, Bytes.concat(prefix, LAST_BYTES)));
+    }
+
+    @Override
+    public boolean handles(final RyaIRI subject, final RyaIRI predicate, final RyaType object, final RyaIRI context) {
+        if (subject instanceof RyaRange || predicate instanceof RyaRange || object instanceof RyaRange) {
+            return false;
+        }
+        switch (layout) {
+            case SPO:
+                //sp(o), s, or a full scan
+                return subject != null ? predicate != null || object == null : predicate == null && object == null;
+            case PO:
+                //po, p
+                return subject == null && predicate != null;
+            default:
+                //os, o
+                return object != null && predicate == null;
+        }
+    }
+
+    @Override
+    public TripleRowRegex buildRegex(final String subject, final String predicate, final String object, final String context,
+            final byte[] objectTypeInfo) {
+        // The type of the object is part of its id, so objectTypeInfo needs no regex.
+        if (subject != null || predicate != null || object != null || context != null) {
+            throw new UnsupportedOperationException("Regular expressions can not be evaluated against dictionary encoded rows.");
+        }
+        return null;
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.query.strategy.TriplePatternStrategy;
+import org.apache.rya.api.query.strategy.dictionary.DictionaryTriplePatternStrategy;
 import org.apache.rya.api.query.strategy.wholerow.HashedPoWholeRowTriplePatternStrategy;
 import org.apache.rya.api.query.strategy.wholerow.HashedSpoWholeRowTriplePatternStrategy;
 import org.apache.rya.api.query.strategy.wholerow.NullRowTriplePatternStrategy;
@@ -41,6 +42,8 @@ import org.apache.rya.api.query.strategy.wholerow.SpoWholeRowTriplePatternStrate
 import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowResolver;
 import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.apache.rya.api.resolver.triple.dictionary.DictionaryTripleRowResolver;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
 import org.apache.rya.api.resolver.triple.impl.WholeRowHashedTripleResolver;
 import org.apache.rya.api.resolver.triple.impl.WholeRowTripleResolver;
 
@@ -65,6 +68,18 @@ public class RyaTripleContext {
     }
 
 
+    /**
+     * Creates a context that stores the ids of the terms of statements instead of the terms themselves.
+     *
+     * @param dictionary - Maps the terms of the statements to their ids. (not null)
+     */
+    public RyaTripleContext(final TermDictionary dictionary) {
+        tripleResolver = new DictionaryTripleRowResolver(dictionary);
+        triplePatternStrategyList.add(new DictionaryTriplePatternStrategy(TABLE_LAYOUT.SPO, dictionary));
+        triplePatternStrategyList.add(new DictionaryTriplePatternStrategy(TABLE_LAYOUT.PO, dictionary));
+        triplePatternStrategyList.add(new DictionaryTriplePatternStrategy(TABLE_LAYOUT.OSP, dictionary));
+    }
+
     private static class RyaTripleContextHolder {
     	// TODO want to be able to support more variability in configuration here
         public static final RyaTripleContext INSTANCE = new RyaTripleContext(false);
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A {@link TermDictionary} that keeps the most recently used terms and ids of
+ * another dictionary in memory. Every lookup caches both directions of the
+ * mapping, so the terms of a query pattern are decoded without another lookup.
+ */
+public class CachingTermDictionary implements TermDictionary {
+
+    private final TermDictionary dictionary;
+    private final Cache<RyaType, byte[]> ids;
+    private final Cache<ByteBuffer, RyaType> terms;
+
+    /**
+     * Constructs an instance of {@link CachingTermDictionary}.
+     *
+     * @param dictionary - The dictionary whose mappings are cached. (not null)
+     * @param cacheSize - The number of mappings cached in each direction. (greater than 0)
+     */
+    public CachingTermDictionary(final TermDictionary dictionary, final int cacheSize) {
+        this.dictionary = requireNonNull(dictionary);
+        checkArgument(cacheSize > 0, "The cache size must be greater than 0.");
+        ids = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        terms = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    @Override
+    public byte[] getOrCreateId(final RyaType term) throws TripleRowResolverException {
+        requireNonNull(term);
+        byte[] id = ids.getIfPresent(term);
+        if (id == null) {
+            id = dictionary.getOrCreateId(term);
+            cache(term, id);
+        }
+        return id;
+    }
+
+    @Override
+    public List<byte[]> getOrCreateIds(final List<RyaType> terms) throws TripleRowResolverException {
+        requireNonNull(terms);
+        final Map<RyaType, byte[]> found = new HashMap<>();
+        final List<RyaType> misses = new ArrayList<>();
+        for (final RyaType term : terms) {
+            final byte[] id = ids.getIfPresent(requireNonNull(term));
+            if (id == null) {
+                misses.add(term);
+            } else {
+                found.put(term, id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            final List<byte[]> created = dictionary.getOrCreateIds(misses);
+            for (int i = 0; i < misses.size(); i++) {
+                cache(misses.get(i), created.get(i));
+                found.put(misses.get(i), created.get(i));
+            }
+        }
+
+        final List<byte[]> termIds = new ArrayList<>(terms.size());
+        for (final RyaType term : terms) {
+            termIds.add(found.get(term));
+        }
+        return termIds;
+    }
+
+    @Override
+    public byte[] getId(final RyaType term) throws TripleRowResolverException {
+        requireNonNull(term);
+        byte[] id = ids.getIfPresent(term);
+        if (id == null) {
+            id = dictionary.getId(term);
+            if (id != null) {
+                cache(term, id);
+            }
+        }
+        return id;
+    }
+
+    @Override
+    public RyaType getTerm(final byte[] id) throws TripleRowResolverException {
+        requireNonNull(id);
+        RyaType term = terms.getIfPresent(ByteBuffer.wrap(id));
+        if (term == null) {
+            term = dictionary.getTerm(id);
+            cache(term, id);
+        }
+        return term;
+    }
+
+    @Override
+    public Map<ByteBuffer, RyaType> getTerms(final Collection<byte[]> ids) throws TripleRowResolverException {
+        requireNonNull(ids);
+        final Map<ByteBuffer, RyaType> found = new HashMap<>();
+        final List<byte[]> misses = new ArrayList<>();
+        for (final byte[] id : ids) {
+            final ByteBuffer key = ByteBuffer.wrap(requireNonNull(id));
+            final RyaType term = terms.getIfPresent(key);
+            if (term == null) {
+                misses.add(id);
+            } else {
+                found.put(key, term);
+            }
+        }
+        if (!misses.isEmpty()) {
+            final Map<ByteBuffer, RyaType> loaded = dictionary.getTerms(misses);
+            for (final byte[] id : misses) {
+                final RyaType term = loaded.get(ByteBuffer.wrap(id));
+                cache(term, id);
+                found.put(ByteBuffer.wrap(id), term);
+            }
+        }
+        return found;
+    }
+
+    private void cache(final RyaType term, final byte[] id) {
+        ids.put(term, id);
+        terms.put(ByteBuffer.wrap(id), term);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_BYTES;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.TripleRowResolver;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+
+import com.google.common.primitives.Bytes;
+
+/**
+ * Stores triples in spo, po and osp like the whole row resolvers, except that
+ * the row holds the {@link TermDictionary} ids of the terms instead of the
+ * terms themselves. The context, qualifier, visibility, timestamp and value
+ * are stored the same way.
+ */
+public class DictionaryTripleRowResolver implements TripleRowResolver {
+
+    private final TermDictionary dictionary;
+
+    /**
+     * Constructs an instance of {@link DictionaryTripleRowResolver}.
+     *
+     * @param dictionary - Maps the terms of the statements to the ids that are stored. (not null)
+     */
+    public DictionaryTripleRowResolver(final TermDictionary dictionary) {
+        this.dictionary = requireNonNull(dictionary);
+    }
+
+    /**
+     * @return Maps the terms of the statements to the ids that are stored.
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public Map<TABLE_LAYOUT, TripleRow> serialize(final RyaStatement stmt) throws TripleRowResolverException {
+        final RyaIRI subject = stmt.getSubject();
+        final RyaIRI predicate = stmt.getPredicate();
+        final RyaType object = stmt.getObject();
+        final RyaIRI context = stmt.getContext();
+        final Long timestamp = stmt.getTimestamp();
+        final byte[] columnVisibility = stmt.getColumnVisibility();
+        final String qualifer = stmt.getQualifer();
+        final byte[] qualBytes = qualifer == null ? EMPTY_BYTES : qualifer.getBytes(StandardCharsets.UTF_8);
+        final byte[] value = stmt.getValue();
+        assert subject != null && predicate != null && object != null;
+        final byte[] cf = (context == null) ? EMPTY_BYTES : context.getData().getBytes(StandardCharsets.UTF_8);
+
+        final List<byte[]> ids = dictionary.getOrCreateIds(Arrays.asList(subject, predicate, object));
+        final byte[] subjId = ids.get(0);
+        final byte[] predId = ids.get(1);
+        final byte[] objId = ids.get(2);
+
+        final Map<TABLE_LAYOUT, TripleRow> tripleRowMap = new HashMap<TABLE_LAYOUT, TripleRow>();
+        tripleRowMap.put(TABLE_LAYOUT.SPO, new TripleRow(Bytes.concat(subjId, predId, objId), cf, qualBytes,
+                timestamp, columnVisibility, value));
+        tripleRowMap.put(TABLE_LAYOUT.PO, new TripleRow(Bytes.concat(predId, objId, subjId), cf, qualBytes,
+                timestamp, columnVisibility, value));
+        tripleRowMap.put(TABLE_LAYOUT.OSP, new TripleRow(Bytes.concat(objId, subjId, predId), cf, qualBytes,
+                timestamp, columnVisibility, value));
+        return tripleRowMap;
+    }
+
+    @Override
+    public RyaStatement deserialize(final TABLE_LAYOUT table_layout, final TripleRow tripleRow) throws TripleRowResolverException {
+        assert tripleRow != null && table_layout != null;
+        final byte[][] rowIds = readIds(tripleRow.getRow());
+        final byte[] first = rowIds[0];
+        final byte[] second = rowIds[1];
+        final byte[] third = rowIds[2];
+        final byte[] columnFamily = tripleRow.getColumnFamily();
+        final boolean contextExists = columnFamily != null && columnFamily.length > 0;
+        final RyaIRI context = (contextExists) ? (new RyaIRI(new String(columnFamily, StandardCharsets.UTF_8))) : null;
+        final byte[] columnQualifier = tripleRow.getColumnQualifier();
+        final String qualifier = columnQualifier != null && columnQualifier.length > 0 ? new String(columnQualifier, StandardCharsets.UTF_8) : null;
+        final Long timestamp = tripleRow.getTimestamp();
+        final byte[] columnVisibility = tripleRow.getColumnVisibility();
+        final byte[] value = tripleRow.getValue();
+
+        final byte[] subjId;
+        final byte[] predId;
+        final byte[] objId;
+        switch (table_layout) {
+            case SPO:
+                subjId = first;
+                predId = second;
+                objId = third;
+                break;
+            case PO:
+                predId = first;
+                objId = second;
+                subjId = third;
+                break;
+            case OSP:
+                objId = first;
+                subjId = second;
+                predId = third;
+                break;
+            default:
+                throw new TripleRowResolverException("TripleRow[" + tripleRow + "] with Table layout[" + table_layout + "] is not deserializable");
+        }
+        return new RyaStatement(toIRI(dictionary.getTerm(subjId)), toIRI(dictionary.getTerm(predId)), copy(dictionary.getTerm(objId)),
+                context, qualifier, columnVisibility, value, timestamp);
+    }
+
+    /**
+     * Looks up the terms of a batch of rows with one dictionary lookup. When
+     * the dictionary caches its terms, the rows are then deserialized without
+     * a lookup per row.
+     *
+     * @param rows - The rows of the triple table that are about to be deserialized. (not null)
+     * @throws TripleRowResolverException A row is not dictionary encoded or
+     *   the terms could not be looked up.
+     */
+    public void prefetchTerms(final Collection<byte[]> rows) throws TripleRowResolverException {
+        requireNonNull(rows);
+        // Rows that share a term share its id, so each distinct id is looked up once.
+        final Map<ByteBuffer, byte[]> ids = new HashMap<>();
+        for (final byte[] row : rows) {
+            for (final byte[] id : readIds(row)) {
+                ids.put(ByteBuffer.wrap(id), id);
+            }
+        }
+        if (!ids.isEmpty()) {
+            dictionary.getTerms(ids.values());
+        }
+    }
+
+    private static byte[][] readIds(final byte[] row) throws TripleRowResolverException {
+        final byte[] first = TermIds.readId(row, 0);
+        final byte[] second = TermIds.readId(row, first.length);
+        final byte[] third = TermIds.readId(row, first.length + second.length);
+        if (first.length + second.length + third.length != row.length) {
+            throw new TripleRowResolverException("The row holds more than three ids.");
+        }
+        return new byte[][] { first, second, third };
+    }
+
+    /**
+     * Terms may be shared by a caching dictionary, so every statement gets its own copies.
+     */
+    private static RyaIRI toIRI(final RyaType term) {
+        return new RyaIRI(term.getData());
+    }
+
+    private static RyaType copy(final RyaType term) {
+        if (term instanceof RyaIRI) {
+            return toIRI(term);
+        }
+        return new RyaType(term.getDataType(), term.getData(), term.getLanguage());
+    }
+}
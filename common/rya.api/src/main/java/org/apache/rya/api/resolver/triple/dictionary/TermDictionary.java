@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+
+/**
+ * Maps the terms of stored statements to the short ids that are written in
+ * their place by the {@link DictionaryTripleRowResolver}. Ids are created
+ * with {@link TermIds}. Implementations must be thread safe.
+ */
+public interface TermDictionary {
+
+    /**
+     * Finds the id of a term, assigning one if the term has not been stored yet.
+     *
+     * @param term - The term to look up. (not null)
+     * @return The id of the term.
+     * @throws TripleRowResolverException The id could not be found or assigned.
+     */
+    public byte[] getOrCreateId(RyaType term) throws TripleRowResolverException;
+
+    /**
+     * Finds the ids of several terms, assigning ids to the terms that have not
+     * been stored yet. Implementations that are backed by a remote store look
+     * the terms up together instead of one at a time.
+     *
+     * @param terms - The terms to look up. (not null)
+     * @return The ids of the terms, in the same order as the terms.
+     * @throws TripleRowResolverException An id could not be found or assigned.
+     */
+    public default List<byte[]> getOrCreateIds(final List<RyaType> terms) throws TripleRowResolverException {
+        final List<byte[]> ids = new ArrayList<>(terms.size());
+        for (final RyaType term : terms) {
+            ids.add(getOrCreateId(term));
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the id of a term without assigning one.
+     *
+     * @param term - The term to look up. (not null)
+     * @return The id of the term, or {@code null} if the term has never been stored.
+     * @throws TripleRowResolverException The id could not be looked up.
+     */
+    public byte[] getId(RyaType term) throws TripleRowResolverException;
+
+    /**
+     * Finds the term an id was assigned to.
+     *
+     * @param id - The id to look up. (not null)
+     * @return The term the id was assigned to.
+     * @throws TripleRowResolverException The id is unknown or could not be looked up.
+     */
+    public RyaType getTerm(byte[] id) throws TripleRowResolverException;
+
+    /**
+     * Finds the terms several ids were assigned to. Implementations that are
+     * backed by a remote store look the ids up together instead of one at a time.
+     *
+     * @param ids - The ids to look up. (not null)
+     * @return The terms, keyed by the wrapped ids.
+     * @throws TripleRowResolverException An id is unknown or could not be looked up.
+     */
+    public default Map<ByteBuffer, RyaType> getTerms(final Collection<byte[]> ids) throws TripleRowResolverException {
+        final Map<ByteBuffer, RyaType> terms = new HashMap<>();
+        for (final byte[] id : ids) {
+            terms.put(ByteBuffer.wrap(id), getTerm(id));
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Creates and reads the ids a {@link TermDictionary} assigns to terms.
+ * <p>
+ * An id is a length byte followed by that many bytes of the MD5 hash of the
+ * serialized term. Most terms get an id of {@link #MIN_LENGTH} hash bytes;
+ * a term whose id is already taken by another term gets a longer one. Since
+ * the length comes first, no id is a prefix of another, so the ids of a
+ * statement may be concatenated into a row and a row prefix matches exactly
+ * the rows that start with the same ids.
+ */
+public final class TermIds {
+
+    /**
+     * The number of hash bytes in the shortest id.
+     */
+    public static final int MIN_LENGTH = 4;
+
+    /**
+     * The number of hash bytes in the longest id.
+     */
+    public static final int MAX_LENGTH = 16;
+
+    private TermIds() {
+    }
+
+    /**
+     * @param term - The serialized term. (not null)
+     * @param length - The number of hash bytes in the id, from {@link #MIN_LENGTH} to {@link #MAX_LENGTH}.
+     * @return The id of the term with the given length.
+     */
+    public static byte[] createId(final byte[] term, final int length) {
+        requireNonNull(term);
+        checkArgument(length >= MIN_LENGTH && length <= MAX_LENGTH, "Ids have between %s and %s hash bytes.", MIN_LENGTH, MAX_LENGTH);
+        final byte[] hash = Hashing.md5().hashBytes(term).asBytes();
+        final byte[] id = new byte[length + 1];
+        id[0] = (byte) length;
+        System.arraycopy(hash, 0, id, 1, length);
+        return id;
+    }
+
+    /**
+     * @param row - Bytes that hold a sequence of ids. (not null)
+     * @param offset - Where the id to read starts.
+     * @return A copy of the id that starts at the offset.
+     * @throws TripleRowResolverException There is no valid id at the offset.
+     */
+    public static byte[] readId(final byte[] row, final int offset) throws TripleRowResolverException {
+        requireNonNull(row);
+        if (offset >= row.length) {
+            throw new TripleRowResolverException("Expected an id at offset " + offset + " of a " + row.length + " byte row.");
+        }
+        final int length = row[offset];
+        if (length < MIN_LENGTH || length > MAX_LENGTH || offset + 1 + length > row.length) {
+            throw new TripleRowResolverException("The row does not hold a valid id at offset " + offset + ".");
+        }
+        return Arrays.copyOfRange(row, offset, offset + 1 + length);
+    }
+}
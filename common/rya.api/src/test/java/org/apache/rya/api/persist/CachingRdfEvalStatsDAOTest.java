@@ -0,0 +1,99 @@
+package org.apache.rya.api.persist;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
+import org.apache.rya.api.query.strategy.wholerow.MockRdfConfiguration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link CachingRdfEvalStatsDAO}.
+ */
+public class CachingRdfEvalStatsDAOTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getCardinality_cachesLookups() {
+        final RdfCloudTripleStoreConfiguration conf = new MockRdfConfiguration();
+        final List<Value> values = Arrays.asList(VF.createIRI("urn:alice"));
+
+        final RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> delegate = mock(RdfEvalStatsDAO.class);
+        when(delegate.getCardinality(eq(conf), eq(CARDINALITY_OF.SUBJECT), eq(values), any())).thenReturn(5.0);
+
+        final CachingRdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> dao =
+                new CachingRdfEvalStatsDAO<>(delegate, 100, 1, TimeUnit.MINUTES);
+        assertEquals(5.0, dao.getCardinality(conf, CARDINALITY_OF.SUBJECT, values), 0.0);
+        assertEquals(5.0, dao.getCardinality(conf, CARDINALITY_OF.SUBJECT, values), 0.0);
+
+        // Only the first call went to the delegate.
+        verify(delegate, times(1)).getCardinality(eq(conf), eq(CARDINALITY_OF.SUBJECT), eq(values), any());
+        assertEquals(1, dao.getHitCount());
+        assertEquals(1, dao.getMissCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getCardinalities_onlyResolvesMisses() {
+        final RdfCloudTripleStoreConfiguration conf = new MockRdfConfiguration();
+        final CardinalityRequest alice = new CardinalityRequest(CARDINALITY_OF.SUBJECT, Arrays.asList(VF.createIRI("urn:alice")), null);
+        final CardinalityRequest bob = new CardinalityRequest(CARDINALITY_OF.SUBJECT, Arrays.asList(VF.createIRI("urn:bob")), null);
+
+        final RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> delegate = mock(RdfEvalStatsDAO.class);
+        when(delegate.getCardinality(eq(conf), eq(CARDINALITY_OF.SUBJECT), eq(alice.getValues()), any())).thenReturn(5.0);
+        final Map<CardinalityRequest, Double> bulk = new HashMap<>();
+        bulk.put(bob, 7.0);
+        when(delegate.getCardinalities(eq(conf), any(Collection.class))).thenReturn(bulk);
+
+        final CachingRdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> dao =
+                new CachingRdfEvalStatsDAO<>(delegate, 100, 1, TimeUnit.MINUTES);
+
+        // Load alice into the cache.
+        dao.getCardinality(conf, CARDINALITY_OF.SUBJECT, alice.getValues());
+
+        final Map<CardinalityRequest, Double> expected = new HashMap<>();
+        expected.put(alice, 5.0);
+        expected.put(bob, 7.0);
+        assertEquals(expected, dao.getCardinalities(conf, Arrays.asList(alice, bob)));
+
+        // Only bob had to be resolved by the delegate.
+        verify(delegate).getCardinalities(eq(conf), eq(Arrays.asList(bob)));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.persist.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaType;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link ObjectFilter}.
+ */
+public class ObjectFilterTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    public void compare_numeric() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(
+                ObjectFilter.compare(CompareOp.GE, VF.createLiteral(10), true)));
+
+        assertTrue(filter.accept(new RyaType(XMLSchema.INT, "10")));
+        assertTrue(filter.accept(new RyaType(XMLSchema.DOUBLE, "10.5")));
+        assertFalse(filter.accept(new RyaType(XMLSchema.INTEGER, "9")));
+        // Comparing incompatible values is an error, which a filter rejects.
+        assertFalse(filter.accept(new RyaType("11")));
+        assertFalse(filter.accept(new RyaIRI("urn:11")));
+    }
+
+    @Test
+    public void compare_constantOnLeft() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(
+                ObjectFilter.compare(CompareOp.LT, VF.createLiteral(10), false)));
+
+        assertTrue(filter.accept(new RyaType(XMLSchema.INT, "11")));
+        assertFalse(filter.accept(new RyaType(XMLSchema.INT, "9")));
+    }
+
+    @Test
+    public void regex() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(ObjectFilter.regex("^ab", "i")));
+
+        assertTrue(filter.accept(new RyaType("ABC")));
+        assertTrue(filter.accept(new RyaType(RDF.LANGSTRING, "abc", "en")));
+        assertFalse(filter.accept(new RyaType("cab")));
+        assertFalse(filter.accept(new RyaIRI("urn:abc")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void regex_unsupportedFlag() {
+        ObjectFilter.regex("a", "z");
+    }
+
+    @Test
+    public void strStarts() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(ObjectFilter.strStarts("ab")));
+
+        assertTrue(filter.accept(new RyaType("abc")));
+        assertFalse(filter.accept(new RyaType("ABC")));
+        assertFalse(filter.accept(new RyaType(XMLSchema.INT, "12")));
+        assertFalse(filter.accept(new RyaIRI("urn:abc")));
+    }
+
+    @Test
+    public void langMatches() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(ObjectFilter.langMatches("en")));
+
+        assertTrue(filter.accept(new RyaType(RDF.LANGSTRING, "color", "en")));
+        assertTrue(filter.accept(new RyaType(RDF.LANGSTRING, "colour", "en-GB")));
+        assertFalse(filter.accept(new RyaType(RDF.LANGSTRING, "couleur", "fr")));
+        assertFalse(filter.accept(new RyaType("color")));
+
+        final ObjectFilter any = new ObjectFilter(Arrays.asList(ObjectFilter.langMatches("*")));
+        assertTrue(any.accept(new RyaType(RDF.LANGSTRING, "couleur", "fr")));
+        assertFalse(any.accept(new RyaType("color")));
+    }
+
+    @Test
+    public void conjunction() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(
+                ObjectFilter.compare(CompareOp.GT, VF.createLiteral(1), true),
+                ObjectFilter.compare(CompareOp.LT, VF.createLiteral(5), true)));
+
+        assertTrue(filter.accept(new RyaType(XMLSchema.INTEGER, "3")));
+        assertFalse(filter.accept(new RyaType(XMLSchema.INTEGER, "7")));
+    }
+
+    @Test
+    public void encodeDecode() {
+        final ObjectFilter filter = new ObjectFilter(Arrays.asList(
+                ObjectFilter.compare(CompareOp.NE, VF.createLiteral("a,b;c", "en"), true),
+                ObjectFilter.compare(CompareOp.EQ, VF.createIRI("urn:a"), false),
+                ObjectFilter.compare(CompareOp.LE, VF.createLiteral("2.5", XMLSchema.DECIMAL), true),
+                ObjectFilter.regex("^a\tb%", "s"),
+                ObjectFilter.strStarts(""),
+                ObjectFilter.langMatches("en-US")));
+
+        assertEquals(filter, ObjectFilter.decode(filter.encode()));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.query.strategy.ByteRange;
+import org.apache.rya.api.query.strategy.TriplePatternStrategy;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.Test;
+
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Tests the methods of {@link DictionaryTripleRowResolver} and the strategies
+ * of a dictionary encoded {@link RyaTripleContext}.
+ */
+public class DictionaryTripleRowResolverTest {
+
+    private final InMemoryTermDictionary dictionary = new InMemoryTermDictionary();
+    private final RyaTripleContext context = new RyaTripleContext(dictionary);
+
+    private final RyaIRI subject = new RyaIRI("urn:test#alice");
+    private final RyaIRI predicate = new RyaIRI("urn:test#age");
+    private final RyaType object = new RyaType(XMLSchema.INTEGER, "42");
+
+    @Test
+    public void serialize_roundTrip() throws Exception {
+        final RyaStatement stmt = new RyaStatement(subject, predicate, object, new RyaIRI("urn:test#graph"),
+                "qualifier", "A&B".getBytes(StandardCharsets.UTF_8), null, 100L);
+
+        final Map<TABLE_LAYOUT, TripleRow> rows = context.serializeTriple(stmt);
+        for (final TABLE_LAYOUT layout : TABLE_LAYOUT.values()) {
+            assertEquals(stmt, context.deserializeTriple(layout, rows.get(layout)));
+        }
+    }
+
+    @Test
+    public void serialize_rowsHoldIds() throws Exception {
+        final Map<TABLE_LAYOUT, TripleRow> rows = context.serializeTriple(new RyaStatement(subject, predicate, object));
+        final int length = dictionary.getId(subject).length + dictionary.getId(predicate).length + dictionary.getId(object).length;
+        for (final TripleRow row : rows.values()) {
+            assertEquals(length, row.getRow().length);
+        }
+    }
+
+    @Test(expected = TripleRowResolverException.class)
+    public void deserialize_truncatedRow() throws Exception {
+        final TripleRow row = context.serializeTriple(new RyaStatement(subject, predicate, object)).get(TABLE_LAYOUT.SPO);
+        final byte[] truncated = new byte[row.getRow().length - 1];
+        System.arraycopy(row.getRow(), 0, truncated, 0, truncated.length);
+        context.deserializeTriple(TABLE_LAYOUT.SPO, new TripleRow(truncated, row.getColumnFamily(), row.getColumnQualifier()));
+    }
+
+    @Test
+    public void defineRange_matchesStoredRows() throws Exception {
+        final RyaStatement stmt = new RyaStatement(subject, predicate, object);
+        final Map<TABLE_LAYOUT, TripleRow> rows = context.serializeTriple(stmt);
+        final RyaStatement other = new RyaStatement(new RyaIRI("urn:test#bob"), predicate, new RyaType(XMLSchema.INTEGER, "43"));
+        final Map<TABLE_LAYOUT, TripleRow> otherRows = context.serializeTriple(other);
+
+        final RyaStatement[] patterns = {
+                new RyaStatement(subject, null, null),
+                new RyaStatement(subject, predicate, null),
+                new RyaStatement(subject, predicate, object),
+                new RyaStatement(null, predicate, object),
+                new RyaStatement(null, null, object),
+                new RyaStatement(subject, null, object) };
+        for (final RyaStatement pattern : patterns) {
+            final TriplePatternStrategy strategy = context.retrieveStrategy(pattern);
+            final ByteRange range = strategy.defineRange(pattern.getSubject(), pattern.getPredicate(), pattern.getObject(), null, null).getValue();
+            assertTrue(pattern.toString(), contains(range, rows.get(strategy.getLayout()).getRow()));
+            assertFalse(pattern.toString(), contains(range, otherRows.get(strategy.getLayout()).getRow()));
+        }
+    }
+
+    @Test
+    public void defineRange_unknownTerm() throws Exception {
+        context.serializeTriple(new RyaStatement(subject, predicate, object));
+
+        final RyaIRI unknown = new RyaIRI("urn:test#unknown");
+        final TriplePatternStrategy strategy = context.retrieveStrategy(unknown, predicate, null, null);
+        final ByteRange range = strategy.defineRange(unknown, predicate, null, null, null).getValue();
+        assertNull(dictionary.getId(unknown));
+        assertEquals(0, UnsignedBytes.lexicographicalComparator().compare(range.getStart(), range.getEnd()));
+    }
+
+    @Test
+    public void readId_variableLengths() throws Exception {
+        final byte[] term = "urn:test#alice".getBytes(StandardCharsets.UTF_8);
+        final byte[] shortId = TermIds.createId(term, TermIds.MIN_LENGTH);
+        final byte[] longId = TermIds.createId(term, TermIds.MAX_LENGTH);
+        final byte[] row = Bytes.concat(longId, shortId);
+
+        assertArrayEquals(longId, TermIds.readId(row, 0));
+        assertArrayEquals(shortId, TermIds.readId(row, longId.length));
+    }
+
+    @Test
+    public void prefetchTerms_decodesWithoutFurtherLookups() throws Exception {
+        final RyaStatement first = new RyaStatement(subject, predicate, object);
+        final RyaStatement second = new RyaStatement(subject, predicate, new RyaType(XMLSchema.INTEGER, "43"));
+        final TripleRow firstRow = context.serializeTriple(first).get(TABLE_LAYOUT.SPO);
+        final TripleRow secondRow = context.serializeTriple(second).get(TABLE_LAYOUT.SPO);
+
+        final DictionaryTripleRowResolver resolver = new DictionaryTripleRowResolver(new CachingTermDictionary(dictionary, 100));
+        resolver.prefetchTerms(Arrays.asList(firstRow.getRow(), secondRow.getRow()));
+
+        // The subject and predicate are shared, so four distinct terms are looked up.
+        assertEquals(4, dictionary.termLookups);
+        assertEquals(first, resolver.deserialize(TABLE_LAYOUT.SPO, firstRow));
+        assertEquals(second, resolver.deserialize(TABLE_LAYOUT.SPO, secondRow));
+        assertEquals(4, dictionary.termLookups);
+    }
+
+    private static boolean contains(final ByteRange range, final byte[] row) {
+        return UnsignedBytes.lexicographicalComparator().compare(range.getStart(), row) <= 0
+                && UnsignedBytes.lexicographicalComparator().compare(row, range.getEnd()) <= 0;
+    }
+
+    /**
+     * Assigns ids the way a stored dictionary does, but keeps them in memory.
+     */
+    private static class InMemoryTermDictionary implements TermDictionary {
+        private final Map<RyaType, byte[]> ids = new HashMap<>();
+        private final Map<ByteBuffer, RyaType> terms = new HashMap<>();
+        private int termLookups = 0;
+
+        @Override
+        public byte[] getOrCreateId(final RyaType term) {
+            byte[] id = ids.get(term);
+            if (id == null) {
+                id = TermIds.createId((term.getDataType() + term.getData()).getBytes(StandardCharsets.UTF_8), TermIds.MIN_LENGTH);
+                ids.put(term, id);
+                terms.put(ByteBuffer.wrap(id), term);
+            }
+            return id;
+        }
+
+        @Override
+        public byte[] getId(final RyaType term) {
+            return ids.get(term);
+        }
+
+        @Override
+        public RyaType getTerm(final byte[] id) throws TripleRowResolverException {
+            termLookups++;
+            final RyaType term = terms.get(ByteBuffer.wrap(id));
+            if (term == null) {
+                throw new TripleRowResolverException("Unknown id");
+            }
+            return term;
+        }
+    }
+}
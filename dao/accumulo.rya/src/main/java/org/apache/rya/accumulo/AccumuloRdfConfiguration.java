@@ -49,6 +49,13 @@ public class AccumuloRdfConfiguration extends RdfCloudTripleStoreConfiguration {
 
     public static final String CONF_FLUSH_EACH_UPDATE = "ac.dao.flush";
 
+    public static final String CONF_DELETE_BATCH_SIZE = "ac.dao.delete.batchsize";
+
+    public static final String CONF_DICTIONARY_ENCODING = "ac.dictionary.enabled";
+    public static final String CONF_DICTIONARY_CACHE_SIZE = "ac.dictionary.cache.size";
+
+    public static final String CONF_STAR_JOIN = "ac.query.starjoin.enabled";
+
     public static final String ITERATOR_SETTINGS_SIZE = "ac.iterators.size";
     public static final String ITERATOR_SETTINGS_BASE = "ac.iterators.%d.";
     public static final String ITERATOR_SETTINGS_NAME = ITERATOR_SETTINGS_BASE + "name";
@@ -330,6 +337,54 @@ public class AccumuloRdfConfiguration extends RdfCloudTripleStoreConfiguration {
         setBoolean(CONF_FLUSH_EACH_UPDATE, flush);
     }
 
+    /**
+     * @return The number of statements {@link AccumuloRyaDAO#delete(java.util.Iterator, AccumuloRdfConfiguration)}
+     *   resolves with a single batch scan before it writes their delete mutations.
+     */
+    public int getDeleteBatchSize() {
+        return getInt(CONF_DELETE_BATCH_SIZE, 1000);
+    }
+
+    public void setDeleteBatchSize(final int batchSize) {
+        setInt(CONF_DELETE_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return {@code true} if the triple tables store dictionary ids in place of the
+     *   terms of the statements. This must not change once statements have been stored.
+     */
+    public boolean isDictionaryEncoding() {
+        return getBoolean(CONF_DICTIONARY_ENCODING, false);
+    }
+
+    public void setDictionaryEncoding(final boolean enabled) {
+        setBoolean(CONF_DICTIONARY_ENCODING, enabled);
+    }
+
+    /**
+     * @return The number of terms and ids each direction of the dictionary cache holds.
+     */
+    public int getDictionaryCacheSize() {
+        return getInt(CONF_DICTIONARY_CACHE_SIZE, 100000);
+    }
+
+    public void setDictionaryCacheSize(final int size) {
+        setInt(CONF_DICTIONARY_CACHE_SIZE, size);
+    }
+
+    /**
+     * @return {@code true} if joins of statement patterns that share a subject are
+     *   evaluated on the tablet servers by {@link org.apache.rya.accumulo.query.AccumuloStarJoin}.
+     *   The Rya Accumulo jar must be on the tablet servers' classpath.
+     */
+    public boolean isUseStarJoin() {
+        return getBoolean(CONF_STAR_JOIN, false);
+    }
+
+    public void setUseStarJoin(final boolean useStarJoin) {
+        setBoolean(CONF_STAR_JOIN, useStarJoin);
+    }
+
     public void setAdditionalIterators(final IteratorSetting... additionalIterators){
         //TODO do we need to worry about cleaning up
         this.set(ITERATOR_SETTINGS_SIZE, Integer.toString(additionalIterators.length));
@@ -28,11 +28,16 @@ import static org.apache.rya.api.RdfCloudTripleStoreConstants.SUBJECTPRED_CF_TXT
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.SUBJECT_CF_TXT;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.admin.TableOperations;
@@ -41,6 +46,7 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
 import org.apache.rya.api.layout.TableLayoutStrategy;
+import org.apache.rya.api.persist.CardinalityRequest;
 import org.apache.rya.api.persist.RdfDAOException;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.eclipse.rdf4j.model.Resource;
@@ -122,34 +128,13 @@ public class AccumuloRdfEvalStatsDAO implements RdfEvalStatsDAO<AccumuloRdfConfi
         try {
             final Authorizations authorizations = conf.getAuthorizations();
             final Scanner scanner = connector.createScanner(tableLayoutStrategy.getEval(), authorizations);
-            Text cfTxt = null;
-            if (CARDINALITY_OF.SUBJECT.equals(card)) {
-                cfTxt = SUBJECT_CF_TXT;
-            } else if (CARDINALITY_OF.PREDICATE.equals(card)) {
-                cfTxt = PRED_CF_TXT;
-            } else if (CARDINALITY_OF.OBJECT.equals(card)) {
-//                cfTxt = OBJ_CF_TXT;     //TODO: How do we do object cardinality
+            if (CARDINALITY_OF.OBJECT.equals(card)) {
                 return Double.MAX_VALUE;
-            } else if (CARDINALITY_OF.SUBJECTOBJECT.equals(card)) {
-                cfTxt = SUBJECTOBJECT_CF_TXT;
-            } else if (CARDINALITY_OF.SUBJECTPREDICATE.equals(card)) {
-                cfTxt = SUBJECTPRED_CF_TXT;
-            } else if (CARDINALITY_OF.PREDICATEOBJECT.equals(card)) {
-                cfTxt = PREDOBJECT_CF_TXT;
-            } else {
-                throw new IllegalArgumentException("Not right Cardinality[" + card + "]");
-            }
-            Text cq = EMPTY_TEXT;
-            if (context != null) {
-                cq = new Text(context.stringValue().getBytes(StandardCharsets.UTF_8));
             }
+            final Text cfTxt = getColumnFamily(card);
+            final Text cq = getColumnQualifier(context);
             scanner.fetchColumn(cfTxt, cq);
-            final Iterator<Value> vals = val.iterator();
-            String compositeIndex = vals.next().stringValue();
-            while (vals.hasNext()){
-                compositeIndex += DELIM + vals.next().stringValue();
-            }
-            scanner.setRange(new Range(new Text(compositeIndex.getBytes(StandardCharsets.UTF_8))));
+            scanner.setRange(new Range(getRow(val)));
             final Iterator<Map.Entry<Key, org.apache.accumulo.core.data.Value>> iter = scanner.iterator();
             if (iter.hasNext()) {
                 return Double.parseDouble(new String(iter.next().getValue().get(), StandardCharsets.UTF_8));
@@ -168,4 +153,98 @@ public class AccumuloRdfEvalStatsDAO implements RdfEvalStatsDAO<AccumuloRdfConfi
             throws RdfDAOException {
         return getCardinality(conf, card, val, null);
     }
+
+    /**
+     * Resolves every request with a single {@link BatchScanner} over the eval table.
+     */
+    @Override
+    public Map<CardinalityRequest, Double> getCardinalities(final AccumuloRdfConfiguration conf,
+            final Collection<CardinalityRequest> requests) throws RdfDAOException {
+        final Map<CardinalityRequest, Double> cardinalities = new HashMap<>();
+        final Map<List<Text>, List<CardinalityRequest>> lookups = new HashMap<>();
+        final List<Range> ranges = new ArrayList<>();
+        for (final CardinalityRequest request : requests) {
+            if (CARDINALITY_OF.OBJECT.equals(request.getCardinalityOf())) {
+                cardinalities.put(request, Double.MAX_VALUE);
+                continue;
+            }
+            // default
+            cardinalities.put(request, -1.0);
+
+            final Text row = getRow(request.getValues());
+            final List<Text> lookup = Arrays.asList(row,
+                    getColumnFamily(request.getCardinalityOf()),
+                    getColumnQualifier(request.getContext()));
+            List<CardinalityRequest> forLookup = lookups.get(lookup);
+            if (forLookup == null) {
+                forLookup = new ArrayList<>();
+                lookups.put(lookup, forLookup);
+                ranges.add(new Range(row));
+            }
+            forLookup.add(request);
+        }
+
+        if (ranges.isEmpty()) {
+            return cardinalities;
+        }
+
+        BatchScanner scanner = null;
+        try {
+            scanner = connector.createBatchScanner(tableLayoutStrategy.getEval(), conf.getAuthorizations(), conf.getNumThreads());
+            for (final List<Text> lookup : lookups.keySet()) {
+                scanner.fetchColumn(lookup.get(1), lookup.get(2));
+            }
+            scanner.setRanges(ranges);
+            for (final Map.Entry<Key, org.apache.accumulo.core.data.Value> entry : scanner) {
+                final Key key = entry.getKey();
+                final List<CardinalityRequest> matched = lookups.get(
+                        Arrays.asList(key.getRow(), key.getColumnFamily(), key.getColumnQualifier()));
+                if (matched != null) {
+                    final double cardinality = Double.parseDouble(new String(entry.getValue().get(), StandardCharsets.UTF_8));
+                    for (final CardinalityRequest request : matched) {
+                        cardinalities.put(request, cardinality);
+                    }
+                }
+            }
+        } catch (final Exception e) {
+            throw new RdfDAOException(e);
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+        }
+        return cardinalities;
+    }
+
+    private static Text getColumnFamily(final CARDINALITY_OF card) {
+        if (CARDINALITY_OF.SUBJECT.equals(card)) {
+            return SUBJECT_CF_TXT;
+        } else if (CARDINALITY_OF.PREDICATE.equals(card)) {
+            return PRED_CF_TXT;
+        } else if (CARDINALITY_OF.SUBJECTOBJECT.equals(card)) {
+            return SUBJECTOBJECT_CF_TXT;
+        } else if (CARDINALITY_OF.SUBJECTPREDICATE.equals(card)) {
+            return SUBJECTPRED_CF_TXT;
+        } else if (CARDINALITY_OF.PREDICATEOBJECT.equals(card)) {
+            return PREDOBJECT_CF_TXT;
+        }
+        //TODO: How do we do object cardinality
+        throw new IllegalArgumentException("Not right Cardinality[" + card + "]");
+    }
+
+    private static Text getColumnQualifier(final Resource context) {
+        if (context != null) {
+            return new Text(context.stringValue().getBytes(StandardCharsets.UTF_8));
+        }
+        return EMPTY_TEXT;
+    }
+
+    private static Text getRow(final List<Value> val) {
+        final Iterator<Value> vals = val.iterator();
+        String compositeIndex = vals.next().stringValue();
+        while (vals.hasNext()){
+            compositeIndex += DELIM + vals.next().stringValue();
+        }
+        return new Text(compositeIndex.getBytes(StandardCharsets.UTF_8));
+    }
 }
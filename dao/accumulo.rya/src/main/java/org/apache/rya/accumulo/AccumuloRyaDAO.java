@@ -18,6 +18,7 @@
  */
 package org.apache.rya.accumulo;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.rya.accumulo.AccumuloRdfConstants.ALL_AUTHORIZATIONS;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_TEXT;
@@ -28,20 +29,27 @@ import static org.apache.rya.api.RdfCloudTripleStoreConstants.NUM_THREADS;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.RTS_SUBJECT_RYA;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.RTS_VERSION_PREDICATE_RYA;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.VERSION_RYA;
+import static org.apache.rya.api.RdfCloudTripleStoreUtils.layoutToTable;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchDeleter;
+import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.Connector;
@@ -58,17 +66,23 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.io.Text;
+import org.apache.rya.accumulo.dictionary.AccumuloTermDictionary;
 import org.apache.rya.accumulo.experimental.AccumuloIndexer;
 import org.apache.rya.accumulo.query.AccumuloRyaQueryEngine;
+import org.apache.rya.accumulo.query.KeyValueToRyaStatementFunction;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaRange;
 import org.apache.rya.api.layout.TableLayoutStrategy;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.RyaNamespaceManager;
+import org.apache.rya.api.query.strategy.ByteRange;
+import org.apache.rya.api.query.strategy.TriplePatternStrategy;
 import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.dictionary.CachingTermDictionary;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.Namespace;
 
@@ -99,6 +113,7 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
     private TableLayoutStrategy tableLayoutStrategy;
     private AccumuloRyaQueryEngine queryEngine;
     private RyaTripleContext ryaContext;
+    private AccumuloTermDictionary termDictionary;
 
     @Override
     public boolean isInitialized() throws RyaDAOException {
@@ -122,7 +137,15 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
             }
 
             tableLayoutStrategy = conf.getTableLayoutStrategy();
-            ryaContext = RyaTripleContext.getInstance(conf);
+            if (conf.isDictionaryEncoding()) {
+                // Ids are opaque, so the rows can not be matched against regular expressions.
+                checkArgument(conf.getRegexSubject() == null && conf.getRegexPredicate() == null && conf.getRegexObject() == null,
+                        "Regular expression filters are not supported with dictionary encoding.");
+                termDictionary = new AccumuloTermDictionary(connector, conf);
+                ryaContext = new RyaTripleContext(new CachingTermDictionary(termDictionary, conf.getDictionaryCacheSize()));
+            } else {
+                ryaContext = RyaTripleContext.getInstance(conf);
+            }
             ryaTableMutationsFactory = new RyaTableMutationsFactory(ryaContext);
 
             secondaryIndexers = conf.getAdditionalIndexers();
@@ -154,7 +177,7 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
                index.init();
             }
 
-            queryEngine = new AccumuloRyaQueryEngine(connector, conf);
+            queryEngine = new AccumuloRyaQueryEngine(connector, conf, ryaContext);
 
             checkVersion();
 
@@ -194,18 +217,18 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
     @Override
     public void delete(final Iterator<RyaStatement> statements, final AccumuloRdfConfiguration conf) throws RyaDAOException {
         try {
+            final int batchSize = Math.max(1, conf.getDeleteBatchSize());
+            final List<RyaStatement> batch = new ArrayList<>();
             while (statements.hasNext()) {
-                final RyaStatement stmt = statements.next();
-                //query first
-                final CloseableIteration<RyaStatement, RyaDAOException> query = this.queryEngine.query(stmt, conf);
-                while (query.hasNext()) {
-                    deleteSingleRyaStatement(query.next());
-                }
-
-                for (final AccumuloIndexer index : secondaryIndexers) {
-                    index.deleteStatement(stmt);
+                batch.add(statements.next());
+                if (batch.size() >= batchSize) {
+                    deleteBatch(batch, conf);
+                    batch.clear();
                 }
             }
+            if (!batch.isEmpty()) {
+                deleteBatch(batch, conf);
+            }
             if (flushEachUpdate.get()) {
                 mt_bw.flush();
             }
@@ -214,6 +237,71 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         }
     }
 
+    /**
+     * Deletes every row that matches one of the statements in the batch. The
+     * ranges of the statements are resolved with one {@link BatchScanner} per
+     * table and context, and the matching rows are streamed straight into the
+     * batch writers as delete mutations. Statements a range can not express,
+     * such as those with an object range or a qualifier, are queried one at a time.
+     */
+    protected void deleteBatch(final List<RyaStatement> batch, final AccumuloRdfConfiguration conf) throws Exception {
+        final Map<TABLE_LAYOUT, Map<RyaIRI, Set<Range>>> layoutRanges = new EnumMap<>(TABLE_LAYOUT.class);
+        for (final RyaStatement stmt : batch) {
+            final TriplePatternStrategy strategy = ryaContext.retrieveStrategy(stmt);
+            if (strategy == null || stmt.getQualifer() != null || stmt.getObject() instanceof RyaRange) {
+                final CloseableIteration<RyaStatement, RyaDAOException> query = queryEngine.query(stmt, conf);
+                try {
+                    while (query.hasNext()) {
+                        deleteSingleRyaStatement(query.next());
+                    }
+                } finally {
+                    query.close();
+                }
+                continue;
+            }
+
+            final Map.Entry<TABLE_LAYOUT, ByteRange> entry = strategy.defineRange(stmt.getSubject(), stmt.getPredicate(),
+                    stmt.getObject(), stmt.getContext(), conf);
+            Map<RyaIRI, Set<Range>> contextRanges = layoutRanges.get(entry.getKey());
+            if (contextRanges == null) {
+                contextRanges = new HashMap<>();
+                layoutRanges.put(entry.getKey(), contextRanges);
+            }
+            Set<Range> ranges = contextRanges.get(stmt.getContext());
+            if (ranges == null) {
+                ranges = new HashSet<>();
+                contextRanges.put(stmt.getContext(), ranges);
+            }
+            final ByteRange byteRange = entry.getValue();
+            ranges.add(new Range(new Text(byteRange.getStart()), new Text(byteRange.getEnd())));
+        }
+
+        for (final Map.Entry<TABLE_LAYOUT, Map<RyaIRI, Set<Range>>> layoutEntry : layoutRanges.entrySet()) {
+            final TABLE_LAYOUT layout = layoutEntry.getKey();
+            final KeyValueToRyaStatementFunction toStatement = new KeyValueToRyaStatementFunction(layout, ryaContext);
+            for (final Map.Entry<RyaIRI, Set<Range>> contextEntry : layoutEntry.getValue().entrySet()) {
+                final BatchScanner scanner = connector.createBatchScanner(layoutToTable(layout, tableLayoutStrategy),
+                        conf.getAuthorizations(), conf.getNumThreads());
+                try {
+                    scanner.setRanges(contextEntry.getValue());
+                    final RyaIRI context = contextEntry.getKey();
+                    if (context != null) {
+                        scanner.fetchColumnFamily(new Text(context.getData()));
+                    }
+                    for (final Map.Entry<Key, Value> kv : scanner) {
+                        deleteSingleRyaStatement(toStatement.apply(kv));
+                    }
+                } finally {
+                    scanner.close();
+                }
+            }
+        }
+
+        for (final AccumuloIndexer index : secondaryIndexers) {
+            index.deleteStatements(batch);
+        }
+    }
+
     @Override
     public void dropGraph(final AccumuloRdfConfiguration conf, final RyaIRI... graphs) throws RyaDAOException {
         BatchDeleter bd_spo = null;
@@ -287,6 +375,7 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
             }
 
             if (flushEachUpdate.get()) {
+                flushDictionary();
                 mt_bw.flush();
             }
         } catch (final Exception e) {
@@ -302,9 +391,13 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         //TODO: write lock
         try {
             isInitialized.set(false);
+            flushDictionary();
             mt_bw.flush();
 
             mt_bw.close();
+            if (termDictionary != null) {
+                termDictionary.close();
+            }
         } catch (final Exception e) {
             throw new RyaDAOException(e);
         }
@@ -421,6 +514,21 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
                 logger.warn(e.getMessage());
             }
         }
+        if (conf.isDictionaryEncoding()) {
+            // The dictionary is not purged with the statements, since cached ids must stay decodable.
+            for (final String tableName : new String[] {
+                    AccumuloTermDictionary.getTermToIdTableName(conf),
+                    AccumuloTermDictionary.getIdToTermTableName(conf) }) {
+                try {
+                    drop(tableName);
+                } catch (final AccumuloException | AccumuloSecurityException e) {
+                    logger.error(e.getMessage());
+                    throw new RyaDAOException(e);
+                } catch (final TableNotFoundException e) {
+                    logger.warn(e.getMessage());
+                }
+            }
+        }
         destroy();
         for(final AccumuloIndexer indexer : this.secondaryIndexers) {
             try {
@@ -481,13 +589,24 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
     @Override
     public void flush() throws RyaDAOException {
         try {
+            flushDictionary();
             mt_bw.flush();
             flushIndexers();
-        } catch (final MutationsRejectedException e) {
+        } catch (final MutationsRejectedException | IOException e) {
             throw new RyaDAOException(e);
         }
     }
 
+    /**
+     * The terms of the written statements are mapped to their ids before the
+     * statements are written, so other clients can query for every statement they read.
+     */
+    private void flushDictionary() throws IOException {
+        if (termDictionary != null) {
+            termDictionary.flush();
+        }
+    }
+
     private void flushIndexers() throws RyaDAOException {
         for (final AccumuloIndexer indexer : secondaryIndexers) {
             try {
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.dictionary;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MultiTableBatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableExistsException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+import org.apache.rya.accumulo.AccumuloRdfUtils;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.api.resolver.triple.dictionary.TermIds;
+
+import com.google.common.primitives.Bytes;
+
+/**
+ * A {@link TermDictionary} that is stored in two Accumulo tables: one maps the
+ * serialized terms to their ids and the other maps the ids back to the terms.
+ * <p>
+ * Since ids are derived from the terms, clients that store the same term at
+ * the same time assign it the same id without coordinating. An id is claimed
+ * with a conditional write that only succeeds if no term holds the id yet, so
+ * two clients can not assign one id to different terms. A term whose id is
+ * taken gets a longer one. The terms are stored without visibilities, so any
+ * user that may scan the dictionary tables may read every term.
+ * <p>
+ * The mappings from terms to ids are buffered until {@link #flush()} is called.
+ * Until then, other clients that look up a new term claim its id again, which
+ * finds the same id.
+ */
+public class AccumuloTermDictionary implements TermDictionary, Closeable {
+    private static final Logger log = Logger.getLogger(AccumuloTermDictionary.class);
+
+    private static final Text EMPTY_TEXT = new Text();
+
+    private final Connector connector;
+    private final String termToIdTable;
+    private final String idToTermTable;
+    private final int numThreads;
+    private final MultiTableBatchWriter writer;
+    private final BatchWriter termToIdWriter;
+    private final BatchWriter idToTermWriter;
+    private final ConditionalWriter idToTermClaims;
+
+    /**
+     * Constructs an instance of {@link AccumuloTermDictionary}, creating its tables if they do not exist.
+     *
+     * @param connector - Connects to the Accumulo instance the dictionary is stored in. (not null)
+     * @param conf - Indicates which Rya instance the dictionary belongs to. (not null)
+     * @throws AccumuloException The tables could not be created.
+     * @throws AccumuloSecurityException The tables could not be created.
+     * @throws TableNotFoundException A table was dropped while the dictionary was being created.
+     */
+    public AccumuloTermDictionary(final Connector connector, final RdfCloudTripleStoreConfiguration conf)
+            throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        this.connector = requireNonNull(connector);
+        requireNonNull(conf);
+        termToIdTable = getTermToIdTableName(conf);
+        idToTermTable = getIdToTermTableName(conf);
+        numThreads = conf.getNumThreads();
+        try {
+            AccumuloRdfUtils.createTableIfNotExist(connector.tableOperations(), termToIdTable);
+            AccumuloRdfUtils.createTableIfNotExist(connector.tableOperations(), idToTermTable);
+        } catch (final TableExistsException e) {
+            // Another client created the table first.
+        }
+        writer = connector.createMultiTableBatchWriter(new BatchWriterConfig());
+        termToIdWriter = writer.getBatchWriter(termToIdTable);
+        idToTermWriter = writer.getBatchWriter(idToTermTable);
+        idToTermClaims = createConditionalWriter(connector, idToTermTable);
+    }
+
+    private static ConditionalWriter createConditionalWriter(final Connector connector, final String table) throws TableNotFoundException {
+        try {
+            return connector.createConditionalWriter(table, new ConditionalWriterConfig());
+        } catch (final UnsupportedOperationException e) {
+            // The mock instance that is used in tests does not support conditional writes.
+            log.warn("Conditional writes are not supported, so ids are only claimed safely within this client.");
+            return null;
+        }
+    }
+
+    /**
+     * @param conf - Indicates which Rya instance the dictionary belongs to. (not null)
+     * @return The name of the table that maps terms to their ids.
+     */
+    public static String getTermToIdTableName(final RdfCloudTripleStoreConfiguration conf) {
+        return conf.getTablePrefix() + "dict_term2id";
+    }
+
+    /**
+     * @param conf - Indicates which Rya instance the dictionary belongs to. (not null)
+     * @return The name of the table that maps ids to their terms.
+     */
+    public static String getIdToTermTableName(final RdfCloudTripleStoreConfiguration conf) {
+        return conf.getTablePrefix() + "dict_id2term";
+    }
+
+    @Override
+    public byte[] getOrCreateId(final RyaType term) throws TripleRowResolverException {
+        return getOrCreateIds(Collections.singletonList(term)).get(0);
+    }
+
+    @Override
+    public List<byte[]> getOrCreateIds(final List<RyaType> terms) throws TripleRowResolverException {
+        requireNonNull(terms);
+        final List<byte[]> termBytes = new ArrayList<>(terms.size());
+        for (final RyaType term : terms) {
+            termBytes.add(serialize(term));
+        }
+
+        final Map<ByteBuffer, byte[]> ids = lookup(termToIdTable, termBytes);
+        final Map<ByteBuffer, byte[]> missing = new LinkedHashMap<>();
+        for (final byte[] bytes : termBytes) {
+            final ByteBuffer key = ByteBuffer.wrap(bytes);
+            if (!ids.containsKey(key)) {
+                missing.put(key, bytes);
+            }
+        }
+        if (!missing.isEmpty()) {
+            ids.putAll(createIds(missing.values()));
+        }
+
+        final List<byte[]> termIds = new ArrayList<>(terms.size());
+        for (final byte[] bytes : termBytes) {
+            termIds.add(ids.get(ByteBuffer.wrap(bytes)));
+        }
+        return termIds;
+    }
+
+    /**
+     * Claims the shortest free id of each term. The reverse mapping is claimed
+     * first, so every id that can be found can also be decoded.
+     *
+     * @return The ids of the terms, keyed by the wrapped terms.
+     */
+    private Map<ByteBuffer, byte[]> createIds(final Collection<byte[]> termBytes) throws TripleRowResolverException {
+        final Map<ByteBuffer, byte[]> ids = new HashMap<>();
+        Collection<byte[]> pending = termBytes;
+        for (int length = TermIds.MIN_LENGTH; length <= TermIds.MAX_LENGTH && !pending.isEmpty(); length++) {
+            final Map<ByteBuffer, byte[]> candidates = new HashMap<>();
+            final List<byte[]> deferred = new ArrayList<>();
+            for (final byte[] bytes : pending) {
+                final byte[] id = TermIds.createId(bytes, length);
+                if (candidates.containsKey(ByteBuffer.wrap(id))) {
+                    // Two of the new terms share the id, so the second one tries a longer id.
+                    deferred.add(bytes);
+                } else {
+                    candidates.put(ByteBuffer.wrap(id), bytes);
+                }
+            }
+
+            final Map<ByteBuffer, byte[]> claimed = claim(candidates);
+            for (final Map.Entry<ByteBuffer, byte[]> candidate : candidates.entrySet()) {
+                final byte[] bytes = candidate.getValue();
+                if (claimed.containsKey(candidate.getKey())) {
+                    final byte[] id = claimed.get(candidate.getKey());
+                    addMutation(termToIdWriter, mapping(bytes, id));
+                    ids.put(ByteBuffer.wrap(bytes), id);
+                } else {
+                    deferred.add(bytes);
+                }
+            }
+            pending = deferred;
+        }
+        if (!pending.isEmpty()) {
+            throw new TripleRowResolverException("Every id of a term is taken by another term.");
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the terms of candidate ids that no term holds yet.
+     *
+     * @param candidates - The serialized terms, keyed by the wrapped ids they should be assigned.
+     * @return The ids that are now held by their candidate term, keyed by the wrapped ids.
+     */
+    private Map<ByteBuffer, byte[]> claim(final Map<ByteBuffer, byte[]> candidates) throws TripleRowResolverException {
+        if (idToTermClaims == null) {
+            return claimLocally(candidates);
+        }
+
+        final Map<ByteBuffer, byte[]> claimed = new HashMap<>();
+        Map<ByteBuffer, byte[]> unclaimed = new HashMap<>(candidates);
+        while (!unclaimed.isEmpty()) {
+            final List<ConditionalMutation> mutations = new ArrayList<>();
+            for (final Map.Entry<ByteBuffer, byte[]> candidate : unclaimed.entrySet()) {
+                // A condition without a value only holds when the column is absent.
+                final ConditionalMutation m = new ConditionalMutation(toBytes(candidate.getKey()), new Condition(EMPTY_TEXT, EMPTY_TEXT));
+                m.put(EMPTY_TEXT, EMPTY_TEXT, new Value(candidate.getValue()));
+                mutations.add(m);
+            }
+
+            final List<byte[]> rejected = new ArrayList<>();
+            final Iterator<Result> results = idToTermClaims.write(mutations.iterator());
+            while (results.hasNext()) {
+                final Result result = results.next();
+                final byte[] id = result.getMutation().getRow();
+                try {
+                    switch (result.getStatus()) {
+                        case ACCEPTED:
+                            claimed.put(ByteBuffer.wrap(id), id);
+                            break;
+                        case REJECTED:
+                        case UNKNOWN:
+                            // Another client holds the id, or it is unknown whether the write was applied.
+                            rejected.add(id);
+                            break;
+                        default:
+                            throw new TripleRowResolverException("Could not claim an id. Status: " + result.getStatus());
+                    }
+                } catch (final AccumuloException | AccumuloSecurityException e) {
+                    throw new TripleRowResolverException("Could not claim an id.", e);
+                }
+            }
+
+            // Read the rejected ids back. An id that is held by the same term is claimed, an id that
+            // is held by another term is taken, and a write that was not applied is tried again.
+            final Map<ByteBuffer, byte[]> stored = lookup(idToTermTable, rejected);
+            final Map<ByteBuffer, byte[]> retry = new HashMap<>();
+            for (final byte[] id : rejected) {
+                final ByteBuffer key = ByteBuffer.wrap(id);
+                final byte[] holder = stored.get(key);
+                if (holder == null) {
+                    retry.put(key, unclaimed.get(key));
+                } else if (Arrays.equals(holder, unclaimed.get(key))) {
+                    claimed.put(key, id);
+                }
+            }
+            unclaimed = retry;
+        }
+        return claimed;
+    }
+
+    private synchronized Map<ByteBuffer, byte[]> claimLocally(final Map<ByteBuffer, byte[]> candidates) throws TripleRowResolverException {
+        final Map<ByteBuffer, byte[]> claimed = new HashMap<>();
+        final List<byte[]> ids = new ArrayList<>();
+        for (final ByteBuffer id : candidates.keySet()) {
+            ids.add(toBytes(id));
+        }
+        final Map<ByteBuffer, byte[]> stored = lookup(idToTermTable, ids);
+        for (final byte[] id : ids) {
+            final ByteBuffer key = ByteBuffer.wrap(id);
+            final byte[] holder = stored.get(key);
+            if (holder == null) {
+                addMutation(idToTermWriter, mapping(id, candidates.get(key)));
+                claimed.put(key, id);
+            } else if (Arrays.equals(holder, candidates.get(key))) {
+                claimed.put(key, id);
+            }
+        }
+        try {
+            idToTermWriter.flush();
+        } catch (final MutationsRejectedException e) {
+            throw new TripleRowResolverException("Could not store the id of a term.", e);
+        }
+        return claimed;
+    }
+
+    @Override
+    public byte[] getId(final RyaType term) throws TripleRowResolverException {
+        final byte[] termBytes = serialize(term);
+        return lookup(termToIdTable, Collections.singletonList(termBytes)).get(ByteBuffer.wrap(termBytes));
+    }
+
+    @Override
+    public RyaType getTerm(final byte[] id) throws TripleRowResolverException {
+        requireNonNull(id);
+        return getTerms(Collections.singletonList(id)).get(ByteBuffer.wrap(id));
+    }
+
+    @Override
+    public Map<ByteBuffer, RyaType> getTerms(final Collection<byte[]> ids) throws TripleRowResolverException {
+        requireNonNull(ids);
+        final Map<ByteBuffer, byte[]> stored = lookup(idToTermTable, ids);
+        final Map<ByteBuffer, RyaType> terms = new HashMap<>();
+        for (final byte[] id : ids) {
+            final byte[] termBytes = stored.get(ByteBuffer.wrap(id));
+            if (termBytes == null) {
+                throw new TripleRowResolverException("No term was assigned the id " + Arrays.toString(id) + ".");
+            }
+            try {
+                terms.put(ByteBuffer.wrap(id), RyaContext.getInstance().deserialize(termBytes));
+            } catch (final RyaTypeResolverException e) {
+                throw new TripleRowResolverException(e);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Writes the buffered mappings from terms to ids.
+     *
+     * @throws IOException The mappings could not be written.
+     */
+    public void flush() throws IOException {
+        try {
+            writer.flush();
+        } catch (final MutationsRejectedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] serialize(final RyaType term) throws TripleRowResolverException {
+        requireNonNull(term);
+        try {
+            final byte[][] bytes = RyaContext.getInstance().serializeType(term);
+            return Bytes.concat(bytes[0], bytes[1]);
+        } catch (final RyaTypeResolverException e) {
+            throw new TripleRowResolverException(e);
+        }
+    }
+
+    private static byte[] toBytes(final ByteBuffer buffer) {
+        return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.limit());
+    }
+
+    private static Mutation mapping(final byte[] from, final byte[] to) {
+        final Mutation m = new Mutation(from);
+        m.put(EMPTY_TEXT, EMPTY_TEXT, new Value(to));
+        return m;
+    }
+
+    private static void addMutation(final BatchWriter writer, final Mutation m) throws TripleRowResolverException {
+        try {
+            writer.addMutation(m);
+        } catch (final MutationsRejectedException e) {
+            throw new TripleRowResolverException("Could not store the id of a term.", e);
+        }
+    }
+
+    /**
+     * Reads several rows of a dictionary table with one batch scan.
+     *
+     * @return The values of the rows that exist, keyed by the wrapped rows.
+     */
+    private Map<ByteBuffer, byte[]> lookup(final String table, final Collection<byte[]> rows) throws TripleRowResolverException {
+        final Map<ByteBuffer, byte[]> values = new HashMap<>();
+        if (rows.isEmpty()) {
+            return values;
+        }
+        final List<Range> ranges = new ArrayList<>(rows.size());
+        for (final byte[] row : rows) {
+            ranges.add(new Range(new Text(row)));
+        }
+        BatchScanner scanner = null;
+        try {
+            scanner = connector.createBatchScanner(table, Authorizations.EMPTY, numThreads);
+            scanner.setRanges(ranges);
+            for (final Map.Entry<Key, Value> entry : scanner) {
+                values.put(ByteBuffer.wrap(entry.getKey().getRowData().toArray()), entry.getValue().get());
+            }
+            return values;
+        } catch (final TableNotFoundException e) {
+            throw new TripleRowResolverException(e);
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.close();
+        } catch (final MutationsRejectedException e) {
+            throw new IOException(e);
+        } finally {
+            if (idToTermClaims != null) {
+                idToTermClaims.close();
+            }
+        }
+    }
+}
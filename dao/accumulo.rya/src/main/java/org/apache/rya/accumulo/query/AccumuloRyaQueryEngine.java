@@ -52,13 +52,16 @@ import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.layout.TableLayoutStrategy;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.query.BatchRyaQuery;
+import org.apache.rya.api.persist.query.ObjectFilter;
 import org.apache.rya.api.persist.query.RyaQuery;
 import org.apache.rya.api.persist.query.RyaQueryEngine;
+import org.apache.rya.api.persist.query.ScanMetrics;
 import org.apache.rya.api.query.strategy.ByteRange;
 import org.apache.rya.api.query.strategy.TriplePatternStrategy;
 import org.apache.rya.api.resolver.RyaContext;
 import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.api.resolver.triple.TripleRowRegex;
+import org.apache.rya.api.resolver.triple.dictionary.DictionaryTripleRowResolver;
 import org.apache.rya.api.utils.CloseableIterableIteration;
 import org.calrissian.mango.collect.CloseableIterable;
 import org.calrissian.mango.collect.CloseableIterables;
@@ -86,9 +89,19 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
     }
 
     public AccumuloRyaQueryEngine(Connector connector, AccumuloRdfConfiguration conf) {
+        this(connector, conf, RyaTripleContext.getInstance(conf));
+    }
+
+    /**
+     * @param connector - Connects to the Accumulo instance the triple tables are stored in.
+     * @param conf - The default configuration of the queries.
+     * @param ryaContext - Decodes the rows of the triple tables, for instance
+     *   when the tables are dictionary encoded.
+     */
+    public AccumuloRyaQueryEngine(Connector connector, AccumuloRdfConfiguration conf, RyaTripleContext ryaContext) {
         this.connector = connector;
         this.configuration = conf;
-        ryaContext = RyaTripleContext.getInstance(conf);
+        this.ryaContext = ryaContext;
         keyValueToRyaStatementFunctionMap.put(TABLE_LAYOUT.SPO, new KeyValueToRyaStatementFunction(TABLE_LAYOUT.SPO, ryaContext));
         keyValueToRyaStatementFunctionMap.put(TABLE_LAYOUT.PO, new KeyValueToRyaStatementFunction(TABLE_LAYOUT.PO, ryaContext));
         keyValueToRyaStatementFunctionMap.put(TABLE_LAYOUT.OSP, new KeyValueToRyaStatementFunction(TABLE_LAYOUT.OSP, ryaContext));
@@ -114,6 +127,12 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
     @Override
     public CloseableIteration<? extends Map.Entry<RyaStatement, BindingSet>, RyaDAOException> queryWithBindingSet(
             Collection<Map.Entry<RyaStatement, BindingSet>> stmts, AccumuloRdfConfiguration conf) throws RyaDAOException {
+        return queryWithBindingSet(stmts, conf, null);
+    }
+
+    @Override
+    public CloseableIteration<? extends Map.Entry<RyaStatement, BindingSet>, RyaDAOException> queryWithBindingSet(
+            Collection<Map.Entry<RyaStatement, BindingSet>> stmts, AccumuloRdfConfiguration conf, ScanMetrics metrics) throws RyaDAOException {
         if (conf == null) {
             conf = configuration;
         }
@@ -209,6 +228,7 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
                 ScannerBase scanner = connector.createBatchScanner(table, authorizations, numThreads);
                 ((BatchScanner) scanner).setRanges(ranges);
                 fillScanner(scanner, columnFamily, null, ttl, null, tripleRowRegex, conf);
+                addObjectFilter(scanner, layout, conf);
                 iterator = new RyaStatementBindingSetKeyValueIterator(layout, ryaContext, scanner, rangeMap);
             } else {
                 Scanner scannerBase = null;
@@ -218,6 +238,7 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
                     scannerBase = connector.createScanner(table, authorizations);
                     scannerBase.setRange(range);
                     fillScanner(scannerBase, columnFamily, null, ttl, null, tripleRowRegex, conf);
+                    addObjectFilter(scannerBase, layout, conf);
                     iters[i] = scannerBase.iterator();
                     i++;
                 }
@@ -226,6 +247,10 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
             if (maxResults != null) {
                 iterator.setMaxResults(maxResults);
             }
+            if (metrics != null) {
+                metrics.rangesIssued(ranges.size());
+                iterator.setScanMetrics(metrics);
+            }
             return iterator;
         } catch (Exception e) {
             throw new RyaDAOException(e);
@@ -311,7 +336,7 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
             }
             fillScanner(scanner, context, qualifier, ttl, currentTime, tripleRowRegex, ryaQuery.getConf());
 
-            FluentCloseableIterable<RyaStatement> results = FluentCloseableIterable.from(new ScannerBaseCloseableIterable(scanner))
+            FluentCloseableIterable<RyaStatement> results = FluentCloseableIterable.from(scannerIterable(scanner))
                     .transform(keyValueToRyaStatementFunctionMap.get(layout));
             if (maxResults != null) {
                 results = results.limit(maxResults.intValue());
@@ -379,7 +404,7 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
                 BatchScanner scanner = connector.createBatchScanner(table, authorizations, numQueryThreads);
                 scanner.setRanges(ranges);
                 fillScanner(scanner, context, null, ttl, null, tripleRowRegex, ryaQuery.getConf());
-                results = FluentCloseableIterable.from(new ScannerBaseCloseableIterable(scanner))
+                results = FluentCloseableIterable.from(scannerIterable(scanner))
                         .transform(keyValueToRyaStatementFunctionMap.get(layout));
             } else {
                 final RyaIRI fcontext = context;
@@ -392,7 +417,12 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
                                     Scanner scanner = connector.createScanner(table, authorizations);
                                     scanner.setRange(range);
                                     fillScanner(scanner, fcontext, null, ttl, null, tripleRowRegex, fconf);
-                                    return scanner;
+                                    return new Iterable<Map.Entry<Key, Value>>() {
+                                        @Override
+                                        public Iterator<Map.Entry<Key, Value>> iterator() {
+                                            return TermPrefetchingIterator.wrap(scanner.iterator(), ryaContext);
+                                        }
+                                    };
                                 } catch (Exception e) {
                                     throw new RuntimeException(e);
                                 }
@@ -410,6 +440,18 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
         }
     }
 
+    /**
+     * @return The entries of the scanner, read ahead in batches when the tables are dictionary encoded.
+     */
+    private ScannerBaseCloseableIterable scannerIterable(final ScannerBase scanner) {
+        return new ScannerBaseCloseableIterable(scanner) {
+            @Override
+            protected Iterator<Map.Entry<Key, Value>> retrieveIterator() {
+                return TermPrefetchingIterator.wrap(super.retrieveIterator(), ryaContext);
+            }
+        };
+    }
+
     protected void fillScanner(ScannerBase scanner, RyaIRI context, String qualifier, Long ttl, Long currentTime,
             TripleRowRegex tripleRowRegex, RdfCloudTripleStoreConfiguration conf) throws IOException {
         if (context != null && qualifier != null) {
@@ -445,6 +487,24 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
         }
     }
 
+    /**
+     * Evaluates the object filter of the configuration, if there is one, on the tablet servers.
+     */
+    private void addObjectFilter(ScannerBase scanner, TABLE_LAYOUT layout, RdfCloudTripleStoreConfiguration conf) {
+        ObjectFilter filter = conf.getObjectFilter();
+        if (filter != null) {
+            IteratorSetting setting = new IteratorSetting(12, "of", ObjectFilterIterator.class.getName());
+            ObjectFilterIterator.setFilter(setting, layout, conf.isPrefixRowsWithHash(), filter);
+            scanner.addScanIterator(setting);
+        }
+    }
+
+    @Override
+    public boolean supportsObjectFilters() {
+        // The iterator decodes the objects on the tablet servers, where the dictionary is not available.
+        return !(ryaContext.getTripleResolver() instanceof DictionaryTripleRowResolver);
+    }
+
     @Override
     public void setConf(AccumuloRdfConfiguration conf) {
         this.configuration = conf;
@@ -0,0 +1,520 @@
+package org.apache.rya.accumulo.query;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.query.StarJoinIterator.StarJoinGroup;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaRange;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.persist.query.join.Join;
+import org.apache.rya.api.query.strategy.ByteRange;
+import org.apache.rya.api.query.strategy.TriplePatternStrategy;
+import org.apache.rya.api.resolver.RyaContext;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * A {@link Join} that evaluates star joins inside the SPO table scan using the
+ * {@link StarJoinIterator}, so only the rows of subjects that satisfy every
+ * pattern are sent back to the client.
+ * <p>
+ * The SPO table is never scanned as a whole. When the subject is bound only
+ * that subject's rows are read. Otherwise the candidate subjects are read from
+ * the PO index for the most selective pattern, one with a constant object if
+ * there is one, and the SPO rows of those candidates are batch scanned.
+ * <p>
+ * Only a batch of candidates is held in memory at a time. When every object is
+ * a variable a subject may be read from several PO rows, possibly in different
+ * batches. The PO rows are sorted by object, so a subject is first read from
+ * its smallest object, and its results are only returned from the batch that
+ * read it from there.
+ */
+public class AccumuloStarJoin implements Join<AccumuloRdfConfiguration> {
+
+    /**
+     * The priority of the star join iterator. It runs after every filter
+     * configured by {@link AccumuloRyaQueryEngine}.
+     */
+    public static final int ITERATOR_PRIORITY = 30;
+
+    /**
+     * The number of candidate subjects whose SPO rows are read by one batch scan.
+     */
+    public static final int SUBJECT_BATCH_SIZE = 1000;
+
+    private final RyaContext ryaContext = RyaContext.getInstance();
+    private final Connector connector;
+
+    public AccumuloStarJoin(final Connector connector) {
+        this.connector = Preconditions.checkNotNull(connector);
+    }
+
+    /**
+     * Evaluates a star join whose subject is a variable.
+     *
+     * @param conf - The configuration of the query. (not null)
+     * @param patterns - The predicate and optional object of every pattern
+     *   that shares the subject variable. Predicates must be constants. (not null)
+     * @return One list per joined result, holding the statement that matched
+     *   each pattern in the order the patterns were provided.
+     * @throws RyaDAOException The join could not be started.
+     */
+    public CloseableIteration<List<RyaStatement>, RyaDAOException> starJoin(final AccumuloRdfConfiguration conf,
+            final List<Map.Entry<RyaIRI, RyaType>> patterns) throws RyaDAOException {
+        return starJoin(conf, null, patterns);
+    }
+
+    /**
+     * Evaluates a star join.
+     *
+     * @param conf - The configuration of the query. (not null)
+     * @param subject - The subject shared by every pattern, or {@code null} if
+     *   it is a variable.
+     * @param patterns - The predicate and optional object of every pattern
+     *   that shares the subject. Predicates must be constants. (not null)
+     * @return One list per joined result, holding the statement that matched
+     *   each pattern in the order the patterns were provided.
+     * @throws RyaDAOException The join could not be started.
+     */
+    public CloseableIteration<List<RyaStatement>, RyaDAOException> starJoin(final AccumuloRdfConfiguration conf,
+            final RyaIRI subject, final List<Map.Entry<RyaIRI, RyaType>> patterns) throws RyaDAOException {
+        Preconditions.checkNotNull(conf);
+        Preconditions.checkNotNull(patterns);
+        Preconditions.checkArgument(!patterns.isEmpty(), "Must join 1 or more");
+        Preconditions.checkArgument(!conf.isPrefixRowsWithHash(), "Star joins do not support hash prefixed rows");
+        Preconditions.checkArgument(!conf.isDictionaryEncoding(), "Star joins do not support dictionary encoded rows");
+        Preconditions.checkArgument(!(subject instanceof RyaRange));
+
+        final List<RyaIRI> predicates = new ArrayList<>();
+        final List<String> predicateData = new ArrayList<>();
+        final List<byte[]> objects = new ArrayList<>();
+        Map.Entry<RyaIRI, RyaType> candidatePattern = null;
+        int candidateIndex = 0;
+        try {
+            for (final Map.Entry<RyaIRI, RyaType> pattern : patterns) {
+                final RyaIRI predicate = pattern.getKey();
+                final RyaType object = pattern.getValue();
+                Preconditions.checkArgument(predicate != null && !(predicate instanceof RyaRange));
+                Preconditions.checkArgument(!(object instanceof RyaRange));
+                predicates.add(predicate);
+                predicateData.add(predicate.getData());
+                if (object == null) {
+                    objects.add(null);
+                } else {
+                    final byte[][] objBytes = ryaContext.serializeType(object);
+                    objects.add(Bytes.concat(objBytes[0], objBytes[1]));
+                }
+                if (candidatePattern == null || (candidatePattern.getValue() == null && object != null)) {
+                    candidatePattern = pattern;
+                    candidateIndex = predicates.size() - 1;
+                }
+            }
+
+            final IteratorSetting setting = new IteratorSetting(ITERATOR_PRIORITY, "starJoin", StarJoinIterator.class);
+            StarJoinIterator.setPatterns(setting, predicateData, objects);
+
+            final CandidateSubjects candidates = subject != null ?
+                    new CandidateSubjects(Iterators.singletonIterator(subject)) :
+                    new CandidateSubjects(conf, candidatePattern.getKey(), candidatePattern.getValue());
+            return new StarJoinIteration(conf, setting, candidates, candidateIndex, predicates);
+        } catch (final RyaTypeResolverException | TableNotFoundException | IOException e) {
+            throw new RyaDAOException(e);
+        }
+    }
+
+    /**
+     * Return the statements of every subject that has all of the input predicates.
+     */
+    @Override
+    public CloseableIteration<RyaStatement, RyaDAOException> join(final AccumuloRdfConfiguration conf, final RyaIRI... preds)
+            throws RyaDAOException {
+        Preconditions.checkNotNull(preds);
+        final List<Map.Entry<RyaIRI, RyaType>> patterns = new ArrayList<>();
+        for (final RyaIRI pred : preds) {
+            patterns.add(new AbstractMap.SimpleImmutableEntry<RyaIRI, RyaType>(pred, null));
+        }
+        final CloseableIteration<List<RyaStatement>, RyaDAOException> joined = starJoin(conf, patterns);
+        return new CloseableIteration<RyaStatement, RyaDAOException>() {
+            private final Deque<RyaStatement> pending = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() throws RyaDAOException {
+                while (pending.isEmpty() && joined.hasNext()) {
+                    pending.addAll(joined.next());
+                }
+                return !pending.isEmpty();
+            }
+
+            @Override
+            public RyaStatement next() throws RyaDAOException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pending.poll();
+            }
+
+            @Override
+            public void remove() throws RyaDAOException {
+                next();
+            }
+
+            @Override
+            public void close() throws RyaDAOException {
+                joined.close();
+            }
+        };
+    }
+
+    /**
+     * Return all subjects that have the predicate objects associated.
+     */
+    @Override
+    public CloseableIteration<RyaIRI, RyaDAOException> join(final AccumuloRdfConfiguration conf, final Map.Entry<RyaIRI, RyaType>... predObjs)
+            throws RyaDAOException {
+        Preconditions.checkNotNull(predObjs);
+        final CloseableIteration<List<RyaStatement>, RyaDAOException> joined = starJoin(conf, Arrays.asList(predObjs));
+        return new CloseableIteration<RyaIRI, RyaDAOException>() {
+            private RyaIRI next;
+            private RyaIRI last;
+
+            @Override
+            public boolean hasNext() throws RyaDAOException {
+                // Every combination of a subject's matches is returned, only report the subject once.
+                while (next == null && joined.hasNext()) {
+                    final RyaIRI subject = joined.next().get(0).getSubject();
+                    if (!subject.equals(last)) {
+                        next = subject;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public RyaIRI next() throws RyaDAOException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = null;
+                return last;
+            }
+
+            @Override
+            public void remove() throws RyaDAOException {
+                next();
+            }
+
+            @Override
+            public void close() throws RyaDAOException {
+                joined.close();
+            }
+        };
+    }
+
+    /**
+     * @return The bytes an object is sorted by within the PO table.
+     */
+    private byte[] serializeData(final RyaType object) {
+        try {
+            return ryaContext.serializeType(object)[0];
+        } catch (final RyaTypeResolverException e) {
+            throw new IllegalStateException("Could not serialize an object that was read from the table.", e);
+        }
+    }
+
+    /**
+     * The subjects that may join. They are either the bound subject or the
+     * subjects of the PO rows that match one of the patterns. Consecutive
+     * repeats are skipped, but a subject is returned again for every object
+     * it is read from when the object is a variable.
+     */
+    private class CandidateSubjects implements Iterator<RyaIRI> {
+        private final Scanner scanner;
+        private final Iterator<Map.Entry<Key, Value>> entries;
+        private final KeyValueToRyaStatementFunction toStatement;
+        private final Iterator<RyaIRI> subjects;
+        private final boolean objectBound;
+        private RyaIRI last;
+        private RyaIRI next;
+        private byte[] nextObject;
+        private byte[] object;
+
+        public CandidateSubjects(final Iterator<RyaIRI> subjects) {
+            this.scanner = null;
+            this.entries = null;
+            this.toStatement = null;
+            this.subjects = subjects;
+            this.objectBound = true;
+        }
+
+        public CandidateSubjects(final AccumuloRdfConfiguration conf, final RyaIRI predicate, final RyaType object)
+                throws IOException, TableNotFoundException {
+            final RyaTripleContext tripleContext = RyaTripleContext.getInstance(conf);
+            final TriplePatternStrategy strategy = tripleContext.retrieveStrategy(null, predicate, object, null);
+            final Map.Entry<TABLE_LAYOUT, ByteRange> entry = strategy.defineRange(null, predicate, object, null, conf);
+            final ByteRange byteRange = entry.getValue();
+            scanner = connector.createScanner(conf.getTableLayoutStrategy().getPo(), conf.getAuthorizations());
+            scanner.setRange(new Range(new Text(byteRange.getStart()), new Text(byteRange.getEnd())));
+            entries = scanner.iterator();
+            toStatement = new KeyValueToRyaStatementFunction(entry.getKey(), tripleContext);
+            subjects = null;
+            objectBound = object != null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (subjects != null) {
+                    if (!subjects.hasNext()) {
+                        return false;
+                    }
+                    next = subjects.next();
+                } else {
+                    if (!entries.hasNext()) {
+                        return false;
+                    }
+                    final RyaStatement statement = toStatement.apply(entries.next());
+                    final RyaIRI subject = statement.getSubject();
+                    // Another context of the same statement directly follows it.
+                    if (!subject.equals(last)) {
+                        next = subject;
+                        nextObject = objectBound ? null : serializeData(statement.getObject());
+                    }
+                    last = subject;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public RyaIRI next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final RyaIRI subject = next;
+            object = nextObject;
+            next = null;
+            nextObject = null;
+            return subject;
+        }
+
+        /**
+         * @return The serialized object of the PO row the last returned subject
+         *   was read from, or {@code null} if the object is bound.
+         */
+        public byte[] getObject() {
+            return object;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            if (scanner != null) {
+                scanner.close();
+            }
+        }
+    }
+
+    /**
+     * Batch scans the SPO rows of the candidate subjects with the
+     * {@link StarJoinIterator} and turns the returned subject groups into
+     * joined results. A batch scanner returns the groups of a subject that
+     * straddles a tablet boundary in no particular order, so every group of
+     * a batch is merged by subject before deciding whether the subject joined.
+     */
+    private class StarJoinIteration implements CloseableIteration<List<RyaStatement>, RyaDAOException> {
+        private final AccumuloRdfConfiguration conf;
+        private final IteratorSetting setting;
+        private final CandidateSubjects candidates;
+        private final int candidateIndex;
+        private final List<RyaIRI> predicates;
+        private final TriplePatternStrategy spoStrategy;
+        private final Deque<List<RyaStatement>> pending = new ArrayDeque<>();
+
+        public StarJoinIteration(final AccumuloRdfConfiguration conf, final IteratorSetting setting,
+                final CandidateSubjects candidates, final int candidateIndex, final List<RyaIRI> predicates) {
+            this.conf = conf;
+            this.setting = setting;
+            this.candidates = candidates;
+            this.candidateIndex = candidateIndex;
+            this.predicates = predicates;
+            this.spoStrategy = RyaTripleContext.getInstance(conf).retrieveStrategy(TABLE_LAYOUT.SPO);
+        }
+
+        @Override
+        public boolean hasNext() throws RyaDAOException {
+            try {
+                while (pending.isEmpty() && candidates.hasNext()) {
+                    // The object each subject of the batch was first read from.
+                    final Map<String, byte[]> batch = new LinkedHashMap<>();
+                    final List<Range> ranges = new ArrayList<>();
+                    while (ranges.size() < SUBJECT_BATCH_SIZE && candidates.hasNext()) {
+                        final RyaIRI subject = candidates.next();
+                        if (!batch.containsKey(subject.getData())) {
+                            batch.put(subject.getData(), candidates.getObject());
+                            final ByteRange byteRange = spoStrategy.defineRange(subject, null, null, null, conf).getValue();
+                            ranges.add(new Range(new Text(byteRange.getStart()), new Text(byteRange.getEnd())));
+                        }
+                    }
+                    for (final StarJoinGroup group : scan(ranges)) {
+                        emit(group, batch);
+                    }
+                }
+            } catch (final IOException | RyaTypeResolverException | TableNotFoundException e) {
+                throw new RyaDAOException(e);
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public List<RyaStatement> next() throws RyaDAOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+
+        @Override
+        public void remove() throws RyaDAOException {
+            next();
+        }
+
+        @Override
+        public void close() throws RyaDAOException {
+            candidates.close();
+            pending.clear();
+        }
+
+        private Iterable<StarJoinGroup> scan(final List<Range> ranges) throws IOException, TableNotFoundException {
+            final Map<ByteBuffer, StarJoinGroup> groups = new LinkedHashMap<>();
+            final BatchScanner scanner = connector.createBatchScanner(conf.getTableLayoutStrategy().getSpo(),
+                    conf.getAuthorizations(), conf.getNumThreads());
+            try {
+                scanner.setRanges(ranges);
+                scanner.addScanIterator(setting);
+                for (final Map.Entry<Key, Value> entry : scanner) {
+                    final StarJoinGroup group = StarJoinGroup.decode(entry.getValue().get());
+                    final StarJoinGroup existing = groups.get(ByteBuffer.wrap(group.getSubject()));
+                    if (existing == null) {
+                        groups.put(ByteBuffer.wrap(group.getSubject()), group);
+                    } else {
+                        existing.merge(group);
+                    }
+                }
+            } finally {
+                scanner.close();
+            }
+            return groups.isEmpty() ? Collections.<StarJoinGroup>emptyList() : groups.values();
+        }
+
+        private void emit(final StarJoinGroup group, final Map<String, byte[]> batch) throws RyaTypeResolverException {
+            if (!group.isJoined()) {
+                return;
+            }
+            final String subjectData = new String(group.getSubject(), StandardCharsets.UTF_8);
+            if (!isFirstRead(group, batch.get(subjectData))) {
+                return;
+            }
+            final RyaIRI subject = new RyaIRI(subjectData);
+            final List<List<RyaStatement>> perPattern = new ArrayList<>();
+            for (int i = 0; i < group.getPatternCount(); i++) {
+                final List<RyaStatement> statements = new ArrayList<>();
+                for (final byte[][] objectAndContext : group.getMatches(i)) {
+                    final RyaIRI context = objectAndContext[1].length == 0 ? null :
+                        new RyaIRI(new String(objectAndContext[1], StandardCharsets.UTF_8));
+                    statements.add(new RyaStatement(subject, predicates.get(i), ryaContext.deserialize(objectAndContext[0]), context));
+                }
+                perPattern.add(statements);
+            }
+            expand(perPattern, 0, new ArrayList<RyaStatement>());
+        }
+
+        /**
+         * @param group - The joined rows of a subject. (not null)
+         * @param object - The serialized object the batch read the subject from,
+         *   or {@code null} if the object of the candidate pattern is bound.
+         * @return {@code true} if that is the smallest object of the subject's
+         *   matches for the candidate pattern, so the PO scan read the subject
+         *   there first.
+         */
+        private boolean isFirstRead(final StarJoinGroup group, final byte[] object) throws RyaTypeResolverException {
+            if (object == null) {
+                return true;
+            }
+            byte[] smallest = null;
+            for (final byte[][] objectAndContext : group.getMatches(candidateIndex)) {
+                final byte[] data = serializeData(ryaContext.deserialize(objectAndContext[0]));
+                if (smallest == null || UnsignedBytes.lexicographicalComparator().compare(data, smallest) < 0) {
+                    smallest = data;
+                }
+            }
+            return Arrays.equals(object, smallest);
+        }
+
+        private void expand(final List<List<RyaStatement>> perPattern, final int index, final List<RyaStatement> current) {
+            if (index == perPattern.size()) {
+                pending.add(new ArrayList<>(current));
+                return;
+            }
+            for (final RyaStatement statement : perPattern.get(index)) {
+                current.add(statement);
+                expand(perPattern, index + 1, current);
+                current.remove(current.size() - 1);
+            }
+        }
+    }
+}
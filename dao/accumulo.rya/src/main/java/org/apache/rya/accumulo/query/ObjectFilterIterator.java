@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.persist.query.ObjectFilter;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+
+/**
+ * Evaluates an {@link ObjectFilter} on the tablet server, so statements whose
+ * objects the query would filter out are never sent back to the client.
+ * Rows that can not be deserialized are accepted and left for the client to report.
+ */
+public class ObjectFilterIterator extends Filter {
+    public static final String FILTER_PROP = "filter";
+    public static final String LAYOUT_PROP = "layout";
+    public static final String HASHED_PROP = "hashed";
+
+    private ObjectFilter filter;
+    private TABLE_LAYOUT layout;
+    private RyaTripleContext tripleContext;
+
+    /**
+     * Configures the iterator that an {@link IteratorSetting} describes.
+     *
+     * @param setting - The setting to configure. (not null)
+     * @param layout - The layout of the table that is scanned. (not null)
+     * @param hashed - {@code true} if the rows of the table are prefixed with a hash.
+     * @param filter - The filter the objects of the scanned statements must pass. (not null)
+     */
+    public static void setFilter(final IteratorSetting setting, final TABLE_LAYOUT layout, final boolean hashed, final ObjectFilter filter) {
+        setting.addOption(FILTER_PROP, filter.encode());
+        setting.addOption(LAYOUT_PROP, layout.name());
+        setting.addOption(HASHED_PROP, Boolean.toString(hashed));
+    }
+
+    @Override
+    public boolean accept(final Key k, final Value v) {
+        try {
+            final TripleRow tripleRow = new TripleRow(k.getRowData().toArray(), k.getColumnFamilyData().toArray(),
+                    k.getColumnQualifierData().toArray());
+            return filter.accept(tripleContext.deserializeTriple(layout, tripleRow).getObject());
+        } catch (final TripleRowResolverException | RuntimeException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public void init(final SortedKeyValueIterator<Key,Value> source, final Map<String,String> options, final IteratorEnvironment env) throws IOException {
+        super.init(source, options, env);
+        if (options == null) {
+            throw new IllegalArgumentException("options must be set for ObjectFilterIterator");
+        }
+
+        final String filter_s = options.get(FILTER_PROP);
+        if (filter_s == null) {
+            throw new IllegalArgumentException("filter must be set for ObjectFilterIterator");
+        }
+        filter = ObjectFilter.decode(filter_s);
+
+        final String layout_s = options.get(LAYOUT_PROP);
+        if (layout_s == null) {
+            throw new IllegalArgumentException("layout must be set for ObjectFilterIterator");
+        }
+        layout = TABLE_LAYOUT.valueOf(layout_s);
+        tripleContext = new RyaTripleContext(Boolean.parseBoolean(options.get(HASHED_PROP)));
+    }
+
+    @Override
+    public OptionDescriber.IteratorOptions describeOptions() {
+        final Map<String, String> options = new TreeMap<String, String>();
+        options.put(FILTER_PROP, "the encoded ObjectFilter the objects of the statements must pass");
+        options.put(LAYOUT_PROP, "the layout of the scanned table: SPO, PO or OSP");
+        options.put(HASHED_PROP, "true if the rows of the table are prefixed with a hash");
+        return new OptionDescriber.IteratorOptions("objectFilter", "ObjectFilterIterator removes statements whose objects do not pass a query filter",
+                options, null);
+    }
+
+    @Override
+    public boolean validateOptions(final Map<String, String> options) {
+        ObjectFilter.decode(options.get(FILTER_PROP));
+        TABLE_LAYOUT.valueOf(options.get(LAYOUT_PROP));
+        return true;
+    }
+}
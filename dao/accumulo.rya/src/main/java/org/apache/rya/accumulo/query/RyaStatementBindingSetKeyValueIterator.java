@@ -32,6 +32,7 @@ import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.RdfCloudTripleStoreUtils;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.persist.query.ScanMetrics;
 import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowResolverException;
@@ -52,6 +53,7 @@ public class RyaStatementBindingSetKeyValueIterator implements CloseableIteratio
     private Iterator<BindingSet> bsIter;
     private RyaStatement statement;
 	private RyaTripleContext ryaContext;
+    private ScanMetrics scanMetrics;
 
     public RyaStatementBindingSetKeyValueIterator(TABLE_LAYOUT tableLayout, RyaTripleContext context, ScannerBase scannerBase, RangeBindingSetEntries rangeMap) {
         this(tableLayout, ((scannerBase instanceof BatchScanner) ? scannerBase.iterator() : scannerBase
@@ -63,7 +65,7 @@ public class RyaStatementBindingSetKeyValueIterator implements CloseableIteratio
     public RyaStatementBindingSetKeyValueIterator(TABLE_LAYOUT tableLayout, Iterator<Map.Entry<Key, Value>> dataIterator, RangeBindingSetEntries rangeMap, RyaTripleContext ryaContext) {
         this.tableLayout = tableLayout;
         this.rangeMap = rangeMap;
-        this.dataIterator = dataIterator;
+        this.dataIterator = TermPrefetchingIterator.wrap(dataIterator, ryaContext);
         this.ryaContext = ryaContext;
     }
 
@@ -114,6 +116,9 @@ public class RyaStatementBindingSetKeyValueIterator implements CloseableIteratio
                 if (dataIterator.hasNext()) {
                     Map.Entry<Key, Value> next = dataIterator.next();
                     Key key = next.getKey();
+                    if (scanMetrics != null) {
+                        scanMetrics.bytesRead(key.getSize() + (next.getValue() == null ? 0 : next.getValue().getSize()));
+                    }
                     statement = ryaContext.deserializeTriple(tableLayout,
                             new TripleRow(key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(),
                                     key.getTimestamp(), key.getColumnVisibilityData().toArray(), next.getValue().get()));
@@ -143,6 +148,13 @@ public class RyaStatementBindingSetKeyValueIterator implements CloseableIteratio
         return maxResults;
     }
 
+    /**
+     * @param scanMetrics - Told the size of each entry that is read. May be null.
+     */
+    public void setScanMetrics(ScanMetrics scanMetrics) {
+        this.scanMetrics = scanMetrics;
+    }
+
     public void setMaxResults(Long maxResults) {
         this.maxResults = maxResults;
     }
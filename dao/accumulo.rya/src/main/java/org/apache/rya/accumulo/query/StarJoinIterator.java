@@ -0,0 +1,383 @@
+package org.apache.rya.accumulo.query;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.DELIM_BYTE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * A tablet server iterator over the SPO table that evaluates star joins: a set
+ * of patterns with constant predicates, and optionally constant objects, that
+ * share the same subject variable. Every triple of a subject is stored in
+ * adjacent rows of the SPO table, so the iterator walks one subject at a time,
+ * collects the rows that match each pattern, and only returns subjects that
+ * matched every pattern.
+ * <p>
+ * Each returned entry describes one subject. Its key is the last row of the
+ * subject that was read, so a scan that is re-seeked after that key resumes
+ * with the next subject. Its value holds the matching object and context of
+ * every pattern; see {@link StarJoinGroup#decode(byte[])}.
+ * <p>
+ * A subject's rows may be split across tablets. The first and last subject of
+ * every seek are therefore returned even when they did not match every
+ * pattern, flagged as boundary groups. The client merges adjacent boundary
+ * groups of the same subject before deciding whether they joined.
+ * <p>
+ * This iterator only understands the rows written by the
+ * {@link org.apache.rya.api.resolver.triple.impl.WholeRowTripleResolver}, so it
+ * can not be used when rows are prefixed with a hash. The Rya Accumulo jar
+ * must be on the tablet servers' classpath.
+ */
+public class StarJoinIterator implements SortedKeyValueIterator<Key, Value>, OptionDescriber {
+
+    public static final String PATTERN_COUNT = "patterns";
+    public static final String PATTERN_PREDICATE_PREFIX = "predicate.";
+    public static final String PATTERN_OBJECT_PREFIX = "object.";
+
+    private SortedKeyValueIterator<Key, Value> source;
+    private byte[][] predicates;
+    private byte[][] objects;
+
+    private Key topKey;
+    private Value topValue;
+    private boolean firstGroup;
+
+    /**
+     * Configures a star join on an iterator setting.
+     *
+     * @param setting - The setting that is configured. (not null)
+     * @param predicates - The predicate of each pattern. (not null)
+     * @param objects - The serialized object of each pattern, or {@code null}
+     *   for patterns whose object is a variable. (not null)
+     */
+    public static void setPatterns(final IteratorSetting setting, final List<String> predicates, final List<byte[]> objects) {
+        if (predicates.isEmpty() || predicates.size() != objects.size()) {
+            throw new IllegalArgumentException("Every pattern needs a predicate and an optional object.");
+        }
+        setting.addOption(PATTERN_COUNT, Integer.toString(predicates.size()));
+        for (int i = 0; i < predicates.size(); i++) {
+            setting.addOption(PATTERN_PREDICATE_PREFIX + i, predicates.get(i));
+            if (objects.get(i) != null) {
+                setting.addOption(PATTERN_OBJECT_PREFIX + i, Base64.getEncoder().encodeToString(objects.get(i)));
+            }
+        }
+    }
+
+    @Override
+    public void init(final SortedKeyValueIterator<Key, Value> source, final Map<String, String> options, final IteratorEnvironment env) throws IOException {
+        if (!validateOptions(options)) {
+            throw new IllegalArgumentException("Invalid options for StarJoinIterator: " + options);
+        }
+        this.source = source;
+        final int count = Integer.parseInt(options.get(PATTERN_COUNT));
+        predicates = new byte[count][];
+        objects = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            predicates[i] = options.get(PATTERN_PREDICATE_PREFIX + i).getBytes(StandardCharsets.UTF_8);
+            final String object = options.get(PATTERN_OBJECT_PREFIX + i);
+            objects[i] = object == null ? null : Base64.getDecoder().decode(object);
+        }
+    }
+
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+
+    @Override
+    public void next() throws IOException {
+        findTop();
+    }
+
+    @Override
+    public void seek(final Range range, final Collection<ByteSequence> columnFamilies, final boolean inclusive) throws IOException {
+        source.seek(range, columnFamilies, inclusive);
+        firstGroup = true;
+        findTop();
+    }
+
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(final IteratorEnvironment env) {
+        final StarJoinIterator copy = new StarJoinIterator();
+        copy.source = source.deepCopy(env);
+        copy.predicates = predicates;
+        copy.objects = objects;
+        return copy;
+    }
+
+    private void findTop() throws IOException {
+        topKey = null;
+        topValue = null;
+
+        while (source.hasTop()) {
+            final byte[] subject = subjectOf(source.getTopKey().getRowData());
+            if (subject == null) {
+                // Not a triple row.
+                source.next();
+                continue;
+            }
+            final StarJoinGroup group = new StarJoinGroup(subject, predicates.length);
+
+            // Read every row of this subject.
+            Key last = null;
+            while (source.hasTop() && hasSubject(source.getTopKey().getRowData(), subject)) {
+                last = source.getTopKey();
+                match(last, subject.length, group);
+                last = new Key(last);
+                source.next();
+            }
+
+            final boolean boundary = firstGroup || !source.hasTop();
+            firstGroup = false;
+            group.setBoundary(boundary);
+            if (group.isJoined() || (boundary && !group.isEmpty())) {
+                topKey = last;
+                topValue = new Value(group.encode());
+                return;
+            }
+        }
+    }
+
+    private void match(final Key key, final int subjectLength, final StarJoinGroup group) {
+        final ByteSequence row = key.getRowData();
+        final int predStart = subjectLength + 1;
+        for (int i = 0; i < predicates.length; i++) {
+            final byte[] pred = predicates[i];
+            final int objStart = predStart + pred.length + 1;
+            if (objStart > row.length() || row.byteAt(objStart - 1) != DELIM_BYTE || !regionEquals(row, predStart, pred)) {
+                continue;
+            }
+            final byte[] obj = row.subSequence(objStart, row.length()).toArray();
+            if (objects[i] != null && !Arrays.equals(objects[i], obj)) {
+                continue;
+            }
+            group.add(i, obj, key.getColumnFamilyData().toArray());
+        }
+    }
+
+    private static byte[] subjectOf(final ByteSequence row) {
+        for (int i = 0; i < row.length(); i++) {
+            if (row.byteAt(i) == DELIM_BYTE) {
+                return row.subSequence(0, i).toArray();
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasSubject(final ByteSequence row, final byte[] subject) {
+        return row.length() > subject.length && row.byteAt(subject.length) == DELIM_BYTE && regionEquals(row, 0, subject);
+    }
+
+    private static boolean regionEquals(final ByteSequence row, final int offset, final byte[] expected) {
+        if (offset + expected.length > row.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (row.byteAt(offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public IteratorOptions describeOptions() {
+        final Map<String, String> options = new TreeMap<String, String>();
+        options.put(PATTERN_COUNT, "the number of patterns in the star join");
+        options.put(PATTERN_PREDICATE_PREFIX + "<n>", "the predicate of pattern n");
+        options.put(PATTERN_OBJECT_PREFIX + "<n>", "the base64 encoded serialized object of pattern n, if it is constant");
+        return new IteratorOptions("starJoin", "StarJoinIterator only returns subjects of the SPO table that match every pattern", options, null);
+    }
+
+    @Override
+    public boolean validateOptions(final Map<String, String> options) {
+        final String count = options.get(PATTERN_COUNT);
+        if (count == null) {
+            return false;
+        }
+        final int n = Integer.parseInt(count);
+        for (int i = 0; i < n; i++) {
+            if (options.get(PATTERN_PREDICATE_PREFIX + i) == null) {
+                return false;
+            }
+        }
+        return n > 0;
+    }
+
+    /**
+     * The rows of one subject that matched each pattern of a star join.
+     */
+    public static class StarJoinGroup {
+        private final byte[] subject;
+        private final List<List<byte[][]>> matches;
+        private boolean boundary = false;
+
+        public StarJoinGroup(final byte[] subject, final int patternCount) {
+            this.subject = subject;
+            this.matches = new ArrayList<>(patternCount);
+            for (int i = 0; i < patternCount; i++) {
+                matches.add(new ArrayList<byte[][]>());
+            }
+        }
+
+        /**
+         * Records a row that matched a pattern.
+         *
+         * @param pattern - The index of the pattern.
+         * @param object - The serialized object of the row.
+         * @param context - The column family (context) of the row.
+         */
+        public void add(final int pattern, final byte[] object, final byte[] context) {
+            matches.get(pattern).add(new byte[][] { object, context });
+        }
+
+        /**
+         * Adds every match of another group of the same subject to this one.
+         */
+        public void merge(final StarJoinGroup other) {
+            for (int i = 0; i < matches.size(); i++) {
+                matches.get(i).addAll(other.matches.get(i));
+            }
+        }
+
+        public byte[] getSubject() {
+            return subject;
+        }
+
+        /**
+         * @return The {@code [object, context]} pairs that matched a pattern.
+         */
+        public List<byte[][]> getMatches(final int pattern) {
+            return matches.get(pattern);
+        }
+
+        public int getPatternCount() {
+            return matches.size();
+        }
+
+        public boolean isBoundary() {
+            return boundary;
+        }
+
+        public void setBoundary(final boolean boundary) {
+            this.boundary = boundary;
+        }
+
+        /**
+         * @return {@code true} if every pattern matched at least one row.
+         */
+        public boolean isJoined() {
+            for (final List<byte[][]> match : matches) {
+                if (match.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return {@code true} if no pattern matched any row.
+         */
+        public boolean isEmpty() {
+            for (final List<byte[][]> match : matches) {
+                if (!match.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public byte[] encode() throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBoolean(boundary);
+            writeBytes(out, subject);
+            out.writeInt(matches.size());
+            for (final List<byte[][]> match : matches) {
+                out.writeInt(match.size());
+                for (final byte[][] objectAndContext : match) {
+                    writeBytes(out, objectAndContext[0]);
+                    writeBytes(out, objectAndContext[1]);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        public static StarJoinGroup decode(final byte[] encoded) throws IOException {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+            final boolean boundary = in.readBoolean();
+            final byte[] subject = readBytes(in);
+            final int patternCount = in.readInt();
+            final StarJoinGroup group = new StarJoinGroup(subject, patternCount);
+            group.setBoundary(boundary);
+            for (int i = 0; i < patternCount; i++) {
+                final int matchCount = in.readInt();
+                for (int j = 0; j < matchCount; j++) {
+                    group.add(i, readBytes(in), readBytes(in));
+                }
+            }
+            return group;
+        }
+
+        private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static byte[] readBytes(final DataInputStream in) throws IOException {
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+}
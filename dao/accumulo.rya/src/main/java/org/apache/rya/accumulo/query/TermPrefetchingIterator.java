@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.TripleRowResolver;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.apache.rya.api.resolver.triple.dictionary.DictionaryTripleRowResolver;
+
+/**
+ * Reads the entries of a dictionary encoded triple table ahead in batches and
+ * looks up the terms of each batch together, so the entries are decoded with
+ * one dictionary scan per batch instead of one per term.
+ */
+public class TermPrefetchingIterator implements Iterator<Map.Entry<Key, Value>> {
+
+    /**
+     * The number of entries that are read ahead by default.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Iterator<Map.Entry<Key, Value>> source;
+    private final DictionaryTripleRowResolver resolver;
+    private final int batchSize;
+    private final Deque<Map.Entry<Key, Value>> batch = new ArrayDeque<>();
+
+    /**
+     * Constructs an instance of {@link TermPrefetchingIterator}.
+     *
+     * @param source - The entries of a dictionary encoded triple table. (not null)
+     * @param resolver - Decodes the entries. (not null)
+     * @param batchSize - The number of entries that are read ahead. (greater than 0)
+     */
+    public TermPrefetchingIterator(final Iterator<Map.Entry<Key, Value>> source, final DictionaryTripleRowResolver resolver, final int batchSize) {
+        this.source = requireNonNull(source);
+        this.resolver = requireNonNull(resolver);
+        checkArgument(batchSize > 0, "The batch size must be greater than 0.");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param source - The entries of a triple table. (not null)
+     * @param ryaContext - Decodes the entries. (not null)
+     * @return The entries, read ahead in batches if the table is dictionary encoded.
+     */
+    public static Iterator<Map.Entry<Key, Value>> wrap(final Iterator<Map.Entry<Key, Value>> source, final RyaTripleContext ryaContext) {
+        final TripleRowResolver resolver = ryaContext.getTripleResolver();
+        if (resolver instanceof DictionaryTripleRowResolver) {
+            return new TermPrefetchingIterator(source, (DictionaryTripleRowResolver) resolver, DEFAULT_BATCH_SIZE);
+        }
+        return source;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !batch.isEmpty() || source.hasNext();
+    }
+
+    @Override
+    public Map.Entry<Key, Value> next() {
+        if (batch.isEmpty()) {
+            readBatch();
+        }
+        if (batch.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return batch.removeFirst();
+    }
+
+    private void readBatch() {
+        final List<byte[]> rows = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && source.hasNext()) {
+            final Map.Entry<Key, Value> entry = source.next();
+            batch.addLast(entry);
+            rows.add(entry.getKey().getRowData().toArray());
+        }
+        try {
+            resolver.prefetchTerms(rows);
+        } catch (final TripleRowResolverException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo;
+
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.DELIM;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_TEXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.PREDOBJECT_CF_TXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.PRED_CF_TXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.SUBJECT_CF_TXT;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.api.persist.CardinalityRequest;
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link AccumuloRdfEvalStatsDAO} against a mock instance of Accumulo.
+ */
+public class AccumuloRdfEvalStatsDAOTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final IRI ALICE = VF.createIRI("urn:alice");
+    private static final IRI BOB = VF.createIRI("urn:bob");
+    private static final IRI WORKS_AT = VF.createIRI("urn:worksAt");
+    private static final IRI LIVES_IN = VF.createIRI("urn:livesIn");
+    private static final IRI ACME = VF.createIRI("urn:acme");
+    private static final IRI GRAPH = VF.createIRI("urn:graph");
+
+    private Connector connector;
+    private AccumuloRdfConfiguration conf;
+    private AccumuloRdfEvalStatsDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        connector = new MockInstance("evalStats").getConnector("root", new PasswordToken(""));
+        conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix("evalstats_");
+
+        dao = new AccumuloRdfEvalStatsDAO();
+        dao.setConnector(connector);
+        dao.setConf(conf);
+        dao.init();
+
+        final BatchWriter writer = connector.createBatchWriter(conf.getTableLayoutStrategy().getEval(), new BatchWriterConfig());
+        try {
+            writer.addMutation(count(SUBJECT_CF_TXT, EMPTY_TEXT, 3, ALICE));
+            writer.addMutation(count(PRED_CF_TXT, EMPTY_TEXT, 42, WORKS_AT));
+            writer.addMutation(count(PRED_CF_TXT, new Text(GRAPH.stringValue()), 7, WORKS_AT));
+            writer.addMutation(count(PREDOBJECT_CF_TXT, EMPTY_TEXT, 5, WORKS_AT, ACME));
+            writer.addMutation(count(PRED_CF_TXT, EMPTY_TEXT, 11, LIVES_IN));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dao.destroy();
+        connector.tableOperations().delete(conf.getTableLayoutStrategy().getEval());
+    }
+
+    @Test
+    public void getCardinalities_matchesGetCardinality() throws Exception {
+        final List<CardinalityRequest> requests = Arrays.asList(
+                new CardinalityRequest(CARDINALITY_OF.SUBJECT, Arrays.<Value>asList(ALICE), null),
+                new CardinalityRequest(CARDINALITY_OF.PREDICATE, Arrays.<Value>asList(WORKS_AT), null),
+                new CardinalityRequest(CARDINALITY_OF.PREDICATE, Arrays.<Value>asList(WORKS_AT), GRAPH),
+                new CardinalityRequest(CARDINALITY_OF.PREDICATEOBJECT, Arrays.<Value>asList(WORKS_AT, ACME), null),
+                new CardinalityRequest(CARDINALITY_OF.PREDICATE, Arrays.<Value>asList(LIVES_IN), null),
+                // Not in the table, so it is unknown.
+                new CardinalityRequest(CARDINALITY_OF.SUBJECT, Arrays.<Value>asList(BOB), null),
+                // The row exists, but not for this kind of cardinality.
+                new CardinalityRequest(CARDINALITY_OF.SUBJECT, Arrays.<Value>asList(WORKS_AT), null),
+                // Object cardinalities are never looked up.
+                new CardinalityRequest(CARDINALITY_OF.OBJECT, Arrays.<Value>asList(ACME), null));
+
+        final Map<CardinalityRequest, Double> cardinalities = dao.getCardinalities(conf, requests);
+
+        assertEquals(requests.size(), cardinalities.size());
+        for (final CardinalityRequest request : requests) {
+            final double expected = dao.getCardinality(conf, request.getCardinalityOf(), request.getValues(), request.getContext());
+            assertEquals(request.toString(), expected, cardinalities.get(request), 0.0);
+        }
+
+        assertEquals(7.0, cardinalities.get(requests.get(2)), 0.0);
+        assertEquals(-1.0, cardinalities.get(requests.get(5)), 0.0);
+        assertEquals(Double.MAX_VALUE, cardinalities.get(requests.get(7)), 0.0);
+    }
+
+    @Test
+    public void getCardinalities_sharedLookup() throws Exception {
+        // Equal requests share one lookup and are all answered.
+        final CardinalityRequest first = new CardinalityRequest(CARDINALITY_OF.PREDICATE, Arrays.<Value>asList(WORKS_AT), null);
+        final CardinalityRequest second = new CardinalityRequest(CARDINALITY_OF.PREDICATE, Arrays.<Value>asList(WORKS_AT), null);
+
+        final Map<CardinalityRequest, Double> cardinalities = dao.getCardinalities(conf, Arrays.asList(first, second));
+
+        assertEquals(1, cardinalities.size());
+        assertEquals(42.0, cardinalities.get(second), 0.0);
+    }
+
+    @Test
+    public void getCardinalities_empty() throws Exception {
+        assertEquals(0, dao.getCardinalities(conf, Arrays.<CardinalityRequest>asList()).size());
+    }
+
+    private static Mutation count(final Text cf, final Text cq, final long count, final Value... values) {
+        final StringBuilder row = new StringBuilder(values[0].stringValue());
+        for (int i = 1; i < values.length; i++) {
+            row.append(DELIM).append(values[i].stringValue());
+        }
+        final Mutation mutation = new Mutation(new Text(row.toString().getBytes(StandardCharsets.UTF_8)));
+        mutation.put(cf, cq, new org.apache.accumulo.core.data.Value(Long.toString(count).getBytes(StandardCharsets.UTF_8)));
+        return mutation;
+    }
+}
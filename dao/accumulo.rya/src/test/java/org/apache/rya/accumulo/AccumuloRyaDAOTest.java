@@ -110,6 +110,62 @@ public class AccumuloRyaDAOTest {
         assertEquals(0, count);
     }
 
+    @Test
+    public void testDictionaryEncoding() throws Exception {
+        final AccumuloRdfConfiguration dictConf = conf.clone();
+        dictConf.setTablePrefix("dict_");
+        dictConf.setDictionaryEncoding(true);
+        final AccumuloRyaDAO dictDao = new AccumuloRyaDAO();
+        dictDao.setConnector(connector);
+        dictDao.setConf(dictConf);
+        dictDao.init();
+        try {
+            RyaIRI cpu = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "cpu"));
+            RyaIRI loadPerc = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "loadPerc"));
+            RyaType load = new RyaType(XMLSchema.INTEGER, "42");
+            dictDao.add(new RyaStatement(cpu, loadPerc, load));
+            dictDao.add(new RyaStatement(cpu, loadPerc, new RyaIRI(litdupsNS + "uri1")));
+
+            CloseableIteration<RyaStatement, RyaDAOException> iter = dictDao.getQueryEngine().query(new RyaStatement(cpu, loadPerc, null), dictConf);
+            int count = 0;
+            while (iter.hasNext()) {
+                assertEquals(cpu, iter.next().getSubject());
+                count++;
+            }
+            iter.close();
+            assertEquals(2, count);
+
+            iter = dictDao.getQueryEngine().query(new RyaStatement(null, null, load), dictConf);
+            assertTrue(iter.hasNext());
+            assertEquals(load, iter.next().getObject());
+            assertFalse(iter.hasNext());
+            iter.close();
+
+            iter = dictDao.getQueryEngine().query(new RyaStatement(new RyaIRI(litdupsNS + "unknown"), null, null), dictConf);
+            assertFalse(iter.hasNext());
+            iter.close();
+
+            dictDao.delete(new RyaStatement(cpu, loadPerc, load), dictConf);
+            iter = dictDao.getQueryEngine().query(new RyaStatement(null, loadPerc, load), dictConf);
+            assertFalse(iter.hasNext());
+            iter.close();
+        } finally {
+            dictDao.dropAndDestroy();
+        }
+    }
+
+    @Test(expected = RyaDAOException.class)
+    public void testDictionaryEncodingRejectsRegex() throws Exception {
+        final AccumuloRdfConfiguration dictConf = conf.clone();
+        dictConf.setTablePrefix("dict_");
+        dictConf.setDictionaryEncoding(true);
+        dictConf.setRegexObject("^4");
+        final AccumuloRyaDAO dictDao = new AccumuloRyaDAO();
+        dictDao.setConnector(connector);
+        dictDao.setConf(dictConf);
+        dictDao.init();
+    }
+
     @Test
     public void testDeleteDiffVisibility() throws Exception {
         RyaIRI cpu = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "cpu"));
@@ -206,6 +262,48 @@ public class AccumuloRyaDAOTest {
         assertEquals(0, count);
     }
 
+    @Test
+    public void testBatchDelete() throws Exception {
+        RyaIRI pred1 = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "pred1"));
+        RyaIRI pred2 = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "pred2"));
+        RyaIRI graph1 = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "graph1"));
+        RyaIRI graph2 = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "graph2"));
+        List<RyaIRI> subjects = new ArrayList<RyaIRI>();
+        for (int i = 0; i < 5; i++) {
+            RyaIRI subj = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "subj" + i));
+            subjects.add(subj);
+            dao.add(new RyaStatement(subj, pred1, new RyaType("a" + i), graph1));
+            dao.add(new RyaStatement(subj, pred2, new RyaType("b" + i), graph1));
+            dao.add(new RyaStatement(subj, pred2, new RyaType("c" + i), graph2));
+        }
+
+        // delete a mix of wildcard, fully specified and named graph statements over several batches
+        AccumuloRdfConfiguration deleteConf = conf.clone();
+        deleteConf.setDeleteBatchSize(2);
+        List<RyaStatement> deletes = new ArrayList<RyaStatement>();
+        deletes.add(new RyaStatement(subjects.get(0), null, null));
+        deletes.add(new RyaStatement(subjects.get(1), pred1, new RyaType("a1")));
+        deletes.add(new RyaStatement(null, pred2, null, graph2));
+        dao.delete(deletes.iterator(), deleteConf);
+
+        assertEquals(0, count(new RyaStatement(subjects.get(0), null, null)));
+        assertEquals(1, count(new RyaStatement(subjects.get(1), null, null)));
+        assertEquals(3, count(new RyaStatement(null, pred1, null)));
+        assertEquals(4, count(new RyaStatement(null, pred2, null)));
+        assertEquals(0, count(new RyaStatement(null, null, new RyaType("c3"))));
+    }
+
+    private int count(RyaStatement query) throws RyaDAOException {
+        CloseableIteration<RyaStatement, RyaDAOException> iter = dao.getQueryEngine().query(query, conf);
+        int count = 0;
+        while (iter.hasNext()) {
+            iter.next();
+            count++;
+        }
+        iter.close();
+        return count;
+    }
+
     @Test
     public void testAddEmptyString() throws Exception {
         RyaIRI cpu = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "cpu"));
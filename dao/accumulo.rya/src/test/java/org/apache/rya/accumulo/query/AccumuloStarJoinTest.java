@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Integration tests the methods of {@link AccumuloStarJoin}.
+ */
+public class AccumuloStarJoinTest {
+
+    private static final RyaIRI ALICE = new RyaIRI("urn:alice");
+    private static final RyaIRI BOB = new RyaIRI("urn:bob");
+    private static final RyaIRI CHARLIE = new RyaIRI("urn:charlie");
+    private static final RyaIRI WORKS_AT = new RyaIRI("urn:worksAt");
+    private static final RyaIRI LIVES_IN = new RyaIRI("urn:livesIn");
+    private static final RyaIRI ACME = new RyaIRI("urn:acme");
+    private static final RyaIRI GLOBEX = new RyaIRI("urn:globex");
+    private static final RyaIRI BOSTON = new RyaIRI("urn:boston");
+
+    private AccumuloRyaDAO dao;
+    private AccumuloRdfConfiguration conf;
+    private AccumuloStarJoin starJoin;
+
+    @Before
+    public void setUp() throws Exception {
+        final Connector connector = new MockInstance().getConnector("", "");
+        dao = new AccumuloRyaDAO();
+        dao.setConnector(connector);
+        conf = new AccumuloRdfConfiguration();
+        dao.setConf(conf);
+        dao.init();
+
+        dao.add(Arrays.asList(
+                new RyaStatement(ALICE, WORKS_AT, ACME),
+                new RyaStatement(ALICE, LIVES_IN, BOSTON),
+                new RyaStatement(BOB, WORKS_AT, GLOBEX),
+                new RyaStatement(BOB, LIVES_IN, BOSTON),
+                new RyaStatement(CHARLIE, WORKS_AT, ACME)).iterator());
+        starJoin = new AccumuloStarJoin(connector);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dao.purge(conf);
+        dao.destroy();
+    }
+
+    @Test
+    public void starJoin_unboundObjects() throws Exception {
+        final List<List<RyaStatement>> results = evaluate(null, pattern(WORKS_AT, null), pattern(LIVES_IN, null));
+
+        final Set<RyaIRI> subjects = new HashSet<>();
+        for (final List<RyaStatement> result : results) {
+            assertEquals(2, result.size());
+            assertEquals(WORKS_AT, result.get(0).getPredicate());
+            assertEquals(LIVES_IN, result.get(1).getPredicate());
+            subjects.add(result.get(0).getSubject());
+        }
+        assertEquals(2, results.size());
+        assertEquals(new HashSet<>(Arrays.asList(ALICE, BOB)), subjects);
+    }
+
+    @Test
+    public void starJoin_boundObject() throws Exception {
+        final List<List<RyaStatement>> results = evaluate(null, pattern(WORKS_AT, ACME), pattern(LIVES_IN, null));
+
+        assertEquals(1, results.size());
+        assertEquals(ALICE, results.get(0).get(0).getSubject());
+        assertEquals(BOSTON, results.get(0).get(1).getObject());
+    }
+
+    @Test
+    public void starJoin_boundSubject() throws Exception {
+        final List<List<RyaStatement>> results = evaluate(BOB, pattern(WORKS_AT, null), pattern(LIVES_IN, null));
+
+        assertEquals(1, results.size());
+        assertEquals(BOB, results.get(0).get(0).getSubject());
+        assertEquals(GLOBEX, results.get(0).get(0).getObject());
+    }
+
+    @Test
+    public void starJoin_boundSubjectDoesNotJoin() throws Exception {
+        assertTrue(evaluate(CHARLIE, pattern(WORKS_AT, null), pattern(LIVES_IN, null)).isEmpty());
+    }
+
+    @Test
+    public void starJoin_subjectReadAgainInLaterBatch() throws Exception {
+        // Alice is read from the PO rows of both of her employers, which are more than a batch of subjects apart.
+        final RyaIRI initech = new RyaIRI("urn:initech");
+        final RyaIRI zorg = new RyaIRI("urn:zorg");
+        final List<RyaStatement> statements = new ArrayList<>();
+        for (int i = 0; i < AccumuloStarJoin.SUBJECT_BATCH_SIZE; i++) {
+            statements.add(new RyaStatement(new RyaIRI("urn:employee" + i), WORKS_AT, initech));
+        }
+        statements.add(new RyaStatement(ALICE, WORKS_AT, zorg));
+        dao.add(statements.iterator());
+
+        final List<List<RyaStatement>> results = evaluate(null, pattern(WORKS_AT, null), pattern(LIVES_IN, null));
+
+        // Each of Alice's employers is joined once, and so is Bob's.
+        final Set<RyaType> aliceEmployers = new HashSet<>();
+        for (final List<RyaStatement> result : results) {
+            if (result.get(0).getSubject().equals(ALICE)) {
+                aliceEmployers.add(result.get(0).getObject());
+            }
+        }
+        assertEquals(3, results.size());
+        assertEquals(new HashSet<RyaType>(Arrays.asList(ACME, zorg)), aliceEmployers);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void starJoin_nextWhenExhausted() throws Exception {
+        final CloseableIteration<List<RyaStatement>, RyaDAOException> it = starJoin.starJoin(conf, CHARLIE,
+                Arrays.asList(pattern(WORKS_AT, null), pattern(LIVES_IN, null)));
+        try {
+            it.next();
+        } finally {
+            it.close();
+        }
+    }
+
+    private List<List<RyaStatement>> evaluate(final RyaIRI subject, final Map.Entry<RyaIRI, RyaType>... patterns) throws RyaDAOException {
+        final List<List<RyaStatement>> results = new ArrayList<>();
+        final CloseableIteration<List<RyaStatement>, RyaDAOException> it = starJoin.starJoin(conf, subject, Arrays.asList(patterns));
+        try {
+            while (it.hasNext()) {
+                results.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return results;
+    }
+
+    private static Map.Entry<RyaIRI, RyaType> pattern(final RyaIRI predicate, final RyaType object) {
+        return new AbstractMap.SimpleImmutableEntry<>(predicate, object);
+    }
+}
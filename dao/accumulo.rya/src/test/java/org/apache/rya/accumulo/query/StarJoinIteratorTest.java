@@ -0,0 +1,147 @@
+package org.apache.rya.accumulo.query;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.accumulo.query.StarJoinIterator.StarJoinGroup;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaContext;
+import org.junit.Test;
+
+import com.google.common.primitives.Bytes;
+
+public class StarJoinIteratorTest {
+
+    private static final byte[] DELIM = new byte[] { 0 };
+
+    @Test
+    public void testOnlyJoinedSubjectsReturned() throws Exception {
+        final TreeMap<Key, Value> table = new TreeMap<>();
+        put(table, "urn:a", "urn:name", "alice");
+        put(table, "urn:a", "urn:age", "31");
+        put(table, "urn:b", "urn:name", "bob");
+        put(table, "urn:c", "urn:age", "40");
+        put(table, "urn:d", "urn:name", "dave");
+        put(table, "urn:d", "urn:age", "31");
+
+        final List<StarJoinGroup> groups = scan(table, Arrays.asList("urn:name", "urn:age"), Arrays.asList(null, object("31")));
+
+        // The first and last groups are boundary groups and are returned even if they did not join.
+        final List<String> joined = new ArrayList<>();
+        for (final StarJoinGroup group : groups) {
+            if (group.isJoined()) {
+                joined.add(new String(group.getSubject(), StandardCharsets.UTF_8));
+            } else {
+                assertTrue(group.isBoundary());
+            }
+        }
+        assertEquals(Arrays.asList("urn:a", "urn:d"), joined);
+
+        final StarJoinGroup a = groups.get(0);
+        assertEquals(1, a.getMatches(0).size());
+        assertArrayEquals(object("alice"), a.getMatches(0).get(0)[0]);
+    }
+
+    @Test
+    public void testBoundaryGroupsMerge() throws Exception {
+        final TreeMap<Key, Value> table = new TreeMap<>();
+        put(table, "urn:a", "urn:name", "alice");
+        put(table, "urn:a", "urn:age", "31");
+
+        // Simulate a tablet split between the rows of urn:a.
+        final Key split = new Key(new Text(row("urn:a", "urn:age", "31")));
+        final List<StarJoinGroup> left = scan(table, new Range(null, true, split, false), Arrays.asList("urn:name", "urn:age"), Arrays.<byte[]>asList(null, null));
+        final List<StarJoinGroup> right = scan(table, new Range(split, true, null, false), Arrays.asList("urn:name", "urn:age"), Arrays.<byte[]>asList(null, null));
+        assertEquals(1, left.size());
+        assertEquals(1, right.size());
+        assertFalse(left.get(0).isJoined());
+        assertFalse(right.get(0).isJoined());
+
+        final StarJoinGroup merged = left.get(0);
+        merged.merge(right.get(0));
+        assertTrue(merged.isJoined());
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        final StarJoinGroup group = new StarJoinGroup("urn:a".getBytes(StandardCharsets.UTF_8), 2);
+        group.add(0, object("alice"), new byte[0]);
+        group.add(1, object("31"), "urn:graph".getBytes(StandardCharsets.UTF_8));
+        group.setBoundary(true);
+
+        final StarJoinGroup decoded = StarJoinGroup.decode(group.encode());
+        assertArrayEquals(group.getSubject(), decoded.getSubject());
+        assertTrue(decoded.isBoundary());
+        assertTrue(decoded.isJoined());
+        assertArrayEquals(object("31"), decoded.getMatches(1).get(0)[0]);
+        assertArrayEquals("urn:graph".getBytes(StandardCharsets.UTF_8), decoded.getMatches(1).get(0)[1]);
+    }
+
+    private static List<StarJoinGroup> scan(final TreeMap<Key, Value> table, final List<String> predicates, final List<byte[]> objects) throws Exception {
+        return scan(table, new Range(), predicates, objects);
+    }
+
+    private static List<StarJoinGroup> scan(final TreeMap<Key, Value> table, final Range range, final List<String> predicates, final List<byte[]> objects) throws Exception {
+        final IteratorSetting setting = new IteratorSetting(30, "starJoin", StarJoinIterator.class);
+        StarJoinIterator.setPatterns(setting, predicates, objects);
+
+        final StarJoinIterator iterator = new StarJoinIterator();
+        iterator.init(new SortedMapIterator(table), setting.getOptions(), null);
+        iterator.seek(range, Collections.<ByteSequence>emptySet(), false);
+
+        final List<StarJoinGroup> groups = new ArrayList<>();
+        while (iterator.hasTop()) {
+            groups.add(StarJoinGroup.decode(iterator.getTopValue().get()));
+            iterator.next();
+        }
+        return groups;
+    }
+
+    private static void put(final TreeMap<Key, Value> table, final String subject, final String predicate, final String object) throws Exception {
+        table.put(new Key(new Text(row(subject, predicate, object))), new Value(new byte[0]));
+    }
+
+    private static byte[] row(final String subject, final String predicate, final String object) throws Exception {
+        return Bytes.concat(subject.getBytes(StandardCharsets.UTF_8), DELIM, predicate.getBytes(StandardCharsets.UTF_8), DELIM, object(object));
+    }
+
+    private static byte[] object(final String value) throws Exception {
+        final byte[][] bytes = RyaContext.getInstance().serializeType(new RyaType(value));
+        return Bytes.concat(bytes[0], bytes[1]);
+    }
+}
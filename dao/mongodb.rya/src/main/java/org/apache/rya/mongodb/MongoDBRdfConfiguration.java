@@ -27,6 +27,8 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.mongodb.aggregation.AggregationPipelineQueryOptimizer;
+import org.apache.rya.mongodb.dao.BinaryHashMigrator;
+import org.apache.rya.mongodb.dao.BinaryHashMongoDBStorageStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -56,6 +58,10 @@ public class MongoDBRdfConfiguration extends RdfCloudTripleStoreConfiguration {
 
     public static final String USE_AGGREGATION_PIPELINE = "rya.mongodb.query.pipeline";
 
+    // Triple storage layout values.
+    public static final String USE_BINARY_HASHES = "rya.mongodb.hash.binary";
+    public static final String HASH_CACHE_SIZE = "rya.mongodb.hash.cache.size";
+
     /**
      * Constructs an empty instance of {@link MongoDBRdfConfiguration}.
      */
@@ -278,6 +284,38 @@ public class MongoDBRdfConfiguration extends RdfCloudTripleStoreConfiguration {
         setBoolean(USE_AGGREGATION_PIPELINE, value);
     }
 
+    /**
+     * Whether the triples collection stores truncated binary hashes.
+     * @return true if triples are stored using {@link BinaryHashMongoDBStorageStrategy}.
+     */
+    public boolean getUseBinaryHashes() {
+        return getBoolean(USE_BINARY_HASHES, false);
+    }
+
+    /**
+     * Store the subject, predicate, and object hashes of triples as truncated
+     * binary digests instead of hex strings. This must match the layout of the
+     * existing triples collection; use {@link BinaryHashMigrator} to convert one.
+     * @param value whether to store binary hashes.
+     */
+    public void setUseBinaryHashes(final boolean value) {
+        setBoolean(USE_BINARY_HASHES, value);
+    }
+
+    /**
+     * @return The maximum number of IRI hashes cached by {@link BinaryHashMongoDBStorageStrategy}.
+     */
+    public int getHashCacheSize() {
+        return getInt(HASH_CACHE_SIZE, BinaryHashMongoDBStorageStrategy.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param size The maximum number of IRI hashes cached by {@link BinaryHashMongoDBStorageStrategy}.
+     */
+    public void setHashCacheSize(final int size) {
+        setInt(HASH_CACHE_SIZE, size);
+    }
+
     @Override
     public List<Class<QueryOptimizer>> getOptimizers() {
         final List<Class<QueryOptimizer>> optimizers = super.getOptimizers();
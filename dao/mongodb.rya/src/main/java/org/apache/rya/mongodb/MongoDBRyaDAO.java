@@ -21,9 +21,9 @@ package org.apache.rya.mongodb;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.security.Authorizations;
@@ -41,6 +41,7 @@ import org.apache.rya.mongodb.batch.MongoDbBatchWriter;
 import org.apache.rya.mongodb.batch.MongoDbBatchWriterConfig;
 import org.apache.rya.mongodb.batch.MongoDbBatchWriterException;
 import org.apache.rya.mongodb.batch.MongoDbBatchWriterUtils;
+import org.apache.rya.mongodb.batch.PipelinedStatementIngester;
 import org.apache.rya.mongodb.batch.collection.MongoCollectionType;
 import org.apache.rya.mongodb.dao.MongoDBNamespaceManager;
 import org.apache.rya.mongodb.dao.MongoDBStorageStrategy;
@@ -75,6 +76,8 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
 
     private MongoDbBatchWriter<Document> mongoDbBatchWriter;
 
+    private Optional<PipelinedStatementIngester> pipelinedIngester = Optional.empty();
+
     @Override
     public synchronized void setConf(final StatefulMongoDBRdfConfiguration conf) {
         this.conf = requireNonNull(conf);
@@ -112,7 +115,7 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
         nameSpaceManager = new SimpleMongoDBNamespaceManager(db.getCollection(conf.getNameSpacesCollectionName()));
         queryEngine = new MongoDBQueryEngine();
         queryEngine.setConf(conf);
-        storageStrategy = new SimpleMongoDBStorageStrategy();
+        storageStrategy = SimpleMongoDBStorageStrategy.fromConfiguration(conf);
         storageStrategy.createIndices(coll);
         for(final MongoSecondaryIndex index: secondaryIndexers) {
             index.init();
@@ -125,6 +128,17 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
         } catch (final MongoDbBatchWriterException e) {
             throw new RyaDAOException("Error starting MongoDB batch writer", e);
         }
+
+        if (MongoDbBatchWriterUtils.getConfigPipelinedIngest(conf)) {
+            pipelinedIngester = Optional.of(new PipelinedStatementIngester(
+                    new MongoCollectionType(coll),
+                    storageStrategy,
+                    secondaryIndexers,
+                    auths,
+                    MongoDbBatchWriterUtils.getConfigIngestChunkSize(conf),
+                    MongoDbBatchWriterUtils.getConfigIngestWorkers(conf),
+                    MongoDbBatchWriterUtils.getConfigIngestInFlight(conf)));
+        }
         isInitialized.set(true);
     }
 
@@ -145,6 +159,10 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
         } catch (final MongoDbBatchWriterException e) {
             throw new RyaDAOException("Error shutting down MongoDB batch writer", e);
         }
+        if (pipelinedIngester.isPresent()) {
+            pipelinedIngester.get().close();
+            pipelinedIngester = Optional.empty();
+        }
         for(final MongoSecondaryIndex indexer : secondaryIndexers) {
             try {
                 indexer.close();
@@ -188,27 +206,37 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
 
     @Override
     public void add(final Iterator<RyaStatement> statementIter) throws RyaDAOException {
-        final List<Document> dbInserts = new ArrayList<>();
-        while (statementIter.hasNext()){
-            final RyaStatement ryaStatement = statementIter.next();
-            final boolean canAdd = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, ryaStatement.getColumnVisibility());
-            if (canAdd) {
-                final Document insert = storageStrategy.serialize(ryaStatement);
-                dbInserts.add(insert);
+        if (pipelinedIngester.isPresent()) {
+            try {
+                pipelinedIngester.get().ingest(statementIter);
+            } catch (final MongoDbBatchWriterException e) {
+                throw new RyaDAOException("Error adding statements", e);
+            }
+            if (flushEachUpdate.get()) {
+                flushIndexers();
+            }
+            return;
+        }
 
-                try {
-                    for (final RyaSecondaryIndexer index : secondaryIndexers) {
-                        index.storeStatement(ryaStatement);
+        try {
+            while (statementIter.hasNext()){
+                final RyaStatement ryaStatement = statementIter.next();
+                final boolean canAdd = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, ryaStatement.getColumnVisibility());
+                if (canAdd) {
+                    // The batch writer's queue is bounded, so this blocks instead of buffering the whole iterator.
+                    mongoDbBatchWriter.addObjectToQueue(storageStrategy.serialize(ryaStatement));
+
+                    try {
+                        for (final RyaSecondaryIndexer index : secondaryIndexers) {
+                            index.storeStatement(ryaStatement);
+                        }
+                    } catch (final IOException e) {
+                        log.error("Failed to add: " + ryaStatement.toString() + " to the indexer");
                     }
-                } catch (final IOException e) {
-                    log.error("Failed to add: " + ryaStatement.toString() + " to the indexer");
+                } else {
+                    throw new RyaDAOException("User does not have the required authorizations to add statement");
                 }
-            } else {
-                throw new RyaDAOException("User does not have the required authorizations to add statement");
             }
-        }
-        try {
-            mongoDbBatchWriter.addObjectsToQueue(dbInserts);
             if (flushEachUpdate.get()) {
                 flush();
             }
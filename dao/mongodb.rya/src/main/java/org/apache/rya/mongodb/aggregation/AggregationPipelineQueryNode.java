@@ -48,7 +48,6 @@ import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.StatementMetadata;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
 import org.apache.rya.mongodb.MongoDbRdfConstants;
-import org.apache.rya.mongodb.dao.MongoDBStorageStrategy;
 import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
 import org.apache.rya.mongodb.document.operators.query.ConditionalOperators;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibilityAdapter;
@@ -119,7 +118,6 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     private static final String JOINED_TRIPLE = "<JOINED_TRIPLE>";
     private static final String FIELDS_MATCH = "<JOIN_FIELDS_MATCH>";
 
-    private static final MongoDBStorageStrategy<RyaStatement> strategy = new SimpleMongoDBStorageStrategy();
 
     private static final Bson DEFAULT_TYPE = new Document("$literal", XMLSchema.ANYURI.stringValue());
     private static final Bson DEFAULT_CONTEXT = new Document("$literal", "");
@@ -255,7 +253,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
      *  "x" followed by "y".
      * @return The argument of a "$match" query
      */
-    private static Document getMatchExpression(final StatementPattern sp, final String ... path) {
+    private Document getMatchExpression(final StatementPattern sp, final String ... path) {
         final Var subjVar = sp.getSubjectVar();
         final Var predVar = sp.getPredicateVar();
         final Var objVar = sp.getObjectVar();
@@ -328,6 +326,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     private final Set<String> assuredBindingNames;
     private final Set<String> bindingNames;
     private final BiMap<String, String> varToOriginalName;
+    private final SimpleMongoDBStorageStrategy strategy;
 
     private String replace(final String original) {
         if (varToOriginalName.containsValue(original)) {
@@ -341,12 +340,26 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     }
 
     /**
-     * Create a pipeline query node based on a StatementPattern.
+     * Create a pipeline query node based on a StatementPattern, for a
+     * collection whose triples are stored by a {@link SimpleMongoDBStorageStrategy}.
      * @param collection The collection of triples to query.
      * @param baseSP The leaf node in the query tree.
      */
     public AggregationPipelineQueryNode(final MongoCollection<Document> collection, final StatementPattern baseSP) {
+        this(collection, baseSP, new SimpleMongoDBStorageStrategy());
+    }
+
+    /**
+     * Create a pipeline query node based on a StatementPattern.
+     * @param collection The collection of triples to query.
+     * @param baseSP The leaf node in the query tree.
+     * @param strategy The strategy the collection's triples are stored with,
+     *  which determines how constants are hashed.
+     */
+    public AggregationPipelineQueryNode(final MongoCollection<Document> collection, final StatementPattern baseSP,
+            final SimpleMongoDBStorageStrategy strategy) {
         this.collection = Preconditions.checkNotNull(collection);
+        this.strategy = Preconditions.checkNotNull(strategy);
         Preconditions.checkNotNull(baseSP);
         this.varToOriginalName = HashBiMap.create();
         final StatementVarMapping mapping = new StatementVarMapping(baseSP, varToOriginalName);
@@ -360,7 +373,16 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     AggregationPipelineQueryNode(final MongoCollection<Document> collection,
             final List<Bson> pipeline, final Set<String> assuredBindingNames,
             final Set<String> bindingNames, final BiMap<String, String> varToOriginalName) {
+        this(collection, pipeline, assuredBindingNames, bindingNames, varToOriginalName,
+                new SimpleMongoDBStorageStrategy());
+    }
+
+    AggregationPipelineQueryNode(final MongoCollection<Document> collection,
+            final List<Bson> pipeline, final Set<String> assuredBindingNames,
+            final Set<String> bindingNames, final BiMap<String, String> varToOriginalName,
+            final SimpleMongoDBStorageStrategy strategy) {
         this.collection = Preconditions.checkNotNull(collection);
+        this.strategy = Preconditions.checkNotNull(strategy);
         this.pipeline = Preconditions.checkNotNull(pipeline);
         this.assuredBindingNames = Preconditions.checkNotNull(assuredBindingNames);
         this.bindingNames = Preconditions.checkNotNull(bindingNames);
@@ -431,7 +453,8 @@ public class AggregationPipelineQueryNode extends ExternalSet {
                 new LinkedList<>(pipeline),
                 new HashSet<>(assuredBindingNames),
                 new HashSet<>(bindingNames),
-                HashBiMap.create(varToOriginalName));
+                HashBiMap.create(varToOriginalName),
+                strategy);
     }
 
     @Override
@@ -660,7 +683,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
             else if (expr instanceof ValueConstant) {
                 final Value val = ((ValueConstant) expr).getValue();
                 valueField = new Document("$literal", val.stringValue());
-                hashField = new Document("$literal", SimpleMongoDBStorageStrategy.hash(val.stringValue()));
+                hashField = new Document("$literal", strategy.hashValue(val.stringValue(), val instanceof IRI));
                 if (val instanceof Literal) {
                     typeField = new Document("$literal", ((Literal) val).getDatatype().stringValue());
                 }
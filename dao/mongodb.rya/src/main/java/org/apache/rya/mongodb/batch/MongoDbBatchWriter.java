@@ -19,17 +19,19 @@
 package org.apache.rya.mongodb.batch;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 import org.apache.rya.mongodb.batch.collection.CollectionType;
@@ -39,27 +41,39 @@ import com.mongodb.DuplicateKeyException;
 import com.mongodb.MongoBulkWriteException;
 
 /**
- * Handles batch writing MongoDB statement objects to the repository. It takes
- * in a configurable batch size and flush time. If the number of objects placed
- * in the queue reaches the batch size then the objects are bulk written to the
- * datastore. Or if the queue has not filled up after the batch time duration
- * has passed then the statements are flushed out and written to the datastore.
+ * Handles batch writing MongoDB statement objects to the repository. Objects
+ * are spread over a configurable number of shards, each of which buffers its
+ * objects in a lock free queue and has its own flush worker, so concurrent
+ * producers do not contend with each other. A shard's objects are bulk written
+ * to the datastore once the shard holds a full batch, or once the batch flush
+ * time has passed since the shard was last flushed.
+ * <p>
+ * The total number of objects that are buffered or being written across all
+ * shards is bounded. Producers block once the bound is reached until enough
+ * objects have been written. Failed writes are retried with an exponential
+ * backoff, and histograms of how long producers waited for room in the buffer
+ * and how long each bulk write took are kept so the writer can be sized.
  * @param <T> the type of object that the batch writer's internal collection
  * type uses.
  */
 public class MongoDbBatchWriter<T> {
     private static final Logger log = Logger.getLogger(MongoDbBatchWriter.class);
 
-    private static final int CHECK_QUEUE_INTERVAL_MS = 10;
+    private static final ThreadFactory FLUSH_THREAD_FACTORY = new ThreadFactoryBuilder()
+        .setNameFormat("Batch Writer Flush Worker - %d")
+        .setDaemon(true)
+        .build();
 
     private final CollectionType<T> collectionType;
+    private final int batchSize;
     private final long batchFlushTimeMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
 
-    private final ArrayBlockingQueue<T> statementInsertionQueue;
-    private final ScheduledThreadPoolExecutor scheduledExecutor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(0);
-    private ScheduledFuture<?> flushBatchFuture;
-    private final Runnable flushBatchTask;
-    private Thread queueFullCheckerThread;
+    private final List<Shard> shards;
+    private final Semaphore bufferPermits;
+    private final LatencyHistogram queueWaitHistogram = new LatencyHistogram();
+    private final LatencyHistogram flushLatencyHistogram = new LatencyHistogram();
 
     private final AtomicBoolean isInit = new AtomicBoolean();
 
@@ -71,94 +85,138 @@ public class MongoDbBatchWriter<T> {
      */
     public MongoDbBatchWriter(final CollectionType<T> collectionType, final MongoDbBatchWriterConfig mongoDbBatchWriterConfig) {
         this.collectionType = checkNotNull(collectionType);
-        this.batchFlushTimeMs = checkNotNull(mongoDbBatchWriterConfig).getBatchFlushTimeMs();
+        checkNotNull(mongoDbBatchWriterConfig);
+        this.batchSize = mongoDbBatchWriterConfig.getBatchSize();
+        this.batchFlushTimeMs = mongoDbBatchWriterConfig.getBatchFlushTimeMs();
+        this.maxRetries = mongoDbBatchWriterConfig.getMaxRetries();
+        this.retryBackoffMs = mongoDbBatchWriterConfig.getRetryBackoffMs();
 
-        statementInsertionQueue = new ArrayBlockingQueue<>(mongoDbBatchWriterConfig.getBatchSize());
-        flushBatchTask = new BatchFlusher();
+        bufferPermits = new Semaphore(mongoDbBatchWriterConfig.getMaxBufferedObjects());
+        shards = new ArrayList<>(mongoDbBatchWriterConfig.getShardCount());
+        for (int i = 0; i < mongoDbBatchWriterConfig.getShardCount(); i++) {
+            shards.add(new Shard());
+        }
     }
 
     /**
-     * Task used to flush statements if enough time has passed without an
-     * insertion while there are objects enqueued.
+     * Buffers a share of the objects and writes them with its own worker.
      */
-    private class BatchFlusher implements Runnable {
-        @Override
-        public void run() {
+    private class Shard implements Runnable {
+        private final ConcurrentLinkedQueue<T> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger(0);
+        private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private volatile Thread worker;
+
+        public void add(final T object) {
+            buffer.offer(object);
+            if (size.incrementAndGet() >= batchSize) {
+                wake();
+            }
+        }
+
+        public void requestFlush() {
+            flushRequested.set(true);
+            wake();
+        }
+
+        private void wake() {
+            final Thread thread = worker;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * Writes the objects that are buffered when this is called.
+         * @param partial {@code true} if a final batch that is not full should
+         * also be written.
+         */
+        public void write(final boolean partial) throws MongoDbBatchWriterException {
+            writeLock.lock();
             try {
-                if (!statementInsertionQueue.isEmpty()) {
-                    log.trace("Running statement insertion flush task. Too much time has passed without any object insertions so all queued data is being flushed.");
-                    flush();
+                int remaining = size.get();
+                while (remaining > 0 && (partial || remaining >= batchSize)) {
+                    final List<T> batch = new ArrayList<>(Math.min(remaining, batchSize));
+                    T object;
+                    while (batch.size() < batchSize && (object = buffer.poll()) != null) {
+                        batch.add(object);
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    size.addAndGet(-batch.size());
+                    remaining -= batch.size();
+                    writeBatch(batch);
                 }
-            } catch (final Exception e) {
-                log.error("Error flush out the statements", e);
+            } finally {
+                writeLock.unlock();
             }
         }
-    }
-
-    private static final ThreadFactory QUEUE_THREAD_FACTORY = new ThreadFactoryBuilder()
-        .setNameFormat("Queue Full Checker Thread - %d")
-        .build();
 
-    /**
-     * Checks the queue for statements to insert if the queue is full.
-     */
-    private class QueueFullChecker implements Runnable {
         @Override
         public void run() {
-            try {
-                while (isInit.get()) {
-                    // Check if the queue is full and if it is then insert the
-                    // statements. Otherwise reset the insertion timer.
-                    if (statementInsertionQueue.remainingCapacity() == 0) {
-                        log.trace("Statement queue is FULL -> going to empty it");
-                        try {
-                            flush();
-                        } catch (final MongoDbBatchWriterException e) {
-                            log.error("Error emptying queue", e);
-                        }
-                    }
-                    Thread.sleep(CHECK_QUEUE_INTERVAL_MS);
+            final long flushTimeNanos = TimeUnit.MILLISECONDS.toNanos(batchFlushTimeMs);
+            long deadline = System.nanoTime() + flushTimeNanos;
+            while (isInit.get()) {
+                final boolean timedOut = deadline - System.nanoTime() <= 0;
+                final boolean requested = flushRequested.getAndSet(false);
+                if (size.get() < batchSize && !timedOut && !requested) {
+                    LockSupport.parkNanos(this, deadline - System.nanoTime());
+                    continue;
+                }
+
+                try {
+                    write(timedOut || requested);
+                } catch (final MongoDbBatchWriterException e) {
+                    log.error("Error flushing the batch writer's queued objects.", e);
+                }
+                if (timedOut || requested) {
+                    deadline = System.nanoTime() + flushTimeNanos;
                 }
-            } catch (final InterruptedException e) {
-                log.error("Encountered an unexpected error while checking the batch queue.", e);
+            }
+
+            // Write whatever was queued before the writer was shut down.
+            try {
+                write(true);
+            } catch (final MongoDbBatchWriterException e) {
+                log.error("Error flushing the batch writer's queued objects on shutdown.", e);
             }
         }
     }
 
     /**
-     * Starts the batch writer queue and processes.
+     * Starts the batch writer's flush workers.
      */
     public void start() throws MongoDbBatchWriterException {
-        if (!isInit.get()) {
-            if (flushBatchFuture == null) {
-                flushBatchFuture = startFlushTimer();
-            }
-            if (queueFullCheckerThread == null) {
-                queueFullCheckerThread = QUEUE_THREAD_FACTORY.newThread(new QueueFullChecker());
+        if (isInit.compareAndSet(false, true)) {
+            for (final Shard shard : shards) {
+                shard.worker = FLUSH_THREAD_FACTORY.newThread(shard);
+                shard.worker.start();
             }
-            isInit.set(true);
-            queueFullCheckerThread.start();
         }
     }
 
     /**
-     * Stops the batch writer processes.
+     * Stops the batch writer's flush workers once they have written the objects
+     * that are queued.
      */
     public void shutdown() throws MongoDbBatchWriterException {
-        isInit.set(false);
-        if (flushBatchFuture != null) {
-            flushBatchFuture.cancel(true);
-            flushBatchFuture = null;
-        }
-        if (queueFullCheckerThread != null) {
-            if (queueFullCheckerThread.isAlive()) {
-                try {
-                    queueFullCheckerThread.join(2 * CHECK_QUEUE_INTERVAL_MS);
-                } catch (final InterruptedException e) {
-                    log.error("Error waiting for thread to finish", e);
+        if (isInit.compareAndSet(true, false)) {
+            for (final Shard shard : shards) {
+                final Thread worker = shard.worker;
+                if (worker != null) {
+                    LockSupport.unpark(worker);
+                    try {
+                        worker.join();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new MongoDbBatchWriterException("Interrupted while waiting for the flush workers to finish.", e);
+                    }
+                    shard.worker = null;
                 }
-                queueFullCheckerThread = null;
             }
+            log.debug("Batch writer queue wait: " + queueWaitHistogram + "; flush latency: " + flushLatencyHistogram);
         }
     }
 
@@ -166,26 +224,42 @@ public class MongoDbBatchWriter<T> {
      * Adds a MongoDB object to the queue which will not be written until one of
      * the following occur:<br>
      * <ul>
-     *  <li>The queue fills up</li>
+     *  <li>The queue's shard fills up</li>
      *  <li>The flush time has been reached</li>
      *  <li>A direct call to the {@link MongoDbBatchWriter#flush()} method
      *  has been made</li>
      * </ul>
+     * Blocks while the maximum number of objects are already buffered.
      * @param object the object to add to the queue.
+     * @throws IllegalStateException The batch writer has not been started, or
+     * was shut down while waiting for room in the queue. Nothing would ever
+     * make room for the object.
      * @throws IOException
      */
     public void addObjectToQueue(final T object) throws MongoDbBatchWriterException {
         if (object != null) {
+            checkState(isInit.get(), "The batch writer must be started before objects are added to its queue.");
+            final long start = System.nanoTime();
             try {
-                // Place in the queue which will bulk write after the specified
-                // "batchSize" number of items have filled the queue or if more
-                // than "batchFlushTimeMs" milliseconds have passed since the
-                // last insertion.
-                resetFlushTimer();
-                statementInsertionQueue.put(object);
-            } catch (final Exception e) {
-                throw new MongoDbBatchWriterException("Error adding object to batch queue.", e);
+                if (!bufferPermits.tryAcquire()) {
+                    // Make room by writing what is buffered without waiting for
+                    // the shards to fill or the flush time to pass. Ask again
+                    // every flush time in case the writer is shut down meanwhile.
+                    do {
+                        checkState(isInit.get(), "The batch writer was shut down while waiting for room in its queue.");
+                        for (final Shard shard : shards) {
+                            shard.requestFlush();
+                        }
+                    } while (!bufferPermits.tryAcquire(Math.max(1L, batchFlushTimeMs), TimeUnit.MILLISECONDS));
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoDbBatchWriterException("Interrupted while adding object to batch queue.", e);
             }
+            queueWaitHistogram.record(System.nanoTime() - start);
+
+            // Producers on different threads usually land on different shards.
+            shards.get((int) (Thread.currentThread().getId() % shards.size())).add(object);
         }
     }
 
@@ -193,7 +267,7 @@ public class MongoDbBatchWriter<T> {
      * Adds a list of MongoDB objects to the queue which will not be written
      * until one of the following occur:<br>
      * <ul>
-     *  <li>The queue fills up</li>
+     *  <li>The queue's shard fills up</li>
      *  <li>The flush time has been reached</li>
      *  <li>A direct call to the {@link MongoDbBatchWriter#flush()} method
      *  has been made</li>
@@ -210,38 +284,76 @@ public class MongoDbBatchWriter<T> {
     }
 
     /**
-     * Flushes out statements that are in the queue.
+     * Flushes out statements that are in the queue. Objects that were added
+     * before this is called have been written once it returns.
      */
     public void flush() throws MongoDbBatchWriterException {
-        final List<T> batch = new ArrayList<>();
-        try {
-            statementInsertionQueue.drainTo(batch);
-            if (!batch.isEmpty()) {
-                collectionType.insertMany(batch);
-            }
-        } catch (final DuplicateKeyException e) {
-            log.warn(e); // Suppress the stack trace so log doesn't get flooded.
-        } catch (final MongoBulkWriteException e) {
-            if (e.getMessage().contains("duplicate key error")) {
-                log.warn(e); // Suppress the stack trace so log doesn't get flooded.
-            } else {
-                throw new MongoDbBatchWriterException("Error flushing statements", e);
+        MongoDbBatchWriterException failure = null;
+        for (final Shard shard : shards) {
+            try {
+                shard.write(true);
+            } catch (final MongoDbBatchWriterException e) {
+                if (failure == null) {
+                    failure = e;
+                }
             }
-        } catch (final Exception e) {
-            throw new MongoDbBatchWriterException("Error flushing statements", e);
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
-    private void resetFlushTimer() throws MongoDbBatchWriterException {
-        flushBatchFuture.cancel(false);
-        flushBatchFuture = startFlushTimer();
+    /**
+     * @return how long producers waited for room in the queue.
+     */
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWaitHistogram;
+    }
+
+    /**
+     * @return how long each bulk write took, including retries.
+     */
+    public LatencyHistogram getFlushLatencyHistogram() {
+        return flushLatencyHistogram;
+    }
+
+    private void writeBatch(final List<T> batch) throws MongoDbBatchWriterException {
+        final long start = System.nanoTime();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    collectionType.insertMany(batch);
+                    return;
+                } catch (final DuplicateKeyException e) {
+                    log.warn(e); // Suppress the stack trace so log doesn't get flooded.
+                    return;
+                } catch (final MongoBulkWriteException e) {
+                    if (e.getMessage().contains("duplicate key error")) {
+                        log.warn(e); // Suppress the stack trace so log doesn't get flooded.
+                        return;
+                    }
+                    backOff(attempt, e);
+                } catch (final Exception e) {
+                    backOff(attempt, e);
+                }
+            }
+        } finally {
+            flushLatencyHistogram.record(System.nanoTime() - start);
+            bufferPermits.release(batch.size());
+        }
     }
 
-    private ScheduledFuture<?> startFlushTimer() throws MongoDbBatchWriterException {
+    private void backOff(final int attempt, final Exception cause) throws MongoDbBatchWriterException {
+        if (attempt >= maxRetries) {
+            throw new MongoDbBatchWriterException("Error flushing statements", cause);
+        }
+        final long waitMs = retryBackoffMs << Math.min(attempt, 16);
+        log.warn("Error flushing statements, retrying in " + waitMs + " ms.", cause);
         try {
-            return scheduledExecutor.schedule(flushBatchTask, batchFlushTimeMs, TimeUnit.MILLISECONDS);
-        } catch (final Exception e) {
-            throw new MongoDbBatchWriterException("Error starting batch flusher", e);
+            Thread.sleep(waitMs);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoDbBatchWriterException("Interrupted while waiting to retry a batch write.", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -38,6 +38,33 @@ public class MongoDbBatchWriterConfig {
     public static final long DEFAULT_BATCH_FLUSH_TIME_MS = 100L;
     private Long batchFlushTimeMs = null;
 
+    /**
+     * The default number of shards. Each shard buffers its own objects and has
+     * its own flush worker.
+     */
+    public static final int DEFAULT_SHARD_COUNT = 4;
+    private Integer shardCount = null;
+
+    /**
+     * The default maximum number of objects that may be buffered or being
+     * written across all shards at once.
+     */
+    public static final int DEFAULT_MAX_BUFFERED_OBJECTS = 2 * DEFAULT_BATCH_SIZE;
+    private Integer maxBufferedObjects = null;
+
+    /**
+     * The default number of times a failed batch write is retried.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 0;
+    private Integer maxRetries = null;
+
+    /**
+     * The default time to wait in milliseconds before the first retry of a
+     * failed batch write. The wait doubles with each retry.
+     */
+    public static final long DEFAULT_RETRY_BACKOFF_MS = 100L;
+    private Long retryBackoffMs = null;
+
     /**
      * Creates a new instance of {@link MongoDbBatchWriterConfig}.
      */
@@ -85,4 +112,86 @@ public class MongoDbBatchWriterConfig {
         this.batchFlushTimeMs = batchFlushTimeMs;
         return this;
     }
+
+    /**
+     * Gets the configured number of shards.
+     * @return the configured value or the default value.
+     */
+    public int getShardCount() {
+        return shardCount != null ? shardCount : DEFAULT_SHARD_COUNT;
+    }
+
+    /**
+     * Sets the number of shards. Each shard buffers its own objects and has its
+     * own flush worker, so concurrent producers rarely contend.
+     * @param shardCount the number of shards.
+     * @return the {@link MongoDbBatchWriterConfig}.
+     */
+    public MongoDbBatchWriterConfig setShardCount(final int shardCount) {
+        Preconditions.checkArgument(shardCount > 0, "Shard count must be positive.");
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * Gets the configured maximum number of objects that may be buffered or
+     * being written across all shards at once.
+     * @return the configured value or the default value.
+     */
+    public int getMaxBufferedObjects() {
+        return maxBufferedObjects != null ? maxBufferedObjects : DEFAULT_MAX_BUFFERED_OBJECTS;
+    }
+
+    /**
+     * Sets the maximum number of objects that may be buffered or being written
+     * across all shards at once. Producers block once it is reached.
+     * @param maxBufferedObjects the maximum number of objects in flight.
+     * @return the {@link MongoDbBatchWriterConfig}.
+     */
+    public MongoDbBatchWriterConfig setMaxBufferedObjects(final int maxBufferedObjects) {
+        Preconditions.checkArgument(maxBufferedObjects > 0, "Max buffered objects must be positive.");
+        this.maxBufferedObjects = maxBufferedObjects;
+        return this;
+    }
+
+    /**
+     * Gets the configured number of times a failed batch write is retried.
+     * @return the configured value or the default value.
+     */
+    public int getMaxRetries() {
+        return maxRetries != null ? maxRetries : DEFAULT_MAX_RETRIES;
+    }
+
+    /**
+     * Sets the number of times a failed batch write is retried. Duplicate key
+     * errors are never retried.
+     * @param maxRetries the number of retries.
+     * @return the {@link MongoDbBatchWriterConfig}.
+     */
+    public MongoDbBatchWriterConfig setMaxRetries(final int maxRetries) {
+        Preconditions.checkArgument(maxRetries >= 0, "Max retries must be non-negative.");
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Gets the configured time to wait in milliseconds before the first retry
+     * of a failed batch write.
+     * @return the configured value or the default value.
+     */
+    public long getRetryBackoffMs() {
+        return retryBackoffMs != null ? retryBackoffMs : DEFAULT_RETRY_BACKOFF_MS;
+    }
+
+    /**
+     * Sets the time to wait in milliseconds before the first retry of a failed
+     * batch write. The wait doubles with each retry.
+     * @param retryBackoffMs the time to wait before the first retry.
+     * @return the {@link MongoDbBatchWriterConfig}.
+     */
+    public MongoDbBatchWriterConfig setRetryBackoffMs(final long retryBackoffMs) {
+        Preconditions.checkArgument(retryBackoffMs >= 0, "Retry backoff must be non-negative.");
+        this.retryBackoffMs = retryBackoffMs;
+        return this;
+    }
 }
\ No newline at end of file
@@ -38,6 +38,54 @@ public final class MongoDbBatchWriterUtils {
      */
     public static final String BATCH_FLUSH_TIME_MS_TAG = "rya.mongodb.dao.batchwriter.flushtime";
 
+    /**
+     * Config tag used to specify the number of shards of the batch writer.
+     */
+    public static final String BATCH_SHARDS_TAG = "rya.mongodb.dao.batchwriter.shards";
+
+    /**
+     * Config tag used to specify the maximum number of objects the batch writer
+     * buffers across all of its shards.
+     */
+    public static final String BATCH_MAX_BUFFERED_TAG = "rya.mongodb.dao.batchwriter.maxbuffered";
+
+    /**
+     * Config tag used to specify the number of times a failed batch write is
+     * retried.
+     */
+    public static final String BATCH_MAX_RETRIES_TAG = "rya.mongodb.dao.batchwriter.retries";
+
+    /**
+     * Config tag used to specify the time to wait in milliseconds before the
+     * first retry of a failed batch write.
+     */
+    public static final String BATCH_RETRY_BACKOFF_MS_TAG = "rya.mongodb.dao.batchwriter.retrybackoff";
+
+    /**
+     * Config tag used to specify whether {@code add(Iterator)} streams statements
+     * through a {@link PipelinedStatementIngester}.
+     */
+    public static final String PIPELINED_INGEST_TAG = "rya.mongodb.dao.ingest.pipelined";
+
+    /**
+     * Config tag used to specify the number of statements in each chunk of a
+     * pipelined ingest.
+     */
+    public static final String INGEST_CHUNK_SIZE_TAG = "rya.mongodb.dao.ingest.chunksize";
+
+    /**
+     * Config tag used to specify the number of worker threads of a pipelined ingest.
+     */
+    public static final String INGEST_WORKERS_TAG = "rya.mongodb.dao.ingest.workers";
+
+    /**
+     * Config tag used to specify the maximum number of chunks a pipelined ingest
+     * holds in memory at once.
+     */
+    public static final String INGEST_IN_FLIGHT_TAG = "rya.mongodb.dao.ingest.inflight";
+
+    public static final int DEFAULT_INGEST_CHUNK_SIZE = 1000;
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -63,6 +111,44 @@ public final class MongoDbBatchWriterUtils {
         return conf.getLong(BATCH_FLUSH_TIME_MS_TAG, MongoDbBatchWriterConfig.DEFAULT_BATCH_FLUSH_TIME_MS);
     }
 
+    /**
+     * The number of shards of the batch writer.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or the default value.
+     */
+    public static int getConfigBatchShards(final Configuration conf) {
+        return conf.getInt(BATCH_SHARDS_TAG, MongoDbBatchWriterConfig.DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * The maximum number of objects the batch writer buffers across all of its
+     * shards.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or twice the batch size.
+     */
+    public static int getConfigBatchMaxBuffered(final Configuration conf) {
+        return conf.getInt(BATCH_MAX_BUFFERED_TAG, 2 * getConfigBatchSize(conf));
+    }
+
+    /**
+     * The number of times a failed batch write is retried.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or the default value.
+     */
+    public static int getConfigBatchMaxRetries(final Configuration conf) {
+        return conf.getInt(BATCH_MAX_RETRIES_TAG, MongoDbBatchWriterConfig.DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * The time to wait in milliseconds before the first retry of a failed batch
+     * write.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or the default value.
+     */
+    public static long getConfigBatchRetryBackoffMs(final Configuration conf) {
+        return conf.getLong(BATCH_RETRY_BACKOFF_MS_TAG, MongoDbBatchWriterConfig.DEFAULT_RETRY_BACKOFF_MS);
+    }
+
     /**
      * Reads the specified configed to create and initialize a
      * {@link MongoDbBatchWriterConfig}. If no values are found then the default
@@ -77,6 +163,46 @@ public final class MongoDbBatchWriterUtils {
         final MongoDbBatchWriterConfig mongoDbBatchWriterConfig = new MongoDbBatchWriterConfig();
         mongoDbBatchWriterConfig.setBatchSize(batchSize);
         mongoDbBatchWriterConfig.setBatchFlushTimeMs(batchFlushTimeMs);
+        mongoDbBatchWriterConfig.setShardCount(getConfigBatchShards(conf));
+        mongoDbBatchWriterConfig.setMaxBufferedObjects(getConfigBatchMaxBuffered(conf));
+        mongoDbBatchWriterConfig.setMaxRetries(getConfigBatchMaxRetries(conf));
+        mongoDbBatchWriterConfig.setRetryBackoffMs(getConfigBatchRetryBackoffMs(conf));
         return mongoDbBatchWriterConfig;
     }
-}
\ No newline at end of file
+
+    /**
+     * Whether statement iterators are ingested with a {@link PipelinedStatementIngester}.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or {@code false}.
+     */
+    public static boolean getConfigPipelinedIngest(final Configuration conf) {
+        return conf.getBoolean(PIPELINED_INGEST_TAG, false);
+    }
+
+    /**
+     * The number of statements in each chunk of a pipelined ingest.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or the default value.
+     */
+    public static int getConfigIngestChunkSize(final Configuration conf) {
+        return conf.getInt(INGEST_CHUNK_SIZE_TAG, DEFAULT_INGEST_CHUNK_SIZE);
+    }
+
+    /**
+     * The number of worker threads of a pipelined ingest.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or the number of available processors.
+     */
+    public static int getConfigIngestWorkers(final Configuration conf) {
+        return conf.getInt(INGEST_WORKERS_TAG, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The maximum number of chunks a pipelined ingest holds in memory at once.
+     * @param conf the {@link Configuration} to check.
+     * @return the configured value or twice the number of workers.
+     */
+    public static int getConfigIngestInFlight(final Configuration conf) {
+        return conf.getInt(INGEST_IN_FLIGHT_TAG, 2 * getConfigIngestWorkers(conf));
+    }
+}
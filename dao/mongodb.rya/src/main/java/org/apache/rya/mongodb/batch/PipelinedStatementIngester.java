@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.batch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.index.RyaSecondaryIndexer;
+import org.apache.rya.mongodb.batch.collection.CollectionType;
+import org.apache.rya.mongodb.dao.MongoDBStorageStrategy;
+import org.apache.rya.mongodb.document.util.DocumentVisibilityUtil;
+import org.bson.Document;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.DuplicateKeyException;
+import com.mongodb.MongoBulkWriteException;
+
+/**
+ * Writes a stream of statements to MongoDB without holding all of them in memory.
+ * The calling thread reads the statements and splits them into chunks. Worker threads
+ * convert each chunk into documents, insert them with a single unordered insertMany,
+ * and then pass the chunk to each secondary indexer. At most a configured number of
+ * chunks are in flight at once, which bounds memory use and back pressures the reader.
+ * <p>
+ * Each secondary indexer is handed one chunk at a time, but different indexers and
+ * different chunks are worked on in parallel. The ingest rate is logged periodically
+ * and when each call to {@link #ingest(Iterator)} completes.
+ */
+public class PipelinedStatementIngester implements Closeable {
+    private static final Logger log = Logger.getLogger(PipelinedStatementIngester.class);
+
+    private static final long REPORT_INTERVAL_MS = 10000L;
+
+    private static final ThreadFactory WORKER_THREAD_FACTORY = new ThreadFactoryBuilder()
+        .setNameFormat("Pipelined Ingest Worker - %d")
+        .setDaemon(true)
+        .build();
+
+    private final CollectionType<Document> collectionType;
+    private final MongoDBStorageStrategy<RyaStatement> storageStrategy;
+    private final List<? extends RyaSecondaryIndexer> indexers;
+    private final Authorizations auths;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final ExecutorService workers;
+
+    /**
+     * Creates a new instance of {@link PipelinedStatementIngester}.
+     * @param collectionType the collection the documents are inserted into. (not {@code null})
+     * @param storageStrategy converts statements into documents. It must be thread safe. (not {@code null})
+     * @param indexers the secondary indexers that are given every statement. (not {@code null})
+     * @param auths the authorizations of the user that is adding the statements.
+     * @param chunkSize the number of statements that are inserted at a time.
+     * @param workerCount the number of worker threads.
+     * @param maxInFlight the maximum number of chunks that have been read but not fully written.
+     */
+    public PipelinedStatementIngester(
+            final CollectionType<Document> collectionType,
+            final MongoDBStorageStrategy<RyaStatement> storageStrategy,
+            final List<? extends RyaSecondaryIndexer> indexers,
+            final Authorizations auths,
+            final int chunkSize,
+            final int workerCount,
+            final int maxInFlight) {
+        this.collectionType = checkNotNull(collectionType);
+        this.storageStrategy = checkNotNull(storageStrategy);
+        this.indexers = checkNotNull(indexers);
+        this.auths = auths;
+        checkArgument(chunkSize > 0, "The chunk size must be positive.");
+        checkArgument(workerCount > 0, "The worker count must be positive.");
+        checkArgument(maxInFlight > 0, "The maximum number of chunks in flight must be positive.");
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+        workers = Executors.newFixedThreadPool(workerCount, WORKER_THREAD_FACTORY);
+    }
+
+    /**
+     * Writes every statement of an iterator. Returns once all of them have been
+     * inserted and handed to the secondary indexers.
+     * @param statements the statements to write. (not {@code null})
+     * @return the number of statements that were written.
+     * @throws MongoDbBatchWriterException The user is not authorized to add one of the
+     * statements, or a chunk could not be written. Chunks that were already in flight
+     * are still written.
+     */
+    public long ingest(final Iterator<RyaStatement> statements) throws MongoDbBatchWriterException {
+        checkNotNull(statements);
+
+        final long start = System.currentTimeMillis();
+        final AtomicLong written = new AtomicLong();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        long lastReport = start;
+
+        try {
+            while (statements.hasNext() && failure.get() == null) {
+                final List<RyaStatement> chunk = new ArrayList<>(chunkSize);
+                while (statements.hasNext() && chunk.size() < chunkSize) {
+                    final RyaStatement statement = statements.next();
+                    if (!DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, statement.getColumnVisibility())) {
+                        throw new MongoDbBatchWriterException("User does not have the required authorizations to add statement");
+                    }
+                    chunk.add(statement);
+                }
+
+                inFlight.acquire();
+                try {
+                    workers.execute(() -> {
+                        try {
+                            writeChunk(chunk);
+                            written.addAndGet(chunk.size());
+                        } catch (final Exception e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    inFlight.release();
+                    throw new MongoDbBatchWriterException("The ingester has been closed.", e);
+                }
+
+                final long now = System.currentTimeMillis();
+                if (now - lastReport >= REPORT_INTERVAL_MS) {
+                    log.info("Ingested " + written.get() + " statements (" + rate(written.get(), now - start) + " statements/sec).");
+                    lastReport = now;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoDbBatchWriterException("Interrupted while ingesting statements.", e);
+        } finally {
+            // Wait for the chunks that are still in flight.
+            inFlight.acquireUninterruptibly(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+
+        if (failure.get() != null) {
+            throw new MongoDbBatchWriterException("Error ingesting statements", failure.get());
+        }
+
+        final long elapsed = System.currentTimeMillis() - start;
+        log.info("Finished ingesting " + written.get() + " statements in " + elapsed + " ms (" + rate(written.get(), elapsed) + " statements/sec).");
+        return written.get();
+    }
+
+    private static long rate(final long count, final long elapsedMs) {
+        return elapsedMs == 0 ? count : count * 1000L / elapsedMs;
+    }
+
+    private void writeChunk(final List<RyaStatement> chunk) throws MongoDbBatchWriterException {
+        final List<Document> documents = new ArrayList<>(chunk.size());
+        for (final RyaStatement statement : chunk) {
+            documents.add(storageStrategy.serialize(statement));
+        }
+
+        try {
+            collectionType.insertMany(documents);
+        } catch (final DuplicateKeyException e) {
+            log.warn(e); // Suppress the stack trace so log doesn't get flooded.
+        } catch (final MongoBulkWriteException e) {
+            if (e.getMessage().contains("duplicate key error")) {
+                log.warn(e); // Suppress the stack trace so log doesn't get flooded.
+            } else {
+                throw new MongoDbBatchWriterException("Error inserting statements", e);
+            }
+        }
+
+        for (final RyaSecondaryIndexer indexer : indexers) {
+            // Indexers are not required to be thread safe, so each one only sees one chunk at a time.
+            synchronized (indexer) {
+                try {
+                    indexer.storeStatements(chunk);
+                } catch (final IOException e) {
+                    log.error("Failed to add " + chunk.size() + " statements to the indexer: " + indexer.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+}
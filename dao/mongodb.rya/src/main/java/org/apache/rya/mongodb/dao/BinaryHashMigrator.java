@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.dao;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.ID;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_HASH;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_TYPE;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_TYPE_VALUE;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.PREDICATE;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.PREDICATE_HASH;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.SUBJECT;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.SUBJECT_HASH;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Rewrites the subject, predicate, and object hash fields of a triples collection so
+ * that they match the layout of another {@link SimpleMongoDBStorageStrategy}. This is
+ * used to move an existing Rya instance to {@link BinaryHashMongoDBStorageStrategy},
+ * or back again.
+ * <p>
+ * The hash field names do not change, so the existing indices are updated in place.
+ * Only documents whose hashes are not already in the target layout are rewritten,
+ * so an interrupted migration may be run again. Writes to the collection should be
+ * stopped while it runs.
+ */
+public class BinaryHashMigrator {
+    private static final Logger LOG = Logger.getLogger(BinaryHashMigrator.class);
+
+    private final MongoCollection<Document> coll;
+    private final SimpleMongoDBStorageStrategy target;
+    private final int batchSize;
+
+    /**
+     * Constructs an instance of {@link BinaryHashMigrator}.
+     * @param coll  The triples collection to migrate. (not null)
+     * @param target  The strategy whose hash layout the collection is converted to. (not null)
+     * @param batchSize  The number of documents that are updated with each bulk write.
+     */
+    public BinaryHashMigrator(final MongoCollection<Document> coll, final SimpleMongoDBStorageStrategy target, final int batchSize) {
+        this.coll = requireNonNull(coll);
+        this.target = requireNonNull(target);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Rewrites every document whose hashes are not in the target layout.
+     * @return the number of documents that were rewritten.
+     */
+    public long migrate() {
+        final BsonType targetType = target.hashValue("", true) instanceof Binary ? BsonType.BINARY_DATA : BsonType.STRING;
+        final Bson needsMigration = Filters.not(Filters.type(SUBJECT_HASH, targetType));
+        final Bson fields = Projections.include(SUBJECT, PREDICATE, OBJECT, OBJECT_TYPE);
+
+        long migrated = 0;
+        final List<WriteModel<Document>> batch = new ArrayList<>(batchSize);
+        try (final MongoCursor<Document> cursor = coll.find(needsMigration).projection(fields).iterator()) {
+            while (cursor.hasNext()) {
+                final Document doc = cursor.next();
+                final boolean objectIsIri = OBJECT_TYPE_VALUE.equals(doc.getString(OBJECT_TYPE));
+                batch.add(new UpdateOneModel<>(Filters.eq(ID, doc.get(ID)), Updates.combine(
+                        Updates.set(SUBJECT_HASH, target.hashValue(doc.getString(SUBJECT), true)),
+                        Updates.set(PREDICATE_HASH, target.hashValue(doc.getString(PREDICATE), true)),
+                        Updates.set(OBJECT_HASH, target.hashValue(doc.getString(OBJECT), objectIsIri)))));
+                if (batch.size() >= batchSize) {
+                    migrated += flush(batch);
+                    LOG.info("Migrated the hashes of " + migrated + " triples.");
+                }
+            }
+        }
+        migrated += flush(batch);
+        LOG.info("Finished migrating the hashes of " + migrated + " triples.");
+        return migrated;
+    }
+
+    private long flush(final List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        final long count = coll.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return count;
+    }
+}
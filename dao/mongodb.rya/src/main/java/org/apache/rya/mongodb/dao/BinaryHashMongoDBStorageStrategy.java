@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.dao;
+
+import java.util.Arrays;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.rya.api.domain.RyaStatement;
+import org.bson.types.Binary;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Stores {@link RyaStatement}s in MongoDB the same way {@link SimpleMongoDBStorageStrategy}
+ * does, except that the subject, predicate, and object hash fields hold the first
+ * {@link #HASH_LENGTH} bytes of the SHA-256 digest as BinData instead of the 64 character
+ * hex encoding of the whole digest. This keeps the compound indices roughly half as large.
+ * <p>
+ * IRIs tend to appear in many triples, so their hashes are kept in a bounded cache that
+ * evicts the least recently used entries. Literal hashes are not cached.
+ * <p>
+ * A triples collection must only be written with one strategy. Use {@link BinaryHashMigrator}
+ * to convert an existing collection.
+ */
+public class BinaryHashMongoDBStorageStrategy extends SimpleMongoDBStorageStrategy {
+
+    /**
+     * The number of bytes of the SHA-256 digest that are stored.
+     */
+    public static final int HASH_LENGTH = 16;
+
+    /**
+     * The number of IRI hashes that are cached by default.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private final Cache<String, Binary> iriHashes;
+
+    /**
+     * Constructs an instance of {@link BinaryHashMongoDBStorageStrategy} that caches
+     * up to {@link #DEFAULT_CACHE_SIZE} IRI hashes.
+     */
+    public BinaryHashMongoDBStorageStrategy() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructs an instance of {@link BinaryHashMongoDBStorageStrategy}.
+     * @param cacheSize  The maximum number of IRI hashes to cache. 0 disables the cache.
+     */
+    public BinaryHashMongoDBStorageStrategy(final int cacheSize) {
+        iriHashes = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * Generate the binary hash that will be used to index and retrieve a given value.
+     * @param value  A value to be stored or accessed (e.g. a IRI or literal).
+     * @return the truncated SHA-256 digest of the value.
+     */
+    public static Binary binaryHash(final String value) {
+        return new Binary(Arrays.copyOf(DigestUtils.sha256(value), HASH_LENGTH));
+    }
+
+    @Override
+    public Object hashValue(final String value, final boolean isIri) {
+        if (!isIri) {
+            return binaryHash(value);
+        }
+        Binary hash = iriHashes.getIfPresent(value);
+        if (hash == null) {
+            hash = binaryHash(value);
+            iriHashes.put(value, hash);
+        }
+        return hash;
+    }
+}
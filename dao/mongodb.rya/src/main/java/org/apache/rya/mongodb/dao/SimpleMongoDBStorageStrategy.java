@@ -33,6 +33,7 @@ import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.StatementMetadata;
 import org.apache.rya.api.persist.query.RyaQuery;
 import org.apache.rya.api.utils.LiteralLanguageUtils;
+import org.apache.rya.mongodb.MongoDBRdfConfiguration;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibilityAdapter;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibilityAdapter.MalformedDocumentVisibilityException;
@@ -72,8 +73,31 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
         return DigestUtils.sha256Hex(value);
     }
 
+    /**
+     * Creates the storage strategy that a Rya instance's triples collection was configured to use.
+     * @param conf  The configuration of the Rya instance.
+     * @return a {@link BinaryHashMongoDBStorageStrategy} if binary hashes are enabled,
+     *  otherwise a {@link SimpleMongoDBStorageStrategy}.
+     */
+    public static SimpleMongoDBStorageStrategy fromConfiguration(final MongoDBRdfConfiguration conf) {
+        if (conf.getUseBinaryHashes()) {
+            return new BinaryHashMongoDBStorageStrategy(conf.getHashCacheSize());
+        }
+        return new SimpleMongoDBStorageStrategy();
+    }
+
     protected SimpleValueFactory factory = SimpleValueFactory.getInstance();
 
+    /**
+     * Generate the value that is stored in one of the hash fields of a triple's document.
+     * @param value  A value to be stored or accessed (e.g. a IRI or literal).
+     * @param isIri  Whether the value is an IRI, which is likely to be shared by many triples.
+     * @return the hash that is stored in MongoDB.
+     */
+    public Object hashValue(final String value, final boolean isIri) {
+        return hash(value);
+    }
+
     @Override
     public void createIndices(final MongoCollection<Document> coll){
         Document doc = new Document();
@@ -103,15 +127,15 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
         final RyaIRI context = stmt.getContext();
         final Document query = new Document();
         if (subject != null){
-            query.append(SUBJECT_HASH, hash(subject.getData()));
+            query.append(SUBJECT_HASH, hashValue(subject.getData(), true));
         }
         if (object != null){
-            query.append(OBJECT_HASH, hash(object.getData()));
+            query.append(OBJECT_HASH, hashValue(object.getData(), object instanceof RyaIRI));
             query.append(OBJECT_TYPE, object.getDataType().toString());
             query.append(OBJECT_LANGUAGE, object.getLanguage());
         }
         if (predicate != null){
-            query.append(PREDICATE_HASH, hash(predicate.getData()));
+            query.append(PREDICATE_HASH, hashValue(predicate.getData(), true));
         }
         if (context != null){
             query.append(CONTEXT, context.getData());
@@ -195,11 +219,11 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
         final Document dvObject = DocumentVisibilityAdapter.toDocument(statement.getColumnVisibility());
         final Document doc = new Document(ID, new String(Hex.encodeHex(bytes)))
         .append(SUBJECT, statement.getSubject().getData())
-        .append(SUBJECT_HASH, hash(statement.getSubject().getData()))
+        .append(SUBJECT_HASH, hashValue(statement.getSubject().getData(), true))
         .append(PREDICATE, statement.getPredicate().getData())
-        .append(PREDICATE_HASH, hash(statement.getPredicate().getData()))
+        .append(PREDICATE_HASH, hashValue(statement.getPredicate().getData(), true))
         .append(OBJECT, statement.getObject().getData())
-        .append(OBJECT_HASH, hash(statement.getObject().getData()))
+        .append(OBJECT_HASH, hashValue(statement.getObject().getData(), statement.getObject() instanceof RyaIRI))
         .append(OBJECT_TYPE, statement.getObject().getDataType().toString())
         .append(OBJECT_LANGUAGE, statement.getObject().getLanguage())
         .append(CONTEXT, context)
@@ -22,15 +22,17 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility.Node;
 import org.apache.accumulo.core.security.ColumnVisibility.NodeType;
-import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 
@@ -77,78 +79,49 @@ public final class DisjunctiveNormalFormConverter {
      * Normal Form (DNF).  Expressions use this format in DNF:<pre>
      * (P1 & P2 & P3 ... Pn) | (Q1 & Q2 ... Qm) ...
      * </pre>
+     * The conversion is done algebraically by distributing AND over OR.  Since
+     * visibility expressions have no negation, any AND group that contains all
+     * the terms of another group is redundant and is absorbed, which leaves
+     * exactly the minimal sets of terms that satisfy the expression.
      * @param documentVisibility the {@link DocumentVisibility}.
      * @return a new {@link DocumentVisibility} with its expression in DNF.
      */
     public static DocumentVisibility convertToDisjunctiveNormalForm(final DocumentVisibility documentVisibility) {
-        // Find all the terms used in the expression
-        final List<String> terms = findNodeTerms(documentVisibility.getParseTree(), documentVisibility.getExpression());
-        // Create an appropriately sized truth table that has the correct 0's
-        // and 1's in place based on the number of terms.
-        // This size should be [numberOfTerms][2 ^ numberOfTerms].
-        final byte[][] truthTable = createTruthTableInputs(terms);
-
-        // Go through each row in the truth table.
-        // If the row has a 1 for the term then create an Authorization for it
-        // and test if it works.
-        // If the row passes then that means all the terms that were a 1 and
-        // were used can be AND'ed together to pass the expression.
-        // All the rows that pass can be OR'd together.
-        // Disjunction Normal Form: (P1 & P2 & P3 ... Pn) | (Q1 & Q2 ... Qm) ...
-        final List<List<String>> termRowsThatPass = new ArrayList<>();
-        for (final byte[] row : truthTable) {
-            final List<String> termRowToCheck = new ArrayList<>();
-            // If the truth table input is a 1 then include the corresponding
-            // term that it matches.
-            for (int i = 0; i < row.length; i++) {
-                final byte entry = row[i];
-                if (entry == 1) {
-                    termRowToCheck.add(terms.get(i));
-                }
-            }
-
-            final List<String> authList = new ArrayList<>();
-            for (final String auth : termRowToCheck) {
-                String formattedAuth = auth;
-                formattedAuth = StringUtils.removeStart(formattedAuth, "\"");
-                formattedAuth = StringUtils.removeEnd(formattedAuth, "\"");
-                authList.add(formattedAuth);
-            }
-            final Authorizations auths = new Authorizations(authList.toArray(new String[0]));
-            final boolean hasAccess = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, documentVisibility, false);
-            if (hasAccess) {
-                boolean alreadyCoveredBySimplerTerms = false;
-                // If one 'AND' group is (A&C) and another is (A&B&C) then we
-                // can drop (A&B&C) since it is already covered by simpler terms
-                // (it's a subset)
-                for (final List<String> existingTermRowThatPassed : termRowsThatPass) {
-                    alreadyCoveredBySimplerTerms = termRowToCheck.containsAll(existingTermRowThatPassed);
-                    if (alreadyCoveredBySimplerTerms) {
-                        break;
-                    }
-                }
-                if (!alreadyCoveredBySimplerTerms) {
-                    termRowsThatPass.add(termRowToCheck);
-                }
-            }
+        final byte[] expression = documentVisibility.getExpression();
+        // Find all the terms used in the expression.  Each AND group is
+        // represented by the set of indices of the terms it contains.
+        final List<String> terms = findNodeTerms(documentVisibility.getParseTree(), expression);
+        final Map<String, Integer> termIndices = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            termIndices.put(terms.get(i), i);
         }
+        final List<BitSet> groups = toAndGroups(documentVisibility.getParseTree(), expression, termIndices);
 
-        // Rebuild the term rows that passed as a document visibility boolean
-        // expression string.
+        // Order the groups the same way the rows of a truth table over the
+        // terms would be ordered.
+        Collections.sort(groups, DisjunctiveNormalFormConverter::compareTruthTableRows);
+
+        // Rebuild the AND groups as a document visibility boolean expression
+        // string.
+        // Disjunction Normal Form: (P1 & P2 & P3 ... Pn) | (Q1 & Q2 ... Qm) ...
         final StringBuilder sb = new StringBuilder();
         boolean isFirst = true;
-        final boolean hasMultipleGroups = termRowsThatPass.size() > 1;
-        for (final List<String> termRowThatPassed : termRowsThatPass) {
+        final boolean hasMultipleGroups = groups.size() > 1;
+        for (final BitSet group : groups) {
             if (isFirst) {
                 isFirst = false;
             } else {
                 sb.append("|");
             }
-            if (hasMultipleGroups && termRowThatPassed.size() > 1) {
+            final List<String> groupTerms = new ArrayList<>();
+            for (int i = group.nextSetBit(0); i >= 0; i = group.nextSetBit(i + 1)) {
+                groupTerms.add(terms.get(i));
+            }
+            if (hasMultipleGroups && groupTerms.size() > 1) {
                 sb.append("(");
             }
-            sb.append(Joiner.on("&").join(termRowThatPassed));
-            if (hasMultipleGroups && termRowThatPassed.size() > 1) {
+            sb.append(Joiner.on("&").join(groupTerms));
+            if (hasMultipleGroups && groupTerms.size() > 1) {
                 sb.append(")");
             }
         }
@@ -158,6 +131,95 @@ public final class DisjunctiveNormalFormConverter {
         return dnfDv;
     }
 
+    /**
+     * Converts a node into the AND groups that are OR'd together in its
+     * disjunctive normal form.
+     * @param node the {@link Node}.
+     * @param expression the expression byte array.
+     * @param termIndices the index of each term in the expression.
+     * @return the minimal AND groups, each a set of term indices.  An empty
+     * group is always satisfied.
+     */
+    private static List<BitSet> toAndGroups(final Node node, final byte[] expression, final Map<String, Integer> termIndices) {
+        switch (node.getType()) {
+            case TERM: {
+                final BitSet group = new BitSet();
+                group.set(termIndices.get(DocumentVisibilityUtil.getTermNodeData(node, expression)));
+                return Lists.newArrayList(group);
+            }
+            case OR: {
+                final List<BitSet> groups = new ArrayList<>();
+                for (final Node child : node.getChildren()) {
+                    for (final BitSet group : toAndGroups(child, expression, termIndices)) {
+                        addAbsorbing(groups, group);
+                    }
+                }
+                return groups;
+            }
+            case AND: {
+                // Distribute: every combination of one group from each child.
+                List<BitSet> groups = Lists.newArrayList(new BitSet());
+                for (final Node child : node.getChildren()) {
+                    final List<BitSet> childGroups = toAndGroups(child, expression, termIndices);
+                    final List<BitSet> combined = new ArrayList<>();
+                    for (final BitSet group : groups) {
+                        for (final BitSet childGroup : childGroups) {
+                            final BitSet union = (BitSet) group.clone();
+                            union.or(childGroup);
+                            addAbsorbing(combined, union);
+                        }
+                    }
+                    groups = combined;
+                }
+                return groups;
+            }
+            default:
+                return Lists.newArrayList(new BitSet());
+        }
+    }
+
+    /**
+     * Adds an AND group to a list of groups that are OR'd together, unless a
+     * group already in the list contains a subset of its terms.  Any groups in
+     * the list that contain a superset of its terms are removed.
+     * @param groups the minimal groups found so far.
+     * @param group the group to add.
+     */
+    private static void addAbsorbing(final List<BitSet> groups, final BitSet group) {
+        final Iterator<BitSet> it = groups.iterator();
+        while (it.hasNext()) {
+            final BitSet existing = it.next();
+            if (isSubset(existing, group)) {
+                return;
+            }
+            if (isSubset(group, existing)) {
+                it.remove();
+            }
+        }
+        groups.add(group);
+    }
+
+    private static boolean isSubset(final BitSet subset, final BitSet superset) {
+        final BitSet remaining = (BitSet) subset.clone();
+        remaining.andNot(superset);
+        return remaining.isEmpty();
+    }
+
+    /**
+     * Compares two AND groups as if they were rows of the truth table created
+     * by {@link #createTruthTableInputs(List)}, where the first term is the
+     * highest order column.
+     */
+    private static int compareTruthTableRows(final BitSet a, final BitSet b) {
+        final BitSet difference = (BitSet) a.clone();
+        difference.xor(b);
+        final int first = difference.nextSetBit(0);
+        if (first < 0) {
+            return 0;
+        }
+        return a.get(first) ? 1 : -1;
+    }
+
     /**
      * Searches a node for all unique terms in its expression and returns them.
      * Duplicates are not included.
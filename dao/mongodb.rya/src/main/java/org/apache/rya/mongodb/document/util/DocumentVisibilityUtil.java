@@ -21,6 +21,7 @@ package org.apache.rya.mongodb.document.util;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.accumulo.core.data.ByteSequence;
@@ -34,6 +35,8 @@ import org.apache.rya.mongodb.MongoDbRdfConstants;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.mongodb.BasicDBList;
 
@@ -45,6 +48,16 @@ import com.mongodb.BasicDBList;
 public final class DocumentVisibilityUtil {
     private static final Logger log = Logger.getLogger(DocumentVisibilityUtil.class);
 
+    /**
+     * The maximum number of document access decisions that are remembered by
+     * {@link #doesUserHaveDocumentAccess(Authorizations, byte[])}.
+     */
+    public static final int ACCESS_CACHE_SIZE = 10000;
+
+    private static final Cache<AccessKey, Boolean> ACCESS_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(ACCESS_CACHE_SIZE)
+            .build();
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -276,8 +289,18 @@ public final class DocumentVisibilityUtil {
      */
     public static boolean doesUserHaveDocumentAccess(final Authorizations authorizations, final byte[] documentVisibilityExpression) {
         final byte[] expression = documentVisibilityExpression != null ? documentVisibilityExpression : MongoDbRdfConstants.EMPTY_DV.getExpression();
-        final DocumentVisibility documentVisibility = new DocumentVisibility(expression);
-        return doesUserHaveDocumentAccess(authorizations, documentVisibility);
+        final Authorizations userAuths = authorizations != null ? authorizations : MongoDbRdfConstants.ALL_AUTHORIZATIONS;
+
+        // Statements written together usually share a handful of expressions,
+        // so remember the decisions instead of parsing and evaluating each one.
+        final AccessKey key = new AccessKey(userAuths, expression);
+        Boolean accept = ACCESS_CACHE.getIfPresent(key);
+        if (accept == null) {
+            final DocumentVisibility documentVisibility = new DocumentVisibility(expression);
+            accept = doesUserHaveDocumentAccess(userAuths, documentVisibility);
+            ACCESS_CACHE.put(key, accept);
+        }
+        return accept;
     }
 
     /**
@@ -319,6 +342,41 @@ public final class DocumentVisibilityUtil {
         return accept;
     }
 
+    /**
+     * Identifies a memoized document access decision by the user's
+     * authorizations and the document visibility expression bytes.
+     */
+    private static final class AccessKey {
+        private final Authorizations authorizations;
+        private final byte[] expression;
+        private final int hashCode;
+
+        AccessKey(final Authorizations authorizations, final byte[] expression) {
+            this.authorizations = authorizations;
+            this.expression = expression.clone();
+            hashCode = 31 * authorizations.hashCode() + Arrays.hashCode(expression);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof AccessKey)) {
+                return false;
+            }
+            final AccessKey other = (AccessKey) obj;
+            return hashCode == other.hashCode
+                    && Arrays.equals(expression, other.expression)
+                    && authorizations.equals(other.authorizations);
+        }
+    }
+
     /**
      * Converts a {@link BasicDBList} into an array of {@link Object}s.
      * @param basicDbList the {@link BasicDBList} to convert.
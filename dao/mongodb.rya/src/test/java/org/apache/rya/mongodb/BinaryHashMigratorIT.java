@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb;
+
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_HASH;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.PREDICATE_HASH;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.SUBJECT_HASH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.query.RyaQuery;
+import org.apache.rya.mongodb.dao.BinaryHashMigrator;
+import org.apache.rya.mongodb.dao.BinaryHashMongoDBStorageStrategy;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.calrissian.mango.collect.CloseableIterable;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.Test;
+
+public class BinaryHashMigratorIT extends MongoRyaITBase {
+
+    private static List<RyaStatement> makeStatements() {
+        final List<RyaStatement> statements = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final RyaIRI subject = new RyaIRI("urn:subject" + i);
+            final RyaIRI predicate = new RyaIRI("urn:predicate");
+            final RyaType object = i % 2 == 0 ? new RyaIRI("urn:object" + i) : new RyaType(XMLSchema.STRING, "literal " + i);
+            statements.add(new RyaStatement(subject, predicate, object));
+        }
+        return statements;
+    }
+
+    private void addStatements(final List<RyaStatement> statements) throws Exception {
+        final MongoDBRyaDAO dao = new MongoDBRyaDAO();
+        try {
+            dao.setConf(conf);
+            dao.init();
+            dao.add(statements.iterator());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    private void assertFound(final List<RyaStatement> statements) throws Exception {
+        final MongoDBRyaDAO dao = new MongoDBRyaDAO();
+        try {
+            dao.setConf(conf);
+            dao.init();
+            for (final RyaStatement statement : statements) {
+                final RyaStatement query = new RyaStatement(statement.getSubject(), statement.getPredicate(), statement.getObject());
+                try (CloseableIterable<RyaStatement> results = dao.getQueryEngine().query(new RyaQuery(query))) {
+                    assertTrue("Not found: " + statement, results.iterator().hasNext());
+                }
+            }
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @Test
+    public void migrateToBinaryAndBack() throws Exception {
+        final List<RyaStatement> statements = makeStatements();
+        addStatements(statements);
+
+        // A batch size smaller than the collection makes the migrator flush more than once.
+        final BinaryHashMigrator toBinary = new BinaryHashMigrator(getRyaCollection(), new BinaryHashMongoDBStorageStrategy(), 2);
+        assertEquals(statements.size(), toBinary.migrate());
+        for (final Document doc : getRyaCollection().find()) {
+            assertTrue(doc.get(SUBJECT_HASH) instanceof Binary);
+            assertTrue(doc.get(PREDICATE_HASH) instanceof Binary);
+            assertTrue(doc.get(OBJECT_HASH) instanceof Binary);
+        }
+        conf.setUseBinaryHashes(true);
+        assertFound(statements);
+
+        final BinaryHashMigrator toHex = new BinaryHashMigrator(getRyaCollection(), new SimpleMongoDBStorageStrategy(), 2);
+        assertEquals(statements.size(), toHex.migrate());
+        for (final Document doc : getRyaCollection().find()) {
+            assertEquals(SimpleMongoDBStorageStrategy.hash(doc.getString(SimpleMongoDBStorageStrategy.SUBJECT)), doc.get(SUBJECT_HASH));
+            assertEquals(SimpleMongoDBStorageStrategy.hash(doc.getString(SimpleMongoDBStorageStrategy.OBJECT)), doc.get(OBJECT_HASH));
+        }
+        conf.setUseBinaryHashes(false);
+        assertFound(statements);
+    }
+
+    @Test
+    public void migrateIsRestartable() throws Exception {
+        final List<RyaStatement> statements = makeStatements();
+        addStatements(statements.subList(0, 3));
+
+        final BinaryHashMigrator toBinary = new BinaryHashMigrator(getRyaCollection(), new BinaryHashMongoDBStorageStrategy(), 10);
+        assertEquals(3, toBinary.migrate());
+
+        // Documents that are already in the target layout are skipped, so only
+        // the ones written since the last run are rewritten.
+        addStatements(statements.subList(3, statements.size()));
+        assertEquals(2, toBinary.migrate());
+        assertEquals(0, toBinary.migrate());
+
+        conf.setUseBinaryHashes(true);
+        assertFound(statements);
+    }
+}
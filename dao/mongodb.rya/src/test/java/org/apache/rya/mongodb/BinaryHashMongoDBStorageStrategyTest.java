@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaStatement.RyaStatementBuilder;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.mongodb.dao.BinaryHashMongoDBStorageStrategy;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.Test;
+
+public class BinaryHashMongoDBStorageStrategyTest {
+    private static final String SUBJECT = "http://subject.com";
+    private static final String PREDICATE = "http://temp.com";
+    private static final String OBJECT = "http://object.com";
+
+    private final BinaryHashMongoDBStorageStrategy storageStrategy = new BinaryHashMongoDBStorageStrategy(2);
+
+    private static RyaStatement makeStatement(final RyaType object) {
+        final RyaStatementBuilder builder = new RyaStatementBuilder();
+        builder.setSubject(new RyaIRI(SUBJECT));
+        builder.setPredicate(new RyaIRI(PREDICATE));
+        builder.setObject(object);
+        builder.setColumnVisibility(new DocumentVisibility("A&B").flatten());
+        builder.setTimestamp(null);
+        return builder.build();
+    }
+
+    private static byte[] truncatedHash(final String value) {
+        return Arrays.copyOf(DigestUtils.sha256(value), BinaryHashMongoDBStorageStrategy.HASH_LENGTH);
+    }
+
+    @Test
+    public void serializeStoresTruncatedBinaryHashes() {
+        final Document doc = storageStrategy.serialize(makeStatement(new RyaIRI(OBJECT)));
+
+        assertArrayEquals(truncatedHash(SUBJECT), ((Binary) doc.get(SimpleMongoDBStorageStrategy.SUBJECT_HASH)).getData());
+        assertArrayEquals(truncatedHash(PREDICATE), ((Binary) doc.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH)).getData());
+        assertArrayEquals(truncatedHash(OBJECT), ((Binary) doc.get(SimpleMongoDBStorageStrategy.OBJECT_HASH)).getData());
+        assertEquals(SUBJECT, doc.get(SimpleMongoDBStorageStrategy.SUBJECT));
+    }
+
+    @Test
+    public void queryMatchesSerializedHashes() {
+        final RyaStatement statement = makeStatement(new RyaType(XMLSchema.STRING, "a literal"));
+        final Document doc = storageStrategy.serialize(statement);
+        final Document query = storageStrategy.getQuery(statement);
+
+        assertEquals(doc.get(SimpleMongoDBStorageStrategy.SUBJECT_HASH), query.get(SimpleMongoDBStorageStrategy.SUBJECT_HASH));
+        assertEquals(doc.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH), query.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH));
+        assertEquals(doc.get(SimpleMongoDBStorageStrategy.OBJECT_HASH), query.get(SimpleMongoDBStorageStrategy.OBJECT_HASH));
+    }
+
+    @Test
+    public void cachedHashesAreStable() {
+        // Hash more IRIs than the cache holds so that entries are evicted and recomputed.
+        for (int i = 0; i < 5; i++) {
+            final Document doc = storageStrategy.serialize(makeStatement(new RyaIRI(OBJECT + i)));
+            assertArrayEquals(truncatedHash(OBJECT + i), ((Binary) doc.get(SimpleMongoDBStorageStrategy.OBJECT_HASH)).getData());
+            assertArrayEquals(truncatedHash(SUBJECT), ((Binary) doc.get(SimpleMongoDBStorageStrategy.SUBJECT_HASH)).getData());
+        }
+    }
+
+    @Test
+    public void deserializeRoundTrip() {
+        final RyaStatement statement = makeStatement(new RyaIRI(OBJECT));
+        final RyaStatement deserialized = storageStrategy.deserializeDocument(storageStrategy.serialize(statement));
+        deserialized.setTimestamp(null);
+        assertEquals(statement, deserialized);
+    }
+}
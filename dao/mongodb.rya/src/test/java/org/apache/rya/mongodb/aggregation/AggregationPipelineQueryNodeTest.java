@@ -22,6 +22,9 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.rya.mongodb.dao.BinaryHashMongoDBStorageStrategy;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.bson.BsonDocument;
 import org.bson.Document;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.ValueFactory;
@@ -43,6 +46,7 @@ import org.mockito.Mockito;
 
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Sets;
+import com.mongodb.MongoClient;
 import com.mongodb.MongoNamespace;
 import com.mongodb.client.MongoCollection;
 
@@ -150,6 +154,25 @@ public class AggregationPipelineQueryNodeTest {
         Assert.assertEquals(2, node.getPipeline().size());
     }
 
+    @Test
+    public void testStatementPatternBinaryHashes() throws Exception {
+        final StatementPattern sp = new StatementPattern(new Var("student"), constant(RDF.TYPE), constant(UNDERGRAD));
+        final AggregationPipelineQueryNode hex = new AggregationPipelineQueryNode(collection, sp);
+        final AggregationPipelineQueryNode binary = new AggregationPipelineQueryNode(collection, sp,
+                new BinaryHashMongoDBStorageStrategy());
+        final BsonDocument hexMatch = hex.getPipeline().get(0)
+                .toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()).getDocument("$match");
+        final BsonDocument binaryMatch = binary.getPipeline().get(0)
+                .toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()).getDocument("$match");
+        // Constants are matched with the hashes of the collection's storage strategy.
+        Assert.assertTrue(hexMatch.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH).isString());
+        Assert.assertTrue(binaryMatch.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH).isBinary());
+        Assert.assertTrue(binaryMatch.get(SimpleMongoDBStorageStrategy.OBJECT_HASH).isBinary());
+        // The strategy is kept by copies of the node.
+        Assert.assertEquals(binaryMatch, binary.clone().getPipeline().get(0)
+                .toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()).getDocument("$match"));
+    }
+
     @Test
     public void testJoin() throws Exception {
         final AggregationPipelineQueryNode base = new AggregationPipelineQueryNode(
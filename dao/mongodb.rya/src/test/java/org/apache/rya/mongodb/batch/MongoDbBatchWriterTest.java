@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.rya.mongodb.batch.collection.CollectionType;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link MongoDbBatchWriter}.
+ */
+public class MongoDbBatchWriterTest {
+
+    @SuppressWarnings("unchecked")
+    private static CollectionType<Integer> collection(final List<Integer> inserted, final AtomicInteger failures) {
+        final CollectionType<Integer> collection = mock(CollectionType.class);
+        doAnswer(invocation -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("The collection is unavailable.");
+            }
+            inserted.addAll((List<Integer>) invocation.getArguments()[0]);
+            return null;
+        }).when(collection).insertMany(any(List.class));
+        return collection;
+    }
+
+    @Test
+    public void concurrentProducers() throws Exception {
+        final List<Integer> inserted = Collections.synchronizedList(new ArrayList<>());
+        final MongoDbBatchWriterConfig config = new MongoDbBatchWriterConfig()
+                .setBatchSize(50)
+                .setShardCount(4)
+                .setMaxBufferedObjects(120);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection(inserted, new AtomicInteger(0)), config);
+        writer.start();
+
+        final ExecutorService producers = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < 8; p++) {
+                final int producer = p;
+                futures.add(producers.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        writer.addObjectToQueue(producer * 1000 + i);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            producers.shutdown();
+        }
+        writer.flush();
+        writer.shutdown();
+
+        assertEquals(8000, inserted.size());
+        assertEquals(8000, writer.getQueueWaitHistogram().getCount());
+        assertTrue(writer.getFlushLatencyHistogram().getCount() >= 8000 / 50);
+    }
+
+    @Test
+    public void flushTime() throws Exception {
+        final List<Integer> inserted = Collections.synchronizedList(new ArrayList<>());
+        final MongoDbBatchWriterConfig config = new MongoDbBatchWriterConfig()
+                .setBatchSize(1000)
+                .setBatchFlushTimeMs(10);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection(inserted, new AtomicInteger(0)), config);
+        writer.start();
+        try {
+            writer.addObjectsToQueue(Collections.nCopies(5, 1));
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (inserted.size() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(5, inserted.size());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void retry() throws Exception {
+        final List<Integer> inserted = Collections.synchronizedList(new ArrayList<>());
+        final MongoDbBatchWriterConfig config = new MongoDbBatchWriterConfig()
+                .setBatchFlushTimeMs(60_000)
+                .setMaxRetries(2)
+                .setRetryBackoffMs(1);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection(inserted, new AtomicInteger(2)), config);
+        writer.start();
+        try {
+            writer.addObjectsToQueue(Collections.nCopies(10, 1));
+            writer.flush();
+            assertEquals(10, inserted.size());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test(expected = MongoDbBatchWriterException.class)
+    public void retriesExhausted() throws Exception {
+        final MongoDbBatchWriterConfig config = new MongoDbBatchWriterConfig()
+                .setBatchFlushTimeMs(60_000)
+                .setMaxRetries(1)
+                .setRetryBackoffMs(1);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection(new ArrayList<>(), new AtomicInteger(2)), config);
+        writer.start();
+        try {
+            writer.addObjectsToQueue(Collections.nCopies(10, 1));
+            writer.flush();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addBeforeStart() throws Exception {
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(
+                collection(new ArrayList<>(), new AtomicInteger(0)), new MongoDbBatchWriterConfig());
+        writer.addObjectToQueue(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalStateException.class)
+    public void addWhileFullAndShutDown() throws Throwable {
+        // Nothing is written while the only slot in the queue is taken, so the producer waits for room.
+        final CollectionType<Integer> blocked = mock(CollectionType.class);
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(blocked).insertMany(any(List.class));
+
+        final MongoDbBatchWriterConfig config = new MongoDbBatchWriterConfig()
+                .setBatchSize(1)
+                .setBatchFlushTimeMs(10)
+                .setMaxBufferedObjects(1);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(blocked, config);
+        writer.start();
+        writer.addObjectToQueue(1);
+        writing.await();
+
+        final ExecutorService producer = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> waiting = producer.submit(() -> {
+                writer.addObjectToQueue(2);
+                return null;
+            });
+
+            // Shutting down waits for the write in progress, so let it finish once the writer is stopping.
+            final Thread shutdown = new Thread(() -> {
+                try {
+                    writer.shutdown();
+                } catch (final MongoDbBatchWriterException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            shutdown.start();
+            Thread.sleep(100);
+            release.countDown();
+            shutdown.join();
+
+            try {
+                waiting.get(10, TimeUnit.SECONDS);
+            } catch (final ExecutionException e) {
+                throw e.getCause();
+            }
+        } finally {
+            producer.shutdownNow();
+        }
+    }
+}
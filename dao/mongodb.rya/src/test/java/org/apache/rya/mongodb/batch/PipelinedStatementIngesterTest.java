@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.index.RyaSecondaryIndexer;
+import org.apache.rya.mongodb.batch.collection.CollectionType;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
+import org.bson.Document;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link PipelinedStatementIngester}.
+ */
+public class PipelinedStatementIngesterTest {
+
+    private static List<RyaStatement> makeStatements(final int count) {
+        final List<RyaStatement> statements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final RyaStatement statement = new RyaStatement(new RyaIRI("urn:subject" + i), new RyaIRI("urn:predicate"), new RyaIRI("urn:object"));
+            statement.setColumnVisibility(new byte[0]);
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void ingest_writesEveryStatement() throws Exception {
+        final Set<Object> inserted = Collections.synchronizedSet(new HashSet<>());
+        final CollectionType<Document> collection = mock(CollectionType.class);
+        doAnswer(invocation -> {
+            for (final Document doc : (List<Document>) invocation.getArguments()[0]) {
+                inserted.add(doc.get(SimpleMongoDBStorageStrategy.SUBJECT));
+            }
+            return null;
+        }).when(collection).insertMany(any(List.class));
+
+        final List<RyaStatement> indexed = Collections.synchronizedList(new ArrayList<>());
+        final RyaSecondaryIndexer indexer = mock(RyaSecondaryIndexer.class);
+        doAnswer(invocation -> {
+            indexed.addAll((Collection<RyaStatement>) invocation.getArguments()[0]);
+            return null;
+        }).when(indexer).storeStatements(any(Collection.class));
+
+        final List<RyaStatement> statements = makeStatements(2500);
+        try (final PipelinedStatementIngester ingester = new PipelinedStatementIngester(
+                collection, new SimpleMongoDBStorageStrategy(), Arrays.asList(indexer), null, 100, 4, 3)) {
+            assertEquals(2500, ingester.ingest(statements.iterator()));
+        }
+
+        assertEquals(2500, inserted.size());
+        assertEquals(2500, indexed.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = MongoDbBatchWriterException.class)
+    public void ingest_insertFailure() throws Exception {
+        final CollectionType<Document> collection = mock(CollectionType.class);
+        doAnswer(invocation -> {
+            throw new IllegalStateException("The collection is unavailable.");
+        }).when(collection).insertMany(any(List.class));
+
+        try (final PipelinedStatementIngester ingester = new PipelinedStatementIngester(
+                collection, new SimpleMongoDBStorageStrategy(), Collections.emptyList(), null, 10, 2, 2)) {
+            ingester.ingest(makeStatements(100).iterator());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = MongoDbBatchWriterException.class)
+    public void ingest_unauthorized() throws Exception {
+        final CollectionType<Document> collection = mock(CollectionType.class);
+        final List<RyaStatement> statements = makeStatements(1);
+        statements.get(0).setColumnVisibility(new DocumentVisibility("A").flatten());
+
+        try (final PipelinedStatementIngester ingester = new PipelinedStatementIngester(
+                collection, new SimpleMongoDBStorageStrategy(), Collections.emptyList(), new Authorizations("B"), 10, 2, 2)) {
+            ingester.ingest(statements.iterator());
+        }
+    }
+}
@@ -21,6 +21,8 @@ package org.apache.rya.mongodb.document.util;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.accumulo.core.security.ColumnVisibility.Node;
@@ -28,6 +30,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 import org.junit.Test;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -41,7 +44,11 @@ public class DisjunctiveNormalFormConverterTest {
             Pair.of("A|B", "A|B"),
             Pair.of("A&(B|C)", "(A&B)|(A&C)"),
             Pair.of("A|(B&C)", "A|(B&C)"),
-            Pair.of("HCS|(FDW&TGE&(TS|BX))", "HCS|(BX&FDW&TGE)|(FDW&TGE&TS)")
+            Pair.of("HCS|(FDW&TGE&(TS|BX))", "HCS|(BX&FDW&TGE)|(FDW&TGE&TS)"),
+            Pair.of("A|(A&B)", "A"),
+            Pair.of("(A|B)&(A|C)", "A|(B&C)"),
+            Pair.of("(A&B)|(B&A)", "A&B"),
+            Pair.of("\"A\"&(B|\"A\")", "\"A\"")
         );
 
     /**
@@ -137,6 +144,39 @@ public class DisjunctiveNormalFormConverterTest {
         assertArrayEquals(expected, truthTable);
     }
 
+    /**
+     * Test that the DNF groups are ordered like the rows of a truth table.
+     */
+    @Test
+    public void testConvertToDnfOrder() {
+        final DocumentVisibility inputDv = new DocumentVisibility("A|B|(C&D)");
+        final DocumentVisibility resultDv = DisjunctiveNormalFormConverter.convertToDisjunctiveNormalForm(inputDv);
+        assertEquals("(C&D)|B|A", new String(resultDv.getExpression()));
+    }
+
+    /**
+     * Test that expressions with many terms are converted without
+     * enumerating every combination of them.
+     */
+    @Test (timeout=10000)
+    public void testConvertToDnfManyTerms() {
+        final List<String> orTerms = new ArrayList<>();
+        final List<String> andTerms = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            orTerms.add("T" + i);
+            andTerms.add("U" + i);
+        }
+        final String input = "(" + Joiner.on("|").join(orTerms) + ")&" + Joiner.on("&").join(andTerms);
+
+        final DocumentVisibility resultDv = DisjunctiveNormalFormConverter.convertToDisjunctiveNormalForm(new DocumentVisibility(input));
+
+        final List<String> groups = Arrays.asList(new String(resultDv.flatten()).split("\\|"));
+        assertEquals(40, groups.size());
+        for (final String group : groups) {
+            assertEquals(41, group.split("&").length);
+        }
+    }
+
     /**
      * Test ability to convert expressions into Disjunctive Normal Form.
      */
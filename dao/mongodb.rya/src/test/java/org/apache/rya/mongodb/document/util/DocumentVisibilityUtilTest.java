@@ -19,11 +19,14 @@
 package org.apache.rya.mongodb.document.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
@@ -110,6 +113,26 @@ public class DocumentVisibilityUtilTest {
         }
     }
 
+    @Test
+    public void testDocumentAccessMemoized() {
+        final Authorizations aOnly = new Authorizations("A");
+        final Authorizations aAndB = new Authorizations("A", "B");
+        final byte[] expression = "A&B".getBytes(Charsets.UTF_8);
+
+        // Repeated checks with the same expression are answered per set of authorizations.
+        for (int i = 0; i < 3; i++) {
+            assertFalse(DocumentVisibilityUtil.doesUserHaveDocumentAccess(aOnly, expression));
+            assertTrue(DocumentVisibilityUtil.doesUserHaveDocumentAccess(aAndB, expression));
+            assertTrue(DocumentVisibilityUtil.doesUserHaveDocumentAccess(aOnly, "A|B".getBytes(Charsets.UTF_8)));
+        }
+
+        // Changing the caller's array doesn't change remembered decisions.
+        final byte[] mutable = "A".getBytes(Charsets.UTF_8);
+        assertTrue(DocumentVisibilityUtil.doesUserHaveDocumentAccess(aOnly, mutable));
+        mutable[0] = 'B';
+        assertFalse(DocumentVisibilityUtil.doesUserHaveDocumentAccess(aOnly, mutable));
+    }
+
     @Test
     public void testBadExpressions() {
         int count = 1;
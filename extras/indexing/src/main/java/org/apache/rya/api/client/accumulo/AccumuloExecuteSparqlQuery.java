@@ -19,6 +19,7 @@
 package org.apache.rya.api.client.accumulo;
 
 import static java.util.Objects.requireNonNull;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.VALUE_FACTORY;
 
 import java.io.IOException;
 
@@ -27,6 +28,7 @@ import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.log4j.Logger;
 import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.client.ExecuteSparqlQuery;
 import org.apache.rya.api.client.InstanceDoesNotExistException;
 import org.apache.rya.api.client.InstanceExists;
@@ -78,6 +80,12 @@ public class AccumuloExecuteSparqlQuery extends AccumuloCommand implements Execu
     @Override
     public TupleQueryResult executeSparqlQuery(final String ryaInstanceName, final String sparqlQuery)
             throws InstanceDoesNotExistException, RyaClientException {
+        return executeSparqlQuery(ryaInstanceName, sparqlQuery, false);
+    }
+
+    @Override
+    public TupleQueryResult executeSparqlQuery(final String ryaInstanceName, final String sparqlQuery, final boolean profile)
+            throws InstanceDoesNotExistException, RyaClientException {
         requireNonNull(ryaInstanceName);
         requireNonNull(sparqlQuery);
 
@@ -95,6 +103,9 @@ public class AccumuloExecuteSparqlQuery extends AccumuloCommand implements Execu
 
             // Execute the query.
             final TupleQuery tupleQuery = sailRepoConn.prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery);
+            if (profile) {
+                tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE, VALUE_FACTORY.createLiteral(true));
+            }
             return tupleQuery.evaluate();
         } catch (final SailException | AccumuloException | AccumuloSecurityException | RyaDAOException | InferenceEngineException  e) {
             throw new RyaClientException("A problem connecting to the Rya instance named '" + ryaInstanceName + "' has caused the query to fail.", e);
@@ -19,11 +19,13 @@
 package org.apache.rya.api.client.mongo;
 
 import static java.util.Objects.requireNonNull;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.VALUE_FACTORY;
 
 import java.io.IOException;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.client.ExecuteSparqlQuery;
 import org.apache.rya.api.client.InstanceDoesNotExistException;
 import org.apache.rya.api.client.InstanceExists;
@@ -75,6 +77,11 @@ public class MongoExecuteSparqlQuery implements ExecuteSparqlQuery {
 
     @Override
     public TupleQueryResult executeSparqlQuery(final String ryaInstanceName, final String sparqlQuery) throws InstanceDoesNotExistException, RyaClientException {
+        return executeSparqlQuery(ryaInstanceName, sparqlQuery, false);
+    }
+
+    @Override
+    public TupleQueryResult executeSparqlQuery(final String ryaInstanceName, final String sparqlQuery, final boolean profile) throws InstanceDoesNotExistException, RyaClientException {
         requireNonNull(ryaInstanceName);
         requireNonNull(sparqlQuery);
 
@@ -93,6 +100,9 @@ public class MongoExecuteSparqlQuery implements ExecuteSparqlQuery {
 
             // Execute the query.
             final TupleQuery tupleQuery = sailRepoConn.prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery);
+            if (profile) {
+                tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE, VALUE_FACTORY.createLiteral(true));
+            }
             return tupleQuery.evaluate();
         } catch (SailException | RyaDAOException | InferenceEngineException | AccumuloException | AccumuloSecurityException e) {
             throw new RyaClientException("Could not create the Sail object used to query the RYA instance.", e);
@@ -44,7 +44,6 @@ import org.apache.rya.mongodb.MongoSecondaryIndex;
 import org.apache.rya.mongodb.StatefulMongoDBRdfConfiguration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
@@ -201,13 +200,13 @@ public class FilterFunctionOptimizer implements QueryOptimizer, Configurable {
     private abstract class AbstractEnhanceVisitor extends AbstractQueryModelVisitor<RuntimeException> {
         final String matchVar;
         List<IRI> func = Lists.newArrayList();
-        List<Value[]> args = Lists.newArrayList();
+        List<Object[]> args = Lists.newArrayList();
 
         public AbstractEnhanceVisitor(final String matchVar) {
             this.matchVar = matchVar;
         }
 
-        protected void addFilter(final IRI uri, final Value[] values) {
+        protected void addFilter(final IRI uri, final Object[] values) {
             func.add(uri);
             args.add(values);
         }
@@ -234,8 +233,9 @@ public class FilterFunctionOptimizer implements QueryOptimizer, Configurable {
             }
         }
 
-        private Value[] extractArguments(final String matchName, final FunctionCall call) {
-            final Value args[] = new Value[call.getArgs().size() - 1];
+        private Object[] extractArguments(final String matchName, final FunctionCall call) {
+            final Object args[] = new Object[call.getArgs().size() - 1];
+            final boolean isFreeText = IndexingFunctionRegistry.getFunctionType(VF.createIRI(call.getURI())) == FUNCTION_TYPE.FREETEXT;
             int argI = 0;
             for (int i = 0; i != call.getArgs().size(); ++i) {
                 final ValueExpr arg = call.getArgs().get(i);
@@ -246,6 +246,9 @@ public class FilterFunctionOptimizer implements QueryOptimizer, Configurable {
                     args[argI] = ((ValueConstant)arg).getValue();
                 } else if (arg instanceof Var && ((Var)arg).hasValue()) {
                     args[argI] = ((Var)arg).getValue();
+                } else if (isFreeText && arg instanceof Var) {
+                    // A free text search may bind the score of each match to a variable.
+                    args[argI] = arg;
                 } else {
                     throw new IllegalArgumentException("Query error: Found " + arg + ", expected a Literal, BNode or URI");
                 }
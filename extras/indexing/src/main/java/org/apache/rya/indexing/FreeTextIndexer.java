@@ -22,6 +22,7 @@ import java.io.IOException;
 
 import org.apache.rya.api.persist.index.RyaSecondaryIndexer;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LimitIteration;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 
@@ -41,4 +42,26 @@ public interface FreeTextIndexer extends RyaSecondaryIndexer {
      * @throws IOException
      */
     public CloseableIteration<Statement, QueryEvaluationException> queryText(String query, StatementConstraints contraints) throws IOException;
+
+    /**
+     * Query the Free Text Index for the statements that best match a query. Indexers that are able to rank
+     * their results return {@link ScoredStatement}s ordered from the best match to the worst. The default
+     * implementation does not rank, it returns the first {@code limit} statements found by
+     * {@link #queryText(String, StatementConstraints)}.
+     *
+     * @param query
+     *            the query to perform
+     * @param contraints
+     *            the constraints on the statements returned
+     * @param limit
+     *            the maximum number of statements to return (must be positive)
+     * @return at most {@code limit} statements that meet the query and other constraints.
+     * @throws IOException
+     */
+    public default CloseableIteration<Statement, QueryEvaluationException> queryText(String query, StatementConstraints contraints, int limit) throws IOException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be positive. Was: " + limit);
+        }
+        return new LimitIteration<Statement, QueryEvaluationException>(queryText(query, contraints), limit);
+    }
 }
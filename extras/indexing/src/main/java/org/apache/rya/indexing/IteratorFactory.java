@@ -29,6 +29,8 @@ import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.QueryModelNode;
@@ -42,9 +44,21 @@ import org.eclipse.rdf4j.query.impl.MapBindingSet;
 //binding set and then uses SearchFunction to delegate query to appropriate index.
 //Resulting iterator over statements is then converted to an iterator over binding sets
 public class IteratorFactory {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
 
     public static CloseableIteration<BindingSet, QueryEvaluationException> getIterator(final StatementPattern match, 
             final BindingSet bindings, final String queryText, final SearchFunction searchFunction) {
+        return getIterator(match, bindings, queryText, searchFunction, null);
+    }
+
+    /**
+     * Same as {@link #getIterator(StatementPattern, BindingSet, String, SearchFunction)}, but the score of
+     * every {@link ScoredStatement} the search returns is bound to {@code scoreBinding}.
+     *
+     * @param scoreBinding - The name of the binding the score is assigned to. May be null if scores are not bound.
+     */
+    public static CloseableIteration<BindingSet, QueryEvaluationException> getIterator(final StatementPattern match,
+            final BindingSet bindings, final String queryText, final SearchFunction searchFunction, final String scoreBinding) {
         return new CloseableIteration<BindingSet, QueryEvaluationException>() {
 
             private boolean isClosed = false;
@@ -122,6 +136,8 @@ public class IteratorFactory {
                     bset.addBinding(objectBinding, statment.getObject());
                 if (contextBinding != null && !contextBinding.startsWith("-const"))
                     bset.addBinding(contextBinding, statment.getContext());
+                if (scoreBinding != null && statment instanceof ScoredStatement)
+                    bset.addBinding(scoreBinding, VF.createLiteral(((ScoredStatement) statment).getScore()));
 
                 // merge with other bindings.
                 for (String name : bindings.getBindingNames()) {
@@ -52,6 +52,7 @@ import org.apache.rya.indexing.accumulo.entity.EntityOptimizer;
 import org.apache.rya.indexing.accumulo.freetext.AccumuloFreeTextIndexer;
 import org.apache.rya.indexing.accumulo.freetext.LuceneTokenizer;
 import org.apache.rya.indexing.accumulo.freetext.Tokenizer;
+import org.apache.rya.indexing.accumulo.starjoin.StarJoinOptimizer;
 import org.apache.rya.indexing.accumulo.temporal.AccumuloTemporalIndexer;
 import org.apache.rya.indexing.entity.EntityIndexOptimizer;
 import org.apache.rya.indexing.entity.update.mongo.MongoEntityIndexer;
@@ -115,6 +116,7 @@ public class ConfigUtils {
     public static final String CLOUDBASE_WRITER_MAX_MEMORY = "sc.cloudbase.writer.maxmemory";
 
     public static final String FREE_TEXT_QUERY_TERM_LIMIT = "sc.freetext.querytermlimit";
+    public static final String FREE_TEXT_SCORE_LIMIT = "sc.freetext.scorelimit";
 
     public static final String USE_FREETEXT = "sc.use_freetext";
     public static final String USE_TEMPORAL = "sc.use_temporal";
@@ -210,6 +212,15 @@ public class ConfigUtils {
         return conf.getInt(FREE_TEXT_QUERY_TERM_LIMIT, 100);
     }
 
+    /**
+     * @param conf - The configuration of the free text index. (not null)
+     * @return How many of the best matches a free text search that binds a score but does not give a
+     *   limit returns.
+     */
+    public static int getFreeTextScoreLimit(final Configuration conf) {
+        return conf.getInt(FREE_TEXT_SCORE_LIMIT, 1000);
+    }
+
     public static Set<IRI> getFreeTextPredicates(final Configuration conf) {
         return getPredicates(conf, FREETEXT_PREDICATES_LIST);
     }
@@ -496,6 +507,10 @@ public class ConfigUtils {
                 indexList.add(EntityCentricIndex.class.getName());
                 optimizers.add(EntityOptimizer.class.getName());
             }
+
+            if (conf.getBoolean(AccumuloRdfConfiguration.CONF_STAR_JOIN, false)) {
+                optimizers.add(StarJoinOptimizer.class.getName());
+            }
         }
 
         if (useFilterIndex) {
@@ -25,13 +25,15 @@ import java.io.IOException;
 import java.nio.charset.CharacterCodingException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
-import java.util.SortedSet;
+import java.util.SortedMap;
 import java.util.TreeSet;
 
 import org.apache.accumulo.core.client.AccumuloException;
@@ -50,7 +52,11 @@ import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.keyfunctor.ColumnFamilyFunctor;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.LongCombiner;
 import org.apache.accumulo.core.iterators.user.IntersectingIterator;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.apache.hadoop.conf.Configuration;
@@ -62,10 +68,12 @@ import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.resolver.RyaToRdfConversions;
 import org.apache.rya.indexing.FreeTextIndexer;
 import org.apache.rya.indexing.Md5Hash;
+import org.apache.rya.indexing.ScoredStatement;
 import org.apache.rya.indexing.StatementConstraints;
 import org.apache.rya.indexing.StatementSerializer;
 import org.apache.rya.indexing.accumulo.ConfigUtils;
 import org.apache.rya.indexing.accumulo.freetext.iterators.BooleanTreeIterator;
+import org.apache.rya.indexing.accumulo.freetext.iterators.TopKScoringIterator;
 import org.apache.rya.indexing.accumulo.freetext.query.ASTExpression;
 import org.apache.rya.indexing.accumulo.freetext.query.ASTNodeUtils;
 import org.apache.rya.indexing.accumulo.freetext.query.ASTSimpleNode;
@@ -76,6 +84,7 @@ import org.apache.rya.indexing.accumulo.freetext.query.QueryParserTreeConstants;
 import org.apache.rya.indexing.accumulo.freetext.query.SimpleNode;
 import org.apache.rya.indexing.accumulo.freetext.query.TokenMgrError;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Statement;
@@ -103,11 +112,23 @@ import com.google.common.collect.Lists;
  * shardID         | p\x00Predicate | documentHash     | (empty)
  * shardID         | o\x00Object    | documentHash     | (empty)
  * shardID         | c\x00Context   | documentHash     | (empty)
- * shardID         | t\x00token     | documentHash     | (empty)
+ * shardID         | t\x00token     | documentHash     | Term Frequency
+ * shardID         | n\x00          | documentHash     | Document Length
  * </pre>
  * <p>
  * Note: documentHash is a sha256 Hash of the Document's Content
  * <p>
+ * Each shard also stores the statistics used to rank its documents. A {@link SummingCombiner} keeps them up to date
+ * as documents are added and removed:
+ *
+ * <pre>
+ * Row (partition) | Column Family  | Column Qualifier | Value
+ * ================+================+==================+==========
+ * shardID         | x\x00          | docs             | Document Count
+ * shardID         | x\x00          | length           | Total Document Length
+ * shardID         | x\x00          | df\x00token      | Document Frequency
+ * </pre>
+ * <p>
  * The terms table is used for expanding wildcard search terms. For each token in the document table, the table will store the following
  * information:
  *
@@ -197,6 +218,9 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
     private static final Text EMPTY_TEXT = new Text(EMPTY_BYTES);
     private static final Value EMPTY_VALUE = new Value(EMPTY_BYTES);
 
+    private static final String STATS_COMBINER_NAME = "freeTextStats";
+    private static final int STATS_COMBINER_PRIORITY = 10;
+
     private Tokenizer tokenizer;
 
     private BatchWriter docTableBw;
@@ -270,6 +294,14 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
             tableOps.setProperty(doctable, "table.bloom.enabled", Boolean.TRUE.toString());
         }
 
+        // Sum the per shard statistics that are used to rank documents.
+        if (!tableOps.listIterators(doctable).containsKey(STATS_COMBINER_NAME)) {
+            final IteratorSetting statsCombiner = new IteratorSetting(STATS_COMBINER_PRIORITY, STATS_COMBINER_NAME, SummingCombiner.class);
+            LongCombiner.setEncodingType(statsCombiner, LongCombiner.Type.STRING);
+            Combiner.setColumns(statsCombiner, Collections.singletonList(new IteratorSetting.Column(ColumnPrefixes.STATS_CF_PREFIX)));
+            tableOps.attachIterator(doctable, statsCombiner, EnumSet.allOf(IteratorScope.class));
+        }
+
         // Set mtbw by calling setMultiTableBatchWriter().  The DAO does this and manages flushing.
         // If you create it here, tests work, but a real Accumulo may lose writes due to unmanaged flushing.
         if (mtbw != null) {
@@ -320,7 +352,7 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
 
             // Get the tokens
             final String text = statement.getObject().stringValue().toLowerCase();
-            final SortedSet<String> tokens = tokenizer.tokenize(text);
+            final SortedMap<String, Integer> tokens = tokenizer.tokenizeWithFrequencies(text);
 
             if (!tokens.isEmpty()) {
                 // Get Document Data
@@ -331,14 +363,25 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
                 // Setup partition
                 final Text partition = genPartition(docContent.hashCode(), docTableNumPartitions);
 
+                final Text docIdText = new Text(docId);
+
+                // The statistics are sums, so a document that is stored again must not be counted again.
+                if (isCountedInStats(partition, docIdText)) {
+                    return;
+                }
+
                 final Mutation docTableMut = new Mutation(partition);
                 final List<Mutation> termTableMutations = new ArrayList<Mutation>();
 
-                final Text docIdText = new Text(docId);
-
                 // Store the Document Data
                 docTableMut.put(ColumnPrefixes.DOCS_CF_PREFIX, docIdText, new Value(docContent.getBytes(Charsets.UTF_8)));
 
+                // Store the statistics used to rank the document
+                final long docLength = getDocLength(tokens);
+                docTableMut.put(ColumnPrefixes.DOC_LENGTH_CF_PREFIX, docIdText, longValue(docLength));
+                docTableMut.put(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.STATS_DOC_COUNT_CQ, longValue(1));
+                docTableMut.put(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.STATS_TOTAL_LENGTH_CQ, longValue(docLength));
+
                 // index the statement parts
                 docTableMut.put(ColumnPrefixes.getSubjColFam(statement), docIdText, EMPTY_VALUE);
                 docTableMut.put(ColumnPrefixes.getPredColFam(statement), docIdText, EMPTY_VALUE);
@@ -346,9 +389,12 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
                 docTableMut.put(ColumnPrefixes.getContextColFam(statement), docIdText, EMPTY_VALUE);
 
                 // index the statement terms
-                for (final String token : tokens) {
-                    // tie the token to the document
-                    docTableMut.put(ColumnPrefixes.getTermColFam(token), docIdText, EMPTY_VALUE);
+                for (final Entry<String, Integer> tokenFrequency : tokens.entrySet()) {
+                    final String token = tokenFrequency.getKey();
+
+                    // tie the token to the document, remembering how often it appears
+                    docTableMut.put(ColumnPrefixes.getTermColFam(token), docIdText, longValue(tokenFrequency.getValue()));
+                    docTableMut.put(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.getDocFreqColQual(token), longValue(1));
 
                     // store the term in the term table (useful for wildcard searches)
                     termTableMutations.add(createEmptyPutMutation(ColumnPrefixes.getTermListColFam(token)));
@@ -374,6 +420,38 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
         storeStatement(RyaToRdfConversions.convertStatement(statement));
     }
 
+    /**
+     * A document is counted in its shard's statistics while it has a length cell. Documents that were
+     * indexed before the statistics existed do not have one, so they are counted once they are stored again.
+     * Only writes that have been flushed are seen.
+     *
+     * @param partition - The shard the document is stored in. (not null)
+     * @param docIdText - The ID of the document. (not null)
+     * @return {@code true} if the document is counted in the statistics of its shard.
+     * @throws IOException The document table could not be scanned.
+     */
+    private boolean isCountedInStats(final Text partition, final Text docIdText) throws IOException {
+        final Scanner scanner = getScanner(getFreeTextDocTablename(conf));
+        try {
+            scanner.setRange(Range.exact(partition, ColumnPrefixes.DOC_LENGTH_CF_PREFIX, docIdText));
+            return scanner.iterator().hasNext();
+        } finally {
+            scanner.close();
+        }
+    }
+
+    private static long getDocLength(final SortedMap<String, Integer> tokens) {
+        long length = 0;
+        for (final int frequency : tokens.values()) {
+            length += frequency;
+        }
+        return length;
+    }
+
+    private static Value longValue(final long value) {
+        return new Value(Long.toString(value).getBytes(Charsets.UTF_8));
+    }
+
     private static Mutation createEmptyPutMutation(final Text row) {
         final Mutation m = new Mutation(row);
         m.put(EMPTY_TEXT, EMPTY_TEXT, EMPTY_VALUE);
@@ -505,8 +583,76 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
     @Override
     public CloseableIteration<Statement, QueryEvaluationException> queryText(final String query, final StatementConstraints contraints)
             throws IOException {
+        final String constrainedQuery = buildConstrainedQuery(query, contraints);
         final Scanner docTableScan = getScanner(getFreeTextDocTablename(conf));
 
+        // perform query
+        docTableScan.clearScanIterators();
+        docTableScan.clearColumns();
+
+        final int iteratorPriority = 20;
+        final String iteratorName = "booleanTree";
+        final IteratorSetting ii = new IteratorSetting(iteratorPriority, iteratorName, BooleanTreeIterator.class);
+        BooleanTreeIterator.setQuery(ii, constrainedQuery);
+        docTableScan.addScanIterator(ii);
+        docTableScan.setRange(new Range());
+
+        return getIteratorWrapper(docTableScan);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each shard scores its matching documents with a {@link TopKScoringIterator} and only returns its
+     * best {@code limit} documents. Those are merged here, so at most {@code limit} times the number of
+     * shards documents are held in memory.
+     */
+    @Override
+    public CloseableIteration<Statement, QueryEvaluationException> queryText(final String query, final StatementConstraints contraints, final int limit)
+            throws IOException {
+        Validate.isTrue(limit > 0, "The limit must be positive. Was: " + limit);
+
+        final String constrainedQuery = buildConstrainedQuery(query, contraints);
+        final Scanner docTableScan = getScanner(getFreeTextDocTablename(conf));
+
+        docTableScan.clearScanIterators();
+        docTableScan.clearColumns();
+
+        final int iteratorPriority = 20;
+        final String iteratorName = "topKScoring";
+        final IteratorSetting ii = new IteratorSetting(iteratorPriority, iteratorName, TopKScoringIterator.class);
+        TopKScoringIterator.setQuery(ii, constrainedQuery);
+        TopKScoringIterator.setK(ii, limit);
+        docTableScan.addScanIterator(ii);
+        docTableScan.setRange(new Range());
+
+        final List<ScoredStatement> results = new ArrayList<>();
+        try {
+            for (final Entry<Key, Value> entry : docTableScan) {
+                final Value document = TopKScoringIterator.decodeDocument(entry.getValue());
+                final Statement statement = StatementSerializer.readStatement(Text.decode(document.get(), 0, document.getSize()));
+                results.add(new ScoredStatement(statement, TopKScoringIterator.decodeScore(entry.getValue())));
+            }
+        } finally {
+            docTableScan.close();
+        }
+
+        Collections.sort(results, new Comparator<ScoredStatement>() {
+            @Override
+            public int compare(final ScoredStatement a, final ScoredStatement b) {
+                return Double.compare(b.getScore(), a.getScore());
+            }
+        });
+
+        final List<Statement> best = new ArrayList<Statement>(results.subList(0, Math.min(limit, results.size())));
+        return new CloseableIteratorIteration<Statement, QueryEvaluationException>(best.iterator());
+    }
+
+    /**
+     * Parses the query, unrolls its wildcards, adds the statement constraints, and verifies the result
+     * is a reasonable size.
+     */
+    private String buildConstrainedQuery(final String query, final StatementConstraints contraints) throws IOException {
         // test the query to see if it's parses correctly.
         SimpleNode root = parseQuery(query);
 
@@ -544,18 +690,7 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
             throw new IOException("Query contains too many terms.  Term limit: " + queryTermLimit + ".  Term Count: " + termCount);
         }
 
-        // perform query
-        docTableScan.clearScanIterators();
-        docTableScan.clearColumns();
-
-        final int iteratorPriority = 20;
-        final String iteratorName = "booleanTree";
-        final IteratorSetting ii = new IteratorSetting(iteratorPriority, iteratorName, BooleanTreeIterator.class);
-        BooleanTreeIterator.setQuery(ii, constrainedQuery.toString());
-        docTableScan.addScanIterator(ii);
-        docTableScan.setRange(new Range());
-
-        return getIteratorWrapper(docTableScan);
+        return constrainedQuery.toString();
     }
 
     private static CloseableIteration<Statement, QueryEvaluationException> getIteratorWrapper(final Scanner s) {
@@ -719,7 +854,7 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
 
             // Get the tokens
             final String text = statement.getObject().stringValue().toLowerCase();
-            final SortedSet<String> tokens = tokenizer.tokenize(text);
+            final SortedMap<String, Integer> tokens = tokenizer.tokenizeWithFrequencies(text);
 
             if (!tokens.isEmpty()) {
                 // Get Document Data
@@ -744,9 +879,21 @@ public class AccumuloFreeTextIndexer extends AbstractAccumuloIndexer implements
                 docTableMut.putDelete(ColumnPrefixes.getObjColFam(statement), docIdText);
                 docTableMut.putDelete(ColumnPrefixes.getContextColFam(statement), docIdText);
 
+                // Remove the document from the ranking statistics, unless it was never counted or already removed
+                final boolean isCounted = isCountedInStats(partition, docIdText);
+                final long docLength = getDocLength(tokens);
+                docTableMut.putDelete(ColumnPrefixes.DOC_LENGTH_CF_PREFIX, docIdText);
+                if (isCounted) {
+                    docTableMut.put(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.STATS_DOC_COUNT_CQ, longValue(-1));
+                    docTableMut.put(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.STATS_TOTAL_LENGTH_CQ, longValue(-docLength));
+                }
 
                 // Delete the statement terms in index
-                for (final String token : tokens) {
+                for (final String token : tokens.keySet()) {
+                    if (isCounted) {
+                        docTableMut.put(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.getDocFreqColQual(token), longValue(-1));
+                    }
+
                     if (IS_TERM_TABLE_TOKEN_DELETION_ENABLED) {
                         final int rowId = Integer.parseInt(partition.toString());
                         final boolean doesTermExistInOtherDocs = doesTermExistInOtherDocs(token, rowId, docIdText);
@@ -43,6 +43,15 @@ public class ColumnPrefixes {
 	public static final Text OBJECT_CF_PREFIX = new Text("o\0");
 	public static final Text CONTEXT_CF_PREFIX = new Text("c\0");
 
+	/** CF of the number of tokens in a document. CQ: documentHash */
+	public static final Text DOC_LENGTH_CF_PREFIX = new Text("n\0");
+
+	/** CF of the per shard statistics that are summed by a combiner. */
+	public static final Text STATS_CF_PREFIX = new Text("x\0");
+	public static final Text STATS_DOC_COUNT_CQ = new Text("docs");
+	public static final Text STATS_TOTAL_LENGTH_CQ = new Text("length");
+	public static final Text STATS_DOC_FREQ_CQ_PREFIX = new Text("df\0");
+
 	private static Text concat(Text prefix, String str) {
 		Text temp = new Text(prefix);
 
@@ -68,6 +77,10 @@ public class ColumnPrefixes {
 		return concat(REVERSE_TERM_LIST_CF_PREFIX, StringUtils.reverse(term));
 	}
 
+	public static Text getDocFreqColQual(String term) {
+		return concat(STATS_DOC_FREQ_CQ_PREFIX, term);
+	}
+
 	public static Text getDocColFam(String term) {
 		return concat(DOCS_CF_PREFIX, term);
 	}
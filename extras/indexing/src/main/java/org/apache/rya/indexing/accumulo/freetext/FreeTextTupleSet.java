@@ -20,6 +20,7 @@ package org.apache.rya.indexing.accumulo.freetext;
  */
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
@@ -28,14 +29,17 @@ import org.apache.rya.indexing.IndexingExpr;
 import org.apache.rya.indexing.IteratorFactory;
 import org.apache.rya.indexing.SearchFunction;
 import org.apache.rya.indexing.StatementConstraints;
+import org.apache.rya.indexing.accumulo.ConfigUtils;
 import org.apache.rya.indexing.external.tupleSet.ExternalTupleSet;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.QueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.Var;
 
 import com.google.common.base.Joiner;
 
@@ -60,7 +64,13 @@ public class FreeTextTupleSet extends ExternalTupleSet {
      */
     @Override
     public Set<String> getBindingNames() {
-        return filterInfo.getBindingNames();
+        // Copy the names so the score's binding is not added to the filter's own set.
+        final Set<String> bindingNames = new HashSet<>(filterInfo.getBindingNames());
+        final Var scoreVar = getScoreVar(filterInfo.getArguments());
+        if (scoreVar != null) {
+            bindingNames.add(scoreVar.getName());
+        }
+        return bindingNames;
     }
 
     /**
@@ -126,15 +136,42 @@ public class FreeTextTupleSet extends ExternalTupleSet {
         
       
         IRI funcIRI = filterInfo.getFunction();
-        
+
+        // The function's arguments are: the query, an optional limit, and an optional variable the score is bound to.
+        final Object[] arguments = filterInfo.getArguments();
+        if (arguments.length > 3) {
+            throw new IllegalArgumentException("Free text functions support at most a query, a limit, and a score variable.");
+        }
+
+        final Var scoreVar = getScoreVar(arguments);
+        if (arguments.length > 2 && scoreVar == null) {
+            throw new IllegalArgumentException("The score of a free text function must be bound to a variable. Was: " + arguments[2]);
+        }
+        final String scoreBinding = scoreVar == null ? null : scoreVar.getName();
+
+        final boolean hasLimit = arguments.length > (scoreVar == null ? 1 : 2);
+        final int limit;
+        if (hasLimit) {
+            if (!(arguments[1] instanceof Literal) || ((Literal) arguments[1]).intValue() <= 0) {
+                throw new IllegalArgumentException("The limit of a free text function must be a positive integer. Was: " + arguments[1]);
+            }
+            limit = ((Literal) arguments[1]).intValue();
+        } else if (scoreBinding != null) {
+            // Scores are only computed by a ranked search. Each shard holds that many matches in memory, so it is capped.
+            limit = ConfigUtils.getFreeTextScoreLimit(conf);
+        } else {
+            limit = 0;
+        }
+
         SearchFunction searchFunction = new SearchFunction() {
 
             @Override
             public CloseableIteration<Statement, QueryEvaluationException> performSearch(String queryText,
                     StatementConstraints contraints) throws QueryEvaluationException {
                 try {
-                    CloseableIteration<Statement, QueryEvaluationException> statements = freeTextIndexer.queryText(
-                            queryText, contraints);
+                    CloseableIteration<Statement, QueryEvaluationException> statements = limit > 0 ?
+                            freeTextIndexer.queryText(queryText, contraints, limit) :
+                            freeTextIndexer.queryText(queryText, contraints);
                     return statements;
                 } catch (IOException e) {
                     throw new QueryEvaluationException(e);
@@ -147,13 +184,21 @@ public class FreeTextTupleSet extends ExternalTupleSet {
             }
         };
 
-        if (filterInfo.getArguments().length > 1) {
-            throw new IllegalArgumentException("Index functions do not support more than two arguments.");
-        }
+        String queryText = ((Value) arguments[0]).stringValue();
 
-        String queryText = ((Value) filterInfo.getArguments()[0]).stringValue();
+        return IteratorFactory.getIterator(filterInfo.getSpConstraint(), bindings, queryText, searchFunction, scoreBinding);
+    }
 
-        return IteratorFactory.getIterator(filterInfo.getSpConstraint(), bindings, queryText, searchFunction);
+    /**
+     * The score may be bound to a variable given after the limit, or in place of it.
+     *
+     * @return The variable the score is bound to, or null if there is none.
+     */
+    private static Var getScoreVar(final Object[] arguments) {
+        if (arguments.length < 2 || !(arguments[arguments.length - 1] instanceof Var)) {
+            return null;
+        }
+        return (Var) arguments[arguments.length - 1];
     }
     
 }
@@ -21,11 +21,28 @@ package org.apache.rya.indexing.accumulo.freetext;
 
 
 
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 
 /**
  * A utility that splits a string into tokens.
  */
 public interface Tokenizer {
 	public SortedSet<String> tokenize(String sting);
+
+	/**
+	 * Splits a string into tokens and counts how many times each one appears.
+	 * The default implementation counts every distinct token once.
+	 *
+	 * @param string - The string to split.
+	 * @return The number of times each token appears within the string.
+	 */
+	public default SortedMap<String, Integer> tokenizeWithFrequencies(String string) {
+		SortedMap<String, Integer> frequencies = new TreeMap<String, Integer>();
+		for (String token : tokenize(string)) {
+			frequencies.put(token, 1);
+		}
+		return frequencies;
+	}
 }
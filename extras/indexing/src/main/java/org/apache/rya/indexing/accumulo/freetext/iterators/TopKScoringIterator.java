@@ -0,0 +1,395 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.accumulo.freetext.iterators;
+
+import static org.apache.rya.indexing.accumulo.freetext.query.ASTNodeUtils.getNodeIterator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+import org.apache.rya.indexing.accumulo.freetext.ColumnPrefixes;
+import org.apache.rya.indexing.accumulo.freetext.query.ASTExpression;
+import org.apache.rya.indexing.accumulo.freetext.query.ASTTerm;
+import org.apache.rya.indexing.accumulo.freetext.query.ParseException;
+import org.apache.rya.indexing.accumulo.freetext.query.QueryParser;
+import org.apache.rya.indexing.accumulo.freetext.query.SimpleNode;
+import org.apache.rya.indexing.accumulo.freetext.query.TokenMgrError;
+
+/**
+ * Evaluates a free text query with a {@link BooleanTreeIterator} and only returns the {@code k} best
+ * matching documents of each shard.
+ * <p>
+ * Documents are scored with Okapi BM25 using the term frequencies, document lengths, and per shard
+ * statistics that the {@link org.apache.rya.indexing.accumulo.freetext.AccumuloFreeTextIndexer}
+ * stores alongside the shard/term layout. Only the terms that are not negated contribute to a score.
+ * Documents that were indexed before those statistics were written are scored as if every term
+ * appeared once within a document of average length.
+ * <p>
+ * The documents of a shard are buffered before any of them are returned, so memory use is bounded
+ * by {@code k}. The kept documents are returned in key order so that a scan may resume from any
+ * returned key. Use {@link #decodeScore(Value)} and {@link #decodeDocument(Value)} to read the values.
+ */
+public class TopKScoringIterator implements SortedKeyValueIterator<Key, Value>, OptionDescriber {
+    private static final Logger logger = Logger.getLogger(TopKScoringIterator.class);
+
+    private static final String queryOptionName = "query";
+    private static final String kOptionName = "k";
+
+    /**
+     * The BM25 term frequency saturation parameter.
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * The BM25 document length normalization parameter.
+     */
+    private static final double B = 0.75;
+
+    private static final byte SEPARATOR = 0;
+
+    /**
+     * Keeps an effectively unlimited {@code k} from allocating its whole queue up front.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private final BooleanTreeIterator matches = new BooleanTreeIterator();
+    private SortedKeyValueIterator<Key, Value> source;
+    private Map<String, String> options;
+    private SortedKeyValueIterator<Key, Value> statsSource;
+    private Set<String> scoredTerms;
+    private int k;
+
+    private Range range;
+
+    private Iterator<ScoredDocument> shardResults = Collections.<ScoredDocument> emptyIterator();
+    private ScoredDocument top = null;
+
+    @Override
+    public void init(final SortedKeyValueIterator<Key, Value> source, final Map<String, String> options, final IteratorEnvironment env) throws IOException {
+        validateOptions(options);
+        this.source = source;
+        this.options = new HashMap<>(options);
+        k = Integer.parseInt(options.get(kOptionName));
+        scoredTerms = getScoredTerms(options.get(queryOptionName));
+
+        statsSource = source.deepCopy(env);
+        matches.init(source, options, env);
+    }
+
+    /**
+     * Find the terms that count towards a document's score. Those are the terms that are not negated
+     * and that are not statement constraints.
+     */
+    private static Set<String> getScoredTerms(final String query) throws IOException {
+        final SimpleNode root;
+        try {
+            root = QueryParser.parse(query);
+        } catch (ParseException | TokenMgrError e) {
+            logger.error("Error encountered while parsing: " + query, e);
+            throw new IOException(e);
+        }
+
+        final Set<String> terms = new HashSet<>();
+        collectScoredTerms(root, false, terms);
+        return terms;
+    }
+
+    private static void collectScoredTerms(final SimpleNode node, final boolean negated, final Set<String> terms) {
+        if (node instanceof ASTTerm) {
+            final ASTTerm term = (ASTTerm) node;
+            if (!negated && !term.isNotFlag() && term.getTerm() != null && !term.getTerm().contains("\0")) {
+                terms.add(term.getTerm().toLowerCase());
+            }
+            return;
+        }
+
+        final boolean childrenNegated = negated || (node instanceof ASTExpression && ((ASTExpression) node).isNotFlag());
+        for (final SimpleNode child : getNodeIterator(node)) {
+            collectScoredTerms(child, childrenNegated, terms);
+        }
+    }
+
+    @Override
+    public void seek(final Range range, final Collection<ByteSequence> columnFamilies, final boolean inclusive) throws IOException {
+        this.range = range;
+
+        // A shard's best documents depend on every document within it, so always start at the
+        // beginning of the shard. Documents before the requested range are dropped later.
+        Range shardRange = range;
+        if (!range.isInfiniteStartKey()) {
+            shardRange = new Range(new Key(range.getStartKey().getRow()), true, range.getEndKey(), range.isEndKeyInclusive());
+        }
+        matches.seek(shardRange, columnFamilies, inclusive);
+
+        shardResults = Collections.<ScoredDocument> emptyIterator();
+        top = null;
+        next();
+    }
+
+    @Override
+    public boolean hasTop() {
+        return top != null;
+    }
+
+    @Override
+    public void next() throws IOException {
+        while (!shardResults.hasNext() && matches.hasTop()) {
+            shardResults = scoreShard().iterator();
+        }
+        top = shardResults.hasNext() ? shardResults.next() : null;
+    }
+
+    @Override
+    public Key getTopKey() {
+        if (top == null) {
+            throw new NoSuchElementException();
+        }
+        return top.key;
+    }
+
+    @Override
+    public Value getTopValue() {
+        if (top == null) {
+            throw new NoSuchElementException();
+        }
+        return top.value;
+    }
+
+    /**
+     * Score every matching document of the shard {@link #matches} is positioned on.
+     *
+     * @return The best {@code k} documents of the shard that are within the seek range, in key order.
+     */
+    private List<ScoredDocument> scoreShard() throws IOException {
+        final Text shard = new Text(matches.getTopKey().getRow());
+        final ShardStatistics stats = new ShardStatistics(shard);
+
+        final PriorityQueue<ScoredDocument> best = new PriorityQueue<>(Math.min(k, MAX_INITIAL_CAPACITY) + 1, WORST_FIRST);
+        while (matches.hasTop() && matches.getTopKey().getRow().equals(shard)) {
+            final Key key = new Key(matches.getTopKey());
+            final double score = stats.score(key.getColumnQualifier());
+            best.add(new ScoredDocument(key, score, matches.getTopValue()));
+            if (best.size() > k) {
+                best.poll();
+            }
+            matches.next();
+        }
+
+        final List<ScoredDocument> results = new ArrayList<>(best.size());
+        for (final ScoredDocument document : best) {
+            if (!range.beforeStartKey(document.key)) {
+                results.add(document);
+            }
+        }
+        Collections.sort(results, KEY_ORDER);
+        return results;
+    }
+
+    /**
+     * The statistics of a single shard that are needed to score its documents.
+     */
+    private final class ShardStatistics {
+        private final Text shard;
+        private final long docCount;
+        private final double averageLength;
+        private final Map<String, Double> idfs = new HashMap<>();
+
+        public ShardStatistics(final Text shard) throws IOException {
+            this.shard = shard;
+            docCount = readLong(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.STATS_DOC_COUNT_CQ, 0L);
+            final long totalLength = readLong(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.STATS_TOTAL_LENGTH_CQ, 0L);
+            averageLength = docCount > 0 ? (double) totalLength / docCount : 0.0;
+
+            for (final String term : scoredTerms) {
+                double idf = 1.0;
+                if (docCount > 0) {
+                    final long docFreq = readLong(ColumnPrefixes.STATS_CF_PREFIX, ColumnPrefixes.getDocFreqColQual(term), 0L);
+                    idf = Math.log(1.0 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+                }
+                idfs.put(term, idf);
+            }
+        }
+
+        public double score(final Text docId) throws IOException {
+            final double length = averageLength > 0 ? readLong(ColumnPrefixes.DOC_LENGTH_CF_PREFIX, docId, Math.round(averageLength)) : 0.0;
+            final double lengthNorm = averageLength > 0 ? 1 - B + B * length / averageLength : 1.0;
+
+            double score = 0.0;
+            for (final Map.Entry<String, Double> idf : idfs.entrySet()) {
+                final long tf = readLong(ColumnPrefixes.getTermColFam(idf.getKey()), docId, -1L);
+                if (tf > 0) {
+                    score += idf.getValue() * (tf * (K1 + 1)) / (tf + K1 * lengthNorm);
+                }
+            }
+            return score;
+        }
+
+        /**
+         * Read a number from a cell of the shard.
+         *
+         * @return The number, {@code 1} if the cell exists but is empty, or {@code missing} if the cell does not exist.
+         */
+        private long readLong(final Text cf, final Text cq, final long missing) throws IOException {
+            statsSource.seek(Range.exact(shard, cf, cq), Collections.<ByteSequence> emptyList(), false);
+            if (!statsSource.hasTop()) {
+                return missing;
+            }
+            final Value value = statsSource.getTopValue();
+            if (value.getSize() == 0) {
+                return 1L;
+            }
+            return Long.parseLong(new String(value.get(), 0, value.getSize(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class ScoredDocument {
+        private final Key key;
+        private final double score;
+        private final Value value;
+
+        public ScoredDocument(final Key key, final double score, final Value document) {
+            this.key = key;
+            this.score = score;
+            this.value = encode(score, document);
+        }
+    }
+
+    /**
+     * Orders the worst document first. Ties are broken by key so that a shard's best documents
+     * are the same every time it is scored.
+     */
+    private static final Comparator<ScoredDocument> WORST_FIRST = new Comparator<ScoredDocument>() {
+        @Override
+        public int compare(final ScoredDocument a, final ScoredDocument b) {
+            final int c = Double.compare(a.score, b.score);
+            return c != 0 ? c : b.key.compareTo(a.key);
+        }
+    };
+
+    private static final Comparator<ScoredDocument> KEY_ORDER = new Comparator<ScoredDocument>() {
+        @Override
+        public int compare(final ScoredDocument a, final ScoredDocument b) {
+            return a.key.compareTo(b.key);
+        }
+    };
+
+    private static Value encode(final double score, final Value document) {
+        final byte[] scoreBytes = Double.toString(score).getBytes(StandardCharsets.UTF_8);
+        final byte[] encoded = new byte[scoreBytes.length + 1 + document.getSize()];
+        System.arraycopy(scoreBytes, 0, encoded, 0, scoreBytes.length);
+        encoded[scoreBytes.length] = SEPARATOR;
+        System.arraycopy(document.get(), 0, encoded, scoreBytes.length + 1, document.getSize());
+        return new Value(encoded);
+    }
+
+    private static int separatorIndex(final byte[] encoded) {
+        for (int i = 0; i < encoded.length; i++) {
+            if (encoded[i] == SEPARATOR) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("The value was not written by " + TopKScoringIterator.class.getSimpleName());
+    }
+
+    /**
+     * @param value - A value that was returned by this iterator. (not null)
+     * @return The score of the document.
+     */
+    public static double decodeScore(final Value value) {
+        final byte[] encoded = value.get();
+        return Double.parseDouble(new String(encoded, 0, separatorIndex(encoded), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param value - A value that was returned by this iterator. (not null)
+     * @return The document that was scored.
+     */
+    public static Value decodeDocument(final Value value) {
+        final byte[] encoded = value.get();
+        final int start = separatorIndex(encoded) + 1;
+        return new Value(Arrays.copyOfRange(encoded, start, encoded.length));
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(final IteratorEnvironment env) {
+        final TopKScoringIterator copy = new TopKScoringIterator();
+        if (source != null) {
+            try {
+                copy.init(source.deepCopy(env), options, env);
+            } catch (final IOException e) {
+                // The options were already parsed once, so this is unexpected.
+                throw new IllegalStateException("Could not copy the free text query iterator.", e);
+            }
+        }
+        return copy;
+    }
+
+    public static void setQuery(final IteratorSetting cfg, final String query) {
+        BooleanTreeIterator.setQuery(cfg, query);
+    }
+
+    public static void setK(final IteratorSetting cfg, final int k) {
+        cfg.addOption(kOptionName, Integer.toString(k));
+    }
+
+    @Override
+    public IteratorOptions describeOptions() {
+        final Map<String, String> options = new HashMap<>();
+        options.put(queryOptionName, "the free text query");
+        options.put(kOptionName, "the number of documents to return from each shard");
+        return new IteratorOptions("FreeTextTopK", "Return the best matching documents of a FreeText Query on properly formated table",
+                options, null);
+    }
+
+    @Override
+    public boolean validateOptions(final Map<String, String> options) {
+        final String q = options.get(queryOptionName);
+        if (q == null || q.isEmpty()) {
+            throw new IllegalArgumentException(queryOptionName + " must not be empty");
+        }
+        final String kValue = options.get(kOptionName);
+        if (kValue == null || Integer.parseInt(kValue) <= 0) {
+            throw new IllegalArgumentException(kOptionName + " must be a positive integer");
+        }
+        return true;
+    }
+}
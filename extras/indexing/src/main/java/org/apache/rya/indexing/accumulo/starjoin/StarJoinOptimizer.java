@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.accumulo.starjoin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.indexing.accumulo.ConfigUtils;
+import org.apache.rya.rdftriplestore.evaluation.ParallelEvaluationStrategyImpl;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replaces the {@link StatementPattern}s of a join that share a subject with a
+ * {@link StarJoinTupleSet}, so they are joined on the tablet servers. It only
+ * rewrites queries when {@link AccumuloRdfConfiguration#isUseStarJoin()} is set
+ * and the triple tables use the plain row layout: neither hash prefixed rows
+ * nor dictionary encoding. It also leaves queries alone when inference is on,
+ * because the inference visitors run after the configured optimizers and would
+ * no longer see the replaced patterns.
+ * <p>
+ * The star joins read through the connector of the {@link AccumuloRyaDAO} the
+ * query is evaluated over when the optimizer is given the evaluation strategy.
+ * Otherwise one connector is made from the configuration for the whole query.
+ */
+public class StarJoinOptimizer implements QueryOptimizer, Configurable {
+    private static final Logger log = LoggerFactory.getLogger(StarJoinOptimizer.class);
+
+    private AccumuloRdfConfiguration conf;
+    private Connector connector;
+
+    /**
+     * Constructs an instance of {@link StarJoinOptimizer} that makes its own connector.
+     */
+    public StarJoinOptimizer() {
+    }
+
+    /**
+     * Constructs an instance of {@link StarJoinOptimizer}.
+     *
+     * @param strategy - The strategy the query is evaluated with. If it reads from an
+     *   {@link AccumuloRyaDAO}, the star joins use that DAO's connector. (not null)
+     */
+    public StarJoinOptimizer(final EvaluationStrategy strategy) {
+        if (strategy instanceof ParallelEvaluationStrategyImpl) {
+            final Object dao = ((ParallelEvaluationStrategyImpl) strategy).getTripleSource().getRyaDAO();
+            if (dao instanceof AccumuloRyaDAO) {
+                connector = ((AccumuloRyaDAO) dao).getConnector();
+            }
+        }
+    }
+
+    @Override
+    public void setConf(final Configuration conf) {
+        if (conf instanceof AccumuloRdfConfiguration) {
+            this.conf = (AccumuloRdfConfiguration) conf;
+        } else {
+            this.conf = new AccumuloRdfConfiguration(conf);
+        }
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    @Override
+    public void optimize(final TupleExpr tupleExpr, final Dataset dataset, final BindingSet bindings) {
+        if (conf == null || !conf.isUseStarJoin() || conf.isPrefixRowsWithHash() || conf.isDictionaryEncoding() || conf.isInfer()) {
+            return;
+        }
+        if (connector == null) {
+            try {
+                connector = ConfigUtils.getConnector(conf);
+            } catch (AccumuloException | AccumuloSecurityException e) {
+                log.warn("Could not connect to Accumulo, so the query is evaluated without star joins.", e);
+                return;
+            }
+        }
+        tupleExpr.visit(new JoinVisitor());
+    }
+
+    private class JoinVisitor extends AbstractQueryModelVisitor<RuntimeException> {
+        @Override
+        public void meet(final Join node) {
+            final List<TupleExpr> args = new ArrayList<>();
+            flatten(node, args);
+
+            // Group the patterns that may be star joined by their subject.
+            final Map<String, List<StatementPattern>> stars = new LinkedHashMap<>();
+            for (final TupleExpr arg : args) {
+                if (isStarPattern(arg)) {
+                    final StatementPattern pattern = (StatementPattern) arg;
+                    List<StatementPattern> star = stars.get(pattern.getSubjectVar().getName());
+                    if (star == null) {
+                        star = new ArrayList<>();
+                        stars.put(pattern.getSubjectVar().getName(), star);
+                    }
+                    star.add(pattern);
+                } else {
+                    arg.visit(this);
+                }
+            }
+
+            final List<TupleExpr> joinArgs = new ArrayList<>();
+            boolean replaced = false;
+            for (final TupleExpr arg : args) {
+                if (isStarPattern(arg)) {
+                    final List<StatementPattern> star = stars.get(((StatementPattern) arg).getSubjectVar().getName());
+                    if (star.size() < 2) {
+                        joinArgs.add(arg);
+                    } else if (star.get(0) == arg) {
+                        joinArgs.add(new StarJoinTupleSet(star, conf, connector));
+                        replaced = true;
+                    }
+                } else {
+                    joinArgs.add(arg);
+                }
+            }
+
+            if (replaced) {
+                TupleExpr join = joinArgs.get(0);
+                for (int i = 1; i < joinArgs.size(); i++) {
+                    join = new Join(join, joinArgs.get(i));
+                }
+                node.replaceWith(join);
+            }
+        }
+
+        private void flatten(final TupleExpr expr, final List<TupleExpr> args) {
+            if (expr instanceof Join) {
+                flatten(((Join) expr).getLeftArg(), args);
+                flatten(((Join) expr).getRightArg(), args);
+            } else {
+                args.add(expr);
+            }
+        }
+
+        /**
+         * @return {@code true} if the node is a plain statement pattern with a
+         *   constant predicate and no context.
+         */
+        private boolean isStarPattern(final TupleExpr expr) {
+            if (expr == null || expr.getClass() != StatementPattern.class) {
+                return false;
+            }
+            final StatementPattern pattern = (StatementPattern) expr;
+            final boolean subjectUsable = !pattern.getSubjectVar().hasValue() || pattern.getSubjectVar().getValue() instanceof IRI;
+            return subjectUsable && pattern.getPredicateVar().getValue() instanceof IRI && pattern.getContextVar() == null;
+        }
+    }
+}
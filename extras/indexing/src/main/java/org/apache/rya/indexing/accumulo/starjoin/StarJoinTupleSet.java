@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.accumulo.starjoin;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.query.AccumuloStarJoin;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.resolver.RdfToRyaConversions;
+import org.apache.rya.api.resolver.RyaToRdfConversions;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.ExternalSet;
+
+/**
+ * A query node that evaluates {@link StatementPattern}s sharing a subject with
+ * an {@link AccumuloStarJoin}, so the join runs on the tablet servers.
+ */
+public class StarJoinTupleSet extends ExternalSet {
+
+    private final List<StatementPattern> patterns;
+    private final AccumuloRdfConfiguration conf;
+    private final AccumuloStarJoin starJoin;
+    private final Var subjectVar;
+    private final Set<String> bindingNames = new HashSet<>();
+
+    /**
+     * Constructs an instance of {@link StarJoinTupleSet}.
+     *
+     * @param patterns - The patterns that are joined. They share the same subject,
+     *   have constant predicates, and have no context. (not null, not empty)
+     * @param conf - The configuration of the Rya instance that is queried. (not null)
+     * @param connector - Reads the Rya instance's tables every time the join is evaluated. (not null)
+     */
+    public StarJoinTupleSet(final List<StatementPattern> patterns, final AccumuloRdfConfiguration conf, final Connector connector) {
+        this.patterns = new ArrayList<>(requireNonNull(patterns));
+        this.conf = requireNonNull(conf);
+        starJoin = new AccumuloStarJoin(requireNonNull(connector));
+        checkArgument(!patterns.isEmpty(), "A star join needs at least one pattern.");
+        subjectVar = patterns.get(0).getSubjectVar();
+        for (final StatementPattern pattern : patterns) {
+            checkArgument(pattern.getSubjectVar().equals(subjectVar), "Every pattern must share the subject.");
+            checkArgument(pattern.getPredicateVar().getValue() instanceof IRI, "Every predicate must be a constant IRI.");
+            checkArgument(pattern.getContextVar() == null, "Patterns with a context are not supported.");
+            bindingNames.addAll(pattern.getBindingNames());
+        }
+    }
+
+    /**
+     * @return The patterns that are joined.
+     */
+    public List<StatementPattern> getPatterns() {
+        return patterns;
+    }
+
+    @Override
+    public Set<String> getBindingNames() {
+        return bindingNames;
+    }
+
+    @Override
+    public Set<String> getAssuredBindingNames() {
+        return bindingNames;
+    }
+
+    @Override
+    public String getSignature() {
+        return "(StarJoin) subject: " + subjectVar.getName() + " patterns: " + patterns.size();
+    }
+
+    @Override
+    public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final BindingSet bindings) throws QueryEvaluationException {
+        final Value subjectValue = valueOf(subjectVar, bindings);
+        if (subjectValue != null && !(subjectValue instanceof IRI)) {
+            return new EmptyIteration<>();
+        }
+        final RyaIRI subject = subjectValue == null ? null : RdfToRyaConversions.convertIRI((IRI) subjectValue);
+
+        final List<Map.Entry<RyaIRI, RyaType>> starPatterns = new ArrayList<>();
+        for (final StatementPattern pattern : patterns) {
+            final RyaIRI predicate = RdfToRyaConversions.convertIRI((IRI) pattern.getPredicateVar().getValue());
+            final Value object = valueOf(pattern.getObjectVar(), bindings);
+            starPatterns.add(new AbstractMap.SimpleImmutableEntry<RyaIRI, RyaType>(predicate,
+                    object == null ? null : RdfToRyaConversions.convertValue(object)));
+        }
+
+        final CloseableIteration<List<RyaStatement>, RyaDAOException> joined;
+        try {
+            joined = starJoin.starJoin(conf, subject, starPatterns);
+        } catch (final RyaDAOException e) {
+            throw new QueryEvaluationException("Could not evaluate the star join.", e);
+        }
+
+        return new CloseableIteration<BindingSet, QueryEvaluationException>() {
+            private BindingSet next;
+
+            @Override
+            public boolean hasNext() throws QueryEvaluationException {
+                try {
+                    while (next == null && joined.hasNext()) {
+                        next = toBindingSet(joined.next(), bindings);
+                    }
+                } catch (final RyaDAOException e) {
+                    throw new QueryEvaluationException("Could not evaluate the star join.", e);
+                }
+                return next != null;
+            }
+
+            @Override
+            public BindingSet next() throws QueryEvaluationException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final BindingSet result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() throws QueryEvaluationException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() throws QueryEvaluationException {
+                try {
+                    joined.close();
+                } catch (final RyaDAOException e) {
+                    throw new QueryEvaluationException("Could not close the star join.", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return The input bindings with the subject and object of every joined
+     *   statement added, or {@code null} if a variable that is used more than
+     *   once was bound to different values.
+     */
+    private BindingSet toBindingSet(final List<RyaStatement> joined, final BindingSet bindings) {
+        final QueryBindingSet result = new QueryBindingSet(bindings);
+        if (!bind(result, subjectVar, RyaToRdfConversions.convertIRI(joined.get(0).getSubject()))) {
+            return null;
+        }
+        for (int i = 0; i < patterns.size(); i++) {
+            if (!bind(result, patterns.get(i).getObjectVar(), RyaToRdfConversions.convertValue(joined.get(i).getObject()))) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private static boolean bind(final QueryBindingSet bindings, final Var var, final Value value) {
+        if (var.hasValue()) {
+            return true;
+        }
+        final Value existing = bindings.getValue(var.getName());
+        if (existing == null) {
+            bindings.addBinding(var.getName(), value);
+            return true;
+        }
+        return existing.equals(value);
+    }
+
+    private static Value valueOf(final Var var, final BindingSet bindings) {
+        return var.hasValue() ? var.getValue() : bindings.getValue(var.getName());
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof StarJoinTupleSet)) {
+            return false;
+        }
+        return patterns.equals(((StarJoinTupleSet) other).patterns);
+    }
+
+    @Override
+    public int hashCode() {
+        return patterns.hashCode();
+    }
+}
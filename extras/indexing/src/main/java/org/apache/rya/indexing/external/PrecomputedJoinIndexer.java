@@ -174,6 +174,19 @@ public class PrecomputedJoinIndexer extends AbstractAccumuloIndexer {
         }
     }
 
+    @Override
+    public void deleteStatements(final Collection<RyaStatement> statements)
+            throws IOException {
+        checkNotNull(statements);
+        try {
+            updaterSupplier.get().deleteStatements(statements);
+        } catch (final PcjUpdateException e) {
+            throw new IOException(
+                    "Could not update the PCJs by removing the provided statements.",
+                    e);
+        }
+    }
+
     @Override
     public void flush() throws IOException {
         try {
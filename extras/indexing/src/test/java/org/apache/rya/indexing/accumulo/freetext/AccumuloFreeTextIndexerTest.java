@@ -18,39 +18,59 @@
  */
 package org.apache.rya.indexing.accumulo.freetext;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
 import org.apache.rya.accumulo.AccumuloRdfConfiguration;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
 import org.apache.rya.api.resolver.RyaToRdfConversions;
+import org.apache.rya.indexing.IndexingExpr;
+import org.apache.rya.indexing.ScoredStatement;
 import org.apache.rya.indexing.StatementConstraints;
+import org.apache.rya.indexing.StatementSerializer;
 import org.apache.rya.indexing.accumulo.ConfigUtils;
+import org.apache.rya.indexing.accumulo.freetext.iterators.TopKScoringIterator;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 
@@ -244,6 +264,164 @@ public class AccumuloFreeTextIndexerTest {
         }
     }
 
+    @Test
+    public void testRankedSearch() throws Exception {
+        // Put every document in the same shard so they are all scored with the same statistics.
+        conf.setInt(ConfigUtils.FREETEXT_DOC_NUM_PARTITIONS, 1);
+
+        try (AccumuloFreeTextIndexer f = new AccumuloFreeTextIndexer()) {
+            f.setConf(conf);
+            f.setMultiTableBatchWriter(ConfigUtils.createMultitableBatchWriter(conf));
+            f.init();
+
+            ValueFactory vf = SimpleValueFactory.getInstance();
+
+            Statement hats = vf.createStatement(vf.createIRI("foo:subj1"), RDFS.LABEL, vf.createLiteral("hat hat hat"));
+            Statement hatAndCoat = vf.createStatement(vf.createIRI("foo:subj2"), RDFS.LABEL, vf.createLiteral("hat coat"));
+            Statement noHat = vf.createStatement(vf.createIRI("foo:subj3"), RDFS.LABEL, vf.createLiteral("coat scarf gloves"));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hats));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hatAndCoat));
+            f.storeStatement(RdfToRyaConversions.convertStatement(noHat));
+            f.flush();
+
+            // Only the best match is returned.
+            List<Statement> best = getList(f.queryText("hat", EMPTY_CONSTRAINTS, 1));
+            Assert.assertEquals(Lists.newArrayList(hats), best);
+
+            // Every match is returned from the best to the worst.
+            List<Statement> all = getList(f.queryText("hat", EMPTY_CONSTRAINTS, 10));
+            Assert.assertEquals(Lists.newArrayList(hats, hatAndCoat), all);
+            double firstScore = ((ScoredStatement) all.get(0)).getScore();
+            double secondScore = ((ScoredStatement) all.get(1)).getScore();
+            Assert.assertTrue(firstScore > secondScore);
+            Assert.assertTrue(secondScore > 0.0);
+
+            // Negated terms filter but do not contribute to the score.
+            Assert.assertEquals(Lists.newArrayList(hats), getList(f.queryText("hat & !coat", EMPTY_CONSTRAINTS, 10)));
+
+            // Deleting a document removes it from the ranking.
+            f.deleteStatement(RdfToRyaConversions.convertStatement(hats));
+            f.flush();
+            Assert.assertEquals(Lists.newArrayList(hatAndCoat), getList(f.queryText("hat", EMPTY_CONSTRAINTS, 10)));
+        }
+    }
+
+    @Test
+    public void testScoreWithoutLimit() throws Exception {
+        conf.setInt(ConfigUtils.FREETEXT_DOC_NUM_PARTITIONS, 1);
+
+        try (AccumuloFreeTextIndexer f = new AccumuloFreeTextIndexer()) {
+            f.setConf(conf);
+            f.setMultiTableBatchWriter(ConfigUtils.createMultitableBatchWriter(conf));
+            f.init();
+
+            ValueFactory vf = SimpleValueFactory.getInstance();
+
+            Statement hats = vf.createStatement(vf.createIRI("foo:subj1"), RDFS.LABEL, vf.createLiteral("hat hat hat"));
+            Statement hatAndCoat = vf.createStatement(vf.createIRI("foo:subj2"), RDFS.LABEL, vf.createLiteral("hat coat"));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hats));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hatAndCoat));
+            f.flush();
+
+            // fts:text(?o, "hat", ?score) binds the score without limiting the matches.
+            StatementPattern pattern = new StatementPattern(new Var("s"), new Var("p"), new Var("o"));
+            IndexingExpr filterInfo = new IndexingExpr(vf.createIRI("http://rdf.useekm.com/fts#text"), pattern,
+                    vf.createLiteral("hat"), new Var("score"));
+            FreeTextTupleSet tupleSet = new FreeTextTupleSet(filterInfo, f);
+
+            Assert.assertEquals(Sets.newHashSet("s", "p", "o", "score"), tupleSet.getBindingNames());
+            Assert.assertEquals(Sets.newHashSet("s", "p", "o"), filterInfo.getBindingNames());
+
+            List<BindingSet> results = getList(tupleSet.evaluate(new EmptyBindingSet()));
+            Assert.assertEquals(2, results.size());
+            Assert.assertEquals(hats.getSubject(), results.get(0).getValue("s"));
+            Assert.assertEquals(hatAndCoat.getSubject(), results.get(1).getValue("s"));
+            double firstScore = ((Literal) results.get(0).getValue("score")).doubleValue();
+            double secondScore = ((Literal) results.get(1).getValue("score")).doubleValue();
+            Assert.assertTrue(firstScore > secondScore);
+        }
+    }
+
+    @Test
+    public void testTopKIteratorDeepCopy() throws Exception {
+        conf.setInt(ConfigUtils.FREETEXT_DOC_NUM_PARTITIONS, 1);
+
+        try (AccumuloFreeTextIndexer f = new AccumuloFreeTextIndexer()) {
+            f.setConf(conf);
+            f.setMultiTableBatchWriter(ConfigUtils.createMultitableBatchWriter(conf));
+            f.init();
+
+            ValueFactory vf = SimpleValueFactory.getInstance();
+
+            Statement hats = vf.createStatement(vf.createIRI("foo:subj1"), RDFS.LABEL, vf.createLiteral("hat hat hat"));
+            Statement hatAndCoat = vf.createStatement(vf.createIRI("foo:subj2"), RDFS.LABEL, vf.createLiteral("hat coat"));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hats));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hatAndCoat));
+            f.flush();
+
+            // Run the iterator over a copy of the document table.
+            SortedMap<Key, org.apache.accumulo.core.data.Value> table = new TreeMap<>();
+            Scanner scanner = ConfigUtils.getConnector(conf).createScanner(AccumuloFreeTextIndexer.getFreeTextDocTablename(conf),
+                    Authorizations.EMPTY);
+            for (Entry<Key, org.apache.accumulo.core.data.Value> entry : scanner) {
+                table.put(entry.getKey(), entry.getValue());
+            }
+
+            IteratorSetting setting = new IteratorSetting(20, "topKScoring", TopKScoringIterator.class);
+            TopKScoringIterator.setQuery(setting, "hat");
+            TopKScoringIterator.setK(setting, 1);
+            TopKScoringIterator iterator = new TopKScoringIterator();
+            iterator.init(new SortedMapIterator(table), setting.getOptions(), null);
+
+            SortedKeyValueIterator<Key, org.apache.accumulo.core.data.Value> copy = iterator.deepCopy(null);
+            copy.seek(new Range(), Collections.<ByteSequence> emptyList(), false);
+            Assert.assertTrue(copy.hasTop());
+            org.apache.accumulo.core.data.Value document = TopKScoringIterator.decodeDocument(copy.getTopValue());
+            Assert.assertEquals(hats, StatementSerializer.readStatement(Text.decode(document.get(), 0, document.getSize())));
+            Assert.assertTrue(TopKScoringIterator.decodeScore(copy.getTopValue()) > 0.0);
+            copy.next();
+            Assert.assertFalse(copy.hasTop());
+
+            // The original is positioned independently of the copy.
+            iterator.seek(new Range(), Collections.<ByteSequence> emptyList(), false);
+            Assert.assertTrue(iterator.hasTop());
+        }
+    }
+
+    @Test
+    public void testRankingStatsIgnoreRepeatedWrites() throws Exception {
+        // Put every document in the same shard so they are all scored with the same statistics.
+        conf.setInt(ConfigUtils.FREETEXT_DOC_NUM_PARTITIONS, 1);
+
+        try (AccumuloFreeTextIndexer f = new AccumuloFreeTextIndexer()) {
+            f.setConf(conf);
+            f.setMultiTableBatchWriter(ConfigUtils.createMultitableBatchWriter(conf));
+            f.init();
+
+            ValueFactory vf = SimpleValueFactory.getInstance();
+
+            Statement hats = vf.createStatement(vf.createIRI("foo:subj1"), RDFS.LABEL, vf.createLiteral("hat hat hat"));
+            Statement hatAndCoat = vf.createStatement(vf.createIRI("foo:subj2"), RDFS.LABEL, vf.createLiteral("hat coat"));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hats));
+            f.storeStatement(RdfToRyaConversions.convertStatement(hatAndCoat));
+            f.flush();
+            double score = getScore(f, "hat");
+
+            // Storing a document again does not count it again.
+            f.storeStatement(RdfToRyaConversions.convertStatement(hats));
+            f.flush();
+            Assert.assertEquals(score, getScore(f, "hat"), 0.0);
+
+            // Deleting a document again does not remove it from the statistics again.
+            f.deleteStatement(RdfToRyaConversions.convertStatement(hatAndCoat));
+            f.flush();
+            score = getScore(f, "hat");
+            f.deleteStatement(RdfToRyaConversions.convertStatement(hatAndCoat));
+            f.flush();
+            Assert.assertEquals(score, getScore(f, "hat"), 0.0);
+        }
+    }
+
     public static void printTables(Configuration conf) throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
         TableOperations tops = ConfigUtils.getConnector(conf).tableOperations();
 
@@ -262,6 +440,20 @@ public class AccumuloFreeTextIndexerTest {
 
     }
 
+    private static double getScore(AccumuloFreeTextIndexer f, String query) throws Exception {
+        List<Statement> best = getList(f.queryText(query, EMPTY_CONSTRAINTS, 1));
+        Assert.assertEquals(1, best.size());
+        return ((ScoredStatement) best.get(0)).getScore();
+    }
+
+    private static <X> List<X> getList(CloseableIteration<X, ?> iter) throws Exception {
+        List<X> list = new ArrayList<X>();
+        while (iter.hasNext()) {
+            list.add(iter.next());
+        }
+        return list;
+    }
+
     private static <X> Set<X> getSet(CloseableIteration<X, ?> iter) throws Exception {
         Set<X> set = new HashSet<X>();
         while (iter.hasNext()) {
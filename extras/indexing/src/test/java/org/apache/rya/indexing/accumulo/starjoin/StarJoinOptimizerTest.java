@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.accumulo.starjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.indexing.accumulo.ConfigUtils;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link StarJoinOptimizer} and {@link StarJoinTupleSet}.
+ */
+public class StarJoinOptimizerTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final String QUERY =
+            "SELECT ?person ?company ?city ?name WHERE { " +
+            "  ?person <urn:worksAt> ?company . " +
+            "  ?person <urn:livesIn> ?city . " +
+            "  ?company <urn:name> ?name . " +
+            "}";
+
+    private AccumuloRdfConfiguration conf;
+    private AccumuloRyaDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        conf = new AccumuloRdfConfiguration();
+        conf.useMockInstance(true);
+        conf.setAccumuloInstance("starJoinInstance");
+        conf.setAccumuloUser("root");
+        conf.setAccumuloPassword("");
+        conf.setTablePrefix("starjoin_");
+        conf.setUseStarJoin(true);
+
+        dao = new AccumuloRyaDAO();
+        dao.setConnector(ConfigUtils.getConnector(conf));
+        dao.setConf(conf);
+        dao.init();
+        dao.add(Arrays.asList(
+                new RyaStatement(new RyaIRI("urn:alice"), new RyaIRI("urn:worksAt"), new RyaIRI("urn:acme")),
+                new RyaStatement(new RyaIRI("urn:alice"), new RyaIRI("urn:livesIn"), new RyaIRI("urn:boston")),
+                new RyaStatement(new RyaIRI("urn:bob"), new RyaIRI("urn:worksAt"), new RyaIRI("urn:acme"))).iterator());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dao.purge(conf);
+        dao.destroy();
+    }
+
+    @Test
+    public void optimize_replacesSharedSubjectPatterns() throws Exception {
+        final TupleExpr query = optimize(QUERY);
+
+        final List<StarJoinTupleSet> starJoins = getStarJoins(query);
+        assertEquals(1, starJoins.size());
+        assertEquals(2, starJoins.get(0).getPatterns().size());
+        for (final StatementPattern pattern : starJoins.get(0).getPatterns()) {
+            assertEquals("person", pattern.getSubjectVar().getName());
+        }
+
+        // The pattern that does not share the subject is still evaluated on its own.
+        assertEquals(1, StatementPatternCollector.process(query).size());
+    }
+
+    @Test
+    public void optimize_disabled() throws Exception {
+        conf.setUseStarJoin(false);
+        final TupleExpr query = optimize(QUERY);
+
+        assertTrue(getStarJoins(query).isEmpty());
+        assertEquals(3, StatementPatternCollector.process(query).size());
+    }
+
+    @Test
+    public void evaluate() throws Exception {
+        final StarJoinTupleSet starJoin = getStarJoins(optimize(QUERY)).get(0);
+
+        final List<BindingSet> results = evaluate(starJoin, new EmptyBindingSet());
+        assertEquals(1, results.size());
+        assertEquals(VF.createIRI("urn:alice"), results.get(0).getValue("person"));
+        assertEquals(VF.createIRI("urn:acme"), results.get(0).getValue("company"));
+        assertEquals(VF.createIRI("urn:boston"), results.get(0).getValue("city"));
+    }
+
+    @Test
+    public void evaluate_boundSubject() throws Exception {
+        final StarJoinTupleSet starJoin = getStarJoins(optimize(QUERY)).get(0);
+
+        final QueryBindingSet bindings = new QueryBindingSet();
+        bindings.addBinding("person", VF.createIRI("urn:bob"));
+        assertTrue(evaluate(starJoin, bindings).isEmpty());
+
+        bindings.setBinding("person", VF.createIRI("urn:alice"));
+        final List<BindingSet> results = evaluate(starJoin, bindings);
+        assertEquals(1, results.size());
+        final Set<String> names = new HashSet<>(Arrays.asList("person", "company", "city"));
+        assertEquals(names, results.get(0).getBindingNames());
+    }
+
+    private TupleExpr optimize(final String sparql) throws Exception {
+        final TupleExpr query = new SPARQLParser().parseQuery(sparql, null).getTupleExpr();
+        final StarJoinOptimizer optimizer = new StarJoinOptimizer();
+        optimizer.setConf(conf);
+        optimizer.optimize(query, null, null);
+        return query;
+    }
+
+    private static List<StarJoinTupleSet> getStarJoins(final TupleExpr query) {
+        final List<StarJoinTupleSet> starJoins = new ArrayList<>();
+        query.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meetOther(final QueryModelNode node) {
+                if (node instanceof StarJoinTupleSet) {
+                    starJoins.add((StarJoinTupleSet) node);
+                }
+                super.meetOther(node);
+            }
+        });
+        return starJoins;
+    }
+
+    private static List<BindingSet> evaluate(final StarJoinTupleSet starJoin, final BindingSet bindings) throws QueryEvaluationException {
+        final List<BindingSet> results = new ArrayList<>();
+        final CloseableIteration<BindingSet, QueryEvaluationException> it = starJoin.evaluate(bindings);
+        try {
+            while (it.hasNext()) {
+                results.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.benchmark.mongo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.rya.mongodb.document.util.DisjunctiveNormalFormConverter;
+import org.apache.rya.mongodb.document.util.DocumentVisibilityUtil;
+import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.base.Joiner;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A benchmark of the document visibility work that is done for every statement
+ * written through the MongoDB DAO: converting the statement's visibility into
+ * Disjunctive Normal Form and checking whether the writer has access to it.
+ * The label expressions are shaped like real markings: a classification,
+ * an AND of compartments, and an OR of releasability groups. To execute this
+ * benchmark, build the project and execute:
+ * <pre>
+ * java -cp benchmarks.jar org.apache.rya.benchmark.mongo.DocumentVisibilityBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@DefaultAnnotation(NonNull.class)
+public class DocumentVisibilityBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * The number of distinct label expressions that statements are written with.
+     */
+    private static final int DISTINCT_LABELS = 50;
+
+    /**
+     * Makes a label expression such as {@code CLS&(C1&C2)&(R1|R2|R3)} that uses
+     * about the requested number of terms.
+     */
+    private static String makeLabel(final Random random, final int terms) {
+        final int compartments = Math.max(1, terms / 3);
+        final int releasability = Math.max(1, terms - compartments - 1);
+        final List<String> and = new ArrayList<>();
+        for (int i = 0; i < compartments; i++) {
+            and.add("C" + random.nextInt(terms * 2));
+        }
+        final List<String> or = new ArrayList<>();
+        for (int i = 0; i < releasability; i++) {
+            or.add("R" + random.nextInt(terms * 2));
+        }
+        return "CLS" + random.nextInt(3) + "&(" + Joiner.on("&").join(and) + ")&(" + Joiner.on("|").join(or) + ")";
+    }
+
+    @State(Scope.Thread)
+    public static class LabelState {
+        @Param({"4", "12", "20"})
+        public int terms;
+
+        private final List<byte[]> labels = new ArrayList<>(BATCH_SIZE);
+        private Authorizations auths;
+
+        @Setup
+        public void setup() {
+            final Random random = new Random(terms);
+            final List<byte[]> distinct = new ArrayList<>(DISTINCT_LABELS);
+            for (int i = 0; i < DISTINCT_LABELS; i++) {
+                distinct.add(makeLabel(random, terms).getBytes(StandardCharsets.UTF_8));
+            }
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                labels.add(distinct.get(random.nextInt(DISTINCT_LABELS)));
+            }
+
+            // The writer holds about half of the terms that may appear.
+            final List<String> userAuths = new ArrayList<>();
+            userAuths.add("CLS0");
+            userAuths.add("CLS1");
+            for (int i = 0; i < terms * 2; i += 2) {
+                userAuths.add("C" + i);
+                userAuths.add("R" + i);
+            }
+            auths = new Authorizations(userAuths.toArray(new String[0]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<DocumentVisibility> convertToDnf(final LabelState state) {
+        final List<DocumentVisibility> converted = new ArrayList<>(BATCH_SIZE);
+        for (final byte[] label : state.labels) {
+            converted.add(DisjunctiveNormalFormConverter.createDnfDocumentVisibility(label));
+        }
+        return converted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int checkAccess(final LabelState state) {
+        int accepted = 0;
+        for (final byte[] label : state.labels) {
+            if (DocumentVisibilityUtil.doesUserHaveDocumentAccess(state.auths, label)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final OptionsBuilder opts = new OptionsBuilder();
+        opts.parent( new CommandLineOptions(args) );
+        opts.include(DocumentVisibilityBenchmark.class.getSimpleName());
+
+        new Runner(opts.build()).run();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.benchmark.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.mongodb.dao.BinaryHashMongoDBStorageStrategy;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.bson.Document;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A benchmark that compares the hex hash layout of {@link SimpleMongoDBStorageStrategy}
+ * against the binary hash layout of {@link BinaryHashMongoDBStorageStrategy}. It measures
+ * how quickly statements are serialized, how quickly they are inserted into an indexed
+ * triples collection, and logs the size of that collection's indices after each trial.
+ * The insert benchmark requires a running MongoDB server. To execute this benchmark,
+ * build the project and execute:
+ * <pre>
+ * java -cp benchmarks.jar org.apache.rya.benchmark.mongo.MongoHashLayoutBenchmark -p mongoHost=localhost -p mongoPort=27017
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@DefaultAnnotation(NonNull.class)
+public class MongoHashLayoutBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(MongoHashLayoutBenchmark.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Makes a batch of statements where the subjects and predicates repeat the way
+     * they do in real data and the objects are a mix of IRIs and unique literals.
+     */
+    private static List<RyaStatement> makeStatements(final long batch) {
+        final List<RyaStatement> statements = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final long id = batch * BATCH_SIZE + i;
+            final RyaIRI subject = new RyaIRI("urn:benchmark/person/" + (id / 10));
+            final RyaIRI predicate = new RyaIRI("urn:benchmark/predicate/" + (i % 10));
+            final RyaType object = i % 2 == 0 ?
+                    new RyaIRI("urn:benchmark/thing/" + (id % 1000)) :
+                    new RyaType(XMLSchema.STRING, "value " + id);
+            statements.add(new RyaStatement(subject, predicate, object));
+        }
+        return statements;
+    }
+
+    private static SimpleMongoDBStorageStrategy makeStrategy(final String layout) {
+        return "binary".equals(layout) ? new BinaryHashMongoDBStorageStrategy() : new SimpleMongoDBStorageStrategy();
+    }
+
+    @State(Scope.Thread)
+    public static class SerializeState {
+        @Param({"hex", "binary"})
+        public String layout;
+
+        private SimpleMongoDBStorageStrategy strategy;
+        private List<RyaStatement> statements;
+
+        @Setup
+        public void setup() {
+            strategy = makeStrategy(layout);
+            statements = makeStatements(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class InsertState {
+        @Param({"hex", "binary"})
+        public String layout;
+
+        @Param({"localhost"})
+        public String mongoHost;
+
+        @Param({"27017"})
+        public int mongoPort;
+
+        private MongoClient client;
+        private MongoCollection<Document> coll;
+        private SimpleMongoDBStorageStrategy strategy;
+        private long batch = 0;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            client = new MongoClient(mongoHost, mongoPort);
+            coll = client.getDatabase("rya_benchmark").getCollection("triples_" + layout);
+            coll.drop();
+            strategy = makeStrategy(layout);
+            strategy.createIndices(coll);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            final Document stats = client.getDatabase("rya_benchmark").runCommand(new Document("collStats", coll.getNamespace().getCollectionName()));
+            log.info("Layout {}: documents={}, totalIndexSize={} bytes, storageSize={} bytes",
+                    layout, stats.get("count"), stats.get("totalIndexSize"), stats.get("storageSize"));
+            coll.drop();
+            client.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Document> serialize(final SerializeState state) {
+        final List<Document> docs = new ArrayList<>(BATCH_SIZE);
+        for (final RyaStatement statement : state.statements) {
+            docs.add(state.strategy.serialize(statement));
+        }
+        return docs;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insert(final InsertState state) {
+        final List<Document> docs = new ArrayList<>(BATCH_SIZE);
+        for (final RyaStatement statement : makeStatements(state.batch++)) {
+            docs.add(state.strategy.serialize(statement));
+        }
+        state.coll.insertMany(docs);
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final OptionsBuilder opts = new OptionsBuilder();
+        opts.parent( new CommandLineOptions(args) );
+        opts.include(MongoHashLayoutBenchmark.class.getSimpleName());
+
+        new Runner(opts.build()).run();
+    }
+}
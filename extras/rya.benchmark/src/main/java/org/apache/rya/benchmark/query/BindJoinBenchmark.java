@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.benchmark.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.api.RdfCloudTripleStoreUtils.CustomEntry;
+import org.apache.rya.api.persist.query.ObjectFilter;
+import org.apache.rya.api.persist.query.ScanMetrics;
+import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection.StoreTripleSource;
+import org.apache.rya.rdftriplestore.evaluation.MultipleBindingSetsIterator;
+import org.apache.rya.rdftriplestore.evaluation.ParallelEvaluationStrategyImpl;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A benchmark that compares fixed size bind join batches against the
+ * adaptive batching used by {@link MultipleBindingSetsIterator}. It pivots over:
+ * <ul>
+ *     <li>The batching strategy: a fixed batch size, or "adaptive".</li>
+ *     <li>How many results each left hand binding joins with.</li>
+ *     <li>The simulated round trip latency of a single scan.</li>
+ * </ul>
+ * The store is simulated so the benchmark isolates the cost of round trips
+ * and buffering from the cost of Accumulo itself. Each scan parks for the
+ * round trip latency plus a small per range cost. To execute this benchmark,
+ * build the project and execute:
+ * <pre>
+ * java -cp benchmarks.jar org.apache.rya.benchmark.query.BindJoinBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@DefaultAnnotation(NonNull.class)
+public class BindJoinBenchmark {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final IRI PREDICATE = VF.createIRI("urn:predicate");
+
+    @Param({"100", "1000", "adaptive"})
+    public String batching;
+
+    @Param({"1", "20"})
+    public int fanOut;
+
+    @Param({"1", "10"})
+    public int roundTripMillis;
+
+    @Param({"20000"})
+    public int leftBindings;
+
+    private AccumuloRdfConfiguration conf;
+    private StatementPattern pattern;
+    private ParallelEvaluationStrategyImpl strategy;
+
+    @Setup
+    public void setup() {
+        conf = new AccumuloRdfConfiguration();
+        if("adaptive".equals(batching)) {
+            conf.setBindJoinBatchSize(1000);
+            conf.setBindJoinTargetLatency(roundTripMillis * 4L);
+        } else {
+            final int batchSize = Integer.parseInt(batching);
+            conf.setBindJoinBatchSize(batchSize);
+            conf.setBindJoinMinBatchSize(batchSize);
+            conf.setBindJoinMaxBatchSize(batchSize);
+        }
+
+        pattern = new StatementPattern(new Var("s"), new Var("p", PREDICATE), new Var("o"));
+        strategy = new ParallelEvaluationStrategyImpl(
+                new SimulatedTripleSource(conf, roundTripMillis, fanOut), null, null, conf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        strategy.shutdown();
+    }
+
+    @Benchmark
+    public long bindJoin() throws QueryEvaluationException {
+        final List<BindingSet> left = new ArrayList<>(leftBindings);
+        for(int i = 0; i < leftBindings; i++) {
+            final QueryBindingSet bs = new QueryBindingSet();
+            bs.addBinding("s", VF.createIRI("urn:subject" + i));
+            left.add(bs);
+        }
+
+        final MultipleBindingSetsIterator join = new MultipleBindingSetsIterator(strategy,
+                new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(left.iterator()), pattern, new QueryBindingSet());
+        long count = 0;
+        try {
+            while(join.hasNext()) {
+                join.next();
+                count++;
+            }
+        } finally {
+            join.close();
+        }
+        return count;
+    }
+
+    /**
+     * A triple source whose scans cost a fixed round trip plus a small amount
+     * per range, and that joins every range with {@code fanOut} statements.
+     */
+    private static class SimulatedTripleSource extends StoreTripleSource<AccumuloRdfConfiguration> {
+        private static final long PER_RANGE_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+
+        private final long roundTripNanos;
+        private final int fanOut;
+
+        public SimulatedTripleSource(final AccumuloRdfConfiguration conf, final int roundTripMillis, final int fanOut) {
+            super(conf, null);
+            this.roundTripNanos = TimeUnit.MILLISECONDS.toNanos(roundTripMillis);
+            this.fanOut = fanOut;
+        }
+
+        @Override
+        public CloseableIteration<? extends Entry<Statement, BindingSet>, QueryEvaluationException> getStatements(
+                final Collection<Map.Entry<Statement, BindingSet>> statements,
+                final ObjectFilter filter, final ScanMetrics metrics) throws QueryEvaluationException {
+            LockSupport.parkNanos(roundTripNanos + PER_RANGE_NANOS * statements.size());
+
+            final List<Entry<Statement, BindingSet>> results = new ArrayList<>(statements.size() * fanOut);
+            for(final Entry<Statement, BindingSet> entry : statements) {
+                final Statement query = entry.getKey();
+                for(int i = 0; i < fanOut; i++) {
+                    final Statement result = VF.createStatement(query.getSubject(), PREDICATE, VF.createLiteral(i));
+                    results.add(new CustomEntry<Statement, BindingSet>(result, entry.getValue()));
+                }
+            }
+            return new CloseableIteratorIteration<Entry<Statement, BindingSet>, QueryEvaluationException>(results.iterator());
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final OptionsBuilder opts = new OptionsBuilder();
+        opts.parent( new CommandLineOptions(args) );
+        opts.include(BindJoinBenchmark.class.getSimpleName());
+
+        new Runner(opts.build()).run();
+    }
+}
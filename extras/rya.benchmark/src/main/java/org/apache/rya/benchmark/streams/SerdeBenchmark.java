@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.benchmark.streams;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.apache.rya.api.model.VisibilityStatement;
+import org.apache.rya.streams.kafka.serialization.ObjectSerialization;
+import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetDeserializer;
+import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetSerializer;
+import org.apache.rya.streams.kafka.serialization.VisibilityStatementDeserializer;
+import org.apache.rya.streams.kafka.serialization.VisibilityStatementSerializer;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A benchmark that compares the binary serialization used by the Rya Streams
+ * serdes against the Java object serialization they used to rely on. It pivots
+ * over the number of bindings within the serialized {@link VisibilityBindingSet}.
+ * The serialized size of each format is logged during setup. To execute this
+ * benchmark, build the project and execute:
+ * <pre>
+ * java -cp benchmarks.jar org.apache.rya.benchmark.streams.SerdeBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@DefaultAnnotation(NonNull.class)
+public class SerdeBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(SerdeBenchmark.class);
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Param({"1", "5", "20"})
+    public int bindings;
+
+    private final Serializer<VisibilityBindingSet> bsSerializer = new VisibilityBindingSetSerializer();
+    private final Deserializer<VisibilityBindingSet> bsDeserializer = new VisibilityBindingSetDeserializer();
+    private final Serializer<VisibilityStatement> stmtSerializer = new VisibilityStatementSerializer();
+    private final Deserializer<VisibilityStatement> stmtDeserializer = new VisibilityStatementDeserializer();
+
+    private VisibilityBindingSet bindingSet;
+    private VisibilityStatement statement;
+
+    private byte[] binaryBindingSet;
+    private byte[] javaBindingSet;
+    private byte[] binaryStatement;
+    private byte[] javaStatement;
+
+    @Setup
+    public void setup() throws Exception {
+        final MapBindingSet bs = new MapBindingSet();
+        for(int i = 0; i < bindings; i++) {
+            switch(i % 4) {
+                case 0:
+                    bs.addBinding("person" + i, VF.createIRI("urn:people/person" + i));
+                    break;
+                case 1:
+                    bs.addBinding("name" + i, VF.createLiteral("Alice " + i));
+                    break;
+                case 2:
+                    bs.addBinding("age" + i, VF.createLiteral(20 + i));
+                    break;
+                default:
+                    bs.addBinding("born" + i, VF.createLiteral("1990-01-01T00:00:00Z", XMLSchema.DATETIME));
+                    break;
+            }
+        }
+        bindingSet = new VisibilityBindingSet(bs, "(a&b)|c");
+        statement = new VisibilityStatement(VF.createStatement(
+                VF.createIRI("urn:people/alice"),
+                VF.createIRI("urn:hasAge"),
+                VF.createLiteral(37),
+                VF.createIRI("urn:context")), "(a&b)|c");
+
+        binaryBindingSet = bsSerializer.serialize("topic", bindingSet);
+        javaBindingSet = ObjectSerialization.serialize(bindingSet);
+        binaryStatement = stmtSerializer.serialize("topic", statement);
+        javaStatement = ObjectSerialization.serialize(statement);
+
+        log.info("Serialized sizes for {} bindings. Binding set bytes: binary={}, java={}; Statement bytes: binary={}, java={}",
+                bindings, binaryBindingSet.length, javaBindingSet.length, binaryStatement.length, javaStatement.length);
+    }
+
+    @Benchmark
+    public byte[] bindingSet_serializeBinary() {
+        return bsSerializer.serialize("topic", bindingSet);
+    }
+
+    @Benchmark
+    public byte[] bindingSet_serializeJava() throws Exception {
+        return ObjectSerialization.serialize(bindingSet);
+    }
+
+    @Benchmark
+    public VisibilityBindingSet bindingSet_deserializeBinary() {
+        return bsDeserializer.deserialize("topic", binaryBindingSet);
+    }
+
+    @Benchmark
+    public VisibilityBindingSet bindingSet_deserializeJava() throws Exception {
+        return ObjectSerialization.deserialize(javaBindingSet, VisibilityBindingSet.class);
+    }
+
+    @Benchmark
+    public byte[] statement_serializeBinary() {
+        return stmtSerializer.serialize("topic", statement);
+    }
+
+    @Benchmark
+    public byte[] statement_serializeJava() throws Exception {
+        return ObjectSerialization.serialize(statement);
+    }
+
+    @Benchmark
+    public VisibilityStatement statement_deserializeBinary() {
+        return stmtDeserializer.deserialize("topic", binaryStatement);
+    }
+
+    @Benchmark
+    public VisibilityStatement statement_deserializeJava() throws Exception {
+        return ObjectSerialization.deserialize(javaStatement, VisibilityStatement.class);
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final OptionsBuilder opts = new OptionsBuilder();
+        opts.parent( new CommandLineOptions(args) );
+        opts.include(SerdeBenchmark.class.getSimpleName());
+
+        new Runner(opts.build()).run();
+    }
+}
@@ -75,7 +75,8 @@ public class MongoRyaStatementStore implements RyaStatementStore {
         ryaInstanceName = checkNotNull(ryaInstance);
         this.dao = checkNotNull(dao);
         db = this.client.getDatabase(ryaInstanceName);
-        adapter = new SimpleMongoDBStorageStrategy();
+        // Read and match triples with the layout the DAO writes them in.
+        adapter = SimpleMongoDBStorageStrategy.fromConfiguration(dao.getConf());
         parentMetadataRepo = new MongoParentMetadataRepository(client, ryaInstance);
     }
 
@@ -125,6 +126,13 @@ public class MongoRyaStatementStore implements RyaStatementStore {
         return client;
     }
 
+    /**
+     * @return The {@link SimpleMongoDBStorageStrategy} that reads and writes the triples of the rya instance.
+     */
+    public SimpleMongoDBStorageStrategy getStorageStrategy() {
+        return adapter;
+    }
+
     @Override
     public void updateStatement(final RyaStatement original, final RyaStatement update) throws UpdateStatementException {
         //Since mongo does not support visibility, this does nothing for mongo.
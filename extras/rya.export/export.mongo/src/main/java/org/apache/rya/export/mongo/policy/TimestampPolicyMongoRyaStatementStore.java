@@ -55,7 +55,7 @@ public class TimestampPolicyMongoRyaStatementStore extends TimestampPolicyStatem
      */
     public TimestampPolicyMongoRyaStatementStore(final MongoRyaStatementStore store, final Date timestamp, final String ryaInstanceName) {
         super(store, timestamp);
-        adapter = new SimpleMongoDBStorageStrategy();
+        adapter = store.getStorageStrategy();
         db = store.getClient().getDatabase(ryaInstanceName);
     }
 
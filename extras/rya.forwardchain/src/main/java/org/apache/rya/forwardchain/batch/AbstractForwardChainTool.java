@@ -30,6 +30,7 @@ import org.apache.rya.forwardchain.strategy.AbstractRuleExecutionStrategy;
 import org.apache.rya.forwardchain.strategy.MongoPipelineStrategy;
 import org.apache.rya.forwardchain.strategy.RoundRobinStrategy;
 import org.apache.rya.forwardchain.strategy.SailExecutionStrategy;
+import org.apache.rya.forwardchain.strategy.SemiNaiveStrategy;
 import org.apache.rya.indexing.accumulo.ConfigUtils;
 import org.apache.rya.mongodb.MongoDBRdfConfiguration;
 import com.google.common.base.Preconditions;
@@ -48,6 +49,25 @@ import com.google.common.base.Preconditions;
 public abstract class AbstractForwardChainTool implements Tool {
     private static final Logger logger = Logger.getLogger(AbstractForwardChainTool.class);
 
+    /**
+     * If true, use a {@link SemiNaiveStrategy} rather than the default
+     * {@link RoundRobinStrategy}.
+     */
+    public static final String CONF_SEMI_NAIVE = "rya.forwardchain.seminaive";
+
+    /**
+     * Number of rules a {@link SemiNaiveStrategy} may execute at once.
+     * Defaults to the number of available processors.
+     */
+    public static final String CONF_NUM_THREADS = "rya.forwardchain.threads";
+
+    /**
+     * Maximum number of inferred statements a {@link SemiNaiveStrategy} tracks
+     * per iteration; if more are inferred, the next iteration is evaluated in
+     * full.
+     */
+    public static final String CONF_MAX_DELTA_SIZE = "rya.forwardchain.delta.max";
+
     private RdfCloudTripleStoreConfiguration conf;
 
     private long numInferences = 0;
@@ -98,12 +118,20 @@ public abstract class AbstractForwardChainTool implements Tool {
      * Get the high-level {@link AbstractForwardChainStrategy} that governs how
      * reasoning will proceed. By default, returns a {@link RoundRobinStrategy}
      * which executes each relevant rule one-by-one, then moves to the next
-     * iteration and repeats, until no rules are still relevant. Subclasses may
-     * override this method to provide alternative strategies.
+     * iteration and repeats, until no rules are still relevant. If
+     * {@link #CONF_SEMI_NAIVE} is set, returns a {@link SemiNaiveStrategy}
+     * instead, which restricts each iteration to new information and may
+     * execute independent rules in parallel. Subclasses may override this
+     * method to provide alternative strategies.
      * @return The high-level forward chaining logic.
      * @throws ForwardChainException if the strategy can't be instantiated.
      */
     protected AbstractForwardChainStrategy getStrategy() throws ForwardChainException {
+        if (conf.getBoolean(CONF_SEMI_NAIVE, false)) {
+            return new SemiNaiveStrategy(getRuleStrategy(),
+                    conf.getInt(CONF_NUM_THREADS, Runtime.getRuntime().availableProcessors()),
+                    conf.getInt(CONF_MAX_DELTA_SIZE, SemiNaiveStrategy.DEFAULT_MAX_DELTA_SIZE));
+        }
         return new RoundRobinStrategy(getRuleStrategy());
     }
 
@@ -35,6 +35,17 @@ import org.apache.rya.forwardchain.rule.AbstractUpdateRule;
 public abstract class AbstractRuleExecutionStrategy {
     protected int requiredLevel = 0;
 
+    /**
+     * Statements inferred during the previous iteration, or null if unknown.
+     */
+    protected StatementDelta previousDelta = null;
+
+    /**
+     * Collects statements inferred during the current iteration, or null if
+     * they are not being tracked.
+     */
+    protected StatementDelta currentDelta = null;
+
     /**
      * Execute a rule corresponding to a "CONSTRUCT" query. Throws an
      * UnsupportedOperationException if not explicitly overridden.
@@ -105,4 +116,31 @@ public abstract class AbstractRuleExecutionStrategy {
     public void setRequiredLevel(int derivationLevel) {
         this.requiredLevel = derivationLevel;
     };
+
+    /**
+     * Provide the statements inferred during the previous iteration, and a
+     * delta to record statements inferred during the current one. Subclasses
+     * may restrict rule application to derivations that use at least one
+     * statement from the previous delta, if it is complete, but are not
+     * guaranteed to. Subclasses that support deltas should add every statement
+     * they infer to the current delta.
+     * @param previous Statements inferred during the previous iteration, or
+     *  null to apply rules to all statements.
+     * @param current Collects statements inferred during the current
+     *  iteration, or null to not track them.
+     */
+    public void setDeltas(StatementDelta previous, StatementDelta current) {
+        this.previousDelta = previous;
+        this.currentDelta = current;
+    }
+
+    /**
+     * Whether this strategy may execute multiple rules at once from different
+     * threads. False by default; subclasses should override if they are safe
+     * to use concurrently.
+     * @return true if rules may be executed concurrently.
+     */
+    public boolean supportsConcurrentExecution() {
+        return false;
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.forwardchain.strategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Distinct;
+import org.eclipse.rdf4j.query.algebra.Extension;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.MultiProjection;
+import org.eclipse.rdf4j.query.algebra.Projection;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.Reduced;
+import org.eclipse.rdf4j.query.algebra.SingletonSet;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+/**
+ * Rewrites a rule's query so that it only finds solutions which use at least
+ * one statement from a {@link StatementDelta}. For each statement pattern in
+ * the query, one copy of the query is made in which that pattern is replaced
+ * by the delta statements that match it; the union of the copies' solutions
+ * is every solution that uses a delta statement.
+ * <p>
+ * This is only sound if the query is monotonic in its statement patterns, so
+ * only queries made of joins, filters, extensions, projections, and duplicate
+ * removal are rewritten, and only if no statement patterns appear within
+ * filter conditions or extension expressions (e.g. FILTER NOT EXISTS).
+ */
+final class DeltaQueryRewriter {
+    private DeltaQueryRewriter() { }
+
+    /**
+     * Restrict a query to solutions that use at least one delta statement.
+     * @param query The query to restrict; not modified.
+     * @param delta The statements at least one of which each solution must use.
+     * @return The queries whose solutions together are the restricted
+     *  solutions, which is empty if no delta statement matches any pattern;
+     *  or null if the query can't be restricted and must be evaluated in full.
+     */
+    static List<TupleExpr> restrict(TupleExpr query, Collection<Statement> delta) {
+        List<StatementPattern> patterns = new ArrayList<>();
+        if (!collectPositivePatterns(query, patterns) || patterns.size() != countPatterns(query)) {
+            return null;
+        }
+        List<TupleExpr> restricted = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            StatementPattern sp = patterns.get(i);
+            List<BindingSet> matches = new ArrayList<>();
+            for (Statement statement : delta) {
+                BindingSet bs = match(sp, statement);
+                if (bs != null) {
+                    matches.add(bs);
+                }
+            }
+            if (matches.isEmpty()) {
+                continue;
+            }
+            TupleExpr copy = query.clone();
+            List<StatementPattern> copyPatterns = new ArrayList<>();
+            collectPositivePatterns(copy, copyPatterns);
+            BindingSetAssignment assignment = new BindingSetAssignment();
+            assignment.setBindingNames(getVariableNames(sp));
+            assignment.setBindingSets(matches);
+            copyPatterns.get(i).replaceWith(assignment);
+            restricted.add(copy);
+        }
+        return restricted;
+    }
+
+    private static boolean collectPositivePatterns(TupleExpr expr, List<StatementPattern> patterns) {
+        if (expr instanceof StatementPattern) {
+            patterns.add((StatementPattern) expr);
+            return true;
+        }
+        else if (expr instanceof Join) {
+            Join join = (Join) expr;
+            return collectPositivePatterns(join.getLeftArg(), patterns)
+                    && collectPositivePatterns(join.getRightArg(), patterns);
+        }
+        else if (expr instanceof QueryRoot || expr instanceof Projection
+                || expr instanceof MultiProjection || expr instanceof Extension
+                || expr instanceof Filter || expr instanceof Distinct
+                || expr instanceof Reduced) {
+            return collectPositivePatterns(((UnaryTupleOperator) expr).getArg(), patterns);
+        }
+        return expr instanceof SingletonSet || expr instanceof BindingSetAssignment;
+    }
+
+    private static int countPatterns(TupleExpr expr) {
+        List<StatementPattern> patterns = new ArrayList<>();
+        expr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(StatementPattern sp) {
+                patterns.add(sp);
+            }
+        });
+        return patterns.size();
+    }
+
+    private static Set<String> getVariableNames(StatementPattern sp) {
+        Set<String> names = new HashSet<>();
+        for (Var var : sp.getVarList()) {
+            if (!var.hasValue()) {
+                names.add(var.getName());
+            }
+        }
+        return names;
+    }
+
+    private static BindingSet match(StatementPattern sp, Statement statement) {
+        QueryBindingSet bs = new QueryBindingSet();
+        if (bind(sp.getSubjectVar(), statement.getSubject(), bs)
+                && bind(sp.getPredicateVar(), statement.getPredicate(), bs)
+                && bind(sp.getObjectVar(), statement.getObject(), bs)
+                && (sp.getContextVar() == null || bind(sp.getContextVar(), statement.getContext(), bs))) {
+            return bs;
+        }
+        return null;
+    }
+
+    private static boolean bind(Var var, Value value, QueryBindingSet bs) {
+        if (value == null) {
+            return false;
+        }
+        if (var.hasValue()) {
+            return var.getValue().equals(value);
+        }
+        Value bound = bs.getValue(var.getName());
+        if (bound != null) {
+            return bound.equals(value);
+        }
+        bs.addBinding(var.getName(), value);
+        return true;
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.rya.api.domain.StatementMetadata;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.query.RyaQuery;
 import org.apache.rya.api.persist.query.RyaQueryEngine;
+import org.apache.rya.api.resolver.RyaToRdfConversions;
 import org.apache.rya.forwardchain.ForwardChainException;
 import org.apache.rya.forwardchain.rule.AbstractConstructRule;
 import org.apache.rya.forwardchain.rule.Rule;
@@ -69,7 +70,7 @@ public class MongoPipelineStrategy extends AbstractRuleExecutionStrategy {
     private final MongoCollection<Document> baseCollection;
     private final MongoDbBatchWriter<Document> batchWriter;
     private final MongoDBRyaDAO dao;
-    private final SimpleMongoDBStorageStrategy storageStrategy = new SimpleMongoDBStorageStrategy();
+    private final SimpleMongoDBStorageStrategy storageStrategy;
     private final ConcurrentHashMap<Rule, Long> executionTimes = new ConcurrentHashMap<>();
     private final AbstractRuleExecutionStrategy backup;
     private final RyaQueryEngine<StatefulMongoDBRdfConfiguration> engine;
@@ -104,7 +105,8 @@ public class MongoPipelineStrategy extends AbstractRuleExecutionStrategy {
         final MongoClient mongoClient = statefulConf.getMongoClient();
         final MongoDatabase mongoDB = mongoClient.getDatabase(mongoDBName);
         this.baseCollection = mongoDB.getCollection(collectionName);
-        this.pipelineVisitor = new SparqlToPipelineTransformVisitor(this.baseCollection);
+        this.storageStrategy = SimpleMongoDBStorageStrategy.fromConfiguration(statefulConf);
+        this.pipelineVisitor = new SparqlToPipelineTransformVisitor(this.baseCollection, this.storageStrategy);
         this.engine = this.dao.getQueryEngine();
         this.backup = new SailExecutionStrategy(statefulConf);
         final MongoDbBatchWriterConfig writerConfig = MongoDbBatchWriterUtils.getMongoDbBatchWriterConfig(statefulConf);
@@ -183,6 +185,9 @@ public class MongoPipelineStrategy extends AbstractRuleExecutionStrategy {
                     doc.replace(SimpleMongoDBStorageStrategy.STATEMENT_METADATA, metadata.toString());
                     try {
                         batchWriter.addObjectToQueue(doc);
+                        if (currentDelta != null) {
+                            currentDelta.add(RyaToRdfConversions.convertStatement(rstmt));
+                        }
                     } catch (final MongoDbBatchWriterException e) {
                         logger.error("Couldn't insert " + rstmt, e);
                     }
@@ -215,6 +220,16 @@ public class MongoPipelineStrategy extends AbstractRuleExecutionStrategy {
         }
     }
 
+    /**
+     * Pass the deltas on to the backup strategy as well, so rules that can't
+     * be converted to pipelines can be restricted to new information.
+     */
+    @Override
+    public void setDeltas(final StatementDelta previous, final StatementDelta current) {
+        super.setDeltas(previous, current);
+        backup.setDeltas(previous, current);
+    }
+
     /**
      * Flush and close the batch writer, and shut down the backup
      * SailExecutionStrategy.
@@ -18,6 +18,10 @@
  */
 package org.apache.rya.forwardchain.strategy;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.log4j.Logger;
@@ -39,6 +43,7 @@ import org.calrissian.mango.collect.CloseableIterable;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.parser.ParsedGraphQuery;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.sail.SailGraphQuery;
@@ -61,9 +66,8 @@ public class SailExecutionStrategy extends AbstractRuleExecutionStrategy {
     private final RdfCloudTripleStoreConfiguration conf;
 
     private SailRepository repo = null;
-    private SailRepositoryConnection conn = null;
     private RyaDAO<?> dao = null;
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
 
     /**
      * Initialize a SailExecutionStrategy with the given configuration.
@@ -91,23 +95,67 @@ public class SailExecutionStrategy extends AbstractRuleExecutionStrategy {
             initialize();
         }
         ParsedGraphQuery graphQuery = rule.getQuery();
-        long statementsAdded = 0;
         logger.info("Applying inference rule " + rule + "...");
         for (String line : graphQuery.getTupleExpr().toString().split("\n")) {
             logger.debug("\t" + line);
         }
-        InferredStatementHandler<?> handler = new InferredStatementHandler<>(dao, metadata);
+        List<ParsedGraphQuery> queries = getQueries(graphQuery);
+        InferredStatementHandler<?> handler = new InferredStatementHandler<>(dao, metadata, currentDelta);
+        SailRepositoryConnection conn = null;
         try {
-            GraphQuery executableQuery = new SailGraphQuery(graphQuery, conn) { };
-            executableQuery.evaluate(handler);
-            statementsAdded = handler.getNumStatementsAdded();
+            // Each execution gets its own connection so rules may be executed concurrently.
+            conn = repo.getConnection();
+            for (ParsedGraphQuery query : queries) {
+                GraphQuery executableQuery = new SailGraphQuery(query, conn) { };
+                executableQuery.evaluate(handler);
+            }
+            long statementsAdded = handler.getNumStatementsAdded();
             logger.info("Added " + statementsAdded + " inferred statements.");
             return statementsAdded;
         } catch (QueryEvaluationException e) {
             throw new ForwardChainException("Error evaluating query portion of construct rule", e);
         } catch (RDFHandlerException e) {
             throw new ForwardChainException("Error processing results of construct rule", e);
+        } catch (RepositoryException e) {
+            throw new ForwardChainException("Error connecting to SAIL", e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (RepositoryException e) {
+                    logger.warn("Error closing SailRepositoryConnection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * If the statements inferred during the previous iteration are known,
+     * restrict the query to solutions that use at least one of them.
+     * Otherwise, the query is evaluated in full.
+     */
+    private List<ParsedGraphQuery> getQueries(ParsedGraphQuery graphQuery) {
+        if (previousDelta != null && previousDelta.isComplete()) {
+            List<TupleExpr> restricted = DeltaQueryRewriter.restrict(graphQuery.getTupleExpr(),
+                    previousDelta.getStatements());
+            if (restricted != null) {
+                logger.debug("Restricted rule to " + previousDelta.getStatements().size()
+                        + " statements inferred during the previous iteration.");
+                List<ParsedGraphQuery> queries = new ArrayList<>();
+                for (TupleExpr tupleExpr : restricted) {
+                    ParsedGraphQuery query = new ParsedGraphQuery(tupleExpr);
+                    query.setDataset(graphQuery.getDataset());
+                    queries.add(query);
+                }
+                return queries;
+            }
         }
+        return Collections.singletonList(graphQuery);
+    }
+
+    @Override
+    public boolean supportsConcurrentExecution() {
+        return true;
     }
 
     /**
@@ -116,13 +164,15 @@ public class SailExecutionStrategy extends AbstractRuleExecutionStrategy {
      * @throws ForwardChainException if connecting fails.
      */
     @Override
-    public void initialize() throws ForwardChainException {
+    public synchronized void initialize() throws ForwardChainException {
+        if (initialized) {
+            return;
+        }
         try {
             if (dao == null) {
                 dao = getDAO();
             }
             repo = new SailRepository(RyaSailFactory.getInstance(conf));
-            conn = repo.getConnection();
             initialized = true;
         } catch (Exception e) {
             shutDown();
@@ -161,15 +211,8 @@ public class SailExecutionStrategy extends AbstractRuleExecutionStrategy {
      * Shut down the SAIL connection objects.
      */
     @Override
-    public void shutDown() {
+    public synchronized void shutDown() {
         initialized = false;
-        if (conn != null) {
-            try {
-                conn.close();
-            } catch (RepositoryException e) {
-                logger.warn("Error closing SailRepositoryConnection", e);
-            }
-        }
         if (repo != null && repo.isInitialized()) {
             try {
                 repo.shutDown();
@@ -191,11 +234,13 @@ public class SailExecutionStrategy extends AbstractRuleExecutionStrategy {
         private RyaQueryEngine<T> engine;
         private long numStatementsAdded = 0;
         private StatementMetadata metadata;
+        private StatementDelta delta;
 
-        InferredStatementHandler(RyaDAO<T> dao, StatementMetadata metadata) {
+        InferredStatementHandler(RyaDAO<T> dao, StatementMetadata metadata, StatementDelta delta) {
             this.dao = dao;
             this.engine = dao.getQueryEngine();
             this.metadata = metadata;
+            this.delta = delta;
             this.engine.setConf(dao.getConf());
         }
 
@@ -210,6 +255,9 @@ public class SailExecutionStrategy extends AbstractRuleExecutionStrategy {
                 if (!iter.iterator().hasNext()) {
                     dao.add(ryaStatement);
                     numStatementsAdded++;
+                    if (delta != null) {
+                        delta.add(statement);
+                    }
                 }
             } catch (RyaDAOException e) {
                 logger.error("Error handling inferred statement", e);
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.forwardchain.strategy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.domain.StatementMetadata;
+import org.apache.rya.forwardchain.ForwardChainConstants;
+import org.apache.rya.forwardchain.ForwardChainException;
+import org.apache.rya.forwardchain.rule.Rule;
+import org.apache.rya.forwardchain.rule.Ruleset;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An {@link AbstractForwardChainStrategy} that performs semi-naive evaluation:
+ * each iteration only looks for derivations that use at least one statement
+ * inferred during the previous iteration, rather than re-deriving everything
+ * from the full store.
+ * <p>
+ * Iteration 1 executes every rule in full. The statements inferred during each
+ * iteration are collected in a {@link StatementDelta}, which is handed to the
+ * {@link AbstractRuleExecutionStrategy} during the next iteration so that it
+ * can restrict each rule to joins touching the delta. If the delta grows too
+ * large to hold in memory, rules are executed in full during the next
+ * iteration instead. Only the successors, according to the {@link Ruleset},
+ * of rules that produced inferences are executed during the next iteration.
+ * Forward chaining ends when an iteration produces no inferences.
+ * <p>
+ * Within an iteration, rules are executed in waves of rules that can't trigger
+ * each other. If the rule execution strategy
+ * {@link AbstractRuleExecutionStrategy#supportsConcurrentExecution() supports
+ * it}, the rules of a wave are executed concurrently on a worker pool.
+ */
+public class SemiNaiveStrategy extends AbstractForwardChainStrategy {
+    private static final Logger logger = Logger.getLogger(SemiNaiveStrategy.class);
+
+    /**
+     * By default, track up to this many inferred statements per iteration.
+     */
+    public static final int DEFAULT_MAX_DELTA_SIZE = 100000;
+
+    private static final ThreadFactory WORKER_THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("Forward Chaining Worker - %d")
+            .setDaemon(true)
+            .build();
+
+    private final AbstractRuleExecutionStrategy ruleStrategy;
+    private final int numThreads;
+    private final int maxDeltaSize;
+    private ExecutorService workers;
+    private int iteration;
+    private Ruleset ruleset;
+    private Set<Rule> activeRules;
+    private StatementDelta delta;
+    private AtomicBoolean initialized = new AtomicBoolean(false);
+
+    /**
+     * Instantiate a SemiNaiveStrategy that uses a worker per available
+     * processor and tracks up to {@link #DEFAULT_MAX_DELTA_SIZE} statements
+     * per iteration.
+     * @param ruleStrategy Defines how to execute individual rules; not null.
+     */
+    public SemiNaiveStrategy(AbstractRuleExecutionStrategy ruleStrategy) {
+        this(ruleStrategy, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_DELTA_SIZE);
+    }
+
+    /**
+     * Instantiate a SemiNaiveStrategy.
+     * @param ruleStrategy Defines how to execute individual rules; not null.
+     * @param numThreads The number of rules that may be executed at once;
+     *  must be positive.
+     * @param maxDeltaSize The maximum number of inferred statements to track
+     *  per iteration; must be positive.
+     */
+    public SemiNaiveStrategy(AbstractRuleExecutionStrategy ruleStrategy, int numThreads, int maxDeltaSize) {
+        Preconditions.checkNotNull(ruleStrategy);
+        Preconditions.checkArgument(numThreads > 0, "Number of threads must be positive.");
+        Preconditions.checkArgument(maxDeltaSize > 0, "Max delta size must be positive.");
+        this.ruleStrategy = ruleStrategy;
+        this.numThreads = numThreads;
+        this.maxDeltaSize = maxDeltaSize;
+    }
+
+    @Override
+    public void initialize(Ruleset withRuleset) throws ForwardChainException {
+        Preconditions.checkNotNull(withRuleset);
+        iteration = 0;
+        ruleset = withRuleset;
+        activeRules = new HashSet<>(ruleset.getRules());
+        delta = null;
+        if (numThreads > 1 && ruleStrategy.supportsConcurrentExecution()) {
+            workers = Executors.newFixedThreadPool(numThreads, WORKER_THREAD_FACTORY);
+        }
+        logger.info("Initializing semi-naive forward chaining, with " +
+                activeRules.size() + " rules.");
+        initialized.set(true);
+        if (activeRules.isEmpty()) {
+            setDone();
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return initialized.get();
+    }
+
+    /**
+     * Execute one iteration: every active rule, restricted to the statements
+     * inferred during the previous iteration if they are known.
+     * @return The number of inferences made during the iteration.
+     * @throws ForwardChainException if any rule fails.
+     */
+    @Override
+    public long executeNext() throws ForwardChainException {
+        if (!initialized.get()) {
+            return 0;
+        }
+        ruleStrategy.setRequiredLevel(iteration);
+        iteration++;
+        StatementDelta inferred = new StatementDelta(maxDeltaSize);
+        ruleStrategy.setDeltas(delta, inferred);
+        logger.info("Beginning iteration " + iteration + ", with " + activeRules.size()
+                + " rules to execute" + (delta == null || !delta.isComplete() ? " in full..." :
+                    " against " + delta.getStatements().size() + " new statements..."));
+
+        long inferencesThisIteration = 0;
+        Set<Rule> activeNextIteration = new HashSet<>();
+        try {
+            for (Set<Rule> wave : getWaves(activeRules)) {
+                for (Map.Entry<Rule, Long> result : execute(wave).entrySet()) {
+                    inferencesThisIteration += result.getValue();
+                    if (result.getValue() > 0) {
+                        activeNextIteration.addAll(ruleset.getSuccessorsOf(result.getKey()));
+                    }
+                }
+            }
+        } catch (ForwardChainException | RuntimeException e) {
+            setDone();
+            throw e;
+        }
+
+        logger.info("Finished iteration " + iteration + "; made " +
+                inferencesThisIteration + " inferences.");
+        delta = inferred;
+        activeRules = activeNextIteration;
+        if (activeRules.isEmpty()) {
+            logger.info("Finished forward chaining after " + iteration + " iterations.");
+            setDone();
+        }
+        return inferencesThisIteration;
+    }
+
+    private Map<Rule, Long> execute(Set<Rule> wave) throws ForwardChainException {
+        Map<Rule, Long> results = new LinkedHashMap<>();
+        if (workers == null || wave.size() == 1) {
+            for (Rule rule : wave) {
+                results.put(rule, rule.execute(ruleStrategy, getMetadata()));
+            }
+            return results;
+        }
+        Map<Rule, Future<Long>> futures = new LinkedHashMap<>();
+        for (Rule rule : wave) {
+            futures.put(rule, workers.submit(() -> rule.execute(ruleStrategy, getMetadata())));
+        }
+        try {
+            for (Map.Entry<Rule, Future<Long>> future : futures.entrySet()) {
+                results.put(future.getKey(), future.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ForwardChainException("Interrupted while executing rules", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ForwardChainException) {
+                throw (ForwardChainException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ForwardChainException("Error executing rule", (Exception) cause);
+        } finally {
+            for (Future<Long> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private StatementMetadata getMetadata() {
+        StatementMetadata metadata = new StatementMetadata();
+        metadata.addMetadata(ForwardChainConstants.RYA_DERIVATION_TIME,
+                new RyaType(XMLSchema.INT, Integer.toString(iteration)));
+        return metadata;
+    }
+
+    /**
+     * Split rules into waves, such that no rule in a wave can directly trigger
+     * another rule in the same wave. Rules that trigger many of the remaining
+     * rules are placed in earlier waves.
+     */
+    List<Set<Rule>> getWaves(Set<Rule> rules) {
+        List<Rule> remaining = new LinkedList<>(rules);
+        remaining.sort(Comparator.<Rule>comparingInt(rule -> {
+            Set<Rule> successors = new HashSet<>(ruleset.getSuccessorsOf(rule));
+            successors.retainAll(rules);
+            return -successors.size();
+        }).thenComparing(Rule::toString));
+        List<Set<Rule>> waves = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            Set<Rule> wave = new LinkedHashSet<>();
+            for (Rule rule : new ArrayList<>(remaining)) {
+                boolean independent = true;
+                for (Rule other : wave) {
+                    if (ruleset.getSuccessorsOf(other).contains(rule)
+                            || ruleset.getSuccessorsOf(rule).contains(other)) {
+                        independent = false;
+                        break;
+                    }
+                }
+                if (independent) {
+                    wave.add(rule);
+                    remaining.remove(rule);
+                }
+            }
+            waves.add(wave);
+        }
+        return waves;
+    }
+
+    private void setDone() throws ForwardChainException {
+        initialized.set(false);
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        ruleStrategy.shutDown();
+    }
+}
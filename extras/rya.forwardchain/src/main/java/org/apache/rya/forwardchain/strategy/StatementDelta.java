@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.forwardchain.strategy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.rdf4j.model.Statement;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The set of statements inferred during one iteration of forward chaining. A
+ * semi-naive strategy uses the statements inferred during the previous
+ * iteration to restrict the next iteration to derivations that use at least
+ * one of them.
+ * <p>
+ * The delta holds at most a configured number of statements. If more are
+ * added, it gives up on tracking them and is marked incomplete, in which case
+ * rules must be evaluated in full. Safe to use from multiple threads.
+ */
+public class StatementDelta {
+    private final int maxSize;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean complete = new AtomicBoolean(true);
+
+    /**
+     * Instantiate an empty delta.
+     * @param maxSize The maximum number of statements to track; must be
+     *  positive.
+     */
+    public StatementDelta(int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "Max delta size must be positive.");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Record that a statement was inferred.
+     * @param statement A newly inferred statement; not null.
+     */
+    public void add(Statement statement) {
+        Preconditions.checkNotNull(statement);
+        if (complete.get()) {
+            statements.add(statement);
+            if (statements.size() > maxSize) {
+                complete.set(false);
+                statements.clear();
+            }
+        }
+    }
+
+    /**
+     * Whether every statement that was added is still tracked.
+     * @return false if too many statements were added to track them all.
+     */
+    public boolean isComplete() {
+        return complete.get();
+    }
+
+    /**
+     * Get the statements that were added.
+     * @return An unmodifiable view of the statements, which is empty if the
+     *  delta is incomplete.
+     */
+    public Collection<Statement> getStatements() {
+        return Collections.unmodifiableSet(statements);
+    }
+}
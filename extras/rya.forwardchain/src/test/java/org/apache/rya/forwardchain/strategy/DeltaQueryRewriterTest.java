@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.forwardchain.strategy;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.parser.ParsedGraphQuery;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeltaQueryRewriterTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final SPARQLParser PARSER = new SPARQLParser();
+
+    private static final IRI ALICE = VF.createIRI("urn:Alice");
+    private static final IRI STUDENT = VF.createIRI("urn:Student");
+
+    private static final String SUBCLASS_RULE = "CONSTRUCT { ?x a ?super } WHERE {\n"
+            + "  ?x a ?sub .\n"
+            + "  ?sub <" + RDFS.SUBCLASSOF + "> ?super .\n"
+            + "}";
+
+    private static TupleExpr parse(String text) throws Exception {
+        return ((ParsedGraphQuery) PARSER.parseQuery(text, null)).getTupleExpr();
+    }
+
+    private static int countAssignments(TupleExpr expr) {
+        final int[] count = { 0 };
+        expr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(BindingSetAssignment node) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    @Test
+    public void testRestrictEachMatchingPattern() throws Exception {
+        TupleExpr query = parse(SUBCLASS_RULE);
+        String original = query.toString();
+        Collection<Statement> delta = Arrays.asList(
+                VF.createStatement(ALICE, RDF.TYPE, STUDENT),
+                VF.createStatement(STUDENT, RDFS.SUBCLASSOF, FOAF.PERSON));
+        List<TupleExpr> restricted = DeltaQueryRewriter.restrict(query, delta);
+        Assert.assertNotNull(restricted);
+        // One delta statement matches each pattern, so each is restricted once
+        Assert.assertEquals(2, restricted.size());
+        for (TupleExpr expr : restricted) {
+            Assert.assertEquals(1, countAssignments(expr));
+            Assert.assertEquals(1, StatementPatternCollector.process(expr).size());
+        }
+        // The original query is unchanged
+        Assert.assertEquals(original, query.toString());
+    }
+
+    @Test
+    public void testRestrictConstantMismatch() throws Exception {
+        TupleExpr query = parse("CONSTRUCT { ?x a <" + FOAF.PERSON + "> } WHERE {\n"
+                + "  ?x a <" + STUDENT + "> .\n"
+                + "  ?x <" + FOAF.NAME + "> ?name .\n"
+                + "}");
+        Collection<Statement> delta = Arrays.asList(
+                VF.createStatement(ALICE, RDF.TYPE, FOAF.PERSON));
+        List<TupleExpr> restricted = DeltaQueryRewriter.restrict(query, delta);
+        Assert.assertNotNull(restricted);
+        Assert.assertTrue(restricted.isEmpty());
+    }
+
+    @Test
+    public void testRestrictRepeatedVariable() throws Exception {
+        TupleExpr query = parse("CONSTRUCT { ?x a <" + FOAF.PERSON + "> } WHERE {\n"
+                + "  ?x <" + FOAF.KNOWS + "> ?x .\n"
+                + "}");
+        Collection<Statement> delta = Arrays.asList(
+                VF.createStatement(ALICE, FOAF.KNOWS, STUDENT));
+        List<TupleExpr> restricted = DeltaQueryRewriter.restrict(query, delta);
+        Assert.assertNotNull(restricted);
+        Assert.assertTrue(restricted.isEmpty());
+    }
+
+    @Test
+    public void testNonMonotonicQueries() throws Exception {
+        Collection<Statement> delta = Arrays.asList(
+                VF.createStatement(ALICE, RDF.TYPE, STUDENT));
+        TupleExpr notExists = parse("CONSTRUCT { ?x a <" + FOAF.PERSON + "> } WHERE {\n"
+                + "  ?x a <" + STUDENT + "> .\n"
+                + "  FILTER NOT EXISTS { ?x a <" + FOAF.ORGANIZATION + "> }\n"
+                + "}");
+        TupleExpr optional = parse("CONSTRUCT { ?x <" + FOAF.NAME + "> ?name } WHERE {\n"
+                + "  ?x a <" + STUDENT + "> .\n"
+                + "  OPTIONAL { ?x <" + RDFS.LABEL + "> ?name }\n"
+                + "}");
+        Assert.assertNull(DeltaQueryRewriter.restrict(notExists, delta));
+        Assert.assertNull(DeltaQueryRewriter.restrict(optional, delta));
+    }
+}
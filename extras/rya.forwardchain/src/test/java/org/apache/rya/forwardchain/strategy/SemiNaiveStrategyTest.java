@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.forwardchain.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.domain.StatementMetadata;
+import org.apache.rya.api.domain.VarNameUtils;
+import org.apache.rya.forwardchain.ForwardChainException;
+import org.apache.rya.forwardchain.rule.Rule;
+import org.apache.rya.forwardchain.rule.Ruleset;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class SemiNaiveStrategyTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final Rule SCO_TRANSITIVE = new JoinRule("sco", RDFS.SUBCLASSOF, RDFS.SUBCLASSOF, RDFS.SUBCLASSOF);
+    private static final Rule TYPE_INHERITANCE = new JoinRule("type", RDF.TYPE, RDFS.SUBCLASSOF, RDF.TYPE);
+    private static final Rule SPO_TRANSITIVE = new JoinRule("spo", RDFS.SUBPROPERTYOF, RDFS.SUBPROPERTYOF, RDFS.SUBPROPERTYOF);
+
+    private static Var c(Value val) {
+        final Var v = VarNameUtils.createUniqueConstVar(val);
+        v.setAnonymous(true);
+        return v;
+    }
+
+    private static IRI iri(String name) {
+        return VF.createIRI("urn:" + name);
+    }
+
+    /**
+     * A rule that joins two statements on the object of the first and the
+     * subject of the second: (?x p1 ?y), (?y p2 ?z) implies (?x out ?z).
+     */
+    private static class JoinRule implements Rule {
+        private final String name;
+        private final IRI first;
+        private final IRI second;
+        private final IRI out;
+
+        JoinRule(String name, IRI first, IRI second, IRI out) {
+            this.name = name;
+            this.first = first;
+            this.second = second;
+            this.out = out;
+        }
+
+        @Override
+        public boolean canConclude(StatementPattern sp) {
+            final Value predicate = sp.getPredicateVar().getValue();
+            return predicate == null || predicate.equals(out);
+        }
+
+        @Override
+        public Collection<StatementPattern> getAntecedentPatterns() {
+            return Arrays.asList(
+                    new StatementPattern(new Var("x"), c(first), new Var("y")),
+                    new StatementPattern(new Var("y"), c(second), new Var("z")));
+        }
+
+        @Override
+        public Collection<StatementPattern> getConsequentPatterns() {
+            return Collections.singleton(new StatementPattern(new Var("x"), c(out), new Var("z")));
+        }
+
+        @Override
+        public long execute(AbstractRuleExecutionStrategy strategy,
+                StatementMetadata metadata) throws ForwardChainException {
+            return ((InMemoryStrategy) strategy).apply(this);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Records one rule execution: the iteration (as a derivation level) and
+     * whether the rule was restricted to a delta.
+     */
+    private static class Execution {
+        private final Rule rule;
+        private final int level;
+        private final boolean restricted;
+
+        Execution(Rule rule, int level, boolean restricted) {
+            this.rule = rule;
+            this.level = level;
+            this.restricted = restricted;
+        }
+    }
+
+    /**
+     * Executes {@link JoinRule}s against an in-memory set of statements,
+     * restricting them to the previous delta when it is complete.
+     */
+    private static class InMemoryStrategy extends AbstractRuleExecutionStrategy {
+        private final Set<Statement> store = ConcurrentHashMap.newKeySet();
+        private final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+        private final boolean concurrent;
+        private CountDownLatch barrier = null;
+        private boolean shutDown = false;
+
+        InMemoryStrategy(Collection<Statement> statements, boolean concurrent) {
+            this.store.addAll(statements);
+            this.concurrent = concurrent;
+        }
+
+        long apply(JoinRule rule) throws ForwardChainException {
+            if (barrier != null) {
+                barrier.countDown();
+                try {
+                    if (!barrier.await(10, TimeUnit.SECONDS)) {
+                        throw new ForwardChainException("Rules of a wave were not executed concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    throw new ForwardChainException(e);
+                }
+            }
+            final Collection<Statement> trigger = previousDelta != null && previousDelta.isComplete()
+                    ? previousDelta.getStatements() : null;
+            executions.add(new Execution(rule, requiredLevel, trigger != null));
+            final List<Statement> snapshot = new ArrayList<>(store);
+            long inferences = 0;
+            for (Statement a : snapshot) {
+                if (!a.getPredicate().equals(rule.first)) {
+                    continue;
+                }
+                for (Statement b : snapshot) {
+                    if (!b.getPredicate().equals(rule.second) || !b.getSubject().equals(a.getObject())) {
+                        continue;
+                    }
+                    if (trigger != null && !trigger.contains(a) && !trigger.contains(b)) {
+                        continue;
+                    }
+                    final Statement inferred = VF.createStatement(a.getSubject(), rule.out, b.getObject());
+                    if (store.add(inferred)) {
+                        inferences++;
+                        if (currentDelta != null) {
+                            currentDelta.add(inferred);
+                        }
+                    }
+                }
+            }
+            return inferences;
+        }
+
+        List<Execution> getExecutions(int level) {
+            final List<Execution> atLevel = new ArrayList<>();
+            synchronized (executions) {
+                for (Execution execution : executions) {
+                    if (execution.level == level) {
+                        atLevel.add(execution);
+                    }
+                }
+            }
+            return atLevel;
+        }
+
+        @Override
+        public boolean supportsConcurrentExecution() {
+            return concurrent;
+        }
+
+        @Override
+        public void shutDown() {
+            shutDown = true;
+        }
+    }
+
+    private static Set<Statement> classChain(int length) {
+        final Set<Statement> statements = new HashSet<>();
+        for (int i = 1; i < length; i++) {
+            statements.add(VF.createStatement(iri("C" + i), RDFS.SUBCLASSOF, iri("C" + (i + 1))));
+        }
+        statements.add(VF.createStatement(iri("Alice"), RDF.TYPE, iri("C1")));
+        return statements;
+    }
+
+    private static Set<Statement> randomStatements(long seed) {
+        final Random random = new Random(seed);
+        final Set<Statement> statements = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            for (int j = i + 1; j < 20; j++) {
+                if (random.nextInt(8) == 0) {
+                    statements.add(VF.createStatement(iri("C" + i), RDFS.SUBCLASSOF, iri("C" + j)));
+                }
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            statements.add(VF.createStatement(iri("I" + i), RDF.TYPE, iri("C" + random.nextInt(20))));
+            for (int j = i + 1; j < 10; j++) {
+                if (random.nextInt(5) == 0) {
+                    statements.add(VF.createStatement(iri("P" + i), RDFS.SUBPROPERTYOF, iri("P" + j)));
+                }
+            }
+        }
+        return statements;
+    }
+
+    @Test
+    public void testWaves() throws Exception {
+        final Ruleset ruleset = new Ruleset(Arrays.asList(SCO_TRANSITIVE, TYPE_INHERITANCE, SPO_TRANSITIVE));
+        final SemiNaiveStrategy strategy = new SemiNaiveStrategy(
+                new InMemoryStrategy(Collections.emptySet(), false), 1, 10);
+        strategy.initialize(ruleset);
+        // Subclass transitivity can trigger type inheritance, so it must come
+        // first; subproperty transitivity is independent of both.
+        final List<Set<Rule>> expected = Arrays.asList(
+                Sets.newHashSet(SCO_TRANSITIVE, SPO_TRANSITIVE),
+                Sets.newHashSet(TYPE_INHERITANCE));
+        Assert.assertEquals(expected, strategy.getWaves(ruleset.getRules()));
+    }
+
+    @Test
+    public void testWaveExecutedConcurrently() throws Exception {
+        final InMemoryStrategy ruleStrategy = new InMemoryStrategy(Collections.emptySet(), true);
+        // Each rule waits until both rules of the wave have started.
+        ruleStrategy.barrier = new CountDownLatch(2);
+        final SemiNaiveStrategy strategy = new SemiNaiveStrategy(ruleStrategy, 2, 10);
+        Assert.assertEquals(0, strategy.executeAll(new Ruleset(Arrays.asList(SCO_TRANSITIVE, SPO_TRANSITIVE))));
+        Assert.assertEquals(2, ruleStrategy.getExecutions(0).size());
+    }
+
+    @Test
+    public void testDependentWaveExecutedLater() throws Exception {
+        final InMemoryStrategy ruleStrategy = new InMemoryStrategy(classChain(3), true);
+        final SemiNaiveStrategy strategy = new SemiNaiveStrategy(ruleStrategy, 2, 10);
+        strategy.initialize(new Ruleset(Arrays.asList(SCO_TRANSITIVE, TYPE_INHERITANCE, SPO_TRANSITIVE)));
+        strategy.executeNext();
+        final List<Execution> first = ruleStrategy.getExecutions(0);
+        Assert.assertEquals(3, first.size());
+        // Type inheritance runs after subclass transitivity, so it already
+        // sees C1 rdfs:subClassOf C3 during the first iteration.
+        Assert.assertEquals(TYPE_INHERITANCE, first.get(2).rule);
+        Assert.assertTrue(ruleStrategy.store.contains(VF.createStatement(iri("Alice"), RDF.TYPE, iri("C3"))));
+    }
+
+    @Test
+    public void testFixpoint() throws Exception {
+        final InMemoryStrategy ruleStrategy = new InMemoryStrategy(classChain(5), false);
+        final SemiNaiveStrategy strategy = new SemiNaiveStrategy(ruleStrategy, 1, 100);
+        // Six new subclass statements and four new types
+        Assert.assertEquals(10, strategy.executeAll(new Ruleset(Arrays.asList(SCO_TRANSITIVE, TYPE_INHERITANCE))));
+        Assert.assertFalse(strategy.isActive());
+        Assert.assertTrue(ruleStrategy.shutDown);
+        for (int i = 1; i <= 5; i++) {
+            for (int j = i + 1; j <= 5; j++) {
+                Assert.assertTrue(ruleStrategy.store.contains(
+                        VF.createStatement(iri("C" + i), RDFS.SUBCLASSOF, iri("C" + j))));
+            }
+            Assert.assertTrue(ruleStrategy.store.contains(VF.createStatement(iri("Alice"), RDF.TYPE, iri("C" + i))));
+        }
+        // Every iteration after the first was restricted to the delta, and
+        // the last one made no inferences.
+        int level = 1;
+        while (!ruleStrategy.getExecutions(level).isEmpty()) {
+            for (Execution execution : ruleStrategy.getExecutions(level)) {
+                Assert.assertTrue(execution.restricted);
+            }
+            level++;
+        }
+        Assert.assertTrue(level > 2);
+    }
+
+    @Test
+    public void testOnlyTriggeredRulesExecuted() throws Exception {
+        final InMemoryStrategy ruleStrategy = new InMemoryStrategy(classChain(2), false);
+        final SemiNaiveStrategy strategy = new SemiNaiveStrategy(ruleStrategy, 1, 100);
+        Assert.assertEquals(1, strategy.executeAll(new Ruleset(Arrays.asList(SCO_TRANSITIVE, TYPE_INHERITANCE))));
+        // Only type inheritance made an inference, and it can only trigger itself.
+        final List<Execution> second = ruleStrategy.getExecutions(1);
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(TYPE_INHERITANCE, second.get(0).rule);
+        Assert.assertTrue(ruleStrategy.getExecutions(2).isEmpty());
+    }
+
+    @Test
+    public void testDeltaOverflow() throws Exception {
+        final InMemoryStrategy ruleStrategy = new InMemoryStrategy(classChain(5), false);
+        final SemiNaiveStrategy strategy = new SemiNaiveStrategy(ruleStrategy, 1, 2);
+        Assert.assertEquals(10, strategy.executeAll(new Ruleset(Arrays.asList(SCO_TRANSITIVE, TYPE_INHERITANCE))));
+        // The first iteration infers more than two statements, so the second
+        // is evaluated in full.
+        final List<Execution> second = ruleStrategy.getExecutions(1);
+        Assert.assertFalse(second.isEmpty());
+        for (Execution execution : second) {
+            Assert.assertFalse(execution.restricted);
+        }
+    }
+
+    @Test
+    public void testEquivalentToRoundRobin() throws Exception {
+        final Ruleset ruleset = new Ruleset(Arrays.asList(SCO_TRANSITIVE, TYPE_INHERITANCE, SPO_TRANSITIVE));
+        for (long seed = 0; seed < 5; seed++) {
+            final Set<Statement> statements = randomStatements(seed);
+            final InMemoryStrategy roundRobinRules = new InMemoryStrategy(statements, false);
+            final long expected = new RoundRobinStrategy(roundRobinRules).executeAll(ruleset);
+            Assert.assertTrue(expected > 0);
+            // Sequential, concurrent, and with a delta too small to track
+            for (int[] params : new int[][] { { 1, 100000 }, { 4, 100000 }, { 4, 3 } }) {
+                final InMemoryStrategy semiNaiveRules = new InMemoryStrategy(statements, true);
+                final long actual = new SemiNaiveStrategy(semiNaiveRules, params[0], params[1]).executeAll(ruleset);
+                Assert.assertEquals(expected, actual);
+                Assert.assertEquals(roundRobinRules.store, semiNaiveRules.store);
+            }
+        }
+    }
+}
@@ -20,14 +20,20 @@ package org.apache.rya.indexing.geotemporal.model;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.rya.api.domain.RyaIRI;
@@ -35,29 +41,43 @@ import org.apache.rya.indexing.IndexingExpr;
 import org.apache.rya.indexing.TemporalInstant;
 import org.apache.rya.indexing.TemporalInstantRfc3339;
 import org.apache.rya.indexing.entity.query.EntityQueryNode;
+import org.apache.rya.indexing.entity.storage.mongo.ConvertingCursor;
 import org.apache.rya.indexing.geotemporal.storage.EventStorage;
 import org.apache.rya.indexing.mongodb.update.RyaObjectStorage.ObjectStorageException;
 import org.apache.rya.rdftriplestore.evaluation.ExternalBatchingIterator;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.FunctionCall;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.ExternalSet;
-import org.eclipse.rdf4j.query.algebra.evaluation.iterator.CollectionIteration;
 import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import com.google.common.collect.Lists;
 import com.vividsolutions.jts.geom.Geometry;
 
 public class EventQueryNode extends ExternalSet implements ExternalBatchingIterator {
     private static final ValueFactory VF = SimpleValueFactory.getInstance();
 
+    /**
+     * The number of {@link Event}s fetched from the {@link EventStorage} at a time.
+     */
+    private static final int EVENT_BATCH_SIZE = 1000;
+
+    /**
+     * The maximum number of bound subjects pushed into a single search.
+     */
+    private static final int SUBJECT_BATCH_SIZE = 500;
+
     private final Collection<FunctionCall> usedFilters;
     private final Collection<IndexingExpr> geoFilters;
     private final Collection<IndexingExpr> temporalFilters;
@@ -68,9 +88,7 @@ public class EventQueryNode extends ExternalSet implements ExternalBatchingItera
     //Information about the subject of the patterns.
     private final boolean subjectIsConstant;
     private final Optional<String> subjectVar;
-    //not final because if the subject is a variable and the evaluate() is
-    //  provided a binding set that contains the subject, this optional is used.
-    private Optional<String> subjectConstant;
+    private final Optional<String> subjectConstant;
 
     //since and EventQueryNode exists in a single segment, all binding names are garunteed to be assured.
     private final Set<String> bindingNames;
@@ -165,57 +183,204 @@ public class EventQueryNode extends ExternalSet implements ExternalBatchingItera
     @Override
     public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final BindingSet bindings) throws QueryEvaluationException {
         final List<BindingSet> list = new ArrayList<>();
-        try {
-            final Collection<Event> searchEvents;
-            final String subj;
-            //if the provided binding set has the subject already, set it to the constant subject.
-            if(!subjectConstant.isPresent() && bindings.hasBinding(subjectVar.get())) {
-                subjectConstant = Optional.of(bindings.getValue(subjectVar.get()).stringValue());
-            } else if(bindings.size() != 0) {
-                list.add(bindings);
-            }
+        Optional<String> subj = subjectConstant;
+        //if the provided binding set has the subject already, use it as the constant subject.
+        if(!subj.isPresent() && bindings.hasBinding(subjectVar.get())) {
+            subj = Optional.of(bindings.getValue(subjectVar.get()).stringValue());
+        } else if(bindings.size() != 0) {
+            list.add(bindings);
+        }
 
-            // If the subject needs to be filled in, check if the subject variable is in the binding set.
-            if(subjectConstant.isPresent()) {
-                // if it is, fetch that value and then fetch the entity for the subject.
-                subj = subjectConstant.get();
-                searchEvents = eventStore.search(Optional.of(new RyaIRI(subj)), Optional.of(geoFilters), Optional.of(temporalFilters));
+        // The matching Events are streamed from the storage as the results are consumed.
+        final Collection<RyaIRI> subjects = subj.isPresent() ?
+                Collections.singleton(new RyaIRI(subj.get())) :
+                Collections.emptySet();
+        final EventSearch search = new EventSearch(subjects, event -> Collections.emptyList());
+        return new EventIteration(list.iterator(), Collections.singleton(search).iterator(), false);
+    }
+
+    /**
+     * Joins the provided binding sets with the matching {@link Event}s. The
+     * subjects bound by the binding sets are pushed into the searches in
+     * batches of up to {@link #SUBJECT_BATCH_SIZE}, so only the Events that
+     * can join are fetched from the {@link EventStorage}.
+     */
+    @Override
+    public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final Collection<BindingSet> bindingset)
+            throws QueryEvaluationException {
+        requireNonNull(bindingset);
+
+        // Group the binding sets by the subject they bind, if any.
+        final Map<String, List<BindingSet>> bySubject = new LinkedHashMap<>();
+        final List<BindingSet> unbound = new ArrayList<>();
+        for(final BindingSet bindings : bindingset) {
+            if(subjectVar.isPresent() && bindings.hasBinding(subjectVar.get())) {
+                bySubject.computeIfAbsent(bindings.getValue(subjectVar.get()).stringValue(), key -> new ArrayList<>())
+                    .add(bindings);
             } else {
-                searchEvents = eventStore.search(Optional.empty(), Optional.of(geoFilters), Optional.of(temporalFilters));
+                unbound.add(bindings);
             }
+        }
+
+        final List<EventSearch> searches = new ArrayList<>();
+        for(final List<String> batch : Lists.partition(new ArrayList<>(bySubject.keySet()), SUBJECT_BATCH_SIZE)) {
+            final Collection<RyaIRI> subjects = batch.stream()
+                    .map(RyaIRI::new)
+                    .collect(Collectors.toList());
+            searches.add(new EventSearch(subjects,
+                    event -> bySubject.getOrDefault(event.getSubject().getData(), Collections.emptyList())));
+        }
+        if(!unbound.isEmpty()) {
+            final Collection<RyaIRI> subjects = subjectConstant.isPresent() ?
+                    Collections.singleton(new RyaIRI(subjectConstant.get())) :
+                    Collections.emptySet();
+            searches.add(new EventSearch(subjects, event -> unbound));
+        }
+        return new EventIteration(Collections.emptyIterator(), searches.iterator(), true);
+    }
+
+    /**
+     * Creates the bindings for the geo and temporal objects of an {@link Event}.
+     */
+    private MapBindingSet toBindingSet(final Event event) {
+        final MapBindingSet resultSet = new MapBindingSet();
+        if(event.getGeometry().isPresent()) {
+            final Geometry geo = event.getGeometry().get();
+            final Value geoValue = VF.createLiteral(geo.toText());
+            final Var geoObj = geoPattern.getObjectVar();
+            resultSet.addBinding(geoObj.getName(), geoValue);
+        }
 
-            for(final Event event : searchEvents) {
-                final MapBindingSet resultSet = new MapBindingSet();
-                if(event.getGeometry().isPresent()) {
-                    final Geometry geo = event.getGeometry().get();
-                    final Value geoValue = VF.createLiteral(geo.toText());
-                    final Var geoObj = geoPattern.getObjectVar();
-                    resultSet.addBinding(geoObj.getName(), geoValue);
+        final Value temporalValue;
+        if(event.isInstant() && event.getInstant().isPresent()) {
+            final Optional<TemporalInstant> opt = event.getInstant();
+            DateTime dt = opt.get().getAsDateTime();
+            dt = dt.toDateTime(DateTimeZone.UTC);
+            final String str = dt.toString(TemporalInstantRfc3339.FORMATTER);
+            temporalValue = VF.createLiteral(str);
+        } else if(event.getInterval().isPresent()) {
+            temporalValue = VF.createLiteral(event.getInterval().get().getAsPair());
+        } else {
+            temporalValue = null;
+        }
+
+        if(temporalValue != null) {
+            final Var temporalObj = temporalPattern.getObjectVar();
+            resultSet.addBinding(temporalObj.getName(), temporalValue);
+        }
+        return resultSet;
+    }
+
+    /**
+     * A single search of the {@link EventStorage}, along with the binding sets
+     * each of the matching {@link Event}s joins with.
+     */
+    private static class EventSearch {
+        private final Collection<RyaIRI> subjects;
+        private final Function<Event, Collection<BindingSet>> joinsWith;
+
+        EventSearch(final Collection<RyaIRI> subjects, final Function<Event, Collection<BindingSet>> joinsWith) {
+            this.subjects = subjects;
+            this.joinsWith = joinsWith;
+        }
+    }
+
+    /**
+     * Runs a series of {@link EventSearch}es one at a time, converting the
+     * {@link Event}s into binding sets as they are read from the storage.
+     */
+    private class EventIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+        private final Iterator<EventSearch> searches;
+        private final boolean join;
+        private Iterator<BindingSet> pending;
+        private EventSearch search = null;
+        private ConvertingCursor<Event> cursor = null;
+
+        /**
+         * @param initial - Results returned before any of the searches are run. (not null)
+         * @param searches - The searches to run. (not null)
+         * @param join - Whether the Events are joined with the search's binding sets,
+         *   or returned on their own.
+         */
+        EventIteration(final Iterator<BindingSet> initial, final Iterator<EventSearch> searches, final boolean join) {
+            this.pending = requireNonNull(initial);
+            this.searches = requireNonNull(searches);
+            this.join = join;
+        }
+
+        @Override
+        protected BindingSet getNextElement() throws QueryEvaluationException {
+            try {
+                while(true) {
+                    if(pending.hasNext()) {
+                        return pending.next();
+                    }
+                    if(cursor != null && cursor.hasNext()) {
+                        final Event event = cursor.next();
+                        pending = join ? joinEvent(event, search.joinsWith.apply(event)).iterator() :
+                            Collections.<BindingSet>singleton(toBindingSet(event)).iterator();
+                        continue;
+                    }
+                    closeCursor();
+                    if(!searches.hasNext()) {
+                        return null;
+                    }
+                    search = searches.next();
+                    cursor = eventStore.search(search.subjects, Optional.of(geoFilters), Optional.of(temporalFilters), EVENT_BATCH_SIZE);
                 }
+            } catch (final QueryEvaluationException e) {
+                throw e;
+            } catch (final ObjectStorageException | RuntimeException e) {
+                throw new QueryEvaluationException("Failed to evaluate the binding set", e);
+            }
+        }
+
+        private List<BindingSet> joinEvent(final Event event, final Collection<BindingSet> bindingSets) {
+            final MapBindingSet eventBindings = toBindingSet(event);
+            if(subjectVar.isPresent()) {
+                eventBindings.addBinding(subjectVar.get(), VF.createIRI(event.getSubject().getData()));
+            }
 
-                final Value temporalValue;
-                if(event.isInstant() && event.getInstant().isPresent()) {
-                    final Optional<TemporalInstant> opt = event.getInstant();
-                    DateTime dt = opt.get().getAsDateTime();
-                    dt = dt.toDateTime(DateTimeZone.UTC);
-                    final String str = dt.toString(TemporalInstantRfc3339.FORMATTER);
-                    temporalValue = VF.createLiteral(str);
-                } else if(event.getInterval().isPresent()) {
-                    temporalValue = VF.createLiteral(event.getInterval().get().getAsPair());
-                } else {
-                    temporalValue = null;
+            final List<BindingSet> results = new ArrayList<>();
+            for(final BindingSet bindings : bindingSets) {
+                final QueryBindingSet joined = new QueryBindingSet(bindings);
+                boolean compatible = true;
+                for(final Binding binding : eventBindings) {
+                    final Value bound = bindings.getValue(binding.getName());
+                    if(bound == null) {
+                        joined.addBinding(binding);
+                    } else if(!bound.equals(binding.getValue())) {
+                        compatible = false;
+                        break;
+                    }
                 }
+                if(compatible) {
+                    results.add(joined);
+                }
+            }
+            return results;
+        }
 
-                if(temporalValue != null) {
-                    final Var temporalObj = temporalPattern.getObjectVar();
-                    resultSet.addBinding(temporalObj.getName(), temporalValue);
+        private void closeCursor() throws QueryEvaluationException {
+            if(cursor != null) {
+                try {
+                    cursor.close();
+                } catch (final IOException e) {
+                    throw new QueryEvaluationException("Could not close the Event cursor.", e);
+                } finally {
+                    cursor = null;
                 }
-                list.add(resultSet);
             }
-        } catch (final ObjectStorageException e) {
-            throw new QueryEvaluationException("Failed to evaluate the binding set", e);
         }
-        return new CollectionIteration<>(list);
+
+        @Override
+        protected void handleClose() throws QueryEvaluationException {
+            try {
+                super.handleClose();
+            } finally {
+                closeCursor();
+            }
+        }
     }
 
     public Collection<IndexingExpr> getGeoFilters() {
@@ -293,11 +458,6 @@ public class EventQueryNode extends ExternalSet implements ExternalBatchingItera
         return sb.toString();
     }
 
-    @Override
-    public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final Collection<BindingSet> bindingset)
-            throws QueryEvaluationException {
-        return null;
-    }
 
     /**
      * Builder for {@link EventQueryNode}s.
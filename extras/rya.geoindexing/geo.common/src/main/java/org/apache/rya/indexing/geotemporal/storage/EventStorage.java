@@ -23,6 +23,7 @@ import java.util.Optional;
 
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.indexing.IndexingExpr;
+import org.apache.rya.indexing.entity.storage.mongo.ConvertingCursor;
 import org.apache.rya.indexing.geotemporal.GeoTemporalIndexer;
 import org.apache.rya.indexing.geotemporal.model.Event;
 import org.apache.rya.indexing.mongodb.update.RyaObjectStorage;
@@ -40,6 +41,22 @@ public interface EventStorage extends RyaObjectStorage<Event> {
      */
     public Collection<Event> search(final Optional<RyaIRI> subject, Optional<Collection<IndexingExpr>> geoFilters, Optional<Collection<IndexingExpr>> temporalFilters) throws ObjectStorageException;
 
+    /**
+     * Search for {@link Event}s from the storage without loading all of them
+     * into memory. Matching Events are fetched in batches and converted as the
+     * returned cursor is advanced.
+     *
+     * @param subjects - Only match Events whose subject is one of these. If empty,
+     *   Events for any subject are matched. (not null)
+     * @param geoFilters - The geo filters to find Events.
+     * @param temporalFilters - The temporal filters to find Events.
+     * @param batchSize - The number of Events to fetch from the storage at a time,
+     *   or 0 to use the storage's default.
+     * @return A {@link ConvertingCursor} over the matching {@link Event}s. It must be closed.
+     * @throws ObjectStorageException A problem occurred while searching the storage.
+     */
+    public ConvertingCursor<Event> search(final Collection<RyaIRI> subjects, Optional<Collection<IndexingExpr>> geoFilters, Optional<Collection<IndexingExpr>> temporalFilters, int batchSize) throws ObjectStorageException;
+
     /**
      * Indicates a problem while interacting with an {@link EventStorage}.
      */
@@ -528,7 +528,8 @@ public class GeoWaveGeoIndexer extends AbstractAccumuloIndexer implements GeoInd
         return ryaInstanceName + TABLE_SUFFIX;
     }
 
-    private void deleteStatements(final Collection<RyaStatement> ryaStatements) throws IOException {
+    @Override
+    public void deleteStatements(final Collection<RyaStatement> ryaStatements) throws IOException {
         // create a feature collection
         final DefaultFeatureCollection featureCollection = new DefaultFeatureCollection();
 
@@ -20,16 +20,21 @@ package org.apache.rya.indexing.geotemporal.mongo;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.indexing.IndexingExpr;
 import org.apache.rya.indexing.entity.model.TypedEntity;
+import org.apache.rya.indexing.entity.storage.mongo.ConvertingCursor;
+import org.apache.rya.indexing.entity.storage.mongo.ConvertingCursor.Converter;
 import org.apache.rya.indexing.entity.storage.mongo.DocumentConverter.DocumentConverterException;
 import org.apache.rya.indexing.entity.storage.mongo.MongoEntityStorage;
 import org.apache.rya.indexing.geotemporal.GeoTemporalIndexException;
@@ -43,9 +48,10 @@ import org.bson.conversions.Bson;
 import com.mongodb.ErrorCategory;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 
 public class MongoEventStorage implements EventStorage {
 
@@ -53,6 +59,13 @@ public class MongoEventStorage implements EventStorage {
 
     private static final EventDocumentConverter EVENT_CONVERTER = new EventDocumentConverter();
 
+    private static final Bson EVENT_PROJECTION = Projections.include(
+            EventDocumentConverter.SUBJECT,
+            EventDocumentConverter.GEO_KEY,
+            EventDocumentConverter.INSTANT,
+            EventDocumentConverter.INTERVAL_START,
+            EventDocumentConverter.INTERVAL_END);
+
     /**
      * A client connected to the Mongo instance that hosts the Rya instance.
      */
@@ -120,26 +133,58 @@ public class MongoEventStorage implements EventStorage {
     public Collection<Event> search(final Optional<RyaIRI> subject, final Optional<Collection<IndexingExpr>> geoFilters, final Optional<Collection<IndexingExpr>> temporalFilters) throws EventStorageException {
         requireNonNull(subject);
 
+        final Collection<RyaIRI> subjects = subject.isPresent() ? Collections.singleton(subject.get()) : Collections.emptySet();
+        final List<Event> events = new ArrayList<>();
+        try (final ConvertingCursor<Event> results = search(subjects, geoFilters, temporalFilters, 0)) {
+            while(results.hasNext()) {
+                events.add(results.next());
+            }
+        } catch(final IOException | RuntimeException e) {
+            throw new EventStorageException("Could not get the Event.", e);
+        }
+        return events;
+    }
+
+    @Override
+    public ConvertingCursor<Event> search(final Collection<RyaIRI> subjects, final Optional<Collection<IndexingExpr>> geoFilters, final Optional<Collection<IndexingExpr>> temporalFilters, final int batchSize) throws EventStorageException {
+        requireNonNull(subjects);
+        requireNonNull(geoFilters);
+        requireNonNull(temporalFilters);
+
         try {
             final Collection<IndexingExpr> geos = (geoFilters.isPresent() ? geoFilters.get() : new ArrayList<>());
             final Collection<IndexingExpr> tempos = (temporalFilters.isPresent() ? temporalFilters.get() : new ArrayList<>());
             final Document filterObj = queryAdapter.getFilterQuery(geos, tempos);
 
-            if(subject.isPresent()) {
-                filterObj.append(EventDocumentConverter.SUBJECT, subject.get().getData());
+            // Restrict the search to the requested subjects.
+            if(subjects.size() == 1) {
+                filterObj.append(EventDocumentConverter.SUBJECT, subjects.iterator().next().getData());
+            } else if(!subjects.isEmpty()) {
+                final List<String> ids = subjects.stream()
+                        .map(RyaIRI::getData)
+                        .collect(Collectors.toList());
+                filterObj.append(EventDocumentConverter.SUBJECT, new Document("$in", ids));
             }
-            final List<Event> events = new ArrayList<>();
-            try (final MongoCursor<Document> results = mongo.getDatabase(ryaInstanceName)
+
+            // Only fetch the fields that make up an Event.
+            FindIterable<Document> found = mongo.getDatabase(ryaInstanceName)
                 .getCollection(COLLECTION_NAME)
                 .find(filterObj)
-                .iterator())
-            {
-                while(results.hasNext()) {
-                    events.add(EVENT_CONVERTER.fromDocument(results.next()));
-                }
+                .projection(EVENT_PROJECTION);
+            if(batchSize > 0) {
+                found = found.batchSize(batchSize);
             }
-            return events;
-        } catch(final MongoException | DocumentConverterException | GeoTemporalIndexException e) {
+
+            // Convert the Documents lazily as the cursor is advanced.
+            final Converter<Event> converter = document -> {
+                try {
+                    return EVENT_CONVERTER.fromDocument(document);
+                } catch (final DocumentConverterException e) {
+                    throw new RuntimeException("Document '" + document + "' could not be parsed into an Event.", e);
+                }
+            };
+            return new ConvertingCursor<>(converter, found.iterator());
+        } catch(final MongoException | GeoTemporalIndexException e) {
             throw new EventStorageException("Could not get the Event.", e);
         }
     }
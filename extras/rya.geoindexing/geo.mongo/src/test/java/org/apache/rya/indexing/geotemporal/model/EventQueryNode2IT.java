@@ -28,6 +28,7 @@ import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import org.apache.rya.api.domain.RyaIRI;
@@ -313,6 +314,74 @@ public class EventQueryNode2IT extends MongoITBase {
         assertFalse(rez.hasNext());
     }
 
+    @Test
+    public void evaluate_variableSubject_batchedBindingsets() throws Exception {
+        final EventStorage storage = new MongoEventStorage(super.getMongoClient(), "testDB");
+        final TemporalInstant temp = new TemporalInstantRfc3339(2015, 12, 30, 12, 00, 0);
+        storage.create(Event.builder()
+            .setSubject(new RyaIRI("urn:event-1111"))
+            .setGeometry(GF.createPoint(new Coordinate(1, 1)))
+            .setTemporalInstant(temp)
+            .build());
+        storage.create(Event.builder()
+            .setSubject(new RyaIRI("urn:event-2222"))
+            .setGeometry(GF.createPoint(new Coordinate(-1, -1)))
+            .setTemporalInstant(temp)
+            .build());
+        storage.create(Event.builder()
+            .setSubject(new RyaIRI("urn:event-3333"))
+            .setGeometry(GF.createPoint(new Coordinate(0, 0)))
+            .setTemporalInstant(temp)
+            .build());
+
+        final String query =
+                "PREFIX time: <http://www.w3.org/2006/time#> \n"
+              + "PREFIX tempo: <tag:rya-rdf.org,2015:temporal#> \n"
+              + "PREFIX geo: <http://www.opengis.net/ont/geosparql#>"
+              + "PREFIX geof: <http://www.opengis.net/def/function/geosparql/>"
+              + "SELECT ?event ?time ?point ?wkt "
+              + "WHERE { "
+                + "  ?event time:atTime ?time . "
+                + "  ?event geo:asWKT ?wkt . "
+                + "  FILTER(geof:sfWithin(?wkt, \"POLYGON((-3 -2, -3 2, 1 2, 1 -2, -3 -2))\"^^geo:wktLiteral)) "
+                + "  FILTER(tempo:equals(?time, \"2015-12-30T12:00:00Z\")) "
+              + "}";
+
+        final EventQueryNode node = buildNode(storage, query);
+
+        // Two outer binding sets for one subject, one for another, and none for the third.
+        final List<BindingSet> outer = new ArrayList<>();
+        for(final String[] binding : new String[][] {
+                {"urn:event-1111", "urn:a"}, {"urn:event-1111", "urn:b"}, {"urn:event-2222", "urn:c"}}) {
+            final MapBindingSet bs = new MapBindingSet();
+            bs.addBinding("event", VF.createIRI(binding[0]));
+            bs.addBinding("source", VF.createIRI(binding[1]));
+            outer.add(bs);
+        }
+
+        final List<BindingSet> actual = new ArrayList<>();
+        try(final CloseableIteration<BindingSet, QueryEvaluationException> rez = node.evaluate(outer)) {
+            while(rez.hasNext()) {
+                actual.add(rez.next());
+            }
+        }
+
+        // Each outer binding set is joined with its subject's Event.
+        final String time = new TemporalInstantRfc3339(2015, 12, 30, 12, 00, 0).toString();
+        final List<BindingSet> expected = new ArrayList<>();
+        for(final String[] binding : new String[][] {
+                {"urn:event-1111", "urn:a", "POINT (1 1)"}, {"urn:event-1111", "urn:b", "POINT (1 1)"}, {"urn:event-2222", "urn:c", "POINT (-1 -1)"}}) {
+            final MapBindingSet bs = new MapBindingSet();
+            bs.addBinding("event", VF.createIRI(binding[0]));
+            bs.addBinding("source", VF.createIRI(binding[1]));
+            bs.addBinding("wkt", VF.createLiteral(binding[2]));
+            bs.addBinding("time", VF.createLiteral(time));
+            expected.add(bs);
+        }
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        assertEquals(3, actual.size());
+    }
+
     private static EventQueryNode buildNode(final EventStorage store, final String query) throws Exception {
         final List<IndexingExpr> geoFilters = new ArrayList<>();
         final List<IndexingExpr> temporalFilters = new ArrayList<>();
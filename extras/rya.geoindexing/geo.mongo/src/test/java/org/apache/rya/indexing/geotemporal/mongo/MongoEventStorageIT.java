@@ -22,11 +22,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.indexing.TemporalInstant;
 import org.apache.rya.indexing.TemporalInstantRfc3339;
+import org.apache.rya.indexing.entity.storage.mongo.ConvertingCursor;
 import org.apache.rya.indexing.geotemporal.model.Event;
 import org.apache.rya.indexing.geotemporal.storage.EventStorage;
 import org.apache.rya.indexing.geotemporal.storage.EventStorage.EventAlreadyExistsException;
@@ -173,6 +177,40 @@ public class MongoEventStorageIT extends MongoITBase {
         assertEquals(updated, latest.get());
     }
 
+    @Test
+    public void search_cursor_subjects() throws Exception {
+        final EventStorage storage = new MongoEventStorage(super.getMongoClient(), RYA_INSTANCE_NAME);
+        final Geometry geo = GF.createPoint(new Coordinate(10, 10));
+        final TemporalInstant instant = new TemporalInstantRfc3339(DateTime.now());
+
+        // Store three Events.
+        final Set<Event> expected = new HashSet<>();
+        for(final String subject : Arrays.asList("urn:event/005", "urn:event/006", "urn:event/007")) {
+            final Event event = Event.builder()
+                    .setSubject(new RyaIRI(subject))
+                    .setGeometry(geo)
+                    .setTemporalInstant(instant)
+                    .build();
+            storage.create(event);
+            if(!subject.equals("urn:event/006")) {
+                expected.add(event);
+            }
+        }
+
+        // Search for two of them, one Event per batch.
+        final Set<Event> found = new HashSet<>();
+        try(final ConvertingCursor<Event> cursor = storage.search(
+                Arrays.asList(new RyaIRI("urn:event/005"), new RyaIRI("urn:event/007")),
+                Optional.empty(), Optional.empty(), 1)) {
+            while(cursor.hasNext()) {
+                found.add(cursor.next());
+            }
+        }
+
+        // Verify only the requested Events were returned.
+        assertEquals(expected, found);
+    }
+
     @Test(expected = EventStorageException.class)
     public void update_differentSubjects() throws Exception {
         final EventStorage storage = new MongoEventStorage(super.getMongoClient(), RYA_INSTANCE_NAME);
@@ -31,6 +31,7 @@ import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.rya.accumulo.instance.AccumuloRyaInstanceDetailsRepository;
 import org.apache.rya.accumulo.utils.TablePermissions;
+import org.apache.rya.api.instance.IndexMetadataVersion;
 import org.apache.rya.api.instance.RyaDetails;
 import org.apache.rya.api.instance.RyaDetails.PCJIndexDetails;
 import org.apache.rya.api.instance.RyaDetails.PCJIndexDetails.PCJDetails;
@@ -139,6 +140,8 @@ public class AccumuloPcjStorage implements PrecomputedJoinStorage {
                     "the permissions.", pcjTableName, ryaInstanceName), e);
         }
 
+        // The PCJ may now be used to answer queries.
+        IndexMetadataVersion.increment();
         return pcjId;
     }
 
@@ -203,6 +206,7 @@ public class AccumuloPcjStorage implements PrecomputedJoinStorage {
         // Delete the table that hold's the PCJ's results.
         final String pcjTableName = pcjTableNameFactory.makeTableName(ryaInstanceName, pcjId);
         pcjTables.dropPcjTable(accumuloConn, pcjTableName);
+        IndexMetadataVersion.increment();
     }
 
     @Override
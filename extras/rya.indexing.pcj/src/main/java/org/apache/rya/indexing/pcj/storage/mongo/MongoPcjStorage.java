@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.rya.api.instance.IndexMetadataVersion;
 import org.apache.rya.api.instance.RyaDetails;
 import org.apache.rya.api.instance.RyaDetails.PCJIndexDetails;
 import org.apache.rya.api.instance.RyaDetails.PCJIndexDetails.PCJDetails;
@@ -98,6 +99,9 @@ public class MongoPcjStorage implements PrecomputedJoinStorage {
         // Create the objectID of the document to house the PCJ results.
         pcjDocs.createPcj(pcjId, sparql);
 
+        // The PCJ may now be used to answer queries.
+        IndexMetadataVersion.increment();
+
         // Add access to the PCJ table to all users who are authorized for this
         // instance of Rya.
         return pcjId;
@@ -151,6 +155,7 @@ public class MongoPcjStorage implements PrecomputedJoinStorage {
 
         // Delete the table that hold's the PCJ's results.
         pcjDocs.dropPcj(pcjId);
+        IndexMetadataVersion.increment();
     }
 
     @Override
@@ -63,13 +63,23 @@ public class IncUpdateDAO {
     }
 
     public static String getTripleString(final RyaStatement rs) {
+        final String[] components = getTripleComponents(rs);
+        return components[0] + DELIM + components[1] + DELIM + components[2];
+    }
+
+    /**
+     * Creates the subject, predicate, and object strings that {@link #getTripleString(RyaStatement)}
+     * joins together, without joining them.
+     *
+     * @param rs - The statement to describe. (not null)
+     * @return An array holding the subject, predicate, and object strings.
+     */
+    public static String[] getTripleComponents(final RyaStatement rs) {
         checkNotNull(rs);
         final String subj = rs.getSubject().getData() + TYPE_DELIM + URI_TYPE;
         final String pred = rs.getPredicate().getData() + TYPE_DELIM + URI_TYPE;
-        final String objData = rs.getObject().getData();
-        final String objDataType = rs.getObject().getDataType().stringValue();
-
-        return subj + DELIM + pred + DELIM + objData + TYPE_DELIM + objDataType;
+        final String obj = rs.getObject().getData() + TYPE_DELIM + rs.getObject().getDataType().stringValue();
+        return new String[] { subj, pred, obj };
     }
 
     public static String getTripleString(final Bytes row) {
@@ -24,20 +24,24 @@ import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.VA
 import static org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns.STATEMENT_PATTERN_IDS;
 import static org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns.STATEMENT_PATTERN_IDS_HASH;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.fluo.api.client.TransactionBase;
 import org.apache.fluo.api.data.Bytes;
+import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternRoutingIndex.RoutedPattern;
 
 import com.google.common.collect.Sets;
 
 /**
  * This class caches the StatementPattern Ids so they don't have
  * to be looked up each time a new Statement needs to be processed
- * in the TripleObserver.
+ * in the TripleObserver. It also maintains a {@link StatementPatternRoutingIndex}
+ * over the StatementPatterns with those Ids.
  *
  */
 public class StatementPatternIdCache {
@@ -45,6 +49,8 @@ public class StatementPatternIdCache {
     private final ReentrantLock lock = new ReentrantLock();
     private static Optional<String> HASH = Optional.empty();
     private static Set<String> IDS = new HashSet<>();
+    private static volatile Optional<String> INDEX_HASH = Optional.empty();
+    private static volatile StatementPatternRoutingIndex INDEX = StatementPatternRoutingIndex.EMPTY;
 
     /**
      * This method retrieves the StatementPattern NodeIds registered in the Fluo table.
@@ -77,6 +83,60 @@ public class StatementPatternIdCache {
         return IDS;
     }
 
+    /**
+     * This method retrieves a {@link StatementPatternRoutingIndex} over the StatementPatterns whose
+     * nodeIds are registered in the Fluo table. The index is only updated when the hash of the
+     * StatementPattern nodeIds in the Fluo table changes, the same way {@link #getStatementPatternIds(TransactionBase)}
+     * updates its cache. When it is updated, only the metadata of StatementPatterns that were not
+     * already indexed is read. This method is thread safe.
+     *
+     * @param tx - The transaction used to read the nodeIds and metadata. (not null)
+     * @param metadataDao - Reads the metadata of new StatementPatterns. (not null)
+     * @return - An index over the registered StatementPatterns.
+     */
+    public StatementPatternRoutingIndex getRoutingIndex(TransactionBase tx, FluoQueryMetadataDAO metadataDao) {
+        checkNotNull(tx);
+        checkNotNull(metadataDao);
+        Optional<Bytes> hashBytes = Optional.ofNullable(tx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS_HASH));
+        if (!hashBytes.isPresent()) {
+            return INDEX;
+        }
+
+        String hash = hashBytes.get().toString();
+        if (INDEX_HASH.isPresent() && INDEX_HASH.get().equals(hash)) {
+            return INDEX;
+        }
+
+        lock.lock();
+        try {
+            // Another thread may have updated the index while this one waited for the lock.
+            if (INDEX_HASH.isPresent() && INDEX_HASH.get().equals(hash)) {
+                return INDEX;
+            }
+
+            StatementPatternRoutingIndex current = INDEX;
+            List<RoutedPattern> patterns = new ArrayList<>();
+            for (String id : getStatementPatternIds(tx)) {
+                if (id.isEmpty()) {
+                    continue;
+                }
+                RoutedPattern pattern = current.getPattern(id);
+                if (pattern == null) {
+                    // A failed read is not caught, so the transaction is retried instead of
+                    // caching an index that never routes Triples to the StatementPattern.
+                    pattern = new RoutedPattern(metadataDao.readStatementPatternMetadata(tx, id));
+                }
+                patterns.add(pattern);
+            }
+
+            INDEX = new StatementPatternRoutingIndex(patterns);
+            INDEX_HASH = Optional.of(hash);
+            return INDEX;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Clears contexts of cache so that it will be re-populated next time
      * {@link StatementPatternIdCache#getStatementPatternIds(TransactionBase)} is called.
@@ -84,6 +144,8 @@ public class StatementPatternIdCache {
     public void clear() {
         HASH = Optional.empty();
         IDS.clear();
+        INDEX_HASH = Optional.empty();
+        INDEX = StatementPatternRoutingIndex.EMPTY;
     }
 
 }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.pcj.fluo.app.query;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.DELIM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.domain.VarNameUtils;
+import org.apache.rya.indexing.pcj.storage.accumulo.VariableOrder;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import net.jcip.annotations.Immutable;
+
+/**
+ * An in memory index that routes a triple to the Statement Patterns that it may match.
+ * <p>
+ * Each Statement Pattern is indexed by which of its subject, predicate, and object are
+ * constants, and by the values of those constants. A triple is only looked up once for
+ * each combination of constant positions that is used by at least one pattern, and every
+ * pattern that is returned has constants that are equal to the triple's values. The
+ * triple therefore only has to be checked against patterns that match it.
+ * <p>
+ * Triples are described with the component strings that are produced by
+ * {@link org.apache.rya.indexing.pcj.fluo.app.IncUpdateDAO#getTripleComponents(org.apache.rya.api.domain.RyaStatement)}.
+ */
+@Immutable
+@DefaultAnnotation(NonNull.class)
+public class StatementPatternRoutingIndex {
+
+    /**
+     * An index that does not route triples to any pattern.
+     */
+    public static final StatementPatternRoutingIndex EMPTY = new StatementPatternRoutingIndex(Collections.emptyList());
+
+    private static final int SUBJECT = 1;
+    private static final int PREDICATE = 2;
+    private static final int OBJECT = 4;
+    private static final int MASKS = 8;
+
+    private final Map<String, RoutedPattern> patterns;
+
+    // Indexed by constant mask, then by the constant values of the patterns that use that mask.
+    private final List<Map<String, List<RoutedPattern>>> byMask;
+    private final int[] usedMasks;
+
+    /**
+     * Constructs an instance of {@link StatementPatternRoutingIndex}.
+     *
+     * @param patterns - The patterns that will be indexed. (not null)
+     */
+    public StatementPatternRoutingIndex(final Collection<RoutedPattern> patterns) {
+        checkNotNull(patterns);
+
+        this.patterns = new HashMap<>();
+        byMask = new ArrayList<>(MASKS);
+        for(int mask = 0; mask < MASKS; mask++) {
+            byMask.add(new HashMap<>());
+        }
+
+        for(final RoutedPattern pattern : patterns) {
+            this.patterns.put(pattern.getNodeId(), pattern);
+            final int mask = pattern.getConstantMask();
+            final String key = makeKey(mask, pattern.constants);
+            byMask.get(mask).computeIfAbsent(key, k -> new ArrayList<>(1)).add(pattern);
+        }
+
+        // The lists are handed out by getCandidates(), so they may not be modified.
+        for(final Map<String, List<RoutedPattern>> index : byMask) {
+            index.replaceAll((key, value) -> Collections.unmodifiableList(value));
+        }
+
+        int used = 0;
+        final int[] masks = new int[MASKS];
+        for(int mask = 0; mask < MASKS; mask++) {
+            if(!byMask.get(mask).isEmpty()) {
+                masks[used++] = mask;
+            }
+        }
+        usedMasks = Arrays.copyOf(masks, used);
+    }
+
+    /**
+     * @param nodeId - The node ID of a Statement Pattern. (not null)
+     * @return The indexed pattern with that node ID, or {@code null} if it is not indexed.
+     */
+    public RoutedPattern getPattern(final String nodeId) {
+        checkNotNull(nodeId);
+        return patterns.get(nodeId);
+    }
+
+    /**
+     * @return All of the indexed patterns.
+     */
+    public Collection<RoutedPattern> getPatterns() {
+        return Collections.unmodifiableCollection(patterns.values());
+    }
+
+    /**
+     * Find the patterns whose constants are all equal to the triple's values.
+     *
+     * @param triple - The subject, predicate, and object component strings of a triple. (not null)
+     * @return The patterns the triple matches.
+     */
+    public List<RoutedPattern> getCandidates(final String[] triple) {
+        checkNotNull(triple);
+        checkArgument(triple.length == 3, "A triple must have three components.");
+
+        // Only copy the index's lists when a triple matches patterns with more than one mask.
+        List<RoutedPattern> candidates = Collections.emptyList();
+        boolean shared = true;
+        for(final int mask : usedMasks) {
+            final List<RoutedPattern> matches = byMask.get(mask).get(makeKey(mask, triple));
+            if(matches != null) {
+                if(candidates.isEmpty()) {
+                    candidates = matches;
+                } else {
+                    if(shared) {
+                        candidates = new ArrayList<>(candidates);
+                        shared = false;
+                    }
+                    candidates.addAll(matches);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Builds the lookup key for a triple or for the constants of a pattern. Keys that only
+     * use a single position are the value itself, so they do not allocate.
+     */
+    private static String makeKey(final int mask, final String[] values) {
+        switch(mask) {
+            case 0:
+                return "";
+            case SUBJECT:
+                return values[0];
+            case PREDICATE:
+                return values[1];
+            case OBJECT:
+                return values[2];
+            default:
+                final StringBuilder key = new StringBuilder();
+                for(int i = 0; i < 3; i++) {
+                    if((mask & (1 << i)) != 0) {
+                        if(key.length() > 0) {
+                            key.append(DELIM);
+                        }
+                        key.append(values[i]);
+                    }
+                }
+                return key.toString();
+        }
+    }
+
+    /**
+     * A Statement Pattern that has been prepared so that triples may be routed to it and
+     * matched against it without parsing the pattern again.
+     */
+    @Immutable
+    @DefaultAnnotation(NonNull.class)
+    public static class RoutedPattern {
+        private final StatementPatternMetadata metadata;
+        private final String[] constants = new String[3];
+        private final int constantMask;
+        private final int[] varPositions;
+
+        /**
+         * Constructs an instance of {@link RoutedPattern}.
+         *
+         * @param metadata - The metadata of the Statement Pattern. (not null)
+         * @throws IllegalArgumentException The pattern does not have three components, or a variable
+         *   of its variable order does not appear within the pattern.
+         */
+        public RoutedPattern(final StatementPatternMetadata metadata) throws IllegalArgumentException {
+            this.metadata = checkNotNull(metadata);
+
+            final String[] pattern = metadata.getStatementPattern().split(DELIM);
+            checkArgument(pattern.length == 3, "Invald number of components in pattern: " + metadata.getStatementPattern());
+
+            // Find the constants and the position each variable binds to.
+            int mask = 0;
+            final Map<String, Integer> positions = new HashMap<>();
+            for(int i = 0; i < 3; i++) {
+                if(VarNameUtils.isConstant(pattern[i])) {
+                    constants[i] = VarNameUtils.removeConstant(pattern[i]);
+                    mask |= 1 << i;
+                } else {
+                    positions.put(pattern[i], i);
+                }
+            }
+            constantMask = mask;
+
+            final String[] varOrder = metadata.getVariableOrder().toArray();
+            varPositions = new int[varOrder.length];
+            for(int i = 0; i < varOrder.length; i++) {
+                final Integer position = positions.get(varOrder[i]);
+                checkArgument(position != null, "Variable " + varOrder[i] + " does not appear in pattern: " + metadata.getStatementPattern());
+                varPositions[i] = position;
+            }
+        }
+
+        /**
+         * @return The node ID of the Statement Pattern.
+         */
+        public String getNodeId() {
+            return metadata.getNodeId();
+        }
+
+        /**
+         * @return The variable order of the binding sets that the pattern emits.
+         */
+        public VariableOrder getVariableOrder() {
+            return metadata.getVariableOrder();
+        }
+
+        /**
+         * @return The metadata of the Statement Pattern.
+         */
+        public StatementPatternMetadata getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * @return A bit mask of the positions that are constants: 1 for the subject, 2 for the
+         *   predicate, and 4 for the object.
+         */
+        public int getConstantMask() {
+            return constantMask;
+        }
+
+        /**
+         * Creates the binding set string for a triple that was routed to this pattern.
+         *
+         * @param triple - The subject, predicate, and object component strings of the triple. (not null)
+         * @return The values the triple binds to the pattern's variables, ordered by the pattern's
+         *   variable order and joined with {@code DELIM}, or an empty
+         *   string if the triple does not match the pattern's constants.
+         */
+        public String bind(final String[] triple) {
+            for(int i = 0; i < 3; i++) {
+                if(constants[i] != null && !constants[i].equals(triple[i])) {
+                    return "";
+                }
+            }
+
+            if(varPositions.length == 1) {
+                return triple[varPositions[0]];
+            }
+
+            final StringBuilder bindingSet = new StringBuilder();
+            for(int i = 0; i < varPositions.length; i++) {
+                if(i > 0) {
+                    bindingSet.append(DELIM);
+                }
+                bindingSet.append(triple[varPositions[i]]);
+            }
+            return bindingSet.toString();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.pcj.fluo.app.query;
+
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.DELIM;
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.STATEMENT_PATTERN_ID;
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.TYPE_DELIM;
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.URI_TYPE;
+import static org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns.STATEMENT_PATTERN_IDS;
+import static org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns.STATEMENT_PATTERN_IDS_HASH;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.fluo.api.client.SnapshotBase;
+import org.apache.fluo.api.client.Transaction;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.rya.api.domain.VarNameUtils;
+import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternRoutingIndex.RoutedPattern;
+import org.apache.rya.indexing.pcj.storage.accumulo.VariableOrder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class StatementPatternRoutingIndexTest {
+
+    private static final String TALKS_TO = uri("urn:talksTo");
+    private static final String WORKS_AT = uri("urn:worksAt");
+    private static final String ALICE = uri("urn:Alice");
+    private static final String BOB = uri("urn:Bob");
+
+    @After
+    public void clearCache() {
+        new StatementPatternIdCache().clear();
+    }
+
+    @Test
+    public void routesOnlyToMatchingConstants() {
+        final StatementPatternRoutingIndex index = new StatementPatternRoutingIndex(Lists.newArrayList(
+                pattern("sp1", "person", constant(TALKS_TO), "employee"),
+                pattern("sp2", "employee", constant(WORKS_AT), "business"),
+                pattern("sp3", constant(ALICE), constant(TALKS_TO), "employee"),
+                pattern("sp4", constant(BOB), "predicate", "object"),
+                pattern("sp5", "s", "p", "o")));
+
+        Assert.assertEquals(Sets.newHashSet("sp1", "sp3", "sp5"), ids(index.getCandidates(triple(ALICE, TALKS_TO, BOB))));
+        Assert.assertEquals(Sets.newHashSet("sp1", "sp4", "sp5"), ids(index.getCandidates(triple(BOB, TALKS_TO, ALICE))));
+        Assert.assertEquals(Sets.newHashSet("sp2", "sp5"), ids(index.getCandidates(triple(ALICE, WORKS_AT, BOB))));
+    }
+
+    @Test
+    public void noCandidates() {
+        final StatementPatternRoutingIndex index = new StatementPatternRoutingIndex(Lists.newArrayList(
+                pattern("sp1", "person", constant(TALKS_TO), "employee")));
+
+        Assert.assertTrue(index.getCandidates(triple(ALICE, WORKS_AT, BOB)).isEmpty());
+        Assert.assertTrue(StatementPatternRoutingIndex.EMPTY.getCandidates(triple(ALICE, WORKS_AT, BOB)).isEmpty());
+    }
+
+    @Test
+    public void bindFollowsVariableOrder() {
+        final RoutedPattern sp = pattern("sp1", "person", constant(TALKS_TO), "employee");
+        Assert.assertEquals(BOB + DELIM + ALICE, sp.bind(triple(ALICE, TALKS_TO, BOB)));
+        Assert.assertEquals("", sp.bind(triple(ALICE, WORKS_AT, BOB)));
+    }
+
+    @Test
+    public void cacheOnlyReadsNewPatterns() {
+        final Transaction mockTx = Mockito.mock(Transaction.class);
+        final FluoQueryMetadataDAO dao = Mockito.mock(FluoQueryMetadataDAO.class);
+        when(dao.readStatementPatternMetadata(any(SnapshotBase.class), eq("sp1")))
+            .thenReturn(pattern("sp1", "person", constant(TALKS_TO), "employee").getMetadata());
+        when(dao.readStatementPatternMetadata(any(SnapshotBase.class), eq("sp2")))
+            .thenReturn(pattern("sp2", "employee", constant(WORKS_AT), "business").getMetadata());
+
+        // Only sp1 is registered.
+        when(mockTx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS)).thenReturn(Bytes.of("sp1"));
+        when(mockTx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS_HASH)).thenReturn(Bytes.of("1"));
+
+        final StatementPatternIdCache cache = new StatementPatternIdCache();
+        StatementPatternRoutingIndex index = cache.getRoutingIndex(mockTx, dao);
+        Assert.assertSame(index, cache.getRoutingIndex(mockTx, dao));
+        Assert.assertEquals(Sets.newHashSet("sp1"), ids(index.getPatterns()));
+
+        // sp2 is registered, so only its metadata is read.
+        when(mockTx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS)).thenReturn(Bytes.of("sp1;sp2"));
+        when(mockTx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS_HASH)).thenReturn(Bytes.of("2"));
+        index = cache.getRoutingIndex(mockTx, dao);
+        Assert.assertEquals(Sets.newHashSet("sp1", "sp2"), ids(index.getPatterns()));
+
+        Mockito.verify(dao, Mockito.times(1)).readStatementPatternMetadata(any(SnapshotBase.class), eq("sp1"));
+        Mockito.verify(dao, Mockito.times(1)).readStatementPatternMetadata(any(SnapshotBase.class), eq("sp2"));
+    }
+
+    private static RoutedPattern pattern(final String id, final String subject, final String predicate, final String object) {
+        final List<String> vars = Lists.newArrayList();
+        for(final String component : new String[] { subject, predicate, object }) {
+            if(!VarNameUtils.isConstant(component)) {
+                vars.add(component);
+            }
+        }
+        vars.sort(null);
+
+        return new RoutedPattern(StatementPatternMetadata.builder(id)
+                .setVarOrder(new VariableOrder(vars))
+                .setStatementPattern(subject + DELIM + predicate + DELIM + object)
+                .setParentNodeId("parent")
+                .build());
+    }
+
+    private static String uri(final String value) {
+        return value + TYPE_DELIM + URI_TYPE;
+    }
+
+    private static String constant(final String value) {
+        return VarNameUtils.prependConstant(value);
+    }
+
+    private static String[] triple(final String subject, final String predicate, final String object) {
+        return new String[] { subject, predicate, object };
+    }
+
+    private static Set<String> ids(final Iterable<RoutedPattern> patterns) {
+        final Set<String> ids = new HashSet<>();
+        for(final RoutedPattern pattern : patterns) {
+            ids.add(pattern.getNodeId());
+        }
+        return ids;
+    }
+}
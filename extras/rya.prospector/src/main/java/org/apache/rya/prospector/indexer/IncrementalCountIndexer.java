@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.prospector.indexer;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.prospector.plans.IndexWorkPlan.DELIM;
+import static org.apache.rya.prospector.plans.IndexWorkPlan.URITYPE;
+import static org.apache.rya.prospector.utils.ProspectorConstants.COUNT;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.MultiTableBatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableExistsException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.experimental.AbstractAccumuloIndexer;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.RdfCloudTripleStoreConstants;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.prospector.domain.TripleValueType;
+import org.apache.rya.prospector.plans.impl.CountPlan;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An {@link org.apache.rya.accumulo.experimental.AccumuloIndexer} that keeps
+ * the same counts the {@link CountPlan} Prospect job computes, but updates them
+ * every time a statement is written to or deleted from Rya.
+ * <p>
+ * Each statement adds a {@code +1} (or {@code -1} when it is deleted) cell for its
+ * subject, predicate, object, subject/predicate, predicate/object and subject/object
+ * to a dedicated table. The table has a {@link SummingCombiner} attached to the
+ * {@link org.apache.rya.prospector.utils.ProspectorConstants#COUNT} column family,
+ * so the partial counts are merged by Accumulo during scans and compactions and
+ * a reader always sees the current total.
+ * <p>
+ * Rows use the same layout as the {@link CountPlan}, with {@link #LIVE_PROSPECT}
+ * in place of the Prospect run's reverse timestamp. That means a
+ * {@link org.apache.rya.prospector.service.ProspectorService} pointed at
+ * {@link #getTableName(Configuration)} can read the counts without any changes.
+ * <p>
+ * Only writes made while this indexer is installed are counted. Statements that
+ * were already in the Rya instance must be re-ingested to be included. Writing a
+ * statement that already exists, or deleting one by a partially bound pattern,
+ * is not corrected for, so the counts are estimates in the same way the Prospect
+ * counts are between runs.
+ */
+public class IncrementalCountIndexer extends AbstractAccumuloIndexer {
+    private static final Logger log = Logger.getLogger(IncrementalCountIndexer.class);
+
+    /**
+     * The suffix that is appended to the Rya instance's table prefix to name the count table.
+     */
+    public static final String TABLE_SUFFIX = "prospects_live";
+
+    /**
+     * Used in place of a Prospect run's reverse timestamp within each row. It sorts before
+     * every reverse timestamp, so the live count is always treated as the latest Prospect.
+     */
+    public static final String LIVE_PROSPECT = "000000000000000000";
+
+    /**
+     * The name of the {@link SummingCombiner} that is attached to the count table.
+     */
+    public static final String COMBINER_NAME = "prospectCounts";
+
+    /**
+     * The priority of the {@link SummingCombiner}. It must run before the table's
+     * versioning iterator so that no partial count is dropped.
+     */
+    public static final int COMBINER_PRIORITY = 10;
+
+    private static final Value INCREMENT = new Value("1".getBytes(StandardCharsets.UTF_8));
+    private static final Value DECREMENT = new Value("-1".getBytes(StandardCharsets.UTF_8));
+
+    private AccumuloRdfConfiguration conf;
+    private Connector connector;
+    private BatchWriter writer;
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    @Override
+    public void setConf(final Configuration conf) {
+        requireNonNull(conf);
+        if (conf instanceof AccumuloRdfConfiguration) {
+            this.conf = (AccumuloRdfConfiguration) conf;
+        } else {
+            this.conf = new AccumuloRdfConfiguration(conf);
+        }
+    }
+
+    @Override
+    public void setConnector(final Connector connector) {
+        this.connector = requireNonNull(connector);
+        try {
+            createTableIfNotExists(connector, getTableName());
+        } catch (final AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+            log.warn("Unable to initialize index.  Throwing Runtime Exception. ", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void setMultiTableBatchWriter(final MultiTableBatchWriter writer) throws IOException {
+        try {
+            this.writer = writer.getBatchWriter(getTableName());
+        } catch (final AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void init() {
+    }
+
+    /**
+     * Get the Accumulo table used by this index.
+     * @return table used by instances of this index
+     */
+    @Override
+    public String getTableName() {
+        return getTableName(conf);
+    }
+
+    /**
+     * Get the Accumulo table that will be used by this index.
+     *
+     * @param conf - The Rya configuration that specifies which instance of Rya
+     *   the table name will be built for. (not null)
+     * @return table name guaranteed to be used by instances of this index
+     */
+    public static String getTableName(final Configuration conf) {
+        requireNonNull(conf);
+        return makeTableName( conf.get(RdfCloudTripleStoreConfiguration.CONF_TBL_PREFIX, RdfCloudTripleStoreConstants.TBL_PRFX_DEF) );
+    }
+
+    /**
+     * Make the Accumulo table name used by this indexer for a specific instance of Rya.
+     *
+     * @param ryaInstanceName - The name of the Rya instance the table name is for. (not null)
+     * @return The Accumulo table name used by this indexer for a specific instance of Rya.
+     */
+    public static String makeTableName(final String ryaInstanceName) {
+        requireNonNull(ryaInstanceName);
+        return ryaInstanceName + TABLE_SUFFIX;
+    }
+
+    /**
+     * Creates the count table if it does not exist yet and makes sure the
+     * {@link SummingCombiner} is attached to it for every iterator scope.
+     *
+     * @param connector - Connects to the Accumulo instance that holds the table. (not null)
+     * @param tableName - The name of the count table. (not null)
+     * @throws AccumuloException The table could not be created or configured.
+     * @throws AccumuloSecurityException The connector may not create or configure the table.
+     * @throws TableNotFoundException The table was deleted while it was being configured.
+     */
+    public static void createTableIfNotExists(final Connector connector, final String tableName) throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        requireNonNull(connector);
+        requireNonNull(tableName);
+
+        final TableOperations tos = connector.tableOperations();
+        if(!tos.exists(tableName)) {
+            try {
+                tos.create(tableName);
+            } catch(final TableExistsException e) {
+                // Do nothing. Something else must have made it while we were.
+            }
+        }
+
+        if(!tos.listIterators(tableName).containsKey(COMBINER_NAME)) {
+            final IteratorSetting setting = new IteratorSetting(COMBINER_PRIORITY, COMBINER_NAME, SummingCombiner.class);
+            LongCombiner.setEncodingType(setting, LongCombiner.Type.STRING);
+            Combiner.setColumns(setting, Collections.singletonList(new IteratorSetting.Column(COUNT)));
+            tos.attachIterator(tableName, setting, EnumSet.allOf(IteratorScope.class));
+        }
+    }
+
+    @Override
+    public void storeStatement(final RyaStatement statement) throws IOException {
+        write(statement, INCREMENT);
+    }
+
+    @Override
+    public void deleteStatement(final RyaStatement statement) throws IOException {
+        // A delete may be issued as a pattern. Its matches can not be counted here.
+        if(statement.getSubject() == null || statement.getPredicate() == null || statement.getObject() == null) {
+            log.debug("Skipping a count update for a partially bound delete: " + statement);
+            return;
+        }
+        write(statement, DECREMENT);
+    }
+
+    private void write(final RyaStatement statement, final Value delta) throws IOException {
+        Preconditions.checkNotNull(writer, "BatchWriter not Set");
+        try {
+            writer.addMutations( makeMutations(statement, delta) );
+        } catch (final MutationsRejectedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Create the count cells a statement contributes to.
+     *
+     * @param statement - The statement that was written or deleted. (not null)
+     * @param delta - The amount each count changes by. (not null)
+     * @return One mutation for each {@link TripleValueType} that is counted.
+     */
+    static List<Mutation> makeMutations(final RyaStatement statement, final Value delta) {
+        requireNonNull(statement);
+        requireNonNull(delta);
+
+        final String subject = statement.getSubject().getData();
+        final String predicate = statement.getPredicate().getData();
+        final RyaType object = statement.getObject();
+        final String objectDataType = object.getDataType() == null ? XMLSchema.STRING.stringValue() : object.getDataType().stringValue();
+        final String composite = XMLSchema.STRING.stringValue();
+
+        final byte[] visibilityBytes = statement.getColumnVisibility();
+        final ColumnVisibility visibility = visibilityBytes == null ? new ColumnVisibility() : new ColumnVisibility(visibilityBytes);
+
+        final List<Mutation> mutations = new ArrayList<>(6);
+        mutations.add( makeMutation(TripleValueType.SUBJECT, subject, URITYPE, visibility, delta) );
+        mutations.add( makeMutation(TripleValueType.PREDICATE, predicate, URITYPE, visibility, delta) );
+        mutations.add( makeMutation(TripleValueType.OBJECT, object.getData(), objectDataType, visibility, delta) );
+        mutations.add( makeMutation(TripleValueType.SUBJECT_PREDICATE, subject + DELIM + predicate, composite, visibility, delta) );
+        mutations.add( makeMutation(TripleValueType.PREDICATE_OBJECT, predicate + DELIM + object.getData(), composite, visibility, delta) );
+        mutations.add( makeMutation(TripleValueType.SUBJECT_OBJECT, subject + DELIM + object.getData(), composite, visibility, delta) );
+        return mutations;
+    }
+
+    private static Mutation makeMutation(final TripleValueType type, final String data, final String dataType, final ColumnVisibility visibility, final Value delta) {
+        final Mutation m = new Mutation(type.getIndexType() + DELIM + data + DELIM + LIVE_PROSPECT);
+        m.put(COUNT, dataType, visibility, delta);
+        return m;
+    }
+
+    @Override
+    public Set<IRI> getIndexablePredicates() {
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public void purge(final RdfCloudTripleStoreConfiguration configuration) {
+        try {
+            connector.tableOperations().deleteRows(getTableName(), null, null);
+        } catch (final AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+            log.error("Unable to purge the count table: " + getTableName(), e);
+        }
+    }
+
+    @Override
+    public void dropAndDestroy() {
+        try {
+            final TableOperations tos = connector.tableOperations();
+            if (tos.exists(getTableName())) {
+                tos.delete(getTableName());
+            }
+        } catch (final AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+            log.error("Unable to drop the count table: " + getTableName(), e);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.rya.api.persist.RdfDAOException;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.prospector.domain.IndexEntry;
 import org.apache.rya.prospector.domain.TripleValueType;
+import org.apache.rya.prospector.indexer.IncrementalCountIndexer;
 import org.apache.rya.prospector.utils.ProspectorConstants;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
@@ -45,6 +46,12 @@ import org.eclipse.rdf4j.model.Value;
  */
 public class ProspectorServiceEvalStatsDAO implements RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> {
 
+    /**
+     * When set to {@code true}, counts are read from the table maintained by the
+     * {@link IncrementalCountIndexer} instead of the one written by Prospect runs.
+     */
+    public static final String CONF_USE_LIVE_COUNTS = "rya.prospector.counts.live";
+
     private ProspectorService prospectorService;
 
     public ProspectorServiceEvalStatsDAO() {
@@ -55,7 +62,7 @@ public class ProspectorServiceEvalStatsDAO implements RdfEvalStatsDAO<RdfCloudTr
     }
 
     public ProspectorServiceEvalStatsDAO(Connector connector, RdfCloudTripleStoreConfiguration conf) throws AccumuloException, AccumuloSecurityException {
-        this.prospectorService = new ProspectorService(connector, getProspectTableName(conf));
+        this.prospectorService = new ProspectorService(connector, getCountTableName(conf));
     }
 
     /**
@@ -151,6 +158,19 @@ public class ProspectorServiceEvalStatsDAO implements RdfEvalStatsDAO<RdfCloudTr
         return conf.getTablePrefix() + "prospects";
     }
 
+    /**
+     * Get the name of the table this DAO reads its counts from.
+     *
+     * @param conf - Indicates which Rya instance the counts are for and whether
+     *   the {@link #CONF_USE_LIVE_COUNTS} are used. (not null)
+     * @return The table maintained by the {@link IncrementalCountIndexer} if live
+     *   counts are enabled, otherwise the table written by Prospect runs.
+     */
+    public static String getCountTableName(RdfCloudTripleStoreConfiguration conf) {
+        requireNonNull(conf);
+        return conf.getBoolean(CONF_USE_LIVE_COUNTS, false) ? IncrementalCountIndexer.getTableName(conf) : getProspectTableName(conf);
+    }
+
     /**
      * This method exists so that the Rya Web project may autowrire itself together
      * using the Spring framework.
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.prospector.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
+import org.apache.rya.prospector.service.ProspectorServiceEvalStatsDAO;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that show the counts written by the {@link IncrementalCountIndexer} may be
+ * read by the {@link ProspectorServiceEvalStatsDAO} without running a Prospect job.
+ */
+public class IncrementalCountIndexerTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private Connector connector;
+    private AccumuloRdfConfiguration conf;
+    private AccumuloRyaDAO ryaDAO;
+
+    @Before
+    public void setup() throws Exception {
+        connector = new MockInstance("incrementalCounts").getConnector("user", new PasswordToken("pass"));
+
+        conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix("rya_");
+        conf.setAdditionalIndexers(IncrementalCountIndexer.class);
+        conf.setBoolean(ProspectorServiceEvalStatsDAO.CONF_USE_LIVE_COUNTS, true);
+
+        ryaDAO = new AccumuloRyaDAO();
+        ryaDAO.setConnector(connector);
+        ryaDAO.setConf(conf);
+        ryaDAO.init();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        ryaDAO.dropAndDestroy();
+    }
+
+    @Test
+    public void combinerAttached() throws Exception {
+        final String tableName = IncrementalCountIndexer.getTableName(conf);
+        assertEquals("rya_prospects_live", tableName);
+        assertTrue(connector.tableOperations().listIterators(tableName).containsKey(IncrementalCountIndexer.COMBINER_NAME));
+    }
+
+    @Test
+    public void countsFollowWrites() throws Exception {
+        ryaDAO.add(new RyaStatement(new RyaIRI("urn:gem:etype#1234"), new RyaIRI("urn:gem#pred"), new RyaType("mydata1")));
+        ryaDAO.add(new RyaStatement(new RyaIRI("urn:gem:etype#1234"), new RyaIRI("urn:gem#pred"), new RyaType("mydata2")));
+        ryaDAO.add(new RyaStatement(new RyaIRI("urn:gem:etype#1235"), new RyaIRI("urn:gem#pred"), new RyaType("mydata1")));
+        ryaDAO.add(new RyaStatement(new RyaIRI("urn:gem:etype#1235"), new RyaIRI("urn:gem#pred1"), new RyaType("mydata1")));
+
+        final ProspectorServiceEvalStatsDAO evalDao = new ProspectorServiceEvalStatsDAO(connector, conf);
+        evalDao.init();
+
+        assertEquals(3.0, evalDao.getCardinality(conf, CARDINALITY_OF.PREDICATE, values(VF.createIRI("urn:gem#pred"))), 0.001);
+        assertEquals(2.0, evalDao.getCardinality(conf, CARDINALITY_OF.SUBJECT, values(VF.createIRI("urn:gem:etype#1234"))), 0.001);
+        assertEquals(3.0, evalDao.getCardinality(conf, CARDINALITY_OF.OBJECT, values(VF.createLiteral("mydata1"))), 0.001);
+        assertEquals(2.0, evalDao.getCardinality(conf, CARDINALITY_OF.PREDICATEOBJECT,
+                values(VF.createIRI("urn:gem#pred"), VF.createLiteral("mydata1"))), 0.001);
+        assertEquals(1.0, evalDao.getCardinality(conf, CARDINALITY_OF.SUBJECTPREDICATE,
+                values(VF.createIRI("urn:gem:etype#1235"), VF.createIRI("urn:gem#pred1"))), 0.001);
+        assertEquals(-1.0, evalDao.getCardinality(conf, CARDINALITY_OF.OBJECT, values(VF.createLiteral("mydata3"))), 0.001);
+
+        // Deleting a statement is reflected immediately.
+        ryaDAO.delete(new RyaStatement(new RyaIRI("urn:gem:etype#1234"), new RyaIRI("urn:gem#pred"), new RyaType("mydata2")), conf);
+        assertEquals(2.0, evalDao.getCardinality(conf, CARDINALITY_OF.PREDICATE, values(VF.createIRI("urn:gem#pred"))), 0.001);
+        assertEquals(1.0, evalDao.getCardinality(conf, CARDINALITY_OF.SUBJECT, values(VF.createIRI("urn:gem:etype#1234"))), 0.001);
+    }
+
+    private static List<Value> values(final Value... values) {
+        final List<Value> list = new ArrayList<>();
+        for(final Value value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -87,6 +87,20 @@ public class KafkaTopics {
         return ryaInstance + "-Statements";
     }
 
+    /**
+     * Creates the Kafka topic name that a shared statement router writes the statements that are relevant
+     * to a specific query to.
+     *
+     * @param ryaInstance - The Rya instance the statements are for. (not null)
+     * @param queryId - The id of the query the topic is for. (not null)
+     * @return The name of the Kafka topic.
+     */
+    public static String queryStatementsTopic(final String ryaInstance, final UUID queryId) {
+        requireNonNull(ryaInstance);
+        requireNonNull(queryId);
+        return ryaInstance + "-QueryStatements-" + queryId.toString();
+    }
+
     /**
      * Creates the Kafka topic name that is used for a specific query that is managed within Rya Streams.
      *
@@ -50,13 +50,27 @@ public class SingleThreadKafkaStreamsFactory implements KafkaStreamsFactory {
 
     private final String bootstrapServersConfig;
 
+    private final boolean readRoutedStatements;
+
     /**
      * Constructs an instance of {@link SingleThreadKafkaStreamsFactory}.
      *
      * @param bootstrapServersConfig - Configures which Kafka cluster the jobs will interact with. (not null)
      */
     public SingleThreadKafkaStreamsFactory(final String bootstrapServersConfig) {
+        this(bootstrapServersConfig, false);
+    }
+
+    /**
+     * Constructs an instance of {@link SingleThreadKafkaStreamsFactory}.
+     *
+     * @param bootstrapServersConfig - Configures which Kafka cluster the jobs will interact with. (not null)
+     * @param readRoutedStatements - {@code true} if the jobs read the per-query statements topic that a
+     *   {@link org.apache.rya.streams.kafka.router.SharedStatementRouter} writes to; {@code false} if they read the Rya instance's Statements topic.
+     */
+    public SingleThreadKafkaStreamsFactory(final String bootstrapServersConfig, final boolean readRoutedStatements) {
         this.bootstrapServersConfig = requireNonNull(bootstrapServersConfig);
+        this.readRoutedStatements = readRoutedStatements;
     }
 
     @Override
@@ -77,7 +91,9 @@ public class SingleThreadKafkaStreamsFactory implements KafkaStreamsFactory {
         streamsProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
         // Setup the topology that processes the Query.
-        final String statementsTopic = KafkaTopics.statementsTopic(ryaInstance);
+        final String statementsTopic = readRoutedStatements ?
+                KafkaTopics.queryStatementsTopic(ryaInstance, query.getQueryId()) :
+                KafkaTopics.statementsTopic(ryaInstance);
         final String resultsTopic = KafkaTopics.queryResultsTopic(ryaInstance, query.getQueryId());
 
         try {
@@ -22,7 +22,6 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
 
 import org.apache.kafka.streams.processor.Processor;
 import org.apache.kafka.streams.processor.ProcessorContext;
@@ -30,7 +29,6 @@ import org.apache.kafka.streams.state.KeyValueStore;
 import org.apache.rya.api.function.join.IterativeJoin;
 import org.apache.rya.api.model.VisibilityBindingSet;
 import org.apache.rya.api.utils.CloseableIterator;
-import org.apache.rya.api.utils.UuidUtils;
 import org.apache.rya.streams.kafka.processors.ProcessorResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult.Side;
@@ -53,9 +51,10 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
     private final IterativeJoin join;
     private final List<String> joinVars;
     private final List<String> allVars;
+    private final long retentionMillis;
 
     /**
-     * Constructs an instance of {@link JoinProcessorSupplier}.
+     * Constructs an instance of {@link JoinProcessorSupplier} whose processors retain binding sets forever.
      *
      * @param stateStoreName - The name of the state store the processor will use. (not null)
      * @param join - The join function the supplied processor will use. (not null)
@@ -71,6 +70,30 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             final List<String> joinVars,
             final List<String> allVars,
             final ProcessorResultFactory resultFactory) throws IllegalArgumentException {
+        this(stateStoreName, join, joinVars, allVars, resultFactory, 0L);
+    }
+
+    /**
+     * Constructs an instance of {@link JoinProcessorSupplier}.
+     *
+     * @param stateStoreName - The name of the state store the processor will use. (not null)
+     * @param join - The join function the supplied processor will use. (not null)
+     * @param joinVars - The variables that the supplied processor will join over. (not null)
+     * @param allVars - An ordered list of all the variables that may appear in resulting Binding Sets.
+     *   This list must lead with the same variables and order as {@code joinVars}. (not null)
+     * @param resultFactory - The factory that the supplied processors will use to create results. (not null)
+     * @param retentionMillis - How long, in record time, a binding set may be joined with after it was
+     *   emitted. A value of 0 retains binding sets forever.
+     * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}
+     *   or if {@code retentionMillis} is negative.
+     */
+    public JoinProcessorSupplier(
+            final String stateStoreName,
+            final IterativeJoin join,
+            final List<String> joinVars,
+            final List<String> allVars,
+            final ProcessorResultFactory resultFactory,
+            final long retentionMillis) throws IllegalArgumentException {
         super(resultFactory);
         this.stateStoreName = requireNonNull(stateStoreName);
         this.join = requireNonNull(join);
@@ -81,18 +104,24 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             throw new IllegalArgumentException("The allVars list must start with the joinVars list, but it did not. " +
                     "Join Vars: " + joinVars + ", All Vars: " + allVars);
         }
+
+        if(retentionMillis < 0) {
+            throw new IllegalArgumentException("The retention period may not be negative, but was " + retentionMillis + ".");
+        }
+        this.retentionMillis = retentionMillis;
     }
 
     @Override
     public Processor<Object, ProcessorResult> get() {
-        return new JoinProcessor(stateStoreName, join, joinVars, allVars, super.getResultFactory());
+        return new JoinProcessor(stateStoreName, join, joinVars, allVars, super.getResultFactory(), retentionMillis);
     }
 
     /**
-     * Joins {@link VisibilityBindingSet}s against all binding sets that were emitted on the other side. This function
-     * does not have an age off policy, so it will match everything that could have ever possibly matched, however this
-     * may become prohibitive for joins that match a large volume of binding sets since this will indefinitely grow
-     * within the state store.
+     * Joins {@link VisibilityBindingSet}s against all binding sets that were emitted on the other side. When a
+     * retention period is set, a binding set is only joined with binding sets that were emitted within that period
+     * of record time, and binding sets that fall out of the period are periodically removed from the state store.
+     * Otherwise it will match everything that could have ever possibly matched, however this may become prohibitive
+     * for joins that match a large volume of binding sets since this will indefinitely grow within the state store.
      */
     @DefaultAnnotation(NonNull.class)
     public static class JoinProcessor extends RyaStreamsProcessor {
@@ -104,6 +133,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
         private final List<String> joinVars;
         private final List<String> allVars;
         private final ProcessorResultFactory resultFactory;
+        private final long retentionMillis;
 
         private ProcessorContext context;
         private JoinStateStore joinStateStore;
@@ -118,19 +148,23 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
          *   This list must lead with the same variables and order as {@code joinVars}. (not null)
          * @param resultFactory - The factory that will format this processor's final results
          *   for the downstream processor. (not null)
+         * @param retentionMillis - How long, in record time, a binding set may be joined with after
+         *   it was emitted. A value of 0 retains binding sets forever.
          */
         public JoinProcessor(
                 final String stateStoreName,
                 final IterativeJoin join,
                 final List<String> joinVars,
                 final List<String> allVars,
-                final ProcessorResultFactory resultFactory) {
+                final ProcessorResultFactory resultFactory,
+                final long retentionMillis) {
             super(resultFactory);
             this.stateStoreName = requireNonNull(stateStoreName);
             this.join = requireNonNull(join);
             this.joinVars = requireNonNull(joinVars);
             this.allVars = requireNonNull(allVars);
             this.resultFactory = requireNonNull(resultFactory);
+            this.retentionMillis = retentionMillis;
 
             if(!allVars.subList(0, joinVars.size()).equals(joinVars)) {
                 throw new IllegalArgumentException("All vars must be lead by the join vars, but it did not. " +
@@ -143,13 +177,15 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             // Hold onto the context so that we can forward results.
             this.context = context;
 
-            final String appId = context.applicationId();
-            final UUID queryId = UuidUtils.extractUuidFromStringEnd(appId);
-
             // Get a reference to the state store that keeps track of what can be joined with.
-            final KeyValueStore<String, VisibilityBindingSet> stateStore =
-                    (KeyValueStore<String, VisibilityBindingSet>) context.getStateStore( stateStoreName );
-            joinStateStore = new KeyValueJoinStateStore( stateStore, queryId.toString(), joinVars, allVars );
+            final KeyValueStore<byte[], byte[]> stateStore =
+                    (KeyValueStore<byte[], byte[]>) context.getStateStore( stateStoreName );
+            joinStateStore = new KeyValueJoinStateStore( stateStore, joinVars, allVars, retentionMillis );
+
+            // Periodically remove the binding sets that fell out of the retention period.
+            if(retentionMillis > 0) {
+                context.schedule(retentionMillis);
+            }
         }
 
         @Override
@@ -161,10 +197,11 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             final BinaryResult binary = value.getBinary();
 
             // Store the new result in the state store so that future joins may include it.
-            joinStateStore.store(binary);
+            final long timestamp = context.timestamp();
+            joinStateStore.store(binary, timestamp);
 
             // Fetch the binding sets that the emitted value joins with.
-            try(final CloseableIterator<VisibilityBindingSet> otherSide = joinStateStore.getJoinedValues(binary)) {
+            try(final CloseableIterator<VisibilityBindingSet> otherSide = joinStateStore.getJoinedValues(binary, timestamp)) {
                 // Create an iterator that performs the join operation.
                 final Iterator<VisibilityBindingSet> joinResults = binary.getSide() == Side.LEFT ?
                         join.newLeftResult(binary.getResult(), otherSide) :
@@ -186,7 +223,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
 
         @Override
         public void punctuate(final long timestamp) {
-            // Nothing to do.
+            joinStateStore.removeExpired(timestamp);
         }
 
         @Override
@@ -36,14 +36,24 @@ public interface JoinStateStore {
      * Store a {@link VisibilityBindingSet} based on the side it was emitted from.
      *
      * @param result - The result whose value will be stored. (not null)
+     * @param timestamp - The timestamp of the record that produced the result.
      */
-    public void store(BinaryResult result);
+    public void store(BinaryResult result, long timestamp);
 
     /**
      * Get the previously stored {@link VisibilityBindingSet}s that join with the provided result.
      *
      * @param result - The value that will be joined with. (not null)
+     * @param timestamp - The timestamp of the record that produced the result. Stored values that
+     *   have expired relative to this time are not returned.
      * @return The {@link VisibilityBinidngSet}s that join with {@code result}.
      */
-    public CloseableIterator<VisibilityBindingSet> getJoinedValues(BinaryResult result);
-}
\ No newline at end of file
+    public CloseableIterator<VisibilityBindingSet> getJoinedValues(BinaryResult result, long timestamp);
+
+    /**
+     * Remove the stored {@link VisibilityBindingSet}s that have expired relative to a point in time.
+     *
+     * @param timestamp - The time the stored values are compared against.
+     */
+    public void removeExpired(long timestamp);
+}
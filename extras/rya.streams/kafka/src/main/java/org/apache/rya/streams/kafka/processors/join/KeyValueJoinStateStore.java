@@ -20,7 +20,11 @@ package org.apache.rya.streams.kafka.processors.join;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,13 +35,13 @@ import org.apache.rya.api.model.VisibilityBindingSet;
 import org.apache.rya.api.utils.CloseableIterator;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult.Side;
-import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.apache.rya.streams.kafka.serialization.BinarySerialization;
+import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetDeserializer;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Charsets;
-import com.google.common.base.Joiner;
-
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -45,74 +49,97 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  * A {@link KeyValueStore} implementation of {@link JoinStateStore}.
  * </p>
  * This is a key/value store, so we need to store the {@link VisibilityBindingSet}s using keys that allow us to fetch
- * all binding sets that join from a specific side. We use the following pattern to accomplish this:
+ * all binding sets that join from a specific side. We use the following binary pattern to accomplish this:
  * <pre>
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value]
+ * [side][joinVar1 value]...[joinVarN value][otherVar1 value]...[otherVarM value]
  * </pre>
- * This will group all binding sets that have been emitted from a specific side and who have the same join variables
- * next to each other within the store. This isn't enough information to fetch that group, though. We must provide a
- * start and end key to bound the range that is fetched back. To accomplish this, we place a start of range marker
- * as the first key for all unique [side]/[join values] groups, and an end of range marker as the last key for each
- * of those groups. All keys in between the start and end markers separate their
- * [joinVars] from their [remainingBindingValues] with the join variable end
- * marker, {@link #JOIN_VAR_END_MARKER}.
+ * The side is a single byte. Each value is a single byte that indicates whether the variable is bound followed,
+ * if it is bound, by a four byte big endian length and the UTF-8 bytes of the value. Because every value is length
+ * prefixed, the encoding of one set of join values is never a prefix of the encoding of a different set of join
+ * values. All binding sets that were emitted from a specific side and that have the same join values are therefore
+ * stored next to each other, and they are fetched by seeking to the encoded join values and reading until a key no
+ * longer starts with them. No start or end of range marker rows are needed.
  * </p>
- * The rows follow this pattern:
+ * The stored value is the timestamp of the record that produced the binding set followed by the binding set in the
+ * {@link BinarySerialization} format. When a retention period is configured, binding sets that are older than the
+ * retention period are no longer joined with and are deleted by {@link #removeExpired(long)}. This bounds the size
+ * of the state store for joins over unbounded streams. So that expired binding sets are found without reading the
+ * whole store, every binding set also gets an expiry index row that orders it by timestamp:
  * <pre>
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value]0x00
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value][JOIN_VAR_END_MARKER],[remainingBindingValues]
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value]0xFF
+ * [2][timestamp][binding set key]
  * </pre>
+ * The timestamp is eight big endian bytes with the sign bit flipped, so the rows sort by timestamp. Removing the
+ * expired binding sets reads the index rows up to the oldest retained timestamp.
  * </p>
- * When an iterator over the results is returned, it skips over the start and end of range markers.
+ * The single byte key {@code [3]} holds the version of this format and whether the expiry index is complete. A store
+ * that was written before the version row existed is migrated when it is opened: rows with the old comma delimited
+ * String keys are rewritten in this format, stamped with the time of the migration, and the expiry index is built
+ * for rows that lack it. A store written with a different format version is rejected, so the query's state must be
+ * reset before it is restarted.
  */
 @DefaultAnnotation(NonNull.class)
 public class KeyValueJoinStateStore implements JoinStateStore {
 
     private static final Logger log = LoggerFactory.getLogger(KeyValueJoinStateStore.class);
 
-    /**
-     * This is the minimum value in UTF-8 character.
-     */
-    private static final String START_RANGE_SUFFIX = new String(new byte[] { 0x00 }, Charsets.UTF_8);
+    private static final byte LEFT_SIDE = 0;
+    private static final byte RIGHT_SIDE = 1;
 
-    /**
-     * This is the maximum value of a UTF-8 character.
-     */
-    private static final String END_RANGE_SUFFIX = new String(new byte[] { (byte) 0xFF }, Charsets.UTF_8);
+    private static final byte UNBOUND = 0;
+    private static final byte BOUND = 1;
+
+    private static final byte EXPIRY_INDEX = 2;
 
     /**
-     * Indicates where the end of the join variables occurs and the start of
-     * the remaining binding values should begin.
+     * The key of the row that holds the format version and whether the expiry index is complete.
      */
-    private static final String JOIN_VAR_END_MARKER = new String(new byte[] { (byte) 0x06, (byte) 0x10, (byte) 0x03, (byte) 0x04}, Charsets.UTF_8);
+    private static final byte[] FORMAT_KEY = new byte[] { 3 };
 
     /**
-     * A default empty value that is stored for a start of range or end of range marker.
+     * The version of the format that is written by this class.
      */
-    private static final VisibilityBindingSet RANGE_MARKER_VALUE = new VisibilityBindingSet(new MapBindingSet(), "");
+    static final int FORMAT_VERSION = 1;
 
-    private final KeyValueStore<String, VisibilityBindingSet> store;
-    private final String id;
+    private static final int TIMESTAMP_LENGTH = Long.BYTES;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final KeyValueStore<byte[], byte[]> store;
     private final List<String> joinVars;
     private final List<String> allVars;
+    private final long retentionMillis;
 
     /**
-     * Constructs an instance of {@link KeyValueJoinStateStore}.
+     * Constructs an instance of {@link KeyValueJoinStateStore} that retains binding sets forever.
      *
      * @param store - The state store that will be used. (not null)
-     * @param id - The ID used for the state store. (not null)
      * @param joinVars - The variables that are used to build grouping keys. (not null)
      * @param allVars - The variables that are used to build full value keys. (not null)
      * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}.
      */
     public KeyValueJoinStateStore(
-            final KeyValueStore<String, VisibilityBindingSet> store,
-            final String id,
+            final KeyValueStore<byte[], byte[]> store,
             final List<String> joinVars,
             final List<String> allVars) throws IllegalArgumentException {
+        this(store, joinVars, allVars, 0L);
+    }
+
+    /**
+     * Constructs an instance of {@link KeyValueJoinStateStore}.
+     *
+     * @param store - The state store that will be used. (not null)
+     * @param joinVars - The variables that are used to build grouping keys. (not null)
+     * @param allVars - The variables that are used to build full value keys. (not null)
+     * @param retentionMillis - How long a stored binding set may be joined with, measured in record time.
+     *   A value of 0 retains binding sets forever.
+     * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}
+     *   or if {@code retentionMillis} is negative.
+     */
+    public KeyValueJoinStateStore(
+            final KeyValueStore<byte[], byte[]> store,
+            final List<String> joinVars,
+            final List<String> allVars,
+            final long retentionMillis) throws IllegalArgumentException {
         this.store = requireNonNull(store);
-        this.id = requireNonNull(id);
         this.joinVars = requireNonNull(joinVars);
         this.allVars = requireNonNull(allVars);
 
@@ -122,54 +149,47 @@ public class KeyValueJoinStateStore implements JoinStateStore {
                         "Join Vars: " + joinVars + ", All Vars: " + allVars);
             }
         }
+
+        if(retentionMillis < 0) {
+            throw new IllegalArgumentException("The retention period may not be negative, but was " + retentionMillis + ".");
+        }
+        this.retentionMillis = retentionMillis;
+
+        checkFormat();
     }
 
     @Override
-    public void store(final BinaryResult result) {
+    public void store(final BinaryResult result, final long timestamp) {
         requireNonNull(result);
 
-        // The join key prefix is an ordered list of values from the binding set that match the join variables.
-        // This is a prefix for every row that holds values for a specific set of join variable values.
-        final Side side = result.getSide();
         final VisibilityBindingSet bs = result.getResult();
-
-        final String joinKeyPrefix = makeCommaDelimitedValues(side, joinVars, bs, joinVars.size());
-
-        final List<KeyValue<String, VisibilityBindingSet>> values = new ArrayList<>();
-
-        // For each join variable set, we need a start key for scanning.
-        final String startKey = joinKeyPrefix + START_RANGE_SUFFIX;
-        values.add( new KeyValue<>(startKey, RANGE_MARKER_VALUE) );
-
-        // The actual value that was emitted as a result.
-        final String valueKey = makeCommaDelimitedValues(side, allVars, bs, joinVars.size());
-
-        values.add( new KeyValue<>(valueKey, bs) );
-
-        // And the end key for scanning.
-        final String endKey = joinKeyPrefix + END_RANGE_SUFFIX;
-        values.add( new KeyValue<>(endKey, RANGE_MARKER_VALUE) );
-
-        // Write the pairs to the store.
-        log.debug("\nStoring the following values: {}\n", values);
-        store.putAll( values );
+        final byte[] key = makeKey(result.getSide(), allVars, bs);
+
+        final byte[] serialized = BinarySerialization.serialize(bs);
+        final byte[] value = ByteBuffer.allocate(TIMESTAMP_LENGTH + serialized.length)
+                .putLong(timestamp)
+                .put(serialized)
+                .array();
+
+        log.debug("\nStoring the following value: {}\n", bs);
+        store.put(key, value);
+        if(retentionMillis > 0) {
+            store.put(makeExpiryKey(timestamp, key), EMPTY);
+        }
     }
 
     @Override
-    public CloseableIterator<VisibilityBindingSet> getJoinedValues(final BinaryResult result) {
+    public CloseableIterator<VisibilityBindingSet> getJoinedValues(final BinaryResult result, final long timestamp) {
         requireNonNull(result);
 
         // Get an iterator over the values that start with the join variables for the other side.
         final Side otherSide = result.getSide() == Side.LEFT ? Side.RIGHT : Side.LEFT;
-        final VisibilityBindingSet bs = result.getResult();
-        final String joinKeyPrefix = makeCommaDelimitedValues(otherSide, joinVars, bs, joinVars.size());
-
-        final String startKey = joinKeyPrefix + START_RANGE_SUFFIX;
-        final String endKey = joinKeyPrefix + END_RANGE_SUFFIX;
+        final byte[] prefix = makeKey(otherSide, joinVars, result.getResult());
+        final long oldestTimestamp = getOldestRetained(timestamp);
 
-        final KeyValueIterator<String, VisibilityBindingSet> rangeIt = store.range(startKey, endKey);
+        final KeyValueIterator<byte[], byte[]> rangeIt = store.range(prefix, prefixUpperBound(prefix));
 
-        // Return a CloseableIterator over the range's value fields, skipping the start and end entry.
+        // Return a CloseableIterator over the values whose keys start with the prefix, skipping expired values.
         return new CloseableIterator<VisibilityBindingSet>() {
 
             private Optional<VisibilityBindingSet> next = null;
@@ -205,42 +225,22 @@ public class KeyValueJoinStateStore implements JoinStateStore {
             }
 
             private Optional<VisibilityBindingSet> readNext() {
-                // Check to see if there's anything left in the iterator.
-                if(!rangeIt.hasNext()) {
-                    return Optional.empty();
-                }
+                while(rangeIt.hasNext()) {
+                    final KeyValue<byte[], byte[]> candidate = rangeIt.next();
 
-                // Read a candidate key/value pair from the iterator.
-                KeyValue<String, VisibilityBindingSet> candidate = rangeIt.next();
-
-                // If we are initializing, then the first thing we must read is a start of range marker.
-                if(next == null) {
-                    if(!candidate.key.endsWith(START_RANGE_SUFFIX)) {
-                        throw new IllegalStateException("The first key encountered must be a start of range key.");
+                    // The range's upper bound may be a key from the next group, so stop once the prefix no longer matches.
+                    if(!startsWith(candidate.key, prefix)) {
+                        return Optional.empty();
                     }
-                    log.debug("Read the start of range markers.\n");
 
-                    // Read a new candidate to skip this one.
-                    if(!rangeIt.hasNext()) {
-                        throw new IllegalStateException("There must be another entry after the start of range key.");
+                    // Skip values that have expired but have not been removed yet.
+                    if(readTimestamp(candidate.value) < oldestTimestamp) {
+                        continue;
                     }
-                    candidate = rangeIt.next();
-                }
 
-                // If that value is an end of range key, then we are finished. Otherwise, return it.
-                else if(candidate.key.endsWith(END_RANGE_SUFFIX)) {
-                    log.debug("Read the end of range marker.\n");
-
-                    // If there are more messages, that's a problem.
-                    if(rangeIt.hasNext()) {
-                        throw new IllegalStateException("The end of range marker must be the last key in the iterator.");
-                    }
-
-                    return Optional.empty();
+                    return Optional.of( readBindingSet(candidate.value) );
                 }
-
-                // Otherwise we found a new value.
-                return Optional.of( candidate.value );
+                return Optional.empty();
             }
 
             @Override
@@ -250,64 +250,214 @@ public class KeyValueJoinStateStore implements JoinStateStore {
         };
     }
 
+    @Override
+    public void removeExpired(final long timestamp) {
+        if(retentionMillis == 0) {
+            return;
+        }
+
+        // The expiry index rows that sort before this key belong to binding sets that are older than the oldest
+        // retained timestamp.
+        final long oldestTimestamp = getOldestRetained(timestamp);
+        final byte[] upperBound = makeExpiryKey(oldestTimestamp, EMPTY);
+
+        // Find the expired keys before deleting them so that the store is not modified while it is being iterated.
+        final List<byte[]> expired = new ArrayList<>();
+        try(final KeyValueIterator<byte[], byte[]> it = store.range(new byte[] { EXPIRY_INDEX }, upperBound)) {
+            while(it.hasNext()) {
+                expired.add(it.next().key);
+            }
+        }
+
+        int removed = 0;
+        for(final byte[] expiryKey : expired) {
+            store.delete(expiryKey);
+
+            // The binding set may have been stored again since, in which case a newer index row covers it.
+            final byte[] key = Arrays.copyOfRange(expiryKey, 1 + TIMESTAMP_LENGTH, expiryKey.length);
+            final byte[] value = store.get(key);
+            if(value != null && readTimestamp(value) < oldestTimestamp) {
+                store.delete(key);
+                removed++;
+            }
+        }
+        log.debug("Removed {} expired binding sets.", removed);
+    }
+
+    /**
+     * Verifies the store was written in this class's format, migrating a store that was written before the format
+     * was versioned, and builds the expiry index if retention was turned on since the store was last used.
+     *
+     * @throws IllegalStateException The store was written with a different format version.
+     */
+    private void checkFormat() throws IllegalStateException {
+        final byte[] format = store.get(FORMAT_KEY);
+        if(format != null) {
+            final ByteBuffer buffer = ByteBuffer.wrap(format);
+            final int version = buffer.getInt();
+            if(version != FORMAT_VERSION) {
+                throw new IllegalStateException("The join state store was written with format version " + version +
+                        ", but version " + FORMAT_VERSION + " is required. Reset the query's state before restarting it.");
+            }
+            final boolean indexed = buffer.get() == 1;
+            if(indexed || retentionMillis == 0) {
+                // The index is not maintained without retention, so it must be built again if retention is turned on.
+                if(indexed && retentionMillis == 0) {
+                    writeFormat(false);
+                }
+                return;
+            }
+        }
+
+        // Either the store predates the version row or the expiry index must be built, so read every row once.
+        final List<KeyValue<byte[], byte[]>> rewrites = new ArrayList<>();
+        final List<byte[]> legacyKeys = new ArrayList<>();
+        final long migrationTime = System.currentTimeMillis();
+        final VisibilityBindingSetDeserializer deserializer = new VisibilityBindingSetDeserializer();
+        try(final KeyValueIterator<byte[], byte[]> it = store.all()) {
+            while(it.hasNext()) {
+                final KeyValue<byte[], byte[]> entry = it.next();
+                final byte first = entry.key[0];
+                if(first == LEFT_SIDE || first == RIGHT_SIDE) {
+                    if(retentionMillis > 0) {
+                        rewrites.add(new KeyValue<>(makeExpiryKey(readTimestamp(entry.value), entry.key), EMPTY));
+                    }
+                } else if(first != EXPIRY_INDEX && first != FORMAT_KEY[0]) {
+                    // A row with a "[id],[side],[values]" String key and a serialized binding set value.
+                    legacyKeys.add(entry.key);
+                    final String[] parts = new String(entry.key, StandardCharsets.UTF_8).split(",", 3);
+                    final VisibilityBindingSet bs = deserializer.deserialize(null, entry.value);
+                    if(parts.length < 2 || bs == null || bs.size() == 0) {
+                        // Start and end of range markers hold an empty binding set.
+                        continue;
+                    }
+                    final byte[] key = makeKey(Side.valueOf(parts[1]), allVars, bs);
+                    final byte[] serialized = BinarySerialization.serialize(bs);
+                    rewrites.add(new KeyValue<>(key, ByteBuffer.allocate(TIMESTAMP_LENGTH + serialized.length)
+                            .putLong(migrationTime)
+                            .put(serialized)
+                            .array()));
+                    if(retentionMillis > 0) {
+                        rewrites.add(new KeyValue<>(makeExpiryKey(migrationTime, key), EMPTY));
+                    }
+                }
+            }
+        }
+
+        if(!legacyKeys.isEmpty()) {
+            log.info("Migrating {} rows of the join state store to format version {}.", legacyKeys.size(), FORMAT_VERSION);
+        }
+        for(final byte[] key : legacyKeys) {
+            store.delete(key);
+        }
+        for(final KeyValue<byte[], byte[]> rewrite : rewrites) {
+            store.put(rewrite.key, rewrite.value);
+        }
+        writeFormat(retentionMillis > 0);
+    }
+
+    private void writeFormat(final boolean indexed) {
+        store.put(FORMAT_KEY, ByteBuffer.allocate(Integer.BYTES + 1)
+                .putInt(FORMAT_VERSION)
+                .put(indexed ? (byte) 1 : (byte) 0)
+                .array());
+    }
+
+    /**
+     * @param timestamp - The timestamp of a stored binding set.
+     * @param key - The key of the stored binding set. (not null)
+     * @return The key of the binding set's expiry index row.
+     */
+    private static byte[] makeExpiryKey(final long timestamp, final byte[] key) {
+        return ByteBuffer.allocate(1 + TIMESTAMP_LENGTH + key.length)
+                .put(EXPIRY_INDEX)
+                // Flip the sign bit so that the unsigned byte order matches the numeric order.
+                .putLong(timestamp ^ Long.MIN_VALUE)
+                .put(key)
+                .array();
+    }
+
+    /**
+     * @param timestamp - The current record time.
+     * @return The oldest timestamp a stored value may have and still be joined with.
+     */
+    private long getOldestRetained(final long timestamp) {
+        return retentionMillis == 0 ? Long.MIN_VALUE : timestamp - retentionMillis;
+    }
+
     /**
      * A utility function that helps construct the keys used by {@link KeyValueJoinStateStore}.
      *
      * @param side - The side value for the key. (not null)
      * @param vars - Which variables within the binding set to use for the key's values. (not null)
      * @param bindingSet - The binding set the key is being constructed from. (not null)
-     * @param joinVarSize - the number of join variables at the beginning of
-     * {@code vars}.
-     * @return A comma delimited list of the binding values, leading with the side.
+     * @return The side followed by the length prefixed binding values.
      */
-    private String makeCommaDelimitedValues(final Side side, final List<String> vars, final VisibilityBindingSet bindingSet, final int joinVarSize) {
+    static byte[] makeKey(final Side side, final List<String> vars, final BindingSet bindingSet) {
         requireNonNull(side);
         requireNonNull(vars);
         requireNonNull(bindingSet);
 
-        // Make a an ordered list of the binding set variables.
-        final List<String> values = new ArrayList<>();
-        values.add(id);
-        values.add(side.toString());
-        int count = 0;
+        // Encode the values first so that the key can be allocated with its exact size.
+        final List<byte[]> values = new ArrayList<>(vars.size());
+        int length = 1;
         for(final String var : vars) {
-            count++;
-            String value = bindingSet.hasBinding(var) ? bindingSet.getBinding(var).getValue().toString() : "";
-            if (count == joinVarSize) {
-                // Place the marker at the end of the last joinVar String (and
-                // before the remaining "allVars")
-                // A marker is needed to indicate where the join vars end so
-                // that a range search from "urn:Student9[0x00]" to "urn:Student9[0xFF]"
-                // does not return "urn:Student95,[remainingBindingValues]"
-                // when we want "urn:Student9,[remainingBindingValues]".
-                value += JOIN_VAR_END_MARKER;
-            }
+            final Binding binding = bindingSet.getBinding(var);
+            final byte[] value = binding == null ? null : binding.getValue().toString().getBytes(StandardCharsets.UTF_8);
             values.add(value);
+            length += value == null ? 1 : 1 + Integer.BYTES + value.length;
         }
 
-        // Return a comma delimited list of those values.
-        return Joiner.on(",").join(values);
+        final ByteBuffer key = ByteBuffer.allocate(length);
+        key.put(side == Side.LEFT ? LEFT_SIDE : RIGHT_SIDE);
+        for(final byte[] value : values) {
+            if(value == null) {
+                key.put(UNBOUND);
+            } else {
+                key.put(BOUND);
+                key.putInt(value.length);
+                key.put(value);
+            }
+        }
+        return key.array();
     }
 
-    private void printStateStoreRange(final String startKey, final String endKey) {
-        final KeyValueIterator<String, VisibilityBindingSet> rangeIt = store.range(startKey, endKey);
-        printStateStoreKeyValueIterator(rangeIt);
+    /**
+     * @param prefix - A key prefix that starts with a side byte. (not null)
+     * @return The smallest key that is greater than every key that starts with {@code prefix}.
+     */
+    static byte[] prefixUpperBound(final byte[] prefix) {
+        // Increment the last byte that is not 0xFF and drop everything after it. The side byte is never 0xFF.
+        int i = prefix.length - 1;
+        while(prefix[i] == (byte) 0xFF) {
+            i--;
+        }
+        final byte[] upperBound = Arrays.copyOf(prefix, i + 1);
+        upperBound[i]++;
+        return upperBound;
     }
 
-    private void printStateStoreAll() {
-        final KeyValueIterator<String, VisibilityBindingSet> rangeIt = store.all();
-        printStateStoreKeyValueIterator(rangeIt);
+    private static boolean startsWith(final byte[] key, final byte[] prefix) {
+        if(key.length < prefix.length) {
+            return false;
+        }
+        for(int i = 0; i < prefix.length; i++) {
+            if(key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static void printStateStoreKeyValueIterator(final KeyValueIterator<String, VisibilityBindingSet> rangeIt) {
-        log.info("----------------");
-        while (rangeIt.hasNext()) {
-            final KeyValue<String, VisibilityBindingSet> keyValue = rangeIt.next();
-            log.info(keyValue.key + " :::: " + keyValue.value);
-        }
-        log.info("----------------\n\n");
-        if (rangeIt != null) {
-            rangeIt.close();
+    private static long readTimestamp(final byte[] value) {
+        return ByteBuffer.wrap(value, 0, TIMESTAMP_LENGTH).getLong();
+    }
+
+    private static VisibilityBindingSet readBindingSet(final byte[] value) {
+        try {
+            return BinarySerialization.deserializeBindingSet(value, TIMESTAMP_LENGTH);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not read a binding set from the join state store.", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.router;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Creates {@link SharedStatementRouter}s that talk to a Kafka cluster.
+ */
+@DefaultAnnotation(NonNull.class)
+public class KafkaSharedStatementRouterFactory {
+
+    private final String bootstrapServersConfig;
+    private final long pollMillis;
+
+    /**
+     * Constructs an instance of {@link KafkaSharedStatementRouterFactory}.
+     *
+     * @param bootstrapServersConfig - Configures which Kafka cluster the routers will interact with. (not null)
+     * @param pollMillis - How long each poll of a Statements topic may block.
+     */
+    public KafkaSharedStatementRouterFactory(final String bootstrapServersConfig, final long pollMillis) {
+        this.bootstrapServersConfig = requireNonNull(bootstrapServersConfig);
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Creates a router for a Rya instance. The router has not been started.
+     *
+     * @param ryaInstance - The Rya instance whose statements will be routed. (not null)
+     * @return A router for the Rya instance.
+     */
+    public SharedStatementRouter make(final String ryaInstance) {
+        requireNonNull(ryaInstance);
+        return new SharedStatementRouter(ryaInstance, makeConsumer(), makeConsumer(), makeProducer(), pollMillis);
+    }
+
+    /**
+     * @return A consumer whose offsets are managed by the router instead of a consumer group.
+     */
+    private Consumer<String, byte[]> makeConsumer() {
+        final Properties consumerProps = new Properties();
+        consumerProps.setProperty(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, bootstrapServersConfig);
+        consumerProps.setProperty(ConsumerConfig.GROUP_ID_CONFIG, UUID.randomUUID().toString());
+        consumerProps.setProperty(ConsumerConfig.CLIENT_ID_CONFIG, UUID.randomUUID().toString());
+        consumerProps.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        consumerProps.setProperty(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        consumerProps.setProperty(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        return new KafkaConsumer<>(consumerProps);
+    }
+
+    /**
+     * @return A producer that keeps each partition's records in order, even when a send is retried.
+     */
+    private Producer<String, byte[]> makeProducer() {
+        final Properties producerProps = new Properties();
+        producerProps.setProperty(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, bootstrapServersConfig);
+        producerProps.setProperty(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "1");
+        producerProps.setProperty(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        producerProps.setProperty(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        return new KafkaProducer<>(producerProps);
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.router;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.rya.api.model.VisibilityStatement;
+import org.apache.rya.streams.api.entity.StreamsQuery;
+import org.apache.rya.streams.kafka.KafkaTopics;
+import org.apache.rya.streams.kafka.serialization.VisibilityStatementDeserializer;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Reads the Statements topic of a Rya instance once on behalf of every query that is
+ * running for it and forwards each Statement to the per-query statements topic of the
+ * queries that have a pattern the Statement matches. Each Statement is deserialized and
+ * evaluated once against the distinct patterns in a {@link StatementPatternRoutingTable}
+ * and the original bytes are forwarded, so queries that share patterns also share the
+ * cost of matching them.
+ * <p/>
+ * Queries may be added and removed while the router is running. A new query is caught
+ * up by rewinding the shared consumer to the point that query has been routed up to;
+ * queries that are already past that point are not routed to again. Forwarded records
+ * are keyed by their offset within the Statements topic and written to the partition of
+ * the same number, so the point a query had been routed up to is recovered from the last
+ * record of its topic when it is added again after a restart. The per-query topics must
+ * therefore have at least as many partitions as the Statements topic; see
+ * {@link #getPartitionCount()}. A query whose topic has fewer partitions is not routed to
+ * until its topic has been given enough of them.
+ * <p/>
+ * A query's cursor only moves past a batch of records once every record of the batch has
+ * been written. If routing fails, for instance because a write was not acknowledged, the
+ * router recovers every query's cursor from its topic and routes the records again. A
+ * cursor that can not be read from a query's topic is never guessed; the query is not
+ * routed to, or routing is not resumed, until it can be read.
+ * <p/>
+ * The partitions of the Statements topic are looked up again every
+ * {@link #PARTITION_REFRESH_MILLIS} milliseconds, and on every poll while the topic does
+ * not exist yet, so the router picks up a topic that is created after it started and
+ * partitions that are added to it later on.
+ * <p/>
+ * All Kafka clients are only used by the routing thread.
+ */
+@DefaultAnnotation(NonNull.class)
+public class SharedStatementRouter extends AbstractExecutionThreadService {
+    private static final Logger log = LoggerFactory.getLogger(SharedStatementRouter.class);
+
+    /**
+     * How often the partitions of the Statements topic are looked up again once it has some.
+     */
+    public static final long PARTITION_REFRESH_MILLIS = 60_000L;
+
+    /**
+     * How many times a query's statements topic is polled for its last record before its cursor
+     * is considered unreadable for now.
+     */
+    private static final int CURSOR_POLL_ATTEMPTS = 10;
+
+    private final String ryaInstance;
+    private final String statementsTopic;
+
+    /**
+     * Reads the Statements topic. It is manually assigned to every partition of that topic.
+     */
+    private final Consumer<String, byte[]> statementsConsumer;
+
+    /**
+     * Reads the last record of a per-query topic to find where a query was routed up to.
+     */
+    private final Consumer<String, byte[]> cursorConsumer;
+
+    /**
+     * Writes to the per-query statements topics.
+     */
+    private final Producer<String, byte[]> producer;
+
+    private final long pollMillis;
+
+    private final StatementPatternRoutingTable routingTable = new StatementPatternRoutingTable();
+
+    private final VisibilityStatementDeserializer deserializer = new VisibilityStatementDeserializer();
+
+    /**
+     * Additions and removals that have been requested, but not yet applied by the routing thread.
+     */
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The queries that have been added and not removed, including those with pending changes.
+     */
+    private final Set<UUID> queryIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The next offset of each Statements topic partition that still needs to be routed for each query.
+     * Only used by the routing thread.
+     */
+    private final Map<UUID, Map<Integer, Long>> cursors = new HashMap<>();
+
+    /**
+     * The patterns of each query in {@link #cursors}, so that it may be deferred again if the
+     * Statements topic gains partitions its statements topic does not have. Only used by the routing thread.
+     */
+    private final Map<UUID, List<StatementPattern>> patterns = new HashMap<>();
+
+    private final List<TopicPartition> partitions = new ArrayList<>();
+
+    /**
+     * When the partitions of the Statements topic will be looked up again. Only used by the routing thread.
+     */
+    private long nextPartitionRefresh = 0L;
+
+    private volatile int partitionCount = -1;
+
+    /**
+     * Constructs an instance of {@link SharedStatementRouter}.
+     *
+     * @param ryaInstance - The Rya instance whose statements are routed. (not null)
+     * @param statementsConsumer - Reads the Statements topic. (not null)
+     * @param cursorConsumer - Reads the per-query statements topics when a query is added. (not null)
+     * @param producer - Writes to the per-query statements topics. (not null)
+     * @param pollMillis - How long each poll of the Statements topic may block.
+     */
+    public SharedStatementRouter(
+            final String ryaInstance,
+            final Consumer<String, byte[]> statementsConsumer,
+            final Consumer<String, byte[]> cursorConsumer,
+            final Producer<String, byte[]> producer,
+            final long pollMillis) {
+        this.ryaInstance = requireNonNull(ryaInstance);
+        this.statementsConsumer = requireNonNull(statementsConsumer);
+        this.cursorConsumer = requireNonNull(cursorConsumer);
+        this.producer = requireNonNull(producer);
+        this.pollMillis = pollMillis;
+        statementsTopic = KafkaTopics.statementsTopic(ryaInstance);
+    }
+
+    /**
+     * Starts routing statements to a query's statements topic.
+     *
+     * @param query - The query to route statements for. (not null)
+     * @throws MalformedQueryException The query's SPARQL could not be parsed.
+     */
+    public void addQuery(final StreamsQuery query) throws MalformedQueryException {
+        requireNonNull(query);
+        final List<StatementPattern> patterns = StatementPatternRoutingTable.getStatementPatterns(query.getSparql());
+        queryIds.add(query.getQueryId());
+        changes.add(new Change(query.getQueryId(), patterns));
+    }
+
+    /**
+     * Stops routing statements to a query's statements topic.
+     *
+     * @param queryId - The ID of the query to stop routing statements for. (not null)
+     */
+    public void removeQuery(final UUID queryId) {
+        requireNonNull(queryId);
+        queryIds.remove(queryId);
+        changes.add(new Change(queryId, null));
+    }
+
+    /**
+     * @return The IDs of the queries this router is routing statements for.
+     */
+    public Set<UUID> getQueryIds() {
+        return Collections.unmodifiableSet(queryIds);
+    }
+
+    /**
+     * @return The number of partitions of the Statements topic. The per-query statements topics
+     *   must have at least this many partitions. This is 0 while the Statements topic does not exist
+     *   and may grow while the router is running.
+     * @throws IllegalStateException The router has not started yet.
+     */
+    public int getPartitionCount() {
+        checkState(partitionCount >= 0, "The router has not started yet.");
+        return partitionCount;
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        log.info("Shared Statement Router for Rya instance '" + ryaInstance + "' starting up.");
+        refreshPartitions();
+        partitionCount = partitions.size();
+    }
+
+    @Override
+    protected void run() throws Exception {
+        boolean recovering = false;
+        while(isRunning()) {
+            try {
+                if(recovering) {
+                    recover();
+                    recovering = false;
+                }
+
+                if(partitions.isEmpty() || System.currentTimeMillis() >= nextPartitionRefresh) {
+                    refreshPartitions();
+                }
+
+                applyChanges();
+
+                // A consumer that is not assigned any partitions may not be polled.
+                if(partitions.isEmpty()) {
+                    Thread.sleep(pollMillis);
+                    continue;
+                }
+
+                final ConsumerRecords<String, byte[]> records = statementsConsumer.poll(pollMillis);
+                if(!records.isEmpty()) {
+                    route(records);
+                }
+            } catch(final WakeupException e) {
+                // Thrown when triggerShutdown() was invoked.
+            } catch(final Exception e) {
+                log.error("Could not route the statements of Rya instance '" + ryaInstance + "'. " +
+                        "Recovering where each query was routed up to and trying again.", e);
+                recovering = true;
+                Thread.sleep(pollMillis);
+            }
+        }
+    }
+
+    @Override
+    protected void triggerShutdown() {
+        statementsConsumer.wakeup();
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        log.info("Shared Statement Router for Rya instance '" + ryaInstance + "' shutting down.");
+        statementsConsumer.close();
+        cursorConsumer.close();
+        producer.close();
+    }
+
+    /**
+     * Looks up the partitions of the Statements topic and starts reading the ones that are new.
+     * New partitions are read from their end while no query is being routed, because nothing needs
+     * to be routed until a query is added, and from their beginning otherwise. Queries whose
+     * statements topics do not have enough partitions anymore are deferred until they do.
+     */
+    private void refreshPartitions() {
+        nextPartitionRefresh = System.currentTimeMillis() + PARTITION_REFRESH_MILLIS;
+
+        final List<PartitionInfo> infos = statementsConsumer.partitionsFor(statementsTopic);
+        final List<TopicPartition> added = new ArrayList<>();
+        if(infos != null) {
+            for(final PartitionInfo info : infos) {
+                final TopicPartition partition = new TopicPartition(statementsTopic, info.partition());
+                if(!partitions.contains(partition)) {
+                    added.add(partition);
+                }
+            }
+        }
+
+        if(added.isEmpty()) {
+            if(partitions.isEmpty()) {
+                log.debug("The Statements topic of Rya instance '" + ryaInstance + "' does not exist yet.");
+            }
+            return;
+        }
+
+        log.info("Routing " + added.size() + " new partitions of the Statements topic of Rya instance '" + ryaInstance + "'.");
+        partitions.addAll(added);
+        statementsConsumer.assign(partitions);
+        if(cursors.isEmpty()) {
+            statementsConsumer.seekToEnd(added);
+        } else {
+            statementsConsumer.seekToBeginning(added);
+        }
+        partitionCount = partitions.size();
+
+        // Each record is written to the partition of the same number, so a query whose topic is now too small has to wait.
+        for(final UUID queryId : new ArrayList<>(cursors.keySet())) {
+            final List<PartitionInfo> queryInfos = cursorConsumer.partitionsFor( KafkaTopics.queryStatementsTopic(ryaInstance, queryId) );
+            if(queryInfos == null || queryInfos.size() < partitions.size()) {
+                log.warn("The statements topic of query " + queryId + " does not have " + partitions.size() +
+                        " partitions anymore. Routing to it stops until it does.");
+                routingTable.unregister(queryId);
+                cursors.remove(queryId);
+                changes.add(new Change(queryId, patterns.remove(queryId)));
+            }
+        }
+    }
+
+    /**
+     * Applies the additions and removals that were requested since the last poll.
+     */
+    private void applyChanges() {
+        final List<Change> deferred = new ArrayList<>();
+        Change change;
+        while((change = changes.poll()) != null) {
+            if(change.patterns == null) {
+                cursors.remove(change.queryId);
+                patterns.remove(change.queryId);
+                routingTable.unregister(change.queryId);
+            } else if(queryIds.contains(change.queryId)) {
+                // Each record is written to the partition of the same number, so wait until the topic has enough of them.
+                final List<PartitionInfo> infos = cursorConsumer.partitionsFor( KafkaTopics.queryStatementsTopic(ryaInstance, change.queryId) );
+                if(infos == null || infos.size() < partitions.size()) {
+                    log.debug("The statements topic of query " + change.queryId + " does not have " + partitions.size() + " partitions yet.");
+                    deferred.add(change);
+                    continue;
+                }
+
+                // Routing from an unknown cursor would either skip or repeat statements, so try again later instead.
+                final Optional<Map<Integer, Long>> cursor = recoverCursor(change.queryId);
+                if(!cursor.isPresent()) {
+                    log.warn("Could not read where query " + change.queryId + " was routed up to. Trying again later.");
+                    deferred.add(change);
+                    continue;
+                }
+                cursors.put(change.queryId, cursor.get());
+                patterns.put(change.queryId, change.patterns);
+                routingTable.register(change.queryId, change.patterns);
+
+                // Rewind the shared consumer so that the new query may catch up.
+                rewind(cursor.get());
+            }
+        }
+        changes.addAll(deferred);
+
+        log.debug("Routing " + routingTable.getPatternCount() + " distinct patterns for " + cursors.size() + " queries.");
+    }
+
+    /**
+     * Recovers the cursor of every query from its statements topic after routing failed and
+     * rewinds the shared consumer to the earliest of them.
+     *
+     * @throws IllegalStateException The cursor of a query could not be read. Routing must not resume
+     *   until it can be, so the caller tries again.
+     */
+    private void recover() {
+        for(final Map.Entry<UUID, Map<Integer, Long>> entry : cursors.entrySet()) {
+            final Optional<Map<Integer, Long>> cursor = recoverCursor(entry.getKey());
+            if(!cursor.isPresent()) {
+                throw new IllegalStateException("Could not read where query " + entry.getKey() + " was routed up to.");
+            }
+            entry.setValue(cursor.get());
+        }
+        for(final Map<Integer, Long> cursor : cursors.values()) {
+            rewind(cursor);
+        }
+    }
+
+    /**
+     * Moves the shared consumer back to a query's cursor if it has already read past it.
+     *
+     * @param cursor - The next offset to route for each partition. (not null)
+     */
+    private void rewind(final Map<Integer, Long> cursor) {
+        for(final TopicPartition partition : partitions) {
+            final long from = cursor.getOrDefault(partition.partition(), 0L);
+            if(from < statementsConsumer.position(partition)) {
+                statementsConsumer.seek(partition, from);
+            }
+        }
+    }
+
+    /**
+     * Forwards each record to the queries that it matches and that have not seen it yet.
+     *
+     * @param records - The records that were read from the Statements topic. (not null)
+     * @throws Exception A record could not be written to a query's statements topic.
+     */
+    private void route(final ConsumerRecords<String, byte[]> records) throws Exception {
+        final List<Future<RecordMetadata>> sends = new ArrayList<>();
+        final Map<Integer, Long> routedUpTo = new HashMap<>();
+
+        for(final TopicPartition partition : records.partitions()) {
+            final int partitionId = partition.partition();
+            long next = -1;
+
+            for(final ConsumerRecord<String, byte[]> record : records.records(partition)) {
+                next = record.offset() + 1;
+                if(record.value() == null) {
+                    continue;
+                }
+
+                final VisibilityStatement statement = deserializer.deserialize(statementsTopic, record.value());
+                if(statement == null) {
+                    continue;
+                }
+
+                for(final UUID queryId : routingTable.route(statement)) {
+                    final Map<Integer, Long> cursor = cursors.get(queryId);
+                    if(cursor != null && cursor.getOrDefault(partitionId, 0L) <= record.offset()) {
+                        final String topic = KafkaTopics.queryStatementsTopic(ryaInstance, queryId);
+                        sends.add( producer.send(new ProducerRecord<>(topic, partitionId, Long.toString(record.offset()), record.value())) );
+                    }
+                }
+            }
+
+            if(next >= 0) {
+                routedUpTo.put(partitionId, next);
+            }
+        }
+
+        // Only move the cursors once every write has been acknowledged, so that a failed write is routed again.
+        producer.flush();
+        for(final Future<RecordMetadata> send : sends) {
+            send.get();
+        }
+
+        // Every query has now been routed up to the end of the batch.
+        for(final Map.Entry<Integer, Long> routed : routedUpTo.entrySet()) {
+            for(final Map<Integer, Long> cursor : cursors.values()) {
+                if(cursor.getOrDefault(routed.getKey(), 0L) < routed.getValue()) {
+                    cursor.put(routed.getKey(), routed.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the next Statements topic offset that needs to be routed to a query by reading
+     * the key of the last record in each partition of the query's statements topic.
+     *
+     * @param queryId - The ID of the query. (not null)
+     * @return The next offset to route for each partition. Partitions that are empty start at 0.
+     *   Absent if the last record of a partition that is not empty could not be read.
+     */
+    private Optional<Map<Integer, Long>> recoverCursor(final UUID queryId) {
+        final Map<Integer, Long> cursor = new HashMap<>();
+
+        final String topic = KafkaTopics.queryStatementsTopic(ryaInstance, queryId);
+        final List<PartitionInfo> infos = cursorConsumer.partitionsFor(topic);
+        if(infos != null) {
+            try {
+                for(final PartitionInfo info : infos) {
+                    final TopicPartition partition = new TopicPartition(topic, info.partition());
+                    final List<TopicPartition> assignment = Collections.singletonList(partition);
+                    cursorConsumer.assign(assignment);
+                    cursorConsumer.seekToEnd(assignment);
+
+                    final long end = cursorConsumer.position(partition);
+                    if(end > 0) {
+                        cursorConsumer.seek(partition, end - 1);
+
+                        ConsumerRecords<String, byte[]> records = cursorConsumer.poll(pollMillis);
+                        for(int attempt = 0; records.isEmpty() && attempt < CURSOR_POLL_ATTEMPTS; attempt++) {
+                            records = cursorConsumer.poll(pollMillis);
+                        }
+
+                        for(final ConsumerRecord<String, byte[]> record : records.records(partition)) {
+                            cursor.put(info.partition(), Long.parseLong(record.key()) + 1);
+                        }
+
+                        // Starting this partition over would route everything to the query again.
+                        if(!cursor.containsKey(info.partition())) {
+                            return Optional.empty();
+                        }
+                    }
+                }
+            } finally {
+                cursorConsumer.assign(Collections.<TopicPartition>emptyList());
+            }
+        }
+
+        return Optional.of(cursor);
+    }
+
+    /**
+     * A request to add a query, or to remove it when {@code patterns} is {@code null}.
+     */
+    private static final class Change {
+        private final UUID queryId;
+        private final @Nullable List<StatementPattern> patterns;
+
+        private Change(final UUID queryId, @Nullable final List<StatementPattern> patterns) {
+            this.queryId = queryId;
+            this.patterns = patterns;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.router;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Indexes the {@link StatementPattern}s of every query that is registered with a
+ * {@link SharedStatementRouter} so that each incoming {@link Statement} is only
+ * evaluated once against each distinct pattern, no matter how many queries use it.
+ * <p/>
+ * Patterns are deduplicated by their constants. Variable names do not matter when
+ * deciding whether a Statement needs to be routed to a query, so {@code ?s <urn:p> ?o}
+ * from one query and {@code ?x <urn:p> ?y} from another are evaluated once. Within a
+ * single query, a pattern whose constants are a superset of another pattern's
+ * constants is subsumed by the more general pattern and is not indexed at all.
+ * <p/>
+ * Registration rebuilds an immutable snapshot of the index, so {@link #route(Statement)}
+ * never blocks while queries are being added or removed.
+ */
+@DefaultAnnotation(NonNull.class)
+public class StatementPatternRoutingTable {
+
+    /**
+     * The patterns that have been registered for each query. Guarded by {@code this}.
+     */
+    private final Map<UUID, Set<PatternKey>> keysByQuery = new LinkedHashMap<>();
+
+    /**
+     * The index that {@link #route(Statement)} reads from.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Parses a SPARQL query and returns every {@link StatementPattern} that appears within it.
+     *
+     * @param sparql - The SPARQL query to parse. (not null)
+     * @return The statement patterns of the query.
+     * @throws MalformedQueryException The SPARQL could not be parsed.
+     */
+    public static List<StatementPattern> getStatementPatterns(final String sparql) throws MalformedQueryException {
+        requireNonNull(sparql);
+        final ParsedQuery parsed = new SPARQLParser().parseQuery(sparql, null);
+        return StatementPatternCollector.process(parsed.getTupleExpr());
+    }
+
+    /**
+     * Registers a query with the table. If the query was already registered, then its
+     * patterns are replaced.
+     *
+     * @param queryId - The ID of the query the patterns are for. (not null)
+     * @param patterns - The statement patterns of the query. (not null)
+     */
+    public synchronized void register(final UUID queryId, final Collection<StatementPattern> patterns) {
+        requireNonNull(queryId);
+        requireNonNull(patterns);
+
+        final List<PatternKey> keys = new ArrayList<>();
+        for(final StatementPattern pattern : patterns) {
+            keys.add( PatternKey.of(pattern) );
+        }
+
+        // Drop any pattern that is covered by a more general pattern of the same query.
+        final Set<PatternKey> retained = new HashSet<>();
+        for(final PatternKey key : keys) {
+            boolean subsumed = false;
+            for(final PatternKey other : keys) {
+                if(!other.equals(key) && other.subsumes(key)) {
+                    subsumed = true;
+                    break;
+                }
+            }
+            if(!subsumed) {
+                retained.add(key);
+            }
+        }
+
+        keysByQuery.put(queryId, retained);
+        rebuild();
+    }
+
+    /**
+     * Removes a query from the table. Does nothing if the query is not registered.
+     *
+     * @param queryId - The ID of the query to remove. (not null)
+     */
+    public synchronized void unregister(final UUID queryId) {
+        requireNonNull(queryId);
+        if(keysByQuery.remove(queryId) != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return The IDs of the queries that are registered with the table.
+     */
+    public synchronized Set<UUID> getQueryIds() {
+        return new HashSet<>( keysByQuery.keySet() );
+    }
+
+    /**
+     * @return The number of distinct patterns that each Statement may be evaluated against.
+     */
+    public int getPatternCount() {
+        return snapshot.patternCount;
+    }
+
+    /**
+     * Finds the queries that have at least one pattern that matches a Statement.
+     *
+     * @param statement - The statement to route. (not null)
+     * @return The IDs of the queries the Statement must be delivered to. May be empty.
+     */
+    public Set<UUID> route(final Statement statement) {
+        requireNonNull(statement);
+
+        final Snapshot current = snapshot;
+        Set<UUID> targets = Collections.emptySet();
+
+        final List<Route> byPredicate = current.byPredicate.get( statement.getPredicate() );
+        if(byPredicate != null) {
+            targets = route(byPredicate, statement, targets);
+        }
+        return route(current.anyPredicate, statement, targets);
+    }
+
+    private static Set<UUID> route(final List<Route> routes, final Statement statement, Set<UUID> targets) {
+        for(final Route route : routes) {
+            // Skip the evaluation when every query that uses the pattern is already a target.
+            if(!targets.containsAll(route.queryIds) && route.key.matches(statement)) {
+                if(targets.isEmpty()) {
+                    targets = new HashSet<>();
+                }
+                targets.addAll(route.queryIds);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Rebuilds the snapshot from {@link #keysByQuery}. Must be called while holding the lock.
+     */
+    private void rebuild() {
+        final Map<PatternKey, Set<UUID>> queriesByKey = new LinkedHashMap<>();
+        for(final Map.Entry<UUID, Set<PatternKey>> entry : keysByQuery.entrySet()) {
+            for(final PatternKey key : entry.getValue()) {
+                Set<UUID> queryIds = queriesByKey.get(key);
+                if(queryIds == null) {
+                    queryIds = new HashSet<>();
+                    queriesByKey.put(key, queryIds);
+                }
+                queryIds.add(entry.getKey());
+            }
+        }
+
+        final Map<Value, List<Route>> byPredicate = new HashMap<>();
+        final List<Route> anyPredicate = new ArrayList<>();
+        for(final Map.Entry<PatternKey, Set<UUID>> entry : queriesByKey.entrySet()) {
+            final Route route = new Route(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+            final Value predicate = entry.getKey().predicate;
+            if(predicate == null) {
+                anyPredicate.add(route);
+            } else {
+                List<Route> routes = byPredicate.get(predicate);
+                if(routes == null) {
+                    routes = new ArrayList<>();
+                    byPredicate.put(predicate, routes);
+                }
+                routes.add(route);
+            }
+        }
+
+        snapshot = new Snapshot(byPredicate, anyPredicate, queriesByKey.size());
+    }
+
+    /**
+     * An immutable view of the index.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new HashMap<>(), new ArrayList<>(), 0);
+
+        private final Map<Value, List<Route>> byPredicate;
+        private final List<Route> anyPredicate;
+        private final int patternCount;
+
+        private Snapshot(final Map<Value, List<Route>> byPredicate, final List<Route> anyPredicate, final int patternCount) {
+            this.byPredicate = byPredicate;
+            this.anyPredicate = anyPredicate;
+            this.patternCount = patternCount;
+        }
+    }
+
+    /**
+     * A distinct pattern and the queries that use it.
+     */
+    private static final class Route {
+        private final PatternKey key;
+        private final Set<UUID> queryIds;
+
+        private Route(final PatternKey key, final Set<UUID> queryIds) {
+            this.key = key;
+            this.queryIds = queryIds;
+        }
+    }
+
+    /**
+     * The parts of a {@link StatementPattern} that decide whether a Statement may match it.
+     * A {@code null} subject, predicate, or object is a variable.
+     */
+    static final class PatternKey {
+        private final @Nullable Value subject;
+        private final @Nullable Value predicate;
+        private final @Nullable Value object;
+        private final boolean hasContext;
+        private final @Nullable Value context;
+
+        PatternKey(
+                @Nullable final Value subject,
+                @Nullable final Value predicate,
+                @Nullable final Value object,
+                final boolean hasContext,
+                @Nullable final Value context) {
+            this.subject = subject;
+            this.predicate = predicate;
+            this.object = object;
+            this.hasContext = hasContext;
+            this.context = context;
+        }
+
+        static PatternKey of(final StatementPattern pattern) {
+            final Var contextVar = pattern.getContextVar();
+            return new PatternKey(
+                    constant(pattern.getSubjectVar()),
+                    constant(pattern.getPredicateVar()),
+                    constant(pattern.getObjectVar()),
+                    contextVar != null,
+                    constant(contextVar));
+        }
+
+        private static @Nullable Value constant(@Nullable final Var var) {
+            return var != null && var.isConstant() ? var.getValue() : null;
+        }
+
+        /**
+         * Mirrors the matching rules of {@code StatementPatternMatcher}.
+         *
+         * @param statement - The statement to evaluate. (not null)
+         * @return {@code true} if the statement matches this pattern's constants.
+         */
+        boolean matches(final Statement statement) {
+            if(subject != null && !subject.equals(statement.getSubject())) {
+                return false;
+            }
+            if(predicate != null && !predicate.equals(statement.getPredicate())) {
+                return false;
+            }
+            if(object != null && !object.equals(statement.getObject())) {
+                return false;
+            }
+            if(hasContext) {
+                final Value stmtContext = statement.getContext();
+                if(stmtContext == null || (context != null && !context.equals(stmtContext))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param other - The pattern to compare against. (not null)
+         * @return {@code true} if every Statement that matches {@code other} also matches this pattern.
+         */
+        boolean subsumes(final PatternKey other) {
+            return covers(subject, other.subject) &&
+                    covers(predicate, other.predicate) &&
+                    covers(object, other.object) &&
+                    (!hasContext || (other.hasContext && covers(context, other.context)));
+        }
+
+        private static boolean covers(@Nullable final Value general, @Nullable final Value specific) {
+            return general == null || general.equals(specific);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(o instanceof PatternKey) {
+                final PatternKey other = (PatternKey) o;
+                return hasContext == other.hasContext &&
+                        Objects.equals(subject, other.subject) &&
+                        Objects.equals(predicate, other.predicate) &&
+                        Objects.equals(object, other.object) &&
+                        Objects.equals(context, other.context);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subject, predicate, object, hasContext, context);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.apache.rya.api.model.VisibilityStatement;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A utility class used to serialize {@link VisibilityBindingSet}s and {@link VisibilityStatement}s
+ * using a compact, versioned binary format.
+ * <p>
+ * Every record starts with a header of three bytes: {@link #MAGIC}, {@link #VERSION}, and the
+ * type of record. Strings are written as a varint length followed by their UTF-8 bytes. Each
+ * {@link Value} is written as a one byte tag followed by the strings that describe it. The
+ * datatypes of typed literals that appear in {@link #DATATYPES} are written as their varint
+ * index within that list instead of as a full IRI.
+ * <p>
+ * Records are read directly from the provided byte[] without wrapping it in a stream. Java
+ * serialized records never start with {@link #MAGIC}, so {@link #isJavaSerialized(byte[])}
+ * may be used to detect records that were written before this format was introduced.
+ */
+@DefaultAnnotation(NonNull.class)
+public class BinarySerialization {
+
+    /**
+     * The first byte of every binary record.
+     */
+    public static final byte MAGIC = 0x52;
+
+    /**
+     * The version of the binary format that is written by this class.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * The datatypes that are written as an index instead of as an IRI. This list
+     * may only be appended to; reordering it would break previously written records.
+     */
+    public static final List<IRI> DATATYPES = Collections.unmodifiableList(Arrays.asList(
+            XMLSchema.BOOLEAN,
+            XMLSchema.INT,
+            XMLSchema.INTEGER,
+            XMLSchema.LONG,
+            XMLSchema.SHORT,
+            XMLSchema.BYTE,
+            XMLSchema.DOUBLE,
+            XMLSchema.FLOAT,
+            XMLSchema.DECIMAL,
+            XMLSchema.DATETIME,
+            XMLSchema.DATE,
+            XMLSchema.TIME,
+            XMLSchema.DURATION,
+            XMLSchema.ANYURI,
+            XMLSchema.NON_NEGATIVE_INTEGER,
+            XMLSchema.POSITIVE_INTEGER,
+            XMLSchema.NON_POSITIVE_INTEGER,
+            XMLSchema.NEGATIVE_INTEGER,
+            XMLSchema.UNSIGNED_LONG,
+            XMLSchema.UNSIGNED_INT,
+            XMLSchema.UNSIGNED_SHORT,
+            XMLSchema.UNSIGNED_BYTE,
+            XMLSchema.GYEAR,
+            XMLSchema.GYEARMONTH,
+            XMLSchema.GMONTH,
+            XMLSchema.GMONTHDAY,
+            XMLSchema.GDAY,
+            XMLSchema.NORMALIZEDSTRING,
+            XMLSchema.TOKEN,
+            XMLSchema.LANGUAGE));
+
+    private static final Map<IRI, Integer> DATATYPE_INDICES = new HashMap<>();
+    static {
+        for(int i = 0; i < DATATYPES.size(); i++) {
+            DATATYPE_INDICES.put(DATATYPES.get(i), i);
+        }
+    }
+
+    // Record types.
+    private static final byte BINDING_SET = 1;
+    private static final byte STATEMENT = 2;
+
+    // Value tags.
+    private static final byte NULL_VALUE = 0;
+    private static final byte IRI_VALUE = 1;
+    private static final byte BNODE_VALUE = 2;
+    private static final byte STRING_LITERAL = 3;
+    private static final byte LANGUAGE_LITERAL = 4;
+    private static final byte DICTIONARY_LITERAL = 5;
+    private static final byte TYPED_LITERAL = 6;
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    /**
+     * Checks whether some data was written using Java object serialization instead of this format.
+     *
+     * @param data - The data to check. (not null)
+     * @return {@code true} if the data starts with the Java object serialization stream magic number.
+     */
+    public static boolean isJavaSerialized(final byte[] data) {
+        requireNonNull(data);
+        return data.length >= 2 && data[0] == (byte) 0xAC && data[1] == (byte) 0xED;
+    }
+
+    /**
+     * Serialize a {@link VisibilityBindingSet}.
+     *
+     * @param bindingSet - The binding set to serialize. (not null)
+     * @return A byte[] representation of the binding set.
+     */
+    public static byte[] serialize(final VisibilityBindingSet bindingSet) {
+        requireNonNull(bindingSet);
+
+        final Output out = new Output(64);
+        writeHeader(out, BINDING_SET);
+        out.writeString(bindingSet.getVisibility());
+        out.writeVarInt(bindingSet.size());
+        for(final Binding binding : bindingSet) {
+            out.writeString(binding.getName());
+            writeValue(out, binding.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Serialize a {@link VisibilityStatement}.
+     *
+     * @param statement - The statement to serialize. (not null)
+     * @return A byte[] representation of the statement.
+     */
+    public static byte[] serialize(final VisibilityStatement statement) {
+        requireNonNull(statement);
+
+        final Output out = new Output(64);
+        writeHeader(out, STATEMENT);
+        out.writeString(statement.getVisibility());
+        writeValue(out, statement.getSubject());
+        writeValue(out, statement.getPredicate());
+        writeValue(out, statement.getObject());
+        writeValue(out, statement.getContext());
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserialize a {@link VisibilityBindingSet} that was written by {@link #serialize(VisibilityBindingSet)}.
+     *
+     * @param data - The data that will be deserialized. (not null)
+     * @return The binding set that was read from the data.
+     * @throws IOException The data is not a binding set written in a supported version of this format.
+     */
+    public static VisibilityBindingSet deserializeBindingSet(final byte[] data) throws IOException {
+        return deserializeBindingSet(data, 0);
+    }
+
+    /**
+     * Deserialize a {@link VisibilityBindingSet} that was written by {@link #serialize(VisibilityBindingSet)}
+     * and that is stored at the end of a larger byte[].
+     *
+     * @param data - The data that holds the binding set. (not null)
+     * @param offset - The index within {@code data} where the binding set starts.
+     * @return The binding set that was read from the data.
+     * @throws IOException The data is not a binding set written in a supported version of this format.
+     */
+    public static VisibilityBindingSet deserializeBindingSet(final byte[] data, final int offset) throws IOException {
+        requireNonNull(data);
+        if(offset < 0 || offset > data.length) {
+            throw new IOException("Offset " + offset + " is outside of the data.");
+        }
+
+        final Input in = new Input(data, offset);
+        readHeader(in, BINDING_SET);
+        final String visibility = in.readString();
+        final int size = in.readVarInt();
+
+        final MapBindingSet bindingSet = new MapBindingSet(size);
+        for(int i = 0; i < size; i++) {
+            final String name = in.readString();
+            final Value value = readValue(in);
+            if(value != null) {
+                bindingSet.addBinding(name, value);
+            }
+        }
+        in.checkFullyRead();
+
+        return new VisibilityBindingSet(bindingSet, visibility);
+    }
+
+    /**
+     * Deserialize a {@link VisibilityStatement} that was written by {@link #serialize(VisibilityStatement)}.
+     *
+     * @param data - The data that will be deserialized. (not null)
+     * @return The statement that was read from the data.
+     * @throws IOException The data is not a statement written in a supported version of this format.
+     */
+    public static VisibilityStatement deserializeStatement(final byte[] data) throws IOException {
+        requireNonNull(data);
+
+        final Input in = new Input(data, 0);
+        readHeader(in, STATEMENT);
+        final String visibility = in.readString();
+        final Value subject = readValue(in);
+        final Value predicate = readValue(in);
+        final Value object = readValue(in);
+        final Value context = readValue(in);
+        in.checkFullyRead();
+
+        if(!(subject instanceof Resource) || !(predicate instanceof IRI) || object == null ||
+                (context != null && !(context instanceof Resource))) {
+            throw new IOException("The data does not describe a valid statement.");
+        }
+
+        final Statement statement = context == null ?
+                VF.createStatement((Resource) subject, (IRI) predicate, object) :
+                VF.createStatement((Resource) subject, (IRI) predicate, object, (Resource) context);
+        return new VisibilityStatement(statement, visibility);
+    }
+
+    private static void writeHeader(final Output out, final byte type) {
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+    }
+
+    private static void readHeader(final Input in, final byte expectedType) throws IOException {
+        final byte magic = in.readByte();
+        if(magic != MAGIC) {
+            throw new IOException("The data is not in the Rya Streams binary format.");
+        }
+
+        final byte version = in.readByte();
+        if(version < 1 || version > VERSION) {
+            throw new IOException("Unsupported binary format version " + version + ". The latest supported version is " + VERSION + ".");
+        }
+
+        final byte type = in.readByte();
+        if(type != expectedType) {
+            throw new IOException("The data holds a record of type " + type + ", but type " + expectedType + " was expected.");
+        }
+    }
+
+    private static void writeValue(final Output out, final Value value) {
+        if(value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if(value instanceof IRI) {
+            out.writeByte(IRI_VALUE);
+            out.writeString(value.stringValue());
+        } else if(value instanceof BNode) {
+            out.writeByte(BNODE_VALUE);
+            out.writeString(((BNode) value).getID());
+        } else if(value instanceof Literal) {
+            final Literal literal = (Literal) value;
+            final Optional<String> language = literal.getLanguage();
+            final IRI datatype = literal.getDatatype();
+
+            if(language.isPresent()) {
+                out.writeByte(LANGUAGE_LITERAL);
+                out.writeString(literal.getLabel());
+                out.writeString(language.get());
+            } else if(datatype == null || XMLSchema.STRING.equals(datatype)) {
+                out.writeByte(STRING_LITERAL);
+                out.writeString(literal.getLabel());
+            } else {
+                final Integer index = DATATYPE_INDICES.get(datatype);
+                if(index != null) {
+                    out.writeByte(DICTIONARY_LITERAL);
+                    out.writeVarInt(index);
+                } else {
+                    out.writeByte(TYPED_LITERAL);
+                    out.writeString(datatype.stringValue());
+                }
+                out.writeString(literal.getLabel());
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    private static Value readValue(final Input in) throws IOException {
+        final byte tag = in.readByte();
+        try {
+            return readValue(in, tag);
+        } catch(final IllegalArgumentException e) {
+            // The value factory rejects malformed IRIs and literals.
+            throw new IOException("The data holds an invalid value.", e);
+        }
+    }
+
+    private static Value readValue(final Input in, final byte tag) throws IOException {
+        switch(tag) {
+            case NULL_VALUE:
+                return null;
+            case IRI_VALUE:
+                return VF.createIRI(in.readString());
+            case BNODE_VALUE:
+                return VF.createBNode(in.readString());
+            case STRING_LITERAL:
+                return VF.createLiteral(in.readString());
+            case LANGUAGE_LITERAL: {
+                final String label = in.readString();
+                return VF.createLiteral(label, in.readString());
+            }
+            case DICTIONARY_LITERAL: {
+                final int index = in.readVarInt();
+                if(index >= DATATYPES.size()) {
+                    throw new IOException("Unknown datatype dictionary index " + index + ".");
+                }
+                return VF.createLiteral(in.readString(), DATATYPES.get(index));
+            }
+            case TYPED_LITERAL: {
+                final IRI datatype = VF.createIRI(in.readString());
+                return VF.createLiteral(in.readString(), datatype);
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag + ".");
+        }
+    }
+
+    /**
+     * A growable byte buffer that the binary format is written to.
+     */
+    private static final class Output {
+        private byte[] buffer;
+        private int length = 0;
+
+        public Output(final int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        public void writeByte(final byte b) {
+            ensureCapacity(1);
+            buffer[length++] = b;
+        }
+
+        public void writeVarInt(final int value) {
+            ensureCapacity(5);
+            int remaining = value;
+            while((remaining & ~0x7F) != 0) {
+                buffer[length++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            buffer[length++] = (byte) remaining;
+        }
+
+        public void writeString(final String value) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void ensureCapacity(final int additional) {
+            if(length + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+            }
+        }
+    }
+
+    /**
+     * A cursor that reads the binary format directly from a byte[].
+     */
+    private static final class Input {
+        private final byte[] data;
+        private int position;
+
+        public Input(final byte[] data, final int offset) {
+            this.data = data;
+            this.position = offset;
+        }
+
+        public byte readByte() throws IOException {
+            require(1);
+            return data[position++];
+        }
+
+        public int readVarInt() throws IOException {
+            int value = 0;
+            for(int shift = 0; shift < 35; shift += 7) {
+                final byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    if(value < 0) {
+                        throw new IOException("Varint is out of range.");
+                    }
+                    return value;
+                }
+            }
+            throw new IOException("Varint is longer than 5 bytes.");
+        }
+
+        public String readString() throws IOException {
+            final int length = readVarInt();
+            require(length);
+            final String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        public void checkFullyRead() throws IOException {
+            if(position != data.length) {
+                throw new IOException((data.length - position) + " unexpected trailing bytes.");
+            }
+        }
+
+        private void require(final int length) throws EOFException {
+            if(length > data.length - position) {
+                throw new EOFException("The data ended before the record was fully read.");
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A Kafka {@link Serializer} that is able to serialize entities using {@link BinarySerialization}.
+ * <p>
+ * Deployments that still have consumers which only understand Java object serialization may
+ * set {@link #JAVA_SERIALIZATION_CONFIG} to {@code true} until those consumers have been upgraded.
+ * The matching {@link BinaryDeserializer} reads both formats.
+ *
+ * @param T - The type of entity to serialize.
+ */
+@DefaultAnnotation(NonNull.class)
+public abstract class BinarySerializer<T> implements Serializer<T> {
+
+    /**
+     * A boolean configuration property that makes the serializer write Java object serialization
+     * instead of the binary format.
+     */
+    public static final String JAVA_SERIALIZATION_CONFIG = "rya.streams.serialization.java";
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySerializer.class);
+
+    private boolean javaSerialization = false;
+
+    @Override
+    public void configure(final Map<String, ?> configs, final boolean isKey) {
+        final Object value = configs.get(JAVA_SERIALIZATION_CONFIG);
+        javaSerialization = value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    @Override
+    public byte[] serialize(final String topic, final T data) {
+        if(data == null) {
+            return null;
+        }
+
+        if(!javaSerialization) {
+            return toBytes(data);
+        }
+
+        try {
+            return ObjectSerialization.serialize(data);
+        } catch (final IOException e) {
+            log.error("Unable to serialize a " + getSerializedClass().getName() + ".", e);
+
+            // Return null when there is an error since that is the contract of this method.
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to do.
+    }
+
+    /**
+     * @param data - The entity to serialize. (not null)
+     * @return The binary representation of the entity.
+     */
+    protected abstract byte[] toBytes(T data);
+
+    /**
+     * @return - The class name of T. This is used for logging purposes.
+     */
+    protected abstract Class<T> getSerializedClass();
+}
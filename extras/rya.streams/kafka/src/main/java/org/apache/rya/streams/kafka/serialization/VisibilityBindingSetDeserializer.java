@@ -18,6 +18,8 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.rya.api.model.VisibilityBindingSet;
 
@@ -25,12 +27,17 @@ import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Deserializer} that is able to deserialize Java object serialized {@link VisibilityBindingSet}s.
+ * A Kafka {@link Deserializer} that is able to deserialize binary or Java object serialized {@link VisibilityBindingSet}s.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityBindingSetDeserializer extends ObjectDeserializer<VisibilityBindingSet> {
+public class VisibilityBindingSetDeserializer extends BinaryDeserializer<VisibilityBindingSet> {
+    @Override
+    protected VisibilityBindingSet fromBytes(final byte[] data) throws IOException {
+        return BinarySerialization.deserializeBindingSet(data);
+    }
+
     @Override
     protected Class<VisibilityBindingSet> getDeserializedClass() {
         return VisibilityBindingSet.class;
     }
-}
\ No newline at end of file
+}
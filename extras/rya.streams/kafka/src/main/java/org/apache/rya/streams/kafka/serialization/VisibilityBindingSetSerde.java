@@ -18,6 +18,9 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
 import java.util.Map;
 
 import org.apache.kafka.common.serialization.Deserializer;
@@ -30,14 +33,20 @@ import org.apache.rya.api.model.VisibilityBindingSet;
  */
 public class VisibilityBindingSetSerde implements Serde<VisibilityBindingSet> {
 
+    private Map<String, ?> configs = Collections.emptyMap();
+    private boolean isKey = false;
+
     @Override
     public void configure(final Map<String, ?> configs, final boolean isKey) {
-        // Nothing to do.
+        this.configs = requireNonNull(configs);
+        this.isKey = isKey;
     }
 
     @Override
     public Serializer<VisibilityBindingSet> serializer() {
-        return new VisibilityBindingSetSerializer();
+        final VisibilityBindingSetSerializer serializer = new VisibilityBindingSetSerializer();
+        serializer.configure(configs, isKey);
+        return serializer;
     }
 
     @Override
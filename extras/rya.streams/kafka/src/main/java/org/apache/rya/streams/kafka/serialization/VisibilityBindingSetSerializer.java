@@ -25,12 +25,17 @@ import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Serializer} that is able to serialize {@link VisibilityBinidngSet}s using Java object serialization.
+ * A Kafka {@link Serializer} that is able to serialize {@link VisibilityBindingSet}s using {@link BinarySerialization}.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityBindingSetSerializer extends ObjectSerializer<VisibilityBindingSet> {
+public class VisibilityBindingSetSerializer extends BinarySerializer<VisibilityBindingSet> {
+    @Override
+    protected byte[] toBytes(final VisibilityBindingSet data) {
+        return BinarySerialization.serialize(data);
+    }
+
     @Override
     protected Class<VisibilityBindingSet> getSerializedClass() {
         return VisibilityBindingSet.class;
     }
-}
\ No newline at end of file
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.rya.api.model.VisibilityStatement;
 
@@ -25,12 +27,17 @@ import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Deserializer} that is able to deserialize Java object serialized {@link VisibilityStatement}s.
+ * A Kafka {@link Deserializer} that is able to deserialize binary or Java object serialized {@link VisibilityStatement}s.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityStatementDeserializer extends ObjectDeserializer<VisibilityStatement> {
+public class VisibilityStatementDeserializer extends BinaryDeserializer<VisibilityStatement> {
+    @Override
+    protected VisibilityStatement fromBytes(final byte[] data) throws IOException {
+        return BinarySerialization.deserializeStatement(data);
+    }
+
     @Override
     protected Class<VisibilityStatement> getDeserializedClass() {
         return VisibilityStatement.class;
     }
-}
\ No newline at end of file
+}
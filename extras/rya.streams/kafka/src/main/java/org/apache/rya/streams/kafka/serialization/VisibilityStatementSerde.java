@@ -18,6 +18,9 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
 import java.util.Map;
 
 import org.apache.kafka.common.serialization.Deserializer;
@@ -34,14 +37,20 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 @DefaultAnnotation(NonNull.class)
 public class VisibilityStatementSerde implements Serde<VisibilityStatement> {
 
+    private Map<String, ?> configs = Collections.emptyMap();
+    private boolean isKey = false;
+
     @Override
     public void configure(final Map<String, ?> configs, final boolean isKey) {
-        // Nothing to do.
+        this.configs = requireNonNull(configs);
+        this.isKey = isKey;
     }
 
     @Override
     public Serializer<VisibilityStatement> serializer() {
-        return new VisibilityStatementSerializer();
+        final VisibilityStatementSerializer serializer = new VisibilityStatementSerializer();
+        serializer.configure(configs, isKey);
+        return serializer;
     }
 
     @Override
@@ -25,12 +25,17 @@ import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Serializer} that is able to serialize {@link VisibilityStatement}s using Java object serialization.
+ * A Kafka {@link Serializer} that is able to serialize {@link VisibilityStatement}s using {@link BinarySerialization}.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityStatementSerializer extends ObjectSerializer<VisibilityStatement> {
+public class VisibilityStatementSerializer extends BinarySerializer<VisibilityStatement> {
+    @Override
+    protected byte[] toBytes(final VisibilityStatement data) {
+        return BinarySerialization.serialize(data);
+    }
+
     @Override
     protected Class<VisibilityStatement> getSerializedClass() {
         return VisibilityStatement.class;
     }
-}
\ No newline at end of file
+}
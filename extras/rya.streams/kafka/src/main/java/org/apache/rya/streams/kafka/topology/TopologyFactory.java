@@ -58,10 +58,10 @@ import org.apache.rya.streams.kafka.processors.output.BindingSetOutputFormatterS
 import org.apache.rya.streams.kafka.processors.output.StatementOutputFormatterSupplier;
 import org.apache.rya.streams.kafka.processors.projection.MultiProjectionProcessorSupplier;
 import org.apache.rya.streams.kafka.processors.projection.ProjectionProcessorSupplier;
-import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetSerde;
 import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetSerializer;
 import org.apache.rya.streams.kafka.serialization.VisibilityStatementDeserializer;
 import org.apache.rya.streams.kafka.serialization.VisibilityStatementSerializer;
+import org.apache.rya.streams.kafka.serialization.aggregation.AggregationStateSerde;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.algebra.BinaryTupleOperator;
 import org.eclipse.rdf4j.query.algebra.Extension;
@@ -99,8 +99,31 @@ public class TopologyFactory implements TopologyBuilderFactory {
     private static final String AGGREGATION_PREFIX = "AGGREGATION_";
     private static final String SINK = "SINK";
 
+    private final long joinRetentionMillis;
+
     private List<ProcessorEntry> processorEntryList;
 
+    /**
+     * Constructs an instance of {@link TopologyFactory} whose joins retain binding sets forever.
+     */
+    public TopologyFactory() {
+        this(0L);
+    }
+
+    /**
+     * Constructs an instance of {@link TopologyFactory}.
+     *
+     * @param joinRetentionMillis - How long, in record time, a join keeps the binding sets that were emitted
+     *   from either side so that later binding sets may join with them. A value of 0 retains them forever.
+     * @throws IllegalArgumentException Thrown if {@code joinRetentionMillis} is negative.
+     */
+    public TopologyFactory(final long joinRetentionMillis) throws IllegalArgumentException {
+        if(joinRetentionMillis < 0) {
+            throw new IllegalArgumentException("The join retention period may not be negative, but was " + joinRetentionMillis + ".");
+        }
+        this.joinRetentionMillis = joinRetentionMillis;
+    }
+
     @Override
     public TopologyBuilder build(
             final String sparqlQuery,
@@ -116,7 +139,7 @@ public class TopologyFactory implements TopologyBuilderFactory {
         final TopologyBuilder builder = new TopologyBuilder();
 
         final TupleExpr expr = parsedQuery.getTupleExpr();
-        final QueryVisitor visitor = new QueryVisitor(bNodeIdFactory);
+        final QueryVisitor visitor = new QueryVisitor(bNodeIdFactory, joinRetentionMillis);
         expr.visit(visitor);
 
         processorEntryList = visitor.getProcessorEntryList();
@@ -145,15 +168,24 @@ public class TopologyFactory implements TopologyBuilderFactory {
             }
 
             // Add a state store for any node type that requires one.
-            if (entry.getNode() instanceof Join ||  entry.getNode() instanceof LeftJoin || entry.getNode() instanceof Group) {
-                // Add a state store for the join processor.
+            if (entry.getNode() instanceof Join ||  entry.getNode() instanceof LeftJoin) {
+                // Add a state store for the join processor. It encodes its own binary keys and values.
                 final StateStoreSupplier joinStoreSupplier =
                         Stores.create( entry.getID() )
-                            .withStringKeys()
-                            .withValues(new VisibilityBindingSetSerde())
+                            .withByteArrayKeys()
+                            .withByteArrayValues()
                             .persistent()
                             .build();
                 builder.addStateStore(joinStoreSupplier, entry.getID());
+            } else if (entry.getNode() instanceof Group) {
+                // Add a state store for the aggregation processor.
+                final StateStoreSupplier aggregationStoreSupplier =
+                        Stores.create( entry.getID() )
+                            .withStringKeys()
+                            .withValues(new AggregationStateSerde())
+                            .persistent()
+                            .build();
+                builder.addStateStore(aggregationStoreSupplier, entry.getID());
             }
         }
 
@@ -346,14 +378,18 @@ public class TopologyFactory implements TopologyBuilderFactory {
                 new VisibilityBindingSetSerializer());
 
         private final BNodeIdFactory bNodeIdFactory;
+        private final long joinRetentionMillis;
 
         /**
          * Constructs an instance of {@link QueryVisitor}.
          *
          * @param bNodeIdFactory - Builds Blank Node IDs for the query's results. (not null)
+         * @param joinRetentionMillis - How long, in record time, joins retain the binding sets they have seen.
+         *   A value of 0 retains them forever.
          */
-        public QueryVisitor(final BNodeIdFactory bNodeIdFactory) {
+        public QueryVisitor(final BNodeIdFactory bNodeIdFactory, final long joinRetentionMillis) {
             this.bNodeIdFactory = requireNonNull(bNodeIdFactory);
+            this.joinRetentionMillis = joinRetentionMillis;
         }
 
         /**
@@ -527,7 +563,7 @@ public class TopologyFactory implements TopologyBuilderFactory {
             allVars.addAll(otherVars);
 
             final Optional<Side> side = getSide(node);
-            final JoinProcessorSupplier supplier = new JoinProcessorSupplier(id, joinFunction, joinVars, allVars, result -> getResult(side, result));
+            final JoinProcessorSupplier supplier = new JoinProcessorSupplier(id, joinFunction, joinVars, allVars, result -> getResult(side, result), joinRetentionMillis);
             entries.add(new ProcessorEntry(node, id, side, supplier, Lists.newArrayList(node.getLeftArg(), node.getRightArg())));
             idMap.put(node, id);
         }
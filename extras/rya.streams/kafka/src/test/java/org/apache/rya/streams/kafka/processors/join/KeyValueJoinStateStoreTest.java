@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.processors.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.apache.rya.api.utils.CloseableIterator;
+import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult;
+import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult.Side;
+import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetSerializer;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Unit tests the methods of {@link KeyValueJoinStateStore}.
+ */
+public class KeyValueJoinStateStoreTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final List<String> JOIN_VARS = Lists.newArrayList("employee");
+    private static final List<String> ALL_VARS = Lists.newArrayList("employee", "business", "person");
+
+    /**
+     * Holds the contents of the mocked store, ordered the same way RocksDB orders keys.
+     */
+    private TreeMap<byte[], byte[]> contents;
+    private KeyValueStore<byte[], byte[]> store;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        contents = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+        store = mock(KeyValueStore.class);
+
+        doAnswer(invocation -> {
+            contents.put((byte[]) invocation.getArguments()[0], (byte[]) invocation.getArguments()[1]);
+            return null;
+        }).when(store).put(any(byte[].class), any(byte[].class));
+
+        doAnswer(invocation -> contents.remove(invocation.getArguments()[0]))
+            .when(store).delete(any(byte[].class));
+
+        when(store.range(any(byte[].class), any(byte[].class))).thenAnswer(invocation ->
+            iterator(contents.subMap((byte[]) invocation.getArguments()[0], true, (byte[]) invocation.getArguments()[1], true)));
+
+        when(store.get(any(byte[].class))).thenAnswer(invocation -> contents.get(invocation.getArguments()[0]));
+
+        when(store.all()).thenAnswer(invocation -> iterator(contents));
+    }
+
+    @Test
+    public void joinsWithOtherSideOnly() throws Exception {
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS);
+
+        final VisibilityBindingSet worksAt = bindingSet("employee", "urn:Bob", "business", "urn:TacoJoint");
+        final VisibilityBindingSet talksTo = bindingSet("employee", "urn:Bob", "person", "urn:Alice");
+        joinStore.store(new BinaryResult(Side.RIGHT, worksAt), 1L);
+
+        // A value does not join with values from its own side.
+        assertEquals(new HashSet<>(), read(joinStore.getJoinedValues(new BinaryResult(Side.RIGHT, worksAt), 1L)));
+
+        // The left side finds the right side's value.
+        joinStore.store(new BinaryResult(Side.LEFT, talksTo), 2L);
+        final Set<VisibilityBindingSet> expected = new HashSet<>();
+        expected.add(worksAt);
+        assertEquals(expected, read(joinStore.getJoinedValues(new BinaryResult(Side.LEFT, talksTo), 2L)));
+
+        // Only one row is written for each stored value when there is no retention period.
+        assertEquals(2, dataRows());
+        assertEquals(3, contents.size());
+    }
+
+    @Test
+    public void joinValueIsNotPrefixOfAnother() throws Exception {
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS);
+
+        final VisibilityBindingSet student9 = bindingSet("employee", "urn:Student9", "business", "urn:TacoJoint");
+        final VisibilityBindingSet student95 = bindingSet("employee", "urn:Student95", "business", "urn:BurgerJoint");
+        joinStore.store(new BinaryResult(Side.RIGHT, student9), 1L);
+        joinStore.store(new BinaryResult(Side.RIGHT, student95), 1L);
+
+        final VisibilityBindingSet talksTo = bindingSet("employee", "urn:Student9", "person", "urn:Alice");
+        final Set<VisibilityBindingSet> expected = new HashSet<>();
+        expected.add(student9);
+        assertEquals(expected, read(joinStore.getJoinedValues(new BinaryResult(Side.LEFT, talksTo), 1L)));
+    }
+
+    @Test
+    public void retention() throws Exception {
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS, 100L);
+
+        final VisibilityBindingSet old = bindingSet("employee", "urn:Bob", "business", "urn:TacoJoint");
+        final VisibilityBindingSet recent = bindingSet("employee", "urn:Bob", "business", "urn:BurgerJoint");
+        joinStore.store(new BinaryResult(Side.RIGHT, old), 1000L);
+        joinStore.store(new BinaryResult(Side.RIGHT, recent), 1150L);
+
+        // The old value has expired, so it is not joined with even before it is removed.
+        final VisibilityBindingSet talksTo = bindingSet("employee", "urn:Bob", "person", "urn:Alice");
+        final Set<VisibilityBindingSet> expected = new HashSet<>();
+        expected.add(recent);
+        assertEquals(expected, read(joinStore.getJoinedValues(new BinaryResult(Side.LEFT, talksTo), 1200L)));
+        assertEquals(2, dataRows());
+
+        // Removing the expired values only leaves the recent one.
+        joinStore.removeExpired(1200L);
+        assertEquals(1, dataRows());
+        assertEquals(expected, read(joinStore.getJoinedValues(new BinaryResult(Side.LEFT, talksTo), 1200L)));
+    }
+
+    @Test
+    public void removeExpired_readsExpiryIndexOnly() throws Exception {
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS, 100L);
+        verify(store, times(1)).all();
+
+        final VisibilityBindingSet worksAt = bindingSet("employee", "urn:Bob", "business", "urn:TacoJoint");
+        joinStore.store(new BinaryResult(Side.RIGHT, worksAt), 1000L);
+        joinStore.store(new BinaryResult(Side.RIGHT, bindingSet("employee", "urn:Alice", "business", "urn:TacoJoint")), 1000L);
+
+        // Storing the same binding set again keeps it for another retention period.
+        joinStore.store(new BinaryResult(Side.RIGHT, worksAt), 1150L);
+
+        joinStore.removeExpired(1200L);
+        assertEquals(1, dataRows());
+        verify(store, times(1)).all();
+
+        final VisibilityBindingSet talksTo = bindingSet("employee", "urn:Bob", "person", "urn:Charlie");
+        final Set<VisibilityBindingSet> expected = new HashSet<>();
+        expected.add(worksAt);
+        assertEquals(expected, read(joinStore.getJoinedValues(new BinaryResult(Side.LEFT, talksTo), 1200L)));
+
+        // Only the format row is left.
+        joinStore.removeExpired(1300L);
+        assertEquals(0, dataRows());
+        assertEquals(1, contents.size());
+    }
+
+    @Test
+    public void retentionTurnedOn_buildsExpiryIndex() throws Exception {
+        final KeyValueJoinStateStore forever = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS);
+        forever.store(new BinaryResult(Side.RIGHT, bindingSet("employee", "urn:Bob", "business", "urn:TacoJoint")), 1000L);
+
+        final KeyValueJoinStateStore retained = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS, 100L);
+        retained.removeExpired(1200L);
+        assertEquals(0, dataRows());
+    }
+
+    @Test
+    public void migratesLegacyRows() throws Exception {
+        // The rows the String keyed format wrote for one binding set: a start marker, the value, and an end marker.
+        final VisibilityBindingSet worksAt = bindingSet("employee", "urn:Bob", "business", "urn:TacoJoint");
+        final VisibilityBindingSet marker = new VisibilityBindingSet(new MapBindingSet(), "");
+        final VisibilityBindingSetSerializer serializer = new VisibilityBindingSetSerializer();
+        contents.put("JOIN_1,RIGHT,urn:Bob\u0000".getBytes(StandardCharsets.UTF_8), serializer.serialize(null, marker));
+        contents.put("JOIN_1,RIGHT,urn:Bob\u0006,urn:TacoJoint".getBytes(StandardCharsets.UTF_8), serializer.serialize(null, worksAt));
+        contents.put("JOIN_1,RIGHT,urn:Bob\uFFFF".getBytes(StandardCharsets.UTF_8), serializer.serialize(null, marker));
+
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS);
+
+        // The legacy rows were replaced by one row in the binary format and the format row.
+        assertEquals(1, dataRows());
+        assertEquals(2, contents.size());
+
+        final VisibilityBindingSet talksTo = bindingSet("employee", "urn:Bob", "person", "urn:Alice");
+        final Set<VisibilityBindingSet> expected = new HashSet<>();
+        expected.add(worksAt);
+        assertEquals(expected, read(joinStore.getJoinedValues(new BinaryResult(Side.LEFT, talksTo), 1L)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsOtherFormatVersion() {
+        contents.put(new byte[] { 3 }, ByteBuffer.allocate(Integer.BYTES + 1).putInt(KeyValueJoinStateStore.FORMAT_VERSION + 1).put((byte) 0).array());
+        new KeyValueJoinStateStore(store, JOIN_VARS, ALL_VARS);
+    }
+
+    @Test
+    public void prefixUpperBound() {
+        assertTrue(UnsignedBytes.lexicographicalComparator().compare(
+                new byte[] { 1, 2, 3 }, KeyValueJoinStateStore.prefixUpperBound(new byte[] { 1, 2, 3 })) < 0);
+        assertEquals(2, KeyValueJoinStateStore.prefixUpperBound(new byte[] { 1, (byte) 0xFF, (byte) 0xFF }).length);
+        assertTrue(UnsignedBytes.lexicographicalComparator().compare(
+                new byte[] { 1, (byte) 0xFF, (byte) 0xFF, 7 }, KeyValueJoinStateStore.prefixUpperBound(new byte[] { 1, (byte) 0xFF })) < 0);
+    }
+
+    private static VisibilityBindingSet bindingSet(final String... namesAndValues) {
+        final MapBindingSet bs = new MapBindingSet();
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            bs.addBinding(namesAndValues[i], VF.createIRI(namesAndValues[i + 1]));
+        }
+        return new VisibilityBindingSet(bs, "a");
+    }
+
+    /**
+     * @return The number of stored binding sets, not counting the expiry index and format rows.
+     */
+    private int dataRows() {
+        int count = 0;
+        for(final byte[] key : contents.keySet()) {
+            if(key[0] == 0 || key[0] == 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Set<VisibilityBindingSet> read(final CloseableIterator<VisibilityBindingSet> it) throws Exception {
+        final Set<VisibilityBindingSet> values = new HashSet<>();
+        try {
+            while(it.hasNext()) {
+                values.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static KeyValueIterator<byte[], byte[]> iterator(final Map<byte[], byte[]> entries) {
+        final List<KeyValue<byte[], byte[]>> copy = new ArrayList<>();
+        for(final Entry<byte[], byte[]> entry : entries.entrySet()) {
+            copy.add(new KeyValue<>(entry.getKey(), entry.getValue()));
+        }
+        final Iterator<KeyValue<byte[], byte[]>> it = copy.iterator();
+
+        final KeyValueIterator<byte[], byte[]> kvIt = mock(KeyValueIterator.class);
+        when(kvIt.hasNext()).thenAnswer(invocation -> it.hasNext());
+        when(kvIt.next()).thenAnswer(invocation -> it.next());
+        return kvIt;
+    }
+}
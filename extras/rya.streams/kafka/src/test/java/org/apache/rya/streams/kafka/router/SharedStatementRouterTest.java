@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.rya.api.model.VisibilityStatement;
+import org.apache.rya.streams.api.entity.StreamsQuery;
+import org.apache.rya.streams.kafka.KafkaTopics;
+import org.apache.rya.streams.kafka.serialization.VisibilityStatementSerializer;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Unit tests the methods of {@link SharedStatementRouter}.
+ */
+public class SharedStatementRouterTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final String RYA_INSTANCE = "rya";
+    private static final String STATEMENTS_TOPIC = KafkaTopics.statementsTopic(RYA_INSTANCE);
+
+    private final MockConsumer<String, byte[]> statementsConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final MockConsumer<String, byte[]> cursorConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    @Test
+    public void routesMatchingStatements() throws Exception {
+        final StreamsQuery talksTo = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b . }", true, false);
+        final StreamsQuery likes = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:likes> ?b . }", true, false);
+        setupTopics(2, talksTo, likes);
+        final MockProducer<String, byte[]> producer = makeProducer(2, new AtomicBoolean(false), talksTo, likes);
+
+        final SharedStatementRouter router = new SharedStatementRouter(RYA_INSTANCE, statementsConsumer, cursorConsumer, producer, 10);
+        router.addQuery(talksTo);
+        router.addQuery(likes);
+
+        // The queries are registered before the first poll, so the statements are added then.
+        statementsConsumer.schedulePollTask(() -> {
+            statementsConsumer.addRecord(record(1, 0, "urn:talksTo"));
+            statementsConsumer.addRecord(record(0, 0, "urn:likes"));
+            statementsConsumer.addRecord(record(0, 1, "urn:worksAt"));
+        });
+
+        router.startAndWait();
+        try {
+            final List<ProducerRecord<String, byte[]>> sent = awaitHistory(producer, 2);
+
+            final Map<String, ProducerRecord<String, byte[]>> byTopic = new HashMap<>();
+            for(final ProducerRecord<String, byte[]> record : sent) {
+                byTopic.put(record.topic(), record);
+            }
+
+            final ProducerRecord<String, byte[]> talksToRecord = byTopic.get( KafkaTopics.queryStatementsTopic(RYA_INSTANCE, talksTo.getQueryId()) );
+            assertEquals(Integer.valueOf(1), talksToRecord.partition());
+            assertEquals("0", talksToRecord.key());
+
+            final ProducerRecord<String, byte[]> likesRecord = byTopic.get( KafkaTopics.queryStatementsTopic(RYA_INSTANCE, likes.getQueryId()) );
+            assertEquals(Integer.valueOf(0), likesRecord.partition());
+            assertEquals("0", likesRecord.key());
+        } finally {
+            router.stopAndWait();
+        }
+
+        // The statement that matches neither query was not routed.
+        assertEquals(2, producer.history().size());
+    }
+
+    @Test
+    public void failedSendIsRoutedAgain() throws Exception {
+        final StreamsQuery query = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b . }", true, false);
+        setupTopics(1, query);
+        final AtomicBoolean failNext = new AtomicBoolean(true);
+        final MockProducer<String, byte[]> producer = makeProducer(1, failNext, query);
+
+        final SharedStatementRouter router = new SharedStatementRouter(RYA_INSTANCE, statementsConsumer, cursorConsumer, producer, 10);
+        router.addQuery(query);
+
+        // The first send fails. The router then rewinds to the query's cursor, so the statement is read again.
+        statementsConsumer.schedulePollTask(() -> statementsConsumer.addRecord(record(0, 0, "urn:talksTo")));
+        statementsConsumer.schedulePollTask(() -> statementsConsumer.addRecord(record(0, 0, "urn:talksTo")));
+
+        router.startAndWait();
+        try {
+            final List<ProducerRecord<String, byte[]>> sent = awaitHistory(producer, 1);
+            assertEquals(KafkaTopics.queryStatementsTopic(RYA_INSTANCE, query.getQueryId()), sent.get(0).topic());
+            assertEquals("0", sent.get(0).key());
+        } finally {
+            router.stopAndWait();
+        }
+    }
+
+    @Test
+    public void getPartitionCount() throws Exception {
+        setupTopics(3);
+        final SharedStatementRouter router = new SharedStatementRouter(RYA_INSTANCE, statementsConsumer, cursorConsumer,
+                makeProducer(3, new AtomicBoolean(false)), 10);
+        router.startAndWait();
+        try {
+            assertEquals(3, router.getPartitionCount());
+        } finally {
+            router.stopAndWait();
+        }
+    }
+
+    @Test
+    public void discoversStatementsTopicCreatedLater() throws Exception {
+        final StreamsQuery query = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b . }", true, false);
+        final String queryTopic = KafkaTopics.queryStatementsTopic(RYA_INSTANCE, query.getQueryId());
+        cursorConsumer.updatePartitions(queryTopic, partitions(queryTopic, 1));
+        cursorConsumer.updateEndOffsets( endOffsets(queryTopic, 1) );
+        final MockProducer<String, byte[]> producer = makeProducer(1, new AtomicBoolean(false), query);
+
+        final SharedStatementRouter router = new SharedStatementRouter(RYA_INSTANCE, statementsConsumer, cursorConsumer, producer, 10);
+        router.addQuery(query);
+        router.startAndWait();
+        try {
+            assertEquals(0, router.getPartitionCount());
+
+            // Create the Statements topic. The statement that was written before the router saw it is still routed.
+            statementsConsumer.schedulePollTask(() -> statementsConsumer.addRecord(record(0, 0, "urn:talksTo")));
+            statementsConsumer.updateBeginningOffsets( endOffsets(STATEMENTS_TOPIC, 1) );
+            statementsConsumer.updateEndOffsets( endOffsets(STATEMENTS_TOPIC, 1) );
+            statementsConsumer.updatePartitions(STATEMENTS_TOPIC, partitions(STATEMENTS_TOPIC, 1));
+
+            final List<ProducerRecord<String, byte[]>> sent = awaitHistory(producer, 1);
+            assertEquals(queryTopic, sent.get(0).topic());
+            assertEquals("0", sent.get(0).key());
+            assertEquals(1, router.getPartitionCount());
+        } finally {
+            router.stopAndWait();
+        }
+    }
+
+    @Test
+    public void unreadableCursorIsNotGuessed() throws Exception {
+        final StreamsQuery query = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b . }", true, false);
+        setupTopics(1, query);
+        final MockProducer<String, byte[]> producer = makeProducer(1, new AtomicBoolean(false), query);
+
+        // The query's topic has a record, but it can not be read, so where the query was routed up to is unknown.
+        final String queryTopic = KafkaTopics.queryStatementsTopic(RYA_INSTANCE, query.getQueryId());
+        cursorConsumer.updateEndOffsets( Collections.singletonMap(new TopicPartition(queryTopic, 0), 1L) );
+
+        final SharedStatementRouter router = new SharedStatementRouter(RYA_INSTANCE, statementsConsumer, cursorConsumer, producer, 10);
+        router.addQuery(query);
+        statementsConsumer.schedulePollTask(() -> statementsConsumer.addRecord(record(0, 0, "urn:talksTo")));
+
+        router.startAndWait();
+        try {
+            Thread.sleep(500);
+
+            // The statement was not routed from offset 0 and the router keeps trying to read the cursor.
+            assertTrue(producer.history().isEmpty());
+            assertTrue(router.isRunning());
+        } finally {
+            router.stopAndWait();
+        }
+    }
+
+    /**
+     * Creates the Statements topic and the queries' statements topics, all of which are empty.
+     */
+    private void setupTopics(final int partitionCount, final StreamsQuery... queries) {
+        statementsConsumer.updatePartitions(STATEMENTS_TOPIC, partitions(STATEMENTS_TOPIC, partitionCount));
+        statementsConsumer.updateEndOffsets( endOffsets(STATEMENTS_TOPIC, partitionCount) );
+
+        for(final StreamsQuery query : queries) {
+            final String topic = KafkaTopics.queryStatementsTopic(RYA_INSTANCE, query.getQueryId());
+            cursorConsumer.updatePartitions(topic, partitions(topic, partitionCount));
+            cursorConsumer.updateEndOffsets( endOffsets(topic, partitionCount) );
+        }
+    }
+
+    /**
+     * Makes a producer that knows the queries' statements topics and fails a send while {@code failNext} is set.
+     */
+    private static MockProducer<String, byte[]> makeProducer(final int partitionCount, final AtomicBoolean failNext, final StreamsQuery... queries) {
+        final List<PartitionInfo> partitions = new ArrayList<>();
+        for(final StreamsQuery query : queries) {
+            partitions.addAll( partitions(KafkaTopics.queryStatementsTopic(RYA_INSTANCE, query.getQueryId()), partitionCount) );
+        }
+        final Cluster cluster = new Cluster(Collections.<Node>emptyList(), partitions, new HashSet<String>());
+
+        return new MockProducer<String, byte[]>(cluster, true, new DefaultPartitioner(), new StringSerializer(), new ByteArraySerializer()) {
+            @Override
+            public synchronized Future<RecordMetadata> send(final ProducerRecord<String, byte[]> record) {
+                if(failNext.compareAndSet(true, false)) {
+                    return Futures.<RecordMetadata>immediateFailedFuture(new TimeoutException("The send failed."));
+                }
+                return super.send(record);
+            }
+        };
+    }
+
+    private static List<PartitionInfo> partitions(final String topic, final int partitionCount) {
+        final List<PartitionInfo> partitions = new ArrayList<>();
+        for(int i = 0; i < partitionCount; i++) {
+            partitions.add( new PartitionInfo(topic, i, null, new Node[0], new Node[0]) );
+        }
+        return partitions;
+    }
+
+    private static Map<TopicPartition, Long> endOffsets(final String topic, final int partitionCount) {
+        final Map<TopicPartition, Long> offsets = new HashMap<>();
+        for(int i = 0; i < partitionCount; i++) {
+            offsets.put(new TopicPartition(topic, i), 0L);
+        }
+        return offsets;
+    }
+
+    private static ConsumerRecord<String, byte[]> record(final int partition, final long offset, final String predicate) {
+        final VisibilityStatement statement = new VisibilityStatement(
+                VF.createStatement(VF.createIRI("urn:Alice"), VF.createIRI(predicate), VF.createIRI("urn:Bob")), "a");
+        final byte[] value = new VisibilityStatementSerializer().serialize(STATEMENTS_TOPIC, statement);
+        return new ConsumerRecord<>(STATEMENTS_TOPIC, partition, offset, null, value);
+    }
+
+    /**
+     * Waits for the router to have sent some number of records.
+     */
+    private static List<ProducerRecord<String, byte[]>> awaitHistory(final MockProducer<String, byte[]> producer, final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        List<ProducerRecord<String, byte[]>> history = producer.history();
+        while(history.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            history = producer.history();
+        }
+        assertEquals(count, history.size());
+        return history;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.UUID;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Unit tests the methods of {@link StatementPatternRoutingTable}.
+ */
+public class StatementPatternRoutingTableTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    public void route_identicalPatternsShared() throws Exception {
+        final StatementPatternRoutingTable table = new StatementPatternRoutingTable();
+        final UUID query1 = UUID.randomUUID();
+        final UUID query2 = UUID.randomUUID();
+        table.register(query1, StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { ?person <urn:talksTo> ?employee . }"));
+        table.register(query2, StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { ?a <urn:talksTo> ?b . ?b <urn:worksAt> <urn:Chipotle> . }"));
+
+        // The two talksTo patterns only differ by variable names, so they are evaluated once.
+        assertEquals(2, table.getPatternCount());
+
+        final Statement talksTo = VF.createStatement(VF.createIRI("urn:Alice"), VF.createIRI("urn:talksTo"), VF.createIRI("urn:Bob"));
+        assertEquals(Sets.newHashSet(query1, query2), table.route(talksTo));
+
+        final Statement worksAt = VF.createStatement(VF.createIRI("urn:Bob"), VF.createIRI("urn:worksAt"), VF.createIRI("urn:Chipotle"));
+        assertEquals(Sets.newHashSet(query2), table.route(worksAt));
+
+        final Statement worksAtOther = VF.createStatement(VF.createIRI("urn:Bob"), VF.createIRI("urn:worksAt"), VF.createIRI("urn:Taco"));
+        assertTrue(table.route(worksAtOther).isEmpty());
+    }
+
+    @Test
+    public void register_subsumedPatternDropped() throws Exception {
+        final StatementPatternRoutingTable table = new StatementPatternRoutingTable();
+        table.register(UUID.randomUUID(), StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { ?a <urn:talksTo> ?b . <urn:Alice> <urn:talksTo> ?c . }"));
+
+        // The Alice pattern is covered by the more general talksTo pattern.
+        assertEquals(1, table.getPatternCount());
+    }
+
+    @Test
+    public void route_variablePredicate() throws Exception {
+        final StatementPatternRoutingTable table = new StatementPatternRoutingTable();
+        final UUID queryId = UUID.randomUUID();
+        table.register(queryId, StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { <urn:Alice> ?p ?o . }"));
+
+        final Statement matches = VF.createStatement(VF.createIRI("urn:Alice"), VF.createIRI("urn:likes"), VF.createIRI("urn:Bob"));
+        assertEquals(Sets.newHashSet(queryId), table.route(matches));
+
+        final Statement other = VF.createStatement(VF.createIRI("urn:Bob"), VF.createIRI("urn:likes"), VF.createIRI("urn:Alice"));
+        assertTrue(table.route(other).isEmpty());
+    }
+
+    @Test
+    public void route_context() throws Exception {
+        final StatementPatternRoutingTable table = new StatementPatternRoutingTable();
+        final UUID queryId = UUID.randomUUID();
+        table.register(queryId, StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { GRAPH ?g { ?s <urn:talksTo> ?o . } }"));
+
+        final Statement noContext = VF.createStatement(VF.createIRI("urn:Alice"), VF.createIRI("urn:talksTo"), VF.createIRI("urn:Bob"));
+        assertTrue(table.route(noContext).isEmpty());
+
+        final Statement withContext = VF.createStatement(VF.createIRI("urn:Alice"), VF.createIRI("urn:talksTo"), VF.createIRI("urn:Bob"), VF.createIRI("urn:graph"));
+        assertEquals(Sets.newHashSet(queryId), table.route(withContext));
+    }
+
+    @Test
+    public void unregister() throws Exception {
+        final StatementPatternRoutingTable table = new StatementPatternRoutingTable();
+        final UUID query1 = UUID.randomUUID();
+        final UUID query2 = UUID.randomUUID();
+        table.register(query1, StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { ?a <urn:talksTo> ?b . }"));
+        table.register(query2, StatementPatternRoutingTable.getStatementPatterns(
+                "SELECT * WHERE { ?a <urn:talksTo> ?b . }"));
+
+        table.unregister(query1);
+
+        final Statement talksTo = VF.createStatement(VF.createIRI("urn:Alice"), VF.createIRI("urn:talksTo"), VF.createIRI("urn:Bob"));
+        final Set<UUID> targets = table.route(talksTo);
+        assertEquals(Sets.newHashSet(query2), targets);
+        assertEquals(Sets.newHashSet(query2), table.getQueryIds());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.apache.rya.api.model.VisibilityStatement;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the methods of {@link BinarySerialization}.
+ */
+public class BinarySerializationTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    public void bindingSet_allValueTypes() throws Exception {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("iri", VF.createIRI("urn:alice"));
+        bs.addBinding("bnode", VF.createBNode("b1"));
+        bs.addBinding("string", VF.createLiteral("alice"));
+        bs.addBinding("language", VF.createLiteral("alice", "en"));
+        bs.addBinding("int", VF.createLiteral(37));
+        bs.addBinding("dateTime", VF.createLiteral("2017-01-01T00:00:00Z", XMLSchema.DATETIME));
+        bs.addBinding("custom", VF.createLiteral("42 furlongs", VF.createIRI("urn:distance")));
+        bs.addBinding("unicode", VF.createLiteral("été ☃"));
+        final VisibilityBindingSet original = new VisibilityBindingSet(bs, "a&(b|c)");
+
+        final VisibilityBindingSet deserialized = BinarySerialization.deserializeBindingSet(
+                BinarySerialization.serialize(original));
+        assertEquals(original, deserialized);
+    }
+
+    @Test
+    public void bindingSet_empty() throws Exception {
+        final VisibilityBindingSet original = new VisibilityBindingSet(new MapBindingSet());
+        assertEquals(original, BinarySerialization.deserializeBindingSet(BinarySerialization.serialize(original)));
+    }
+
+    @Test
+    public void statement_withoutContext() throws Exception {
+        final Statement statement = VF.createStatement(
+                VF.createBNode("person"),
+                VF.createIRI("urn:hasAge"),
+                VF.createLiteral(37L));
+        final VisibilityStatement original = new VisibilityStatement(statement, "a");
+
+        final VisibilityStatement deserialized = BinarySerialization.deserializeStatement(
+                BinarySerialization.serialize(original));
+        assertEquals(original, deserialized);
+        assertNull(deserialized.getContext());
+    }
+
+    @Test
+    public void statement_withContext() throws Exception {
+        final Statement statement = VF.createStatement(
+                VF.createIRI("urn:person1"),
+                VF.createIRI("urn:hasName"),
+                VF.createLiteral("alice"),
+                VF.createIRI("urn:testContext"));
+        final VisibilityStatement original = new VisibilityStatement(statement, "a|b|c");
+
+        final VisibilityStatement deserialized = BinarySerialization.deserializeStatement(
+                BinarySerialization.serialize(original));
+        assertEquals(original, deserialized);
+        assertEquals(VF.createIRI("urn:testContext"), deserialized.getContext());
+    }
+
+    @Test
+    public void smallerThanJavaSerialization() throws Exception {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("name", VF.createLiteral("alice"));
+        bs.addBinding("age", VF.createLiteral(37));
+        final VisibilityBindingSet original = new VisibilityBindingSet(bs, "a|b|c");
+
+        final byte[] binary = BinarySerialization.serialize(original);
+        assertFalse(BinarySerialization.isJavaSerialized(binary));
+        assertTrue(binary.length < ObjectSerialization.serialize(original).length);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedData() throws Exception {
+        final Statement statement = VF.createStatement(VF.createIRI("urn:s"), VF.createIRI("urn:p"), VF.createIRI("urn:o"));
+        final byte[] bytes = BinarySerialization.serialize(new VisibilityStatement(statement));
+        BinarySerialization.deserializeStatement(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongRecordType() throws Exception {
+        final Statement statement = VF.createStatement(VF.createIRI("urn:s"), VF.createIRI("urn:p"), VF.createIRI("urn:o"));
+        BinarySerialization.deserializeBindingSet(BinarySerialization.serialize(new VisibilityStatement(statement)));
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedVersion() throws Exception {
+        final byte[] bytes = BinarySerialization.serialize(new VisibilityBindingSet(new MapBindingSet()));
+        bytes[1] = BinarySerialization.VERSION + 1;
+        BinarySerialization.deserializeBindingSet(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidIri() throws Exception {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("iri", VF.createIRI("urn:alice"));
+        final byte[] bytes = BinarySerialization.serialize(new VisibilityBindingSet(bs));
+
+        // Remove the colon, which makes the IRI invalid.
+        for(int i = 0; i < bytes.length; i++) {
+            if(bytes[i] == ':') {
+                bytes[i] = '_';
+            }
+        }
+        BinarySerialization.deserializeBindingSet(bytes);
+    }
+
+    @Test
+    public void serde_readsJavaSerializedData() throws Exception {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("name", VF.createLiteral("alice"));
+        final VisibilityBindingSet original = new VisibilityBindingSet(bs, "a");
+
+        // Data that was written before the binary format was introduced.
+        final byte[] legacy = ObjectSerialization.serialize(original);
+        assertTrue(BinarySerialization.isJavaSerialized(legacy));
+
+        try(final Serde<VisibilityBindingSet> serde = new VisibilityBindingSetSerde()) {
+            assertEquals(original, serde.deserializer().deserialize("topic", legacy));
+        }
+    }
+
+    @Test
+    public void serde_writesJavaSerializationWhenConfigured() throws Exception {
+        final Statement statement = VF.createStatement(VF.createIRI("urn:s"), VF.createIRI("urn:p"), VF.createLiteral(1.5));
+        final VisibilityStatement original = new VisibilityStatement(statement, "a");
+
+        try(final Serde<VisibilityStatement> serde = new VisibilityStatementSerde()) {
+            serde.configure(ImmutableMap.of(BinarySerializer.JAVA_SERIALIZATION_CONFIG, "true"), false);
+            final byte[] bytes = serde.serializer().serialize("topic", original);
+
+            assertTrue(BinarySerialization.isJavaSerialized(bytes));
+            assertEquals(original, serde.deserializer().deserialize("topic", bytes));
+        }
+    }
+}
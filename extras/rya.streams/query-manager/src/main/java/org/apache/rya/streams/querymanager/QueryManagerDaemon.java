@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
@@ -34,9 +35,11 @@ import org.apache.commons.daemon.DaemonInitException;
 import org.apache.rya.streams.kafka.KafkaStreamsFactory;
 import org.apache.rya.streams.kafka.SingleThreadKafkaStreamsFactory;
 import org.apache.rya.streams.kafka.interactor.CreateKafkaTopic;
+import org.apache.rya.streams.kafka.router.KafkaSharedStatementRouterFactory;
 import org.apache.rya.streams.querymanager.kafka.KafkaQueryChangeLogSource;
 import org.apache.rya.streams.querymanager.kafka.LocalQueryExecutor;
 import org.apache.rya.streams.querymanager.xml.Kafka;
+import org.apache.rya.streams.querymanager.xml.LocalKafkaStreams;
 import org.apache.rya.streams.querymanager.xml.QueryManagerConfig;
 import org.apache.rya.streams.querymanager.xml.QueryManagerConfig.PerformanceTunning.QueryChanngeLogDiscoveryPeriod;
 import org.apache.rya.streams.querymanager.xml.QueryManagerConfigUnmarshaller;
@@ -111,9 +114,16 @@ public class QueryManagerDaemon implements Daemon {
         final QueryChangeLogSource source = new KafkaQueryChangeLogSource(kafka.getHostname(), kafka.getPort(), scheduler);
 
         // Initialize a QueryExecutor.
-        final String zookeeperServers = config.getQueryExecutor().getLocalKafkaStreams().getZookeepers();
-        final KafkaStreamsFactory streamsFactory = new SingleThreadKafkaStreamsFactory(kafka.getHostname() + ":" + kafka.getPort());
-        final QueryExecutor queryExecutor = new LocalQueryExecutor(new CreateKafkaTopic(zookeeperServers), streamsFactory);
+        final LocalKafkaStreams localStreams = config.getQueryExecutor().getLocalKafkaStreams();
+        final String zookeeperServers = localStreams.getZookeepers();
+        final String bootstrapServers = kafka.getHostname() + ":" + kafka.getPort();
+        final boolean sharedRouting = Boolean.TRUE.equals( localStreams.isSharedStatementRouting() );
+        log.info("Shared Statement Routing: " + sharedRouting);
+        final KafkaStreamsFactory streamsFactory = new SingleThreadKafkaStreamsFactory(bootstrapServers, sharedRouting);
+        final Optional<KafkaSharedStatementRouterFactory> routerFactory = sharedRouting ?
+                Optional.of(new KafkaSharedStatementRouterFactory(bootstrapServers, 100L)) :
+                Optional.empty();
+        final QueryExecutor queryExecutor = new LocalQueryExecutor(new CreateKafkaTopic(zookeeperServers), streamsFactory, routerFactory);
 
         // Initialize the QueryManager using the configured resources.
         manager = new QueryManager(queryExecutor, source, period, units);
@@ -35,7 +35,10 @@ import org.apache.rya.streams.kafka.KafkaStreamsFactory;
 import org.apache.rya.streams.kafka.KafkaStreamsFactory.KafkaStreamsFactoryException;
 import org.apache.rya.streams.kafka.KafkaTopics;
 import org.apache.rya.streams.kafka.interactor.CreateKafkaTopic;
+import org.apache.rya.streams.kafka.router.KafkaSharedStatementRouterFactory;
+import org.apache.rya.streams.kafka.router.SharedStatementRouter;
 import org.apache.rya.streams.querymanager.QueryExecutor;
+import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,12 +49,18 @@ import com.google.common.util.concurrent.AbstractIdleService;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import kafka.consumer.KafkaStream;
 
 /**
  * A {@link QueryExecutor} that runs a {@link KafkaStreams} job within its own JVM every
  * time {@link #startQuery(String, StreamsQuery)} is invoked.
  * <p/>
+ * When it is given a {@link KafkaSharedStatementRouterFactory}, the statements of each Rya
+ * instance are read and matched by a single {@link SharedStatementRouter} that writes them
+ * to per-query statements topics, so the {@link KafkaStreamsFactory} must build jobs that
+ * read those topics.
+ * <p/>
  * This executor may run out of JVM resources if it is used to execute too many queries.
  */
 @DefaultAnnotation(NonNull.class)
@@ -88,6 +97,16 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
      */
     private final KafkaStreamsFactory streamsFactory;
 
+    /**
+     * Creates the shared statement routers, if statements are routed to the queries.
+     */
+    private final Optional<KafkaSharedStatementRouterFactory> routerFactory;
+
+    /**
+     * Lookup the running {@link SharedStatementRouter} of a Rya Instance.
+     */
+    private final Map<String, SharedStatementRouter> routerByRyaInstance = new HashMap<>();
+
     /**
      * Constructs an instance of {@link LocalQueryExecutor}.
      *
@@ -97,8 +116,24 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
     public LocalQueryExecutor(
             final CreateKafkaTopic createKafkaTopic,
             final KafkaStreamsFactory streamsFactory) {
+        this(createKafkaTopic, streamsFactory, Optional.empty());
+    }
+
+    /**
+     * Constructs an instance of {@link LocalQueryExecutor}.
+     *
+     * @param createKafkaTopic - Used to create the input and output topics for a Kafka Streams job. (not null)
+     * @param streamsFactory - Builds the {@link KafkaStreams} objects that execute {@link KafkaStream}s. (not null)
+     * @param routerFactory - If present, creates the {@link SharedStatementRouter}s that route each Rya
+     *   Instance's statements to the queries. (not null)
+     */
+    public LocalQueryExecutor(
+            final CreateKafkaTopic createKafkaTopic,
+            final KafkaStreamsFactory streamsFactory,
+            final Optional<KafkaSharedStatementRouterFactory> routerFactory) {
         this.createKafkaTopic = requireNonNull(createKafkaTopic);
         this.streamsFactory = requireNonNull(streamsFactory);
+        this.routerFactory = requireNonNull(routerFactory);
     }
 
     @Override
@@ -115,6 +150,11 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
             job.close();
         }
 
+        // Stop all of the shared statement routers.
+        for(final SharedStatementRouter router : routerByRyaInstance.values()) {
+            router.stopAndWait();
+        }
+
         log.info("Local Query Executor shut down.");
     }
 
@@ -124,6 +164,7 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
         requireNonNull(query);
         checkState(state() == State.RUNNING, "The service must be RUNNING to execute this method.");
 
+        SharedStatementRouter router = null;
         lock.lock();
         try {
             // Make sure the Statements topic exists for the query.
@@ -136,6 +177,52 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
             //   so the cleanup.policy will default to delete to reduce memory usage.
             createKafkaTopic.createTopics(topics, 1, 1, Optional.empty());
 
+            // Route the Rya Instance's statements to the query. Registering the query keeps the
+            // router from being stopped by another query while this one is starting.
+            if(routerFactory.isPresent()) {
+                router = routerByRyaInstance.get(ryaInstance);
+                if(router == null) {
+                    router = routerFactory.get().make(ryaInstance);
+                    router.addQuery(query);
+                    router.start();
+                    routerByRyaInstance.put(ryaInstance, router);
+                } else {
+                    router.addQuery(query);
+                }
+            }
+        } catch (final MalformedQueryException e) {
+            throw new QueryExecutorException("Could not start query " + query.getQueryId(), e);
+        } finally {
+            lock.unlock();
+        }
+
+        // Wait for the router without holding the lock, so other queries may be started and stopped meanwhile.
+        if(router != null) {
+            try {
+                router.startAndWait();
+            } catch (final RuntimeException e) {
+                lock.lock();
+                try {
+                    router.removeQuery(query.getQueryId());
+                    routerByRyaInstance.remove(ryaInstance, router);
+                } finally {
+                    lock.unlock();
+                }
+                throw new QueryExecutorException("Could not start the statement router of Rya Instance " + ryaInstance, e);
+            }
+        }
+
+        SharedStatementRouter stoppedRouter = null;
+        lock.lock();
+        try {
+            // The router writes each statement to the partition of the same number, so the query's
+            // statements topic needs as many partitions as the Rya Instance's Statements topic.
+            if(router != null) {
+                createKafkaTopic.createTopics(
+                        Sets.newHashSet( KafkaTopics.queryStatementsTopic(ryaInstance, query.getQueryId()) ),
+                        Math.max(1, router.getPartitionCount()), 1, Optional.empty());
+            }
+
             // Setup the Kafka Streams job that will execute.
             final KafkaStreams streams = streamsFactory.make(ryaInstance, query);
             streams.start();
@@ -150,9 +237,13 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
             byQueryId.put(query.getQueryId(), streams);
 
         } catch (final KafkaStreamsFactoryException e) {
+            stoppedRouter = releaseRouter(ryaInstance, query.getQueryId());
             throw new QueryExecutorException("Could not start query " + query.getQueryId(), e);
         } finally {
             lock.unlock();
+            if(stoppedRouter != null) {
+                stoppedRouter.stopAndWait();
+            }
         }
     }
 
@@ -161,6 +252,7 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
         requireNonNull(queryId);
         checkState(state() == State.RUNNING, "The service must be RUNNING to execute this method.");
 
+        SharedStatementRouter stoppedRouter = null;
         lock.lock();
         try {
             if(byQueryId.containsKey(queryId)) {
@@ -171,6 +263,9 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
                 // Remove it from the Rya Instance Name lookup.
                 final String ryaInstance = ryaInstanceById.remove(queryId);
 
+                // Stop routing statements to it.
+                stoppedRouter = releaseRouter(ryaInstance, queryId);
+
                 // Remove it from the collection of running queries for the Rya Instance.
                 idByRyaInstance.remove(ryaInstance, queryId);
 
@@ -180,6 +275,32 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
         } finally {
             lock.unlock();
         }
+
+        // Wait for the router without holding the lock.
+        if(stoppedRouter != null) {
+            stoppedRouter.stopAndWait();
+        }
+    }
+
+    /**
+     * Stops routing statements to a query. The Rya Instance's router is stopped once no
+     * queries are left. Must be invoked while holding the lock.
+     *
+     * @param ryaInstance - The Rya Instance the query is for. (not null)
+     * @param queryId - The ID of the query. (not null)
+     * @return The router if it is stopping, so the caller may wait for it after releasing the lock.
+     */
+    private @Nullable SharedStatementRouter releaseRouter(final String ryaInstance, final UUID queryId) {
+        final SharedStatementRouter router = routerByRyaInstance.get(ryaInstance);
+        if(router != null) {
+            router.removeQuery(queryId);
+            if(router.getQueryIds().isEmpty()) {
+                router.stop();
+                routerByRyaInstance.remove(ryaInstance);
+                return router;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -187,20 +308,19 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
         requireNonNull(ryaInstanceName);
         checkState(state() == State.RUNNING, "The service must be RUNNING to execute this method.");
 
+        // A defensive copy of the queries so that we may remove them from the maps.
+        final Set<UUID> queryIds;
         lock.lock();
         try {
-            if(idByRyaInstance.containsKey(ryaInstanceName)) {
-                // A defensive copy of the queries so that we may remove them from the maps.
-                final Set<UUID> queryIds = new HashSet<>( idByRyaInstance.get(ryaInstanceName) );
-
-                // Stop each of them.
-                for(final UUID queryId : queryIds) {
-                    stopQuery(queryId);
-                }
-            }
+            queryIds = new HashSet<>( idByRyaInstance.get(ryaInstanceName) );
         } finally {
             lock.unlock();
         }
+
+        // Stop each of them. Each stop takes the lock, but a stopping router is waited for without it.
+        for(final UUID queryId : queryIds) {
+            stopQuery(queryId);
+        }
     }
 
     @Override
@@ -26,17 +26,35 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.rya.streams.api.entity.StreamsQuery;
 import org.apache.rya.streams.kafka.KafkaStreamsFactory;
+import org.apache.rya.streams.kafka.KafkaTopics;
 import org.apache.rya.streams.kafka.interactor.CreateKafkaTopic;
+import org.apache.rya.streams.kafka.router.KafkaSharedStatementRouterFactory;
+import org.apache.rya.streams.kafka.router.SharedStatementRouter;
 import org.apache.rya.streams.querymanager.QueryExecutor;
 import org.junit.Test;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Service.State;
 
 /**
  * Unit tests the methods of {@link LocalQueryExecutor}.
@@ -297,4 +315,56 @@ public class LocalQueryExecutorTest {
             executor.stopAndWait();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void startQuery_sharedRouting() throws Exception {
+        // Test values.
+        final String ryaInstance = "rya";
+        final StreamsQuery query = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b. }", true, false);
+        final String queryStatementsTopic = KafkaTopics.queryStatementsTopic(ryaInstance, query.getQueryId());
+
+        // The Statements topic has two partitions and the query's statements topic is empty.
+        final MockConsumer<String, byte[]> statementsConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        final MockConsumer<String, byte[]> cursorConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        final Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        final List<PartitionInfo> statementPartitions = new ArrayList<>();
+        final List<PartitionInfo> queryPartitions = new ArrayList<>();
+        for(int i = 0; i < 2; i++) {
+            statementPartitions.add( new PartitionInfo(KafkaTopics.statementsTopic(ryaInstance), i, null, new Node[0], new Node[0]) );
+            queryPartitions.add( new PartitionInfo(queryStatementsTopic, i, null, new Node[0], new Node[0]) );
+            endOffsets.put(new TopicPartition(KafkaTopics.statementsTopic(ryaInstance), i), 0L);
+            endOffsets.put(new TopicPartition(queryStatementsTopic, i), 0L);
+        }
+        statementsConsumer.updatePartitions(KafkaTopics.statementsTopic(ryaInstance), statementPartitions);
+        statementsConsumer.updateEndOffsets(endOffsets);
+        cursorConsumer.updatePartitions(queryStatementsTopic, queryPartitions);
+        cursorConsumer.updateEndOffsets(endOffsets);
+
+        final SharedStatementRouter router = new SharedStatementRouter(ryaInstance, statementsConsumer, cursorConsumer,
+                new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()), 10);
+        final KafkaSharedStatementRouterFactory routerFactory = mock(KafkaSharedStatementRouterFactory.class);
+        when(routerFactory.make(eq(ryaInstance))).thenReturn(router);
+
+        final KafkaStreamsFactory jobFactory = mock(KafkaStreamsFactory.class);
+        when(jobFactory.make(eq(ryaInstance), eq(query))).thenReturn(mock(KafkaStreams.class));
+
+        // Start the executor that will be tested.
+        final CreateKafkaTopic createKafkaTopic = mock(CreateKafkaTopic.class);
+        final QueryExecutor executor = new LocalQueryExecutor(createKafkaTopic, jobFactory, Optional.of(routerFactory));
+        executor.startAndWait();
+        try {
+            executor.startQuery(ryaInstance, query);
+
+            // Show the router is routing to the query and the query's topic has a partition for each Statements topic partition.
+            assertEquals(State.RUNNING, router.state());
+            assertEquals(Sets.newHashSet(query.getQueryId()), router.getQueryIds());
+            verify(createKafkaTopic).createTopics(eq(Sets.newHashSet(queryStatementsTopic)), eq(2), eq(1), eq(Optional.empty()));
+
+            // Show the router is stopped with its last query.
+            executor.stopQuery(query.getQueryId());
+            assertEquals(State.TERMINATED, router.state());
+        } finally {
+            executor.stopAndWait();
+        }
+    }
+}
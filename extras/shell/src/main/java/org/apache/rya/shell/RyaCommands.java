@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Objects;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.client.ExecuteSparqlQuery;
 import org.apache.rya.api.client.RyaClient;
 import org.apache.rya.api.client.RyaClientException;
@@ -39,6 +40,7 @@ import org.apache.rya.rdftriplestore.utils.RdfFormatUtils;
 import org.apache.rya.shell.SharedShellState.ShellState;
 import org.apache.rya.shell.util.ConsolePrinter;
 import org.apache.rya.shell.util.SparqlPrompt;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.rio.RDFFormat;
@@ -150,10 +152,16 @@ public class RyaCommands implements CommandMarker {
         }
     }
 
+    public String sparqlQuery(final String file) {
+        return sparqlQuery(file, false);
+    }
+
     @CliCommand(value = SPARQL_QUERY_CMD, help = "Executes the provided SPARQL Query on the connected Rya instance.")
     public String sparqlQuery(
             @CliOption(key = { "file" }, mandatory = false, help = "A local file containing the SPARQL Query that is to be read and executed.")
-            final String file) {
+            final String file,
+            @CliOption(key = { "profile" }, mandatory = false, help = "Run the query to completion and show its plan, annotated with what each part of it did, instead of its results.", unspecifiedDefaultValue = "false", specifiedDefaultValue = "true")
+            final boolean profile) {
         // Fetch the command that is connected to the store.
         final ShellState shellState = state.getShellState();
         final RyaClient commands = shellState.getConnectedCommands().get();
@@ -179,6 +187,14 @@ public class RyaCommands implements CommandMarker {
 
             consolePrinter.println("Executing Query...");
             consolePrinter.flush();
+            if (profile) {
+                try (final TupleQueryResult rezIter = queryCommand.executeSparqlQuery(ryaInstanceName.get(), sparqlQuery, true)) {
+                    final Value plan = rezIter.hasNext() ? rezIter.next().getValue(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE) : null;
+                    consolePrinter.println(plan != null ? plan.stringValue() : "The query was not profiled.");
+                }
+                return "Done.";
+            }
+
             final TupleQueryResult rezIter = queryCommand.executeSparqlQuery(ryaInstanceName.get(), sparqlQuery);
 
             final List<String> bindings = new ArrayList<>();
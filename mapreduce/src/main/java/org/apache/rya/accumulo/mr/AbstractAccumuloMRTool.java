@@ -38,6 +38,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.Tool;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
 import org.apache.rya.accumulo.AccumuloRdfConstants;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConstants;
@@ -99,7 +100,9 @@ public abstract class AbstractAccumuloMRTool implements Tool {
      * are found and ensuring that options corresponding to multiple property
      * names are set consistently. Requires at least that the username,
      * password, and instance name are all configured. Zookeeper hosts must be
-     * configured if not using a mock instance. Table prefix, if not provided,
+     * configured if not using a mock instance. Instances whose triple tables are
+     * dictionary encoded are rejected, since these tools read and write whole
+     * row keys. Table prefix, if not provided,
      * will be set to {@link RdfCloudTripleStoreConstants#TBL_PRFX_DEF}. Should
      * be called before configuring input/output. See {@link MRUtils} for
      * configuration properties.
@@ -134,6 +137,8 @@ public abstract class AbstractAccumuloMRTool implements Tool {
         Preconditions.checkNotNull(userName, "Accumulo username [" + MRUtils.AC_USERNAME_PROP + "] not set.");
         Preconditions.checkNotNull(pwd, "Accumulo password [" + MRUtils.AC_PWD_PROP + "] not set.");
         Preconditions.checkNotNull(tablePrefix, "Table prefix [" + MRUtils.TABLE_PREFIX_PROPERTY + "] not set.");
+        Preconditions.checkArgument(!conf.getBoolean(AccumuloRdfConfiguration.CONF_DICTIONARY_ENCODING, false),
+                "MapReduce tools do not support dictionary encoded instances [" + AccumuloRdfConfiguration.CONF_DICTIONARY_ENCODING + "].");
         RdfCloudTripleStoreConstants.prefixTables(tablePrefix);
         // If connecting to real accumulo, set additional parameters and require zookeepers
         if (!mock) {
@@ -178,6 +178,11 @@ public class RyaOutputFormat extends OutputFormat<Writable, RyaStatementWritable
     @Override
     public void checkOutputSpecs(final JobContext jobContext) throws IOException {
         final Configuration conf = jobContext.getConfiguration();
+        // The record writer serializes whole rows, which would corrupt dictionary encoded tables.
+        if (conf.getBoolean(AccumuloRdfConfiguration.CONF_DICTIONARY_ENCODING, false)) {
+            throw new IOException("Rya output does not support dictionary encoded instances ["
+                    + AccumuloRdfConfiguration.CONF_DICTIONARY_ENCODING + "].");
+        }
         // make sure that all of the indexers can connect
         getFreeTextIndexer(conf);
         getTemporalIndexer(conf);
@@ -0,0 +1,454 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.mr.tools;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.mapreduce.AccumuloFileOutputFormat;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRdfConstants;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.accumulo.mr.AbstractAccumuloMRTool;
+import org.apache.rya.accumulo.mr.MRUtils;
+import org.apache.rya.accumulo.mr.RyaStatementWritable;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+/**
+ * Reads RDF data from one or more file(s) and bulk imports the statements into
+ * Rya's core tables.
+ * <p>
+ * Unlike {@link RdfFileInputTool}, statements are not written through
+ * BatchWriters. The files are parsed in parallel by
+ * {@link org.apache.rya.accumulo.mr.RdfFileInputFormat}, each statement is
+ * serialized by the {@link RyaTripleContext} into its SPO, PO, and OSP rows,
+ * and the rows are sorted into RFiles that line up with the existing splits of
+ * each table. The RFiles are then handed to Accumulo with
+ * {@link org.apache.accumulo.core.client.admin.TableOperations#importDirectory(String, String, String, boolean)},
+ * so the tablet servers never buffer the data in memory.
+ * <p>
+ * Takes one argument: the file or directory to read.
+ * <p>
+ * Expects configuration:
+ * <p>
+ * - RDF format, named by parameter "rdf.format"; see {@link RDFFormat}.
+ *   Defaults to rdf/xml. If using multiple files, all must be the same format.
+ * <p>
+ * - Accumulo and Rya configuration parameters as named in {@link MRUtils}
+ *   (username, password, instance name, zookeepers, and Rya prefix)
+ * <p>
+ * - Optionally, the directory the RFiles are staged in, named by
+ *   {@link #WORK_DIR_PROP}, and the number of local threads used to parse
+ *   files, named by {@link #LOCAL_THREADS_PROP}.
+ * <p>
+ * Secondary indexes are not written.
+ */
+public class RdfBulkLoadTool extends AbstractAccumuloMRTool implements Tool {
+    private static final Logger logger = Logger.getLogger(RdfBulkLoadTool.class);
+
+    /**
+     * The directory RFiles are written to before they are imported. Defaults
+     * to a unique directory within the Hadoop temp directory.
+     */
+    public static final String WORK_DIR_PROP = "rdf.bulk.workdir";
+
+    /**
+     * The number of map and reduce tasks run at once when the job runs in
+     * local mode. Defaults to the number of available processors.
+     */
+    public static final String LOCAL_THREADS_PROP = "rdf.bulk.local.threads";
+
+    private static final String SPLITS_PROP_PREFIX = "rdf.bulk.splits.";
+
+    /**
+     * The tables that are bulk loaded. A {@link LayoutKey} refers to a table
+     * by its index within this array.
+     */
+    static final TABLE_LAYOUT[] LAYOUTS = { TABLE_LAYOUT.SPO, TABLE_LAYOUT.PO, TABLE_LAYOUT.OSP };
+
+    public static void main(String[] args) {
+        try {
+            ToolRunner.run(new Configuration(), new RdfBulkLoadTool(), args);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        init();
+        String inputPath = conf.get(MRUtils.INPUT_PATH, args[0]);
+
+        Connector connector = getConnector();
+        createTables(connector);
+        int numPartitions = setSplits(connector, conf);
+
+        if ("local".equals(conf.get("mapreduce.framework.name", "local"))) {
+            int threads = conf.getInt(LOCAL_THREADS_PROP, Runtime.getRuntime().availableProcessors());
+            conf.setInt("mapreduce.local.map.tasks.maximum", threads);
+            conf.setInt("mapreduce.local.reduce.tasks.maximum", threads);
+        }
+
+        FileSystem fs = FileSystem.get(conf);
+        Path workDir = new Path(conf.get(WORK_DIR_PROP,
+                conf.get("hadoop.tmp.dir", "/tmp") + "/rya_bulk_" + UUID.randomUUID().toString()));
+        Path filesDir = new Path(workDir, "files");
+
+        Job job = Job.getInstance(conf, "Rdf Bulk Load");
+        job.setJarByClass(RdfBulkLoadTool.class);
+
+        setupFileInputs(job, inputPath, RDFFormat.RDFXML);
+        job.setMapperClass(BulkLoadMapper.class);
+        job.setMapOutputKeyClass(LayoutKey.class);
+        job.setMapOutputValueClass(Value.class);
+
+        job.setPartitionerClass(SplitPartitioner.class);
+        job.setNumReduceTasks(numPartitions);
+        job.setReducerClass(BulkLoadReducer.class);
+        job.setOutputKeyClass(Key.class);
+        job.setOutputValueClass(Value.class);
+        LazyOutputFormat.setOutputFormatClass(job, AccumuloFileOutputFormat.class);
+        FileOutputFormat.setOutputPath(job, filesDir);
+
+        Date startTime = new Date();
+        System.out.println("Job started: " + startTime);
+        int exitCode = job.waitForCompletion(true) ? 0 : 1;
+
+        if (exitCode == 0) {
+            exitCode = importFiles(connector, fs, workDir, filesDir) ? 0 : 1;
+        }
+
+        if (exitCode == 0) {
+            fs.delete(workDir, true);
+            Date end_time = new Date();
+            System.out.println("Job ended: " + end_time);
+            System.out.println("The job took "
+                    + (end_time.getTime() - startTime.getTime()) / 1000
+                    + " seconds.");
+            long n = job.getCounters()
+                    .findCounter("org.apache.hadoop.mapred.Task$Counter", "MAP_INPUT_RECORDS").getValue();
+            System.out.println(n + " statement(s) bulk loaded to Rya.");
+        } else {
+            System.out.println("Job Failed!!! Intermediate files were left in " + workDir);
+        }
+        return exitCode;
+    }
+
+    /**
+     * Makes sure the Rya tables exist so that their splits may be read and
+     * files may be imported into them.
+     */
+    private void createTables(Connector connector) throws RyaDAOException {
+        AccumuloRdfConfiguration ryaConf = new AccumuloRdfConfiguration(conf);
+        ryaConf.setTablePrefix(tablePrefix);
+        ryaConf.setDisplayQueryPlan(false);
+        AccumuloRyaDAO dao = new AccumuloRyaDAO();
+        dao.setConnector(connector);
+        dao.setConf(ryaConf);
+        dao.init();
+        dao.destroy();
+    }
+
+    /**
+     * Stores the current splits of each core table within the configuration
+     * so the {@link SplitPartitioner} can send each row to the reducer that
+     * writes the file for the tablet it belongs to.
+     * @return  The total number of partitions across all the tables.
+     */
+    private int setSplits(Connector connector, Configuration conf) throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        int numPartitions = 0;
+        for (TABLE_LAYOUT layout : LAYOUTS) {
+            String table = RdfCloudTripleStoreUtils.layoutPrefixToTable(layout, tablePrefix);
+            Collection<Text> splits = connector.tableOperations().listSplits(table);
+            List<String> encoded = new ArrayList<>(splits.size());
+            for (Text split : splits) {
+                encoded.add(Base64.getEncoder().encodeToString(split.copyBytes()));
+            }
+            conf.setStrings(SPLITS_PROP_PREFIX + layout, encoded.toArray(new String[encoded.size()]));
+            numPartitions += splits.size() + 1;
+        }
+        return numPartitions;
+    }
+
+    /**
+     * Imports the RFiles written for each table. Files are left in place,
+     * and the import is reported as failed, if any of them are rejected.
+     */
+    private boolean importFiles(Connector connector, FileSystem fs, Path workDir, Path filesDir)
+            throws IOException, AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        boolean success = true;
+        for (TABLE_LAYOUT layout : LAYOUTS) {
+            Path tableDir = new Path(filesDir, getOutputDirName(layout));
+            if (!fs.exists(tableDir)) {
+                continue;
+            }
+            String table = RdfCloudTripleStoreUtils.layoutPrefixToTable(layout, tablePrefix);
+            Path failuresDir = new Path(workDir, "failures_" + getOutputDirName(layout));
+            fs.mkdirs(failuresDir);
+
+            logger.info("Importing " + tableDir + " into " + table);
+            connector.tableOperations().importDirectory(table, tableDir.toString(), failuresDir.toString(), false);
+
+            FileStatus[] failures = fs.listStatus(failuresDir);
+            if (failures != null && failures.length > 0) {
+                logger.error(failures.length + " file(s) could not be imported into " + table + "; see " + failuresDir);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    static String getOutputDirName(TABLE_LAYOUT layout) {
+        return layout.name().toLowerCase();
+    }
+
+    /**
+     * Serializes each statement into a row for each of the core tables.
+     */
+    public static class BulkLoadMapper extends Mapper<LongWritable, RyaStatementWritable, LayoutKey, Value> {
+        private final LayoutKey outputKey = new LayoutKey();
+        private RyaTripleContext tripleContext;
+        private byte[] cv = AccumuloRdfConstants.EMPTY_CV.getExpression();
+        private RyaIRI defaultContext = null;
+
+        @Override
+        protected void setup(Context context) throws IOException, InterruptedException {
+            Configuration conf = context.getConfiguration();
+            tripleContext = RyaTripleContext.getInstance(new AccumuloRdfConfiguration(conf));
+            String visibility = conf.get(MRUtils.AC_CV_PROP);
+            if (visibility != null) {
+                cv = visibility.getBytes(StandardCharsets.UTF_8);
+            }
+            String graph = conf.get(MRUtils.NAMED_GRAPH_PROP);
+            if (graph != null && !graph.isEmpty()) {
+                defaultContext = new RyaIRI(graph);
+            }
+        }
+
+        @Override
+        protected void map(LongWritable key, RyaStatementWritable value, Context context) throws IOException, InterruptedException {
+            RyaStatement statement = value.getRyaStatement();
+            if (statement.getColumnVisibility() == null) {
+                statement.setColumnVisibility(cv);
+            }
+            if (statement.getContext() == null) {
+                statement.setContext(defaultContext);
+            }
+
+            Map<TABLE_LAYOUT, TripleRow> rows;
+            try {
+                rows = tripleContext.serializeTriple(statement);
+            } catch (TripleRowResolverException e) {
+                throw new IOException("Could not serialize statement " + statement, e);
+            }
+
+            for (int i = 0; i < LAYOUTS.length; i++) {
+                TripleRow row = rows.get(LAYOUTS[i]);
+                outputKey.set(i, toKey(row));
+                context.write(outputKey, row.getValue() == null ? AccumuloRdfConstants.EMPTY_VALUE : new Value(row.getValue()));
+            }
+        }
+
+        private static Key toKey(TripleRow row) {
+            byte[] cf = row.getColumnFamily() == null ? new byte[0] : row.getColumnFamily();
+            byte[] cq = row.getColumnQualifier() == null ? new byte[0] : row.getColumnQualifier();
+            byte[] cv = row.getColumnVisibility() == null ? new byte[0] : row.getColumnVisibility();
+            long timestamp = row.getTimestamp() == null ? System.currentTimeMillis() : row.getTimestamp();
+            return new Key(row.getRow(), cf, cq, cv, timestamp);
+        }
+    }
+
+    /**
+     * Receives the rows of one tablet in sorted order and writes them to an
+     * RFile within the directory of the table they belong to. Duplicate
+     * entries are only written once.
+     */
+    public static class BulkLoadReducer extends Reducer<LayoutKey, Value, Key, Value> {
+        private MultipleOutputs<Key, Value> outputs;
+
+        @Override
+        protected void setup(Context context) throws IOException, InterruptedException {
+            outputs = new MultipleOutputs<>(context);
+        }
+
+        @Override
+        protected void reduce(LayoutKey key, Iterable<Value> values, Context context) throws IOException, InterruptedException {
+            String baseOutputPath = getOutputDirName(LAYOUTS[key.getLayout()]) + "/part";
+            outputs.write(key.getKey(), values.iterator().next(), baseOutputPath);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            outputs.close();
+        }
+    }
+
+    /**
+     * Sends each row to the partition of the tablet it belongs to. Every table
+     * is given one partition more than it has splits, and the partitions of
+     * the tables follow one another in the order of {@link #LAYOUTS}.
+     */
+    public static class SplitPartitioner extends Partitioner<LayoutKey, Value> implements Configurable {
+        private Configuration conf;
+        private Text[][] splits;
+        private int[] offsets;
+
+        @Override
+        public void setConf(Configuration conf) {
+            this.conf = conf;
+            splits = new Text[LAYOUTS.length][];
+            offsets = new int[LAYOUTS.length];
+            int offset = 0;
+            for (int i = 0; i < LAYOUTS.length; i++) {
+                String[] encoded = conf.getStrings(SPLITS_PROP_PREFIX + LAYOUTS[i], new String[0]);
+                splits[i] = new Text[encoded.length];
+                for (int j = 0; j < encoded.length; j++) {
+                    splits[i][j] = new Text(Base64.getDecoder().decode(encoded[j]));
+                }
+                // listSplits returns the splits in sorted order, but don't depend on it.
+                Arrays.sort(splits[i]);
+                offsets[i] = offset;
+                offset += encoded.length + 1;
+            }
+        }
+
+        @Override
+        public Configuration getConf() {
+            return conf;
+        }
+
+        @Override
+        public int getPartition(LayoutKey key, Value value, int numPartitions) {
+            int layout = key.getLayout();
+            int index = Arrays.binarySearch(splits[layout], key.getKey().getRow());
+            // A tablet holds the rows that are greater than the previous split and at most its own split.
+            if (index < 0) {
+                index = -(index + 1);
+            }
+            return (offsets[layout] + index) % numPartitions;
+        }
+    }
+
+    /**
+     * An Accumulo {@link Key} along with the index of the table (within
+     * {@link RdfBulkLoadTool#LAYOUTS}) it will be imported into. Sorts by
+     * table, then in Accumulo's order.
+     */
+    public static class LayoutKey implements WritableComparable<LayoutKey> {
+        private int layout;
+        private Key key = new Key();
+
+        public LayoutKey() {
+        }
+
+        public LayoutKey(int layout, Key key) {
+            set(layout, key);
+        }
+
+        public void set(int layout, Key key) {
+            this.layout = layout;
+            this.key = key;
+        }
+
+        public int getLayout() {
+            return layout;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeByte(layout);
+            key.write(out);
+        }
+
+        @Override
+        public void readFields(DataInput in) throws IOException {
+            layout = in.readByte();
+            key.readFields(in);
+        }
+
+        @Override
+        public int compareTo(LayoutKey other) {
+            int result = Integer.compare(layout, other.layout);
+            return result != 0 ? result : key.compareTo(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * layout + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LayoutKey)) {
+                return false;
+            }
+            LayoutKey other = (LayoutKey) o;
+            return layout == other.layout && key.equals(other.key);
+        }
+    }
+}
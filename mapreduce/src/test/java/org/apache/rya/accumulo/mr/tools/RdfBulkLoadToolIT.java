@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.mr.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.mr.TestUtils;
+import org.apache.rya.api.RdfCloudTripleStoreConstants;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.test.accumulo.AccumuloITBase;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.junit.Test;
+
+/**
+ * Integration tests the methods of {@link RdfBulkLoadTool}.
+ */
+public class RdfBulkLoadToolIT extends AccumuloITBase {
+
+    @Test
+    public void bulkLoadMultipleFiles() throws Exception {
+        final String tablePrefix = getRyaInstanceName() + "_";
+        final Connector connector = getConnector();
+
+        // Pre-split the SPO table so that more than one file is written for it.
+        final String spoTable = tablePrefix + RdfCloudTripleStoreConstants.TBL_SPO_SUFFIX;
+        connector.tableOperations().create(spoTable);
+        final SortedSet<Text> splits = new TreeSet<>();
+        splits.add(new Text("urn:lubm:rdfts#GraduateStudent04"));
+        connector.tableOperations().addSplits(spoTable, splits);
+
+        final int exitCode = ToolRunner.run(new Configuration(), new RdfBulkLoadTool(), new String[] {
+                "-Dac.instance=" + getInstanceName(),
+                "-Dac.zk=" + getZookeepers(),
+                "-Dac.username=" + getUsername(),
+                "-Dac.pwd=" + getPassword(),
+                "-Drdf.tablePrefix=" + tablePrefix,
+                "-Drdf.format=" + RDFFormat.NTRIPLES.getName(),
+                "-D" + RdfBulkLoadTool.LOCAL_THREADS_PROP + "=2",
+                "src/test/resources/test.ntriples,src/test/resources/test2.ntriples",
+        });
+        assertEquals(0, exitCode);
+
+        // Every statement from both files is in each of the core tables.
+        assertEquals(6, count(connector, spoTable));
+        assertEquals(6, count(connector, tablePrefix + RdfCloudTripleStoreConstants.TBL_PO_SUFFIX));
+        assertEquals(6, count(connector, tablePrefix + RdfCloudTripleStoreConstants.TBL_OSP_SUFFIX));
+
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix(tablePrefix);
+        TestUtils.verify(connector, conf,
+                new RyaStatement(new RyaIRI("urn:lubm:rdfts#GraduateStudent01"),
+                        new RyaIRI("urn:lubm:rdfts#hasFriend"),
+                        new RyaIRI("urn:lubm:rdfts#GraduateStudent02")),
+                new RyaStatement(new RyaIRI("urn:lubm:rdfts#GraduateStudent05"),
+                        new RyaIRI("urn:lubm:rdfts#hasFriend"),
+                        new RyaIRI("urn:lubm:rdfts#GraduateStudent07")));
+    }
+
+    private static int count(final Connector connector, final String table) throws Exception {
+        final Scanner scanner = connector.createScanner(table, new Authorizations());
+        int count = 0;
+        for (final Entry<Key, Value> entry : scanner) {
+            count++;
+        }
+        scanner.close();
+        return count;
+    }
+}
@@ -31,6 +31,8 @@ import org.apache.rya.api.RdfCloudTripleStoreConstants;
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ToolRunner;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.After;
 import org.junit.Before;
@@ -102,6 +104,21 @@ public class RdfFileInputToolTest {
         TestUtils.verify(connector, conf, rs);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testDictionaryEncodingRejected() throws Exception {
+        // Whole row keys must never be written into dictionary encoded tables.
+        ToolRunner.run(new Configuration(), new RdfFileInputTool(), new String[]{
+                "-Dac.mock=true",
+                "-Dac.instance=" + instance,
+                "-Dac.username=" + user,
+                "-Dac.pwd=" + pwd,
+                "-Drdf.tablePrefix=" + tablePrefix,
+                "-D" + AccumuloRdfConfiguration.CONF_DICTIONARY_ENCODING + "=true",
+                "-Drdf.format=" + RDFFormat.NTRIPLES.getName(),
+                "src/test/resources/test.ntriples",
+        });
+    }
+
     @Test
     public void testMultipleNTriplesInputs() throws Exception {
         RdfFileInputTool.main(new String[]{
@@ -20,11 +20,15 @@ package org.apache.rya.rdftriplestore;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.persist.CachingRdfEvalStatsDAO;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.joinselect.SelectivityEvalDAO;
+import org.apache.rya.rdftriplestore.evaluation.QueryPlanCache;
 import org.apache.rya.rdftriplestore.inference.InferenceEngine;
 import org.apache.rya.rdftriplestore.namespace.NamespaceManager;
 import org.apache.rya.rdftriplestore.provenance.ProvenanceCollector;
@@ -44,6 +48,7 @@ public class RdfCloudTripleStore<C extends RdfCloudTripleStoreConfiguration> ext
     protected SelectivityEvalDAO<C> selectEvalDAO;
     private NamespaceManager namespaceManager;
     protected ProvenanceCollector provenanceCollector;
+    private QueryPlanCache queryPlanCache;
 
     private static final ValueFactory VF = SimpleValueFactory.getInstance();
 
@@ -76,9 +81,18 @@ public class RdfCloudTripleStore<C extends RdfCloudTripleStoreConfiguration> ext
             rdfEvalStatsDAO.init();
         }
 
+        if (rdfEvalStatsDAO != null && conf.isStatsCacheEnabled() && !(rdfEvalStatsDAO instanceof CachingRdfEvalStatsDAO)) {
+            rdfEvalStatsDAO = new CachingRdfEvalStatsDAO<>(rdfEvalStatsDAO,
+                    conf.getStatsCacheSize(), conf.getStatsCacheTtl(), TimeUnit.MILLISECONDS);
+        }
+
         if (namespaceManager == null) {
             this.namespaceManager = new NamespaceManager(ryaDAO, this.conf);
         }
+
+        if (queryPlanCache == null && conf.isQueryPlanCacheEnabled()) {
+            queryPlanCache = new QueryPlanCache(conf.getQueryPlanCacheSize(), conf.getQueryPlanCacheExpiry());
+        }
     }
 
     @Override
@@ -126,6 +140,17 @@ public class RdfCloudTripleStore<C extends RdfCloudTripleStoreConfiguration> ext
         this.rdfEvalStatsDAO = rdfEvalStatsDAO;
     }
 
+    /**
+     * @return The cache of optimized query plans, or {@code null} if plan caching is disabled.
+     */
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
+    public void setQueryPlanCache(final QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache;
+    }
+
     public SelectivityEvalDAO<C> getSelectEvalDAO() {
         return selectEvalDAO;
     }
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
@@ -40,12 +42,17 @@ import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.joinselect.SelectivityEvalDAO;
+import org.apache.rya.api.persist.query.ObjectFilter;
+import org.apache.rya.api.persist.query.ScanMetrics;
 import org.apache.rya.api.persist.utils.RyaDAOHelper;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
+import org.apache.rya.rdftriplestore.evaluation.FilterPushdownVisitor;
 import org.apache.rya.rdftriplestore.evaluation.FilterRangeVisitor;
 import org.apache.rya.rdftriplestore.evaluation.ParallelEvaluationStrategyImpl;
 import org.apache.rya.rdftriplestore.evaluation.QueryJoinOptimizer;
 import org.apache.rya.rdftriplestore.evaluation.QueryJoinSelectOptimizer;
+import org.apache.rya.rdftriplestore.evaluation.QueryPlanCache;
+import org.apache.rya.rdftriplestore.evaluation.QueryProfiler;
 import org.apache.rya.rdftriplestore.evaluation.RdfCloudTripleStoreEvaluationStatistics;
 import org.apache.rya.rdftriplestore.evaluation.RdfCloudTripleStoreSelectivityEvaluationStatistics;
 import org.apache.rya.rdftriplestore.evaluation.SeparateFilterJoinsVisitor;
@@ -54,6 +61,7 @@ import org.apache.rya.rdftriplestore.inference.DomainRangeVisitor;
 import org.apache.rya.rdftriplestore.inference.HasSelfVisitor;
 import org.apache.rya.rdftriplestore.inference.HasValueVisitor;
 import org.apache.rya.rdftriplestore.inference.InferenceEngine;
+import org.apache.rya.rdftriplestore.inference.InferenceEngineException;
 import org.apache.rya.rdftriplestore.inference.IntersectionOfVisitor;
 import org.apache.rya.rdftriplestore.inference.InverseOfVisitor;
 import org.apache.rya.rdftriplestore.inference.OneOfVisitor;
@@ -70,6 +78,7 @@ import org.apache.rya.rdftriplestore.provenance.ProvenanceCollectionException;
 import org.apache.rya.rdftriplestore.provenance.ProvenanceCollector;
 import org.apache.rya.rdftriplestore.utils.DefaultStatistics;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.SingletonIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Resource;
@@ -175,6 +184,9 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
                 ryaStatements.add(statement);
             }
             ryaDAO.add(ryaStatements.iterator());
+            if (inferenceEngine != null) {
+                inferenceEngine.statementAdded(subject, predicate, object);
+            }
         } catch (final RyaDAOException e) {
             throw new SailException(e);
         }
@@ -277,6 +289,11 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
             if (limitBinding != null) {
                 queryConf.setLimit(Long.parseLong(limitBinding.getValue().stringValue()));
             }
+
+            final Binding profileBinding = bindings.getBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE);
+            if (profileBinding != null) {
+                queryConf.setQueryProfile(Boolean.parseBoolean(profileBinding.getValue().stringValue()));
+            }
         } else {
             bindings = new QueryBindingSet();
         }
@@ -286,123 +303,25 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
         }
 
         try {
-            final List<Class<QueryOptimizer>> optimizers = queryConf.getOptimizers();
-            final Class<QueryOptimizer> pcjOptimizer = queryConf.getPcjOptimizer();
-
-            if(pcjOptimizer != null) {
-                QueryOptimizer opt = null;
-                try {
-                    final Constructor<QueryOptimizer> construct = pcjOptimizer.getDeclaredConstructor();
-                    opt = construct.newInstance();
-                } catch (final Exception e) {
-                }
-                if (opt == null) {
-                    throw new NoSuchMethodException("Could not find valid constructor for " + pcjOptimizer.getName());
-                }
-                if (opt instanceof Configurable) {
-                    ((Configurable) opt).setConf(conf);
-                }
-                opt.optimize(tupleExpr, dataset, bindings);
-            }
-
             final ParallelEvaluationStrategyImpl strategy = new ParallelEvaluationStrategyImpl(
                     new StoreTripleSource<C>(queryConf, ryaDAO), inferenceEngine, dataset, queryConf);
 
-                (new BindingAssigner()).optimize(tupleExpr, dataset, bindings);
-                (new ConstantOptimizer(strategy)).optimize(tupleExpr, dataset,
-                        bindings);
-                (new CompareOptimizer()).optimize(tupleExpr, dataset, bindings);
-                (new ConjunctiveConstraintSplitter()).optimize(tupleExpr, dataset,
-                        bindings);
-                (new DisjunctiveConstraintOptimizer()).optimize(tupleExpr, dataset,
-                        bindings);
-                (new SameTermFilterOptimizer()).optimize(tupleExpr, dataset,
-                        bindings);
-                (new QueryModelNormalizer()).optimize(tupleExpr, dataset, bindings);
-
-                (new IterativeEvaluationOptimizer()).optimize(tupleExpr, dataset,
-                        bindings);
-
-            if (!optimizers.isEmpty()) {
-                for (final Class<QueryOptimizer> optclz : optimizers) {
-                    QueryOptimizer result = null;
-                    try {
-                        final Constructor<QueryOptimizer> meth = optclz.getDeclaredConstructor();
-                        result = meth.newInstance();
-                    } catch (final Exception e) {
-                    }
-                    try {
-                        final Constructor<QueryOptimizer> meth = optclz.getDeclaredConstructor(EvaluationStrategy.class);
-                        result = meth.newInstance(strategy);
-                    } catch (final Exception e) {
-                    }
-                    if (result == null) {
-                        throw new NoSuchMethodException("Could not find valid constructor for " + optclz.getName());
-                    }
-                    if (result instanceof Configurable) {
-                        ((Configurable) result).setConf(conf);
-                    }
-                    result.optimize(tupleExpr, dataset, bindings);
-                }
-            }
-
-            (new FilterOptimizer()).optimize(tupleExpr, dataset, bindings);
-            (new OrderLimitOptimizer()).optimize(tupleExpr, dataset, bindings);
-
-            logger.trace("Optimized query model:\n{}", tupleExpr.toString());
-
-            if (queryConf.isInfer()
-                    && this.inferenceEngine != null
-                    ) {
-                try {
-                    tupleExpr.visit(new DomainRangeVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new SomeValuesFromVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new AllValuesFromVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new HasValueVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new IntersectionOfVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new ReflexivePropertyVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new PropertyChainVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new TransitivePropertyVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new SymmetricPropertyVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new InverseOfVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new SubPropertyOfVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new SubClassOfVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new SameAsVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new OneOfVisitor(queryConf, inferenceEngine));
-                    tupleExpr.visit(new HasSelfVisitor(queryConf, inferenceEngine));
-                } catch (final Exception e) {
-                    logger.error("Error encountered while visiting query node.", e);
-                }
-            }
-            if (queryConf.isPerformant()) {
-                tupleExpr.visit(new SeparateFilterJoinsVisitor());
-//                tupleExpr.visit(new FilterTimeIndexVisitor(queryConf));
-//                tupleExpr.visit(new PartitionFilterTimeIndexVisitor(queryConf));
-            }
-            final FilterRangeVisitor rangeVisitor = new FilterRangeVisitor(queryConf);
-            tupleExpr.visit(rangeVisitor);
-            tupleExpr.visit(rangeVisitor); //this has to be done twice to get replace the statementpatterns with the right ranges
-            EvaluationStatistics stats = null;
-            if (!queryConf.isUseStats() && queryConf.isPerformant() || rdfEvalStatsDAO == null) {
-                stats = new DefaultStatistics();
-            } else if (queryConf.isUseStats()) {
-
-                if (queryConf.isUseSelectivity()) {
-                    stats = new RdfCloudTripleStoreSelectivityEvaluationStatistics<C>(queryConf, rdfEvalStatsDAO,
-                            selectEvalDAO);
-                } else {
-                    stats = new RdfCloudTripleStoreEvaluationStatistics<C>(queryConf, rdfEvalStatsDAO);
+            final QueryPlanCache planCache = store.getQueryPlanCache();
+            final List<Object> planKey = planCache == null ? null :
+                QueryPlanCache.createKey(tupleExpr, dataset, bindings, queryConf, inferenceEngine);
+            final TupleExpr cachedPlan = planKey == null ? null : planCache.get(planKey);
+            if (cachedPlan != null) {
+                logger.trace("Using cached query model:\n{}", cachedPlan.toString());
+                tupleExpr = cachedPlan;
+            } else {
+                optimize(tupleExpr, dataset, bindings, queryConf, strategy);
+                if (planKey != null) {
+                    planCache.put(planKey, tupleExpr);
                 }
             }
-            if (stats != null) {
 
-                if (stats instanceof RdfCloudTripleStoreSelectivityEvaluationStatistics) {
-                    final QueryJoinSelectOptimizer qjso = new QueryJoinSelectOptimizer(stats, selectEvalDAO);
-                    qjso.optimize(tupleExpr, dataset, bindings);
-                } else {
-                    final QueryJoinOptimizer qjo = new QueryJoinOptimizer(stats);
-                    qjo.optimize(tupleExpr, dataset, bindings); // TODO: Make pluggable
-                }
+            if (queryConf.isQueryProfile()) {
+                return profile(tupleExpr, strategy);
             }
 
             final CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy
@@ -438,6 +357,173 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
         }
     }
 
+    /**
+     * Evaluates an optimized query to completion while recording what each node
+     * of its plan did.
+     *
+     * @param tupleExpr - The optimized query. (not null)
+     * @param strategy - The strategy that evaluates the query. It is shut down once the query has been evaluated. (not null)
+     * @return A single binding set that binds {@link RdfCloudTripleStoreConfiguration#CONF_QUERY_PROFILE}
+     *   to the annotated plan.
+     * @throws QueryEvaluationException The query could not be evaluated.
+     */
+    private CloseableIteration<BindingSet, QueryEvaluationException> profile(final TupleExpr tupleExpr,
+            final ParallelEvaluationStrategyImpl strategy) throws QueryEvaluationException {
+        final QueryProfiler profiler = new QueryProfiler();
+        strategy.setProfiler(profiler);
+
+        final long start = System.currentTimeMillis();
+        long results = 0;
+        final CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy
+                .evaluate(tupleExpr, EmptyBindingSet.getInstance());
+        try {
+            while (iter.hasNext()) {
+                iter.next();
+                results++;
+            }
+        } finally {
+            try {
+                iter.close();
+            } finally {
+                strategy.shutdown();
+            }
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+
+        final String plan = String.format("Query returned %d results in %d ms%n", results, elapsed) + profiler.render(tupleExpr);
+        logger.info("Query profile:\n{}", plan);
+
+        final QueryBindingSet bs = new QueryBindingSet();
+        bs.addBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE, RdfCloudTripleStoreConstants.VALUE_FACTORY.createLiteral(plan));
+        return new SingletonIteration<>(bs);
+    }
+
+    /**
+     * Runs the PCJ optimizer, the standard optimizers, the configured optimizers,
+     * the inference visitors, and join ordering over a query model in place.
+     */
+    private void optimize(final TupleExpr tupleExpr, final Dataset dataset, final BindingSet bindings,
+            final C queryConf, final ParallelEvaluationStrategyImpl strategy) throws Exception {
+        final List<Class<QueryOptimizer>> optimizers = queryConf.getOptimizers();
+        final Class<QueryOptimizer> pcjOptimizer = queryConf.getPcjOptimizer();
+
+        if(pcjOptimizer != null) {
+            QueryOptimizer opt = null;
+            try {
+                final Constructor<QueryOptimizer> construct = pcjOptimizer.getDeclaredConstructor();
+                opt = construct.newInstance();
+            } catch (final Exception e) {
+            }
+            if (opt == null) {
+                throw new NoSuchMethodException("Could not find valid constructor for " + pcjOptimizer.getName());
+            }
+            if (opt instanceof Configurable) {
+                ((Configurable) opt).setConf(conf);
+            }
+            opt.optimize(tupleExpr, dataset, bindings);
+        }
+
+        (new BindingAssigner()).optimize(tupleExpr, dataset, bindings);
+        (new ConstantOptimizer(strategy)).optimize(tupleExpr, dataset, bindings);
+        (new CompareOptimizer()).optimize(tupleExpr, dataset, bindings);
+        (new ConjunctiveConstraintSplitter()).optimize(tupleExpr, dataset, bindings);
+        (new DisjunctiveConstraintOptimizer()).optimize(tupleExpr, dataset, bindings);
+        (new SameTermFilterOptimizer()).optimize(tupleExpr, dataset, bindings);
+        (new QueryModelNormalizer()).optimize(tupleExpr, dataset, bindings);
+
+        (new IterativeEvaluationOptimizer()).optimize(tupleExpr, dataset, bindings);
+
+        if (!optimizers.isEmpty()) {
+            for (final Class<QueryOptimizer> optclz : optimizers) {
+                QueryOptimizer result = null;
+                try {
+                    final Constructor<QueryOptimizer> meth = optclz.getDeclaredConstructor();
+                    result = meth.newInstance();
+                } catch (final Exception e) {
+                }
+                try {
+                    final Constructor<QueryOptimizer> meth = optclz.getDeclaredConstructor(EvaluationStrategy.class);
+                    result = meth.newInstance(strategy);
+                } catch (final Exception e) {
+                }
+                if (result == null) {
+                    throw new NoSuchMethodException("Could not find valid constructor for " + optclz.getName());
+                }
+                if (result instanceof Configurable) {
+                    ((Configurable) result).setConf(conf);
+                }
+                result.optimize(tupleExpr, dataset, bindings);
+            }
+        }
+
+        (new FilterOptimizer()).optimize(tupleExpr, dataset, bindings);
+        (new OrderLimitOptimizer()).optimize(tupleExpr, dataset, bindings);
+
+        logger.trace("Optimized query model:\n{}", tupleExpr.toString());
+
+        if (queryConf.isInfer()
+                && this.inferenceEngine != null
+                ) {
+            try {
+                tupleExpr.visit(new DomainRangeVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new SomeValuesFromVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new AllValuesFromVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new HasValueVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new IntersectionOfVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new ReflexivePropertyVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new PropertyChainVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new TransitivePropertyVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new SymmetricPropertyVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new InverseOfVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new SubPropertyOfVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new SubClassOfVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new SameAsVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new OneOfVisitor(queryConf, inferenceEngine));
+                tupleExpr.visit(new HasSelfVisitor(queryConf, inferenceEngine));
+            } catch (final Exception e) {
+                logger.error("Error encountered while visiting query node.", e);
+            }
+        }
+        if (queryConf.isPerformant()) {
+            tupleExpr.visit(new SeparateFilterJoinsVisitor());
+//                tupleExpr.visit(new FilterTimeIndexVisitor(queryConf));
+//                tupleExpr.visit(new PartitionFilterTimeIndexVisitor(queryConf));
+        }
+        final FilterRangeVisitor rangeVisitor = new FilterRangeVisitor(queryConf);
+        tupleExpr.visit(rangeVisitor);
+        tupleExpr.visit(rangeVisitor); //this has to be done twice to get replace the statementpatterns with the right ranges
+        if (queryConf.isFilterPushdown() && ryaDAO.getQueryEngine().supportsObjectFilters()) {
+            final FilterPushdownVisitor pushdownVisitor = new FilterPushdownVisitor();
+            tupleExpr.visit(pushdownVisitor);
+            logger.debug("Filters evaluated by the query engine: {}", pushdownVisitor.getPushedFilters());
+        }
+        EvaluationStatistics stats = null;
+        if (!queryConf.isUseStats() && queryConf.isPerformant() || rdfEvalStatsDAO == null) {
+            stats = new DefaultStatistics();
+        } else if (queryConf.isUseStats()) {
+
+            if (queryConf.isUseSelectivity()) {
+                stats = new RdfCloudTripleStoreSelectivityEvaluationStatistics<C>(queryConf, rdfEvalStatsDAO,
+                        selectEvalDAO);
+            } else {
+                final RdfCloudTripleStoreEvaluationStatistics<C> rdfStats =
+                        new RdfCloudTripleStoreEvaluationStatistics<C>(queryConf, rdfEvalStatsDAO);
+                rdfStats.prefetchCardinalities(tupleExpr);
+                stats = rdfStats;
+            }
+        }
+        if (stats != null) {
+
+            if (stats instanceof RdfCloudTripleStoreSelectivityEvaluationStatistics) {
+                final QueryJoinSelectOptimizer qjso = new QueryJoinSelectOptimizer(stats, selectEvalDAO);
+                qjso.optimize(tupleExpr, dataset, bindings);
+            } else {
+                final QueryJoinOptimizer qjo = new QueryJoinOptimizer(stats);
+                qjo.optimize(tupleExpr, dataset, bindings); // TODO: Make pluggable
+            }
+        }
+    }
+
     @Override
     protected CloseableIteration<? extends Resource, SailException> getContextIDsInternal()
             throws SailException {
@@ -580,7 +666,10 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
 
                 ryaDAO.delete(statement, conf);
             }
-        } catch (final RyaDAOException e) {
+            if (inferenceEngine != null) {
+                inferenceEngine.statementsRemoved(subject, predicate, object);
+            }
+        } catch (final RyaDAOException | InferenceEngineException e) {
             throw new SailException(e);
         }
     }
@@ -617,6 +706,7 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
 
         private final C conf;
         private final RyaDAO<C> ryaDAO;
+        private final ConcurrentMap<ObjectFilter, C> filteredConfs = new ConcurrentHashMap<>();
 
         public StoreTripleSource(final C conf, final RyaDAO<C> ryaDAO) {
             this.conf = conf;
@@ -633,14 +723,60 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
         public CloseableIteration<? extends Entry<Statement, BindingSet>, QueryEvaluationException> getStatements(
                 final Collection<Map.Entry<Statement, BindingSet>> statements,
                 final Resource... contexts) throws QueryEvaluationException {
+            return getStatements(statements, null, null);
+        }
 
-            return RyaDAOHelper.query(ryaDAO, statements, conf);
+        /**
+         * Queries for a batch of statements, reporting the work done to scan them.
+         *
+         * @param statements - The statements to query for, each paired with the binding set it was produced from.
+         * @param metrics - Is told how many ranges are scanned and how many bytes are read. (may be null)
+         * @return The statements that matched, each paired with the binding set it was produced from.
+         * @throws QueryEvaluationException The statements could not be queried for.
+         */
+        public CloseableIteration<? extends Entry<Statement, BindingSet>, QueryEvaluationException> getStatements(
+                final Collection<Map.Entry<Statement, BindingSet>> statements,
+                final ScanMetrics metrics) throws QueryEvaluationException {
+            return getStatements(statements, null, metrics);
+        }
+
+        /**
+         * Queries for a batch of statements whose objects must pass a filter.
+         * Every batched query goes through this method, so a subclass that
+         * changes how batches are queried only has to override this one.
+         *
+         * @param statements - The statements to query for, each paired with the binding set it was produced from.
+         * @param filter - The filter the query engine applies to the objects of the statements it finds. (may be null)
+         * @param metrics - Is told how many ranges are scanned and how many bytes are read. (may be null)
+         * @return The statements that matched, each paired with the binding set it was produced from.
+         * @throws QueryEvaluationException The statements could not be queried for.
+         */
+        public CloseableIteration<? extends Entry<Statement, BindingSet>, QueryEvaluationException> getStatements(
+                final Collection<Map.Entry<Statement, BindingSet>> statements,
+                final ObjectFilter filter, final ScanMetrics metrics) throws QueryEvaluationException {
+            if (filter == null) {
+                return RyaDAOHelper.query(ryaDAO, statements, conf, metrics);
+            }
+            C filteredConf = filteredConfs.get(filter);
+            if (filteredConf == null) {
+                filteredConf = (C) conf.clone();
+                filteredConf.setObjectFilter(filter);
+                filteredConfs.putIfAbsent(filter, filteredConf);
+            }
+            return RyaDAOHelper.query(ryaDAO, statements, filteredConf, metrics);
         }
 
         @Override
         public ValueFactory getValueFactory() {
             return RdfCloudTripleStoreConstants.VALUE_FACTORY;
         }
+
+        /**
+         * @return The DAO the statements are read from.
+         */
+        public RyaDAO<C> getRyaDAO() {
+            return ryaDAO;
+        }
     }
 
     public InferenceEngine getInferenceEngine() {
@@ -0,0 +1,124 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+
+/**
+ * Decides how many left hand bindings a bind join pushes into its right hand
+ * statement pattern at once. After every batch the observed scan latency and
+ * fan-out are recorded: fast batches double the next batch size, slow batches
+ * halve it, and the size is always capped so that a batch's expected number of
+ * results stays under the configured maximum. This keeps the join from issuing
+ * many tiny scans when the store is fast and from buffering huge result sets
+ * when the fan-out is large.
+ * <p>
+ * Instances are not thread safe; each join owns its own sizer.
+ */
+public class AdaptiveBatchSizer {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetLatencyNanos;
+    private final long maxBatchResults;
+
+    private int batchSize;
+
+    /**
+     * Constructs an instance of {@link AdaptiveBatchSizer}.
+     *
+     * @param initialBatchSize - The size of the first batch.
+     * @param minBatchSize - The smallest batch size that will be used. Must be positive.
+     * @param maxBatchSize - The largest batch size that will be used. Must be at least {@code minBatchSize}.
+     * @param targetLatency - How long a single batch should take to scan.
+     * @param targetLatencyUnit - The unit of {@code targetLatency}.
+     * @param maxBatchResults - The number of results a batch may be expected to produce.
+     */
+    public AdaptiveBatchSizer(final int initialBatchSize, final int minBatchSize, final int maxBatchSize,
+            final long targetLatency, final TimeUnit targetLatencyUnit, final long maxBatchResults) {
+        checkArgument(minBatchSize > 0, "The minimum batch size must be positive.");
+        checkArgument(maxBatchSize >= minBatchSize, "The maximum batch size must be at least the minimum batch size.");
+        checkArgument(maxBatchResults > 0, "The maximum number of batch results must be positive.");
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyNanos = targetLatencyUnit.toNanos(targetLatency);
+        this.maxBatchResults = maxBatchResults;
+        this.batchSize = clamp(initialBatchSize);
+    }
+
+    /**
+     * Creates a sizer using the bind join settings of a query's configuration.
+     *
+     * @param conf - The configuration of the query.
+     * @return A sizer for one join of the query.
+     */
+    public static AdaptiveBatchSizer fromConfiguration(final RdfCloudTripleStoreConfiguration conf) {
+        return new AdaptiveBatchSizer(
+                conf.getBindJoinBatchSize(),
+                conf.getBindJoinMinBatchSize(),
+                conf.getBindJoinMaxBatchSize(),
+                conf.getBindJoinTargetLatency(), TimeUnit.MILLISECONDS,
+                conf.getBindJoinMaxBatchResults());
+    }
+
+    /**
+     * @return The number of left hand bindings the next batch should contain.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Adjusts the batch size based on how the last batch performed.
+     *
+     * @param leftBindings - The number of left hand bindings in the batch.
+     * @param results - The number of results the batch produced.
+     * @param scanNanos - How long was spent waiting on the scan for the batch.
+     */
+    public void record(final int leftBindings, final long results, final long scanNanos) {
+        if (leftBindings <= 0) {
+            return;
+        }
+
+        long next = batchSize;
+        if (scanNanos > targetLatencyNanos) {
+            next = batchSize / 2;
+        } else if (scanNanos < targetLatencyNanos / 2 && leftBindings >= batchSize) {
+            // Only grow if the batch was full, otherwise the left side simply ran dry.
+            next = (long) batchSize * 2;
+        }
+
+        // Keep the expected number of results under the memory cap.
+        final double fanOut = (double) results / leftBindings;
+        if (fanOut > 0) {
+            next = Math.min(next, (long) (maxBatchResults / fanOut));
+        }
+
+        batchSize = clamp(next);
+    }
+
+    private int clamp(final long size) {
+        return (int) Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+}
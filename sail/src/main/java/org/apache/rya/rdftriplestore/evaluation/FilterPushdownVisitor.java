@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.rdftriplestore.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.persist.query.ObjectFilter;
+import org.apache.rya.api.persist.query.ObjectFilter.Condition;
+import org.apache.rya.rdftriplestore.utils.ObjectFilterStatementPattern;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.BooleanLiteral;
+import org.eclipse.rdf4j.model.vocabulary.FN;
+import org.eclipse.rdf4j.query.algebra.And;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.FunctionCall;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.Lang;
+import org.eclipse.rdf4j.query.algebra.LangMatches;
+import org.eclipse.rdf4j.query.algebra.Regex;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.ValueConstant;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+/**
+ * Compiles the conditions of a {@link Filter} that only test the object of one
+ * of the statement patterns it filters into an {@link ObjectFilter}, which the
+ * query engine evaluates while it scans for that pattern. The pattern is
+ * replaced by an {@link ObjectFilterStatementPattern} and the compiled
+ * conditions are dropped from the filter.
+ * <p>
+ * Comparisons with a constant, REGEX, STRSTARTS and LANGMATCHES of the object
+ * are compiled when they are conjuncts of the filter condition. Filters are only
+ * pushed through joins, since any other operator may change which solutions the
+ * filter sees. Only use this visitor when the query engine
+ * {@link org.apache.rya.api.persist.query.RyaQueryEngine#supportsObjectFilters() supports object filters}.
+ */
+public class FilterPushdownVisitor extends AbstractQueryModelVisitor<Exception> {
+
+    private final List<ValueExpr> pushedFilters = new ArrayList<>();
+
+    @Override
+    public void meet(final Filter node) throws Exception {
+        super.meet(node);
+
+        final List<StatementPattern> patterns = new ArrayList<>();
+        collectPatterns(node.getArg(), patterns);
+        if (patterns.isEmpty()) {
+            return;
+        }
+
+        final List<ValueExpr> conjuncts = new ArrayList<>();
+        collectConjuncts(node.getCondition(), conjuncts);
+
+        final Map<StatementPattern, List<Condition>> pushed = new LinkedHashMap<>();
+        final List<ValueExpr> remaining = new ArrayList<>();
+        for (final ValueExpr conjunct : conjuncts) {
+            final Var var = getFilteredVar(conjunct);
+            final StatementPattern pattern = var == null ? null : findPattern(patterns, var);
+            final Condition condition = pattern == null ? null : compile(conjunct);
+            if (condition == null) {
+                remaining.add(conjunct);
+            } else {
+                if (!pushed.containsKey(pattern)) {
+                    pushed.put(pattern, new ArrayList<Condition>());
+                }
+                pushed.get(pattern).add(condition);
+                pushedFilters.add(conjunct);
+            }
+        }
+        if (pushed.isEmpty()) {
+            return;
+        }
+
+        for (final Map.Entry<StatementPattern, List<Condition>> entry : pushed.entrySet()) {
+            final StatementPattern pattern = entry.getKey();
+            final List<Condition> conditions = new ArrayList<>();
+            if (pattern instanceof ObjectFilterStatementPattern) {
+                conditions.addAll(((ObjectFilterStatementPattern) pattern).getFilter().getConditions());
+            }
+            conditions.addAll(entry.getValue());
+            pattern.replaceWith(new ObjectFilterStatementPattern(pattern, new ObjectFilter(conditions)));
+        }
+
+        // The condition may be shared with other filters, so the remaining conjuncts are copied.
+        ValueExpr condition = null;
+        for (final ValueExpr conjunct : remaining) {
+            condition = condition == null ? conjunct.clone() : new And(condition, conjunct.clone());
+        }
+        node.setCondition(condition == null ? new ValueConstant(BooleanLiteral.TRUE) : condition);
+    }
+
+    /**
+     * @return The filter conditions that were compiled into object filters.
+     */
+    public List<ValueExpr> getPushedFilters() {
+        return Collections.unmodifiableList(pushedFilters);
+    }
+
+    private static void collectPatterns(final TupleExpr expr, final List<StatementPattern> patterns) {
+        if (expr instanceof Join) {
+            collectPatterns(((Join) expr).getLeftArg(), patterns);
+            collectPatterns(((Join) expr).getRightArg(), patterns);
+        } else if (expr instanceof Filter) {
+            collectPatterns(((Filter) expr).getArg(), patterns);
+        } else if (expr.getClass() == StatementPattern.class || expr instanceof ObjectFilterStatementPattern) {
+            // Other kinds of statement patterns are not answered by the query engine.
+            patterns.add((StatementPattern) expr);
+        }
+    }
+
+    private static void collectConjuncts(final ValueExpr expr, final List<ValueExpr> conjuncts) {
+        if (expr instanceof And) {
+            collectConjuncts(((And) expr).getLeftArg(), conjuncts);
+            collectConjuncts(((And) expr).getRightArg(), conjuncts);
+        } else {
+            conjuncts.add(expr);
+        }
+    }
+
+    private static StatementPattern findPattern(final List<StatementPattern> patterns, final Var var) {
+        for (final StatementPattern pattern : patterns) {
+            final Var objVar = pattern.getObjectVar();
+            if (!objVar.hasValue() && objVar.getName().equals(var.getName())) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The unbound variable a supported condition tests, or {@code null} if the condition is not supported.
+     */
+    private static Var getFilteredVar(final ValueExpr expr) {
+        ValueExpr arg = null;
+        if (expr instanceof Compare) {
+            final Compare compare = (Compare) expr;
+            arg = isUnboundVar(compare.getLeftArg()) ? compare.getLeftArg() : compare.getRightArg();
+        } else if (expr instanceof Regex) {
+            arg = ((Regex) expr).getArg();
+        } else if (expr instanceof FunctionCall && !((FunctionCall) expr).getArgs().isEmpty()) {
+            arg = ((FunctionCall) expr).getArgs().get(0);
+        } else if (expr instanceof LangMatches && ((LangMatches) expr).getLeftArg() instanceof Lang) {
+            arg = ((Lang) ((LangMatches) expr).getLeftArg()).getArg();
+        }
+        return isUnboundVar(arg) ? (Var) arg : null;
+    }
+
+    private static boolean isUnboundVar(final ValueExpr expr) {
+        return expr instanceof Var && !((Var) expr).hasValue();
+    }
+
+    /**
+     * @return The condition that evaluates the expression, or {@code null} if it can not be compiled.
+     */
+    private static Condition compile(final ValueExpr expr) {
+        try {
+            if (expr instanceof Compare) {
+                final Compare compare = (Compare) expr;
+                final boolean objectOnLeft = isUnboundVar(compare.getLeftArg());
+                final Value constant = getConstant(objectOnLeft ? compare.getRightArg() : compare.getLeftArg());
+                if (constant instanceof IRI || constant instanceof Literal) {
+                    return ObjectFilter.compare(compare.getOperator(), constant, objectOnLeft);
+                }
+            } else if (expr instanceof Regex) {
+                final Regex regex = (Regex) expr;
+                final Value pattern = getConstant(regex.getPatternArg());
+                final Value flags = regex.getFlagsArg() == null ? null : getConstant(regex.getFlagsArg());
+                if (pattern != null && QueryEvaluationUtil.isSimpleLiteral(pattern)
+                        && (regex.getFlagsArg() == null || flags != null && QueryEvaluationUtil.isSimpleLiteral(flags))) {
+                    return ObjectFilter.regex(pattern.stringValue(), flags == null ? "" : flags.stringValue());
+                }
+            } else if (expr instanceof FunctionCall) {
+                final FunctionCall call = (FunctionCall) expr;
+                if (FN.STARTS_WITH.stringValue().equals(call.getURI()) && call.getArgs().size() == 2) {
+                    final Value prefix = getConstant(call.getArgs().get(1));
+                    if (prefix != null && QueryEvaluationUtil.isSimpleLiteral(prefix)) {
+                        return ObjectFilter.strStarts(prefix.stringValue());
+                    }
+                }
+            } else if (expr instanceof LangMatches) {
+                final Value langRange = getConstant(((LangMatches) expr).getRightArg());
+                if (langRange != null && QueryEvaluationUtil.isSimpleLiteral(langRange)) {
+                    return ObjectFilter.langMatches(langRange.stringValue());
+                }
+            }
+        } catch (final IllegalArgumentException e) {
+            // The condition is left for the query to evaluate, so it reports the problem.
+        }
+        return null;
+    }
+
+    private static Value getConstant(final ValueExpr expr) {
+        if (expr instanceof ValueConstant) {
+            return ((ValueConstant) expr).getValue();
+        } else if (expr instanceof Var && ((Var) expr).hasValue()) {
+            return ((Var) expr).getValue();
+        }
+        return null;
+    }
+}
@@ -30,6 +30,11 @@ import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 
 /**
+ * Joins the results of a left hand expression with a statement pattern by
+ * pushing batches of left hand bindings into a single query against the store.
+ * The size of each batch is chosen by an {@link AdaptiveBatchSizer}, and the
+ * next batch is only read from the left hand side once the current one has
+ * been consumed.
  */
 public class MultipleBindingSetsIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
 
@@ -37,14 +42,19 @@ public class MultipleBindingSetsIterator extends LookAheadIteration<BindingSet,
     private final CloseableIteration leftIter;
     private StatementPattern stmtPtrn;
     private CloseableIteration<BindingSet, QueryEvaluationException> iter;
-    //TODO: configurable
-    private int batchSize = 1000;
+    private final AdaptiveBatchSizer batchSizer;
+
+    // Statistics about the batch that is currently being consumed.
+    private int batchBindings = 0;
+    private long batchResults = 0;
+    private long batchScanNanos = 0;
 
     public MultipleBindingSetsIterator(ParallelEvaluationStrategyImpl strategy, TupleExpr leftArg, StatementPattern stmtPattern, BindingSet bindings)
             throws QueryEvaluationException {
         this.strategy = strategy;
         leftIter = strategy.evaluate(leftArg, bindings);
         this.stmtPtrn = stmtPattern;
+        this.batchSizer = strategy.createBatchSizer();
         initIter();
     }
 
@@ -53,15 +63,16 @@ public class MultipleBindingSetsIterator extends LookAheadIteration<BindingSet,
         this.strategy = strategy;
         this.leftIter = leftIter;
         this.stmtPtrn = stmtPattern;
+        this.batchSizer = strategy.createBatchSizer();
         initIter();
     }
 
     protected void initIter() throws QueryEvaluationException {
         try {
             Collection<BindingSet> sets = new ArrayList<BindingSet>();
+            final int batchSize = batchSizer.getBatchSize();
             int i = 0;
             while (leftIter.hasNext()) {
-                //default to 1K for the batch size
                 if (i >= batchSize) {
                     break;
                 }
@@ -69,7 +80,12 @@ public class MultipleBindingSetsIterator extends LookAheadIteration<BindingSet,
                 i++;
             }
             if (iter != null) iter.close();
+
+            batchBindings = i;
+            batchResults = 0;
+            final long start = System.nanoTime();
             iter = strategy.evaluate(stmtPtrn, sets);
+            batchScanNanos = System.nanoTime() - start;
         } catch (Exception e) {
             throw new QueryEvaluationException(e);
         }
@@ -79,10 +95,15 @@ public class MultipleBindingSetsIterator extends LookAheadIteration<BindingSet,
             throws QueryEvaluationException {
         try {
             while (true) {
-                if (iter.hasNext()) {
+                final long start = System.nanoTime();
+                final boolean hasNext = iter.hasNext();
+                batchScanNanos += System.nanoTime() - start;
+                if (hasNext) {
+                    batchResults++;
                     return iter.next();
                 }
 
+                batchSizer.record(batchBindings, batchResults, batchScanNanos);
                 if (leftIter.hasNext()) {
                     initIter();
                 } else
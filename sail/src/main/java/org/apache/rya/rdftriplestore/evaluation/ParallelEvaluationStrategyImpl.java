@@ -25,18 +25,19 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.persist.query.ScanMetrics;
 import org.apache.rya.api.utils.NullableStatementImpl;
 import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection;
 import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection.StoreTripleSource;
 import org.apache.rya.rdftriplestore.inference.InferenceEngine;
 import org.apache.rya.rdftriplestore.inference.InferenceEngineException;
 import org.apache.rya.rdftriplestore.utils.FixedStatementPattern;
+import org.apache.rya.rdftriplestore.utils.ObjectFilterStatementPattern;
 import org.apache.rya.rdftriplestore.utils.TransitivePropertySP;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
@@ -63,6 +64,7 @@ import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.FilterIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.JoinIterator;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 
 import com.google.common.collect.Lists;
 
@@ -74,19 +76,20 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
     private int numOfThreads = 10;
     private boolean performant = true;
     private boolean displayQueryPlan = false;
-    private ExecutorService executorService;
     private InferenceEngine inferenceEngine;
+    private final RdfCloudTripleStoreConfiguration conf;
+    private QueryProfiler profiler;
 
     public ParallelEvaluationStrategyImpl(StoreTripleSource tripleSource, InferenceEngine inferenceEngine,
                                           Dataset dataset, RdfCloudTripleStoreConfiguration conf) {
         super(tripleSource, dataset, null);
+        this.conf = conf;
         Integer nthreads = conf.getNumThreads();
         this.numOfThreads = (nthreads != null) ? nthreads : this.numOfThreads;
         Boolean val = conf.isPerformant();
         this.performant = (val != null) ? val : this.performant;
         val = conf.isDisplayQueryPlan();
         this.displayQueryPlan = (val != null) ? val : this.displayQueryPlan;
-        this.executorService = Executors.newFixedThreadPool(this.numOfThreads);
         this.inferenceEngine = inferenceEngine;
     }
 
@@ -122,11 +125,9 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
                         return new FilterIterator(filter, new MultipleBindingSetsIterator(this, new Join(buffer, fcj_left), (StatementPattern) fcj_right, bindings), this);
                     }
                 }
-                //TODO: add a configuration flag for ParallelJoinIterator
-                return new JoinIterator(this, join, bindings);
+                return createJoinIterator(join, bindings);
             } else {
-                //TODO: add a configuration flag for ParallelJoinIterator
-                return new JoinIterator(this, join, bindings);
+                return createJoinIterator(join, bindings);
             }
         } else {
             return super.evaluate(join, bindings);
@@ -142,6 +143,15 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
 
     public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final StatementPattern sp, Collection<BindingSet> bindings)
             throws QueryEvaluationException {
+        if (profiler != null) {
+            long start = System.nanoTime();
+            return profiler.profile(sp, bindings.size(), start, evaluatePattern(sp, bindings, profiler.getProfile(sp)));
+        }
+        return evaluatePattern(sp, bindings, null);
+    }
+
+    private CloseableIteration<BindingSet, QueryEvaluationException> evaluatePattern(final StatementPattern sp, Collection<BindingSet> bindings,
+            ScanMetrics metrics) throws QueryEvaluationException {
 
         final Var subjVar = sp.getSubjectVar();
         final Var predVar = sp.getPredicateVar();
@@ -206,7 +216,12 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
                 return new EmptyIteration();
             }
 
-            iter = ((RdfCloudTripleStoreConnection.StoreTripleSource) tripleSource).getStatements(stmts);
+            final RdfCloudTripleStoreConnection.StoreTripleSource storeSource = (RdfCloudTripleStoreConnection.StoreTripleSource) tripleSource;
+            if (sp instanceof ObjectFilterStatementPattern) {
+                iter = storeSource.getStatements(stmts, ((ObjectFilterStatementPattern) sp).getFilter(), metrics);
+            } else {
+                iter = storeSource.getStatements(stmts, metrics);
+            }
         }
         return new ConvertingIteration<Map.Entry<Statement, BindingSet>, BindingSet, QueryEvaluationException>(iter) {
 
@@ -249,6 +264,11 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
                 logger.info("================= End Rya Query =================");
             }
         }
+        if (profiler != null && !(expr instanceof StatementPattern)) {
+            // Statement patterns are profiled where they are evaluated against batches of bindings.
+            long start = System.nanoTime();
+            return profiler.profile(expr, 1, start, super.evaluate(expr, bindings));
+        }
         return super.evaluate(expr, bindings);
     }
 
@@ -264,6 +284,55 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
         return result;
     }
 
+    private CloseableIteration<BindingSet, QueryEvaluationException> createJoinIterator(Join join, BindingSet bindings) throws QueryEvaluationException {
+        // Each parallel join runs on its own pool, but a join on the right hand side
+        // would start a new pool for every left hand binding.
+        if (conf.isParallelJoin() && !containsJoin(join.getRightArg())) {
+            return new ParallelJoinIterator(this, join, bindings, numOfThreads, conf.getParallelJoinQueueSize());
+        }
+        return new JoinIterator(this, join, bindings);
+    }
+
+    private static boolean containsJoin(TupleExpr expr) {
+        final AtomicBoolean found = new AtomicBoolean(false);
+        expr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(Join node) {
+                found.set(true);
+            }
+        });
+        return found.get();
+    }
+
+    /**
+     * @return A new batch sizer for one bind join of the query being evaluated.
+     */
+    public AdaptiveBatchSizer createBatchSizer() {
+        return AdaptiveBatchSizer.fromConfiguration(conf);
+    }
+
+    /**
+     * @param profiler - Records what each node of the plan does while it is evaluated,
+     *   or {@code null} if the query is not being profiled.
+     */
+    public void setProfiler(QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * @return The source of the statements the query is evaluated over.
+     */
+    public StoreTripleSource getTripleSource() {
+        return (StoreTripleSource) tripleSource;
+    }
+
+    /**
+     * @return The profiler recording the evaluation, or {@code null} if the query is not being profiled.
+     */
+    public QueryProfiler getProfiler() {
+        return profiler;
+    }
+
     protected Value getVarValue(Var var) {
         if (var == null)
             return null;
@@ -272,6 +341,6 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
     }
 
     public void shutdown() {
-        executorService.shutdownNow();
+        // Every parallel join shuts its own workers down when it is closed.
     }
 }
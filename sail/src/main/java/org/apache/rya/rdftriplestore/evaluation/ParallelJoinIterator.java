@@ -19,10 +19,15 @@ package org.apache.rya.rdftriplestore.evaluation;
  * under the License.
  */
 
-import java.util.NoSuchElementException;
+import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
@@ -33,103 +38,226 @@ import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
+ * Evaluates the right hand side of a join for each left hand binding on a
+ * worker pool.
+ * <p>
+ * The pipeline is bounded: at most {@code batch} right hand evaluations are in
+ * flight at once, and each one buffers at most {@code queueSize} results.
+ * Workers block when their buffer is full, so a slow consumer throttles the
+ * producers instead of filling the heap. Closing the iterator cancels every
+ * outstanding worker, which closes the right hand iterations and the scanners
+ * beneath them.
+ * <p>
+ * Every iterator owns a pool of {@code batch} workers. Blocked workers only
+ * ever hold threads of their own iterator, so a join nested on the left of
+ * another one can always make progress.
  */
 public class ParallelJoinIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
 
     public static final EmptyBindingSet EMPTY_BINDING_SET = new EmptyBindingSet();
 
+    /**
+     * The default number of results each worker may buffer.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final long POLL_MILLIS = 100;
+
     private final EvaluationStrategy strategy;
     private final Join join;
     private final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
 
-    private ExecutorService executorService;
-    private Queue<ParallelIteratorWork> workQueue = new LinkedBlockingQueue<ParallelIteratorWork>();
+    private final ExecutorService executorService;
+    private final Queue<ParallelIteratorWork> workQueue = new ArrayDeque<ParallelIteratorWork>();
     private ParallelIteratorWork currentWork;
-    private int batch;
+    private final int batch;
+    private final int queueSize;
+
+    private volatile boolean closed = false;
+    private final AtomicInteger bufferedResults = new AtomicInteger();
+    private volatile int maxBufferedResults = 0;
+
+    public ParallelJoinIterator(EvaluationStrategy strategy, Join join, BindingSet bindings, int batch)
+            throws QueryEvaluationException {
+        this(strategy, join, bindings, batch, DEFAULT_QUEUE_SIZE);
+    }
 
-    public ParallelJoinIterator(EvaluationStrategy strategy, Join join, BindingSet bindings, ExecutorService executorService, int batch)
+    public ParallelJoinIterator(EvaluationStrategy strategy, Join join, BindingSet bindings, int batch, int queueSize)
             throws QueryEvaluationException {
+        if (batch <= 0 || queueSize <= 0) {
+            throw new IllegalArgumentException("The batch and queue size must be positive.");
+        }
         this.strategy = strategy;
         this.join = join;
         leftIter = strategy.evaluate(join.getLeftArg(), bindings);
 
-        this.executorService = executorService;
+        // Threads are only started as work is submitted.
+        this.executorService = Executors.newFixedThreadPool(batch,
+                new ThreadFactoryBuilder().setNameFormat("ParallelJoinIterator-%d").setDaemon(true).build());
         this.batch = batch;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @return The number of right hand evaluations that have been started but not fully consumed.
+     */
+    public int getInFlightWork() {
+        synchronized (workQueue) {
+            return workQueue.size() + (currentWork == null ? 0 : 1);
+        }
     }
 
+    /**
+     * @return The number of results that have been produced by workers but not yet consumed.
+     */
+    public int getQueueDepth() {
+        return bufferedResults.get();
+    }
+
+    /**
+     * @return The largest number of results that were ever buffered at once.
+     */
+    public int getMaxQueueDepth() {
+        return maxBufferedResults;
+    }
 
     @Override
     protected BindingSet getNextElement() throws QueryEvaluationException {
-
         try {
-            while (leftIter.hasNext() || !workQueue.isEmpty() || currentWork != null) {
-                if (!workQueue.isEmpty() && currentWork == null) {
-                    currentWork = workQueue.poll();
-                }
-
-                if (currentWork != null) {
-                    BindingSet bindingSet = currentWork.queue.poll();
-                    if (EMPTY_BINDING_SET.equals(bindingSet)) {
-                        currentWork = null;
-                        continue;
-                    } else if (bindingSet == null) {
-                        continue;
+            while (!closed) {
+                if (currentWork == null) {
+                    // Only pull more left hand bindings once the current work is drained,
+                    // which keeps the pipeline full without exceeding the in flight limit.
+                    fillWorkQueue();
+                    synchronized (workQueue) {
+                        currentWork = workQueue.poll();
+                    }
+                    if (currentWork == null) {
+                        // Nothing in flight and nothing left to start.
+                        return null;
                     }
-                    return bindingSet;
                 }
 
-                try {
-                    for (int i = 0; i < batch; i++) {
-                        if (leftIter.hasNext()) {
-                            ParallelIteratorWork work = new ParallelIteratorWork(leftIter.next(), join.getRightArg());
-                            workQueue.add(work);
-                            executorService.execute(work);
-                        } else
-                            break;
+                final BindingSet bindingSet = currentWork.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (bindingSet == null) {
+                    continue;
+                }
+                if (EMPTY_BINDING_SET == bindingSet) {
+                    final Exception failure = currentWork.failure;
+                    currentWork = null;
+                    if (failure != null) {
+                        throw failure;
                     }
-                } catch (NoSuchElementException ignore) {
+                    continue;
                 }
+                bufferedResults.decrementAndGet();
+                return bindingSet;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryEvaluationException(e);
+        } catch (QueryEvaluationException e) {
+            throw e;
         } catch (Exception e) {
             throw new QueryEvaluationException(e);
         }
         return null;
     }
 
+    private void fillWorkQueue() throws QueryEvaluationException {
+        while (getInFlightWork() < batch && leftIter.hasNext()) {
+            final ParallelIteratorWork work = new ParallelIteratorWork(leftIter.next(), join.getRightArg());
+            synchronized (workQueue) {
+                workQueue.add(work);
+            }
+            work.future = executorService.submit(work);
+        }
+    }
+
     @Override
     protected void handleClose() throws QueryEvaluationException {
+        closed = true;
         try {
             super.handleClose();
+        } finally {
+            // Stop every worker so their iterations and scanners are released right away.
+            synchronized (workQueue) {
+                if (currentWork != null) {
+                    currentWork.cancel();
+                    currentWork = null;
+                }
+                for (ParallelIteratorWork work : workQueue) {
+                    work.cancel();
+                }
+                workQueue.clear();
+            }
+            bufferedResults.set(0);
+            executorService.shutdownNow();
             leftIter.close();
-//           rightIter.close();
-        } catch (Exception e) {
-            throw new QueryEvaluationException(e);
         }
     }
 
     private class ParallelIteratorWork implements Runnable {
 
-        private BindingSet leftBindingSet;
-        private TupleExpr rightTupleExpr;
-        public LinkedBlockingQueue<BindingSet> queue = new LinkedBlockingQueue<BindingSet>();
+        private final BindingSet leftBindingSet;
+        private final TupleExpr rightTupleExpr;
+        private final BlockingQueue<BindingSet> queue = new ArrayBlockingQueue<BindingSet>(queueSize);
+        private volatile Future<?> future;
+        private volatile Exception failure;
 
         private ParallelIteratorWork(BindingSet leftBindingSet, TupleExpr rightTupleExpr) {
             this.leftBindingSet = leftBindingSet;
             this.rightTupleExpr = rightTupleExpr;
         }
 
+        private void cancel() {
+            final Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+
         @Override
         public void run() {
+            CloseableIteration<BindingSet, QueryEvaluationException> iter = null;
             try {
-                CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy.evaluate(rightTupleExpr, leftBindingSet);
-                while (iter.hasNext()) {
-                    queue.add(iter.next());
+                iter = strategy.evaluate(rightTupleExpr, leftBindingSet);
+                while (!closed && iter.hasNext()) {
+                    final BindingSet next = iter.next();
+                    final int depth = bufferedResults.incrementAndGet();
+                    if (depth > maxBufferedResults) {
+                        maxBufferedResults = depth;
+                    }
+                    // Block while the consumer is behind.
+                    while (!closed && !queue.offer(next, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                if (iter != null) {
+                    try {
+                        iter.close();
+                    } catch (QueryEvaluationException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+                // Always signal completion so the consumer never waits on a finished worker.
+                if (!closed) {
+                    try {
+                        while (!closed && !queue.offer(EMPTY_BINDING_SET, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
                 }
-                queue.add(EMPTY_BINDING_SET);
-                iter.close();
-            } catch (QueryEvaluationException e) {
-                throw new RuntimeException(e);
             }
         }
     }
@@ -0,0 +1,172 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.instance.IndexMetadataVersion;
+import org.apache.rya.rdftriplestore.inference.InferenceEngine;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches the optimized form of queries so that repeated executions of the
+ * same query skip the optimizer and inference visitor chain.
+ * <p>
+ * A plan is keyed on the query model that was handed to the sail, the
+ * dataset, the bindings, the configuration flags that change how the query is
+ * optimized, the {@link InferenceEngine}'s schema version, its sameAs version
+ * when owl:sameAs is inferred, and the {@link IndexMetadataVersion}. Refreshing
+ * the schema, writing owl:sameAs statements through the sail, or creating or
+ * dropping a PCJ therefore makes every plan that was built against the old
+ * metadata unreachable. Metadata that another process changes is only seen once the
+ * plans built against it expire. Plans are cloned going into and coming out of the cache because
+ * evaluation mutates the query model.
+ */
+public class QueryPlanCache {
+
+    private final Cache<List<Object>, TupleExpr> cache;
+
+    /**
+     * Constructs an instance of {@link QueryPlanCache} whose plans never expire.
+     *
+     * @param maxSize - The maximum number of plans that will be cached.
+     */
+    public QueryPlanCache(final long maxSize) {
+        this(maxSize, 0L);
+    }
+
+    /**
+     * Constructs an instance of {@link QueryPlanCache}.
+     *
+     * @param maxSize - The maximum number of plans that will be cached.
+     * @param expiryMillis - How long a plan is cached before it is rebuilt, or 0 if plans never expire.
+     */
+    public QueryPlanCache(final long maxSize, final long expiryMillis) {
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (expiryMillis > 0) {
+            builder.expireAfterWrite(expiryMillis, TimeUnit.MILLISECONDS);
+        }
+        cache = builder.build();
+    }
+
+    /**
+     * Creates the key a query's optimized plan is stored under.
+     *
+     * @param query - The query model before any optimization has been applied. (not null)
+     * @param dataset - The dataset the query is evaluated against. (optional)
+     * @param bindings - The bindings the query is evaluated with. (not null)
+     * @param conf - The configuration the query is evaluated with. (not null)
+     * @param inferenceEngine - The inference engine used to expand the query. (optional)
+     * @return The key of the query's plan.
+     */
+    public static List<Object> createKey(final TupleExpr query, final Dataset dataset, final BindingSet bindings,
+            final RdfCloudTripleStoreConfiguration conf, final InferenceEngine inferenceEngine) {
+        checkNotNull(query);
+        checkNotNull(bindings);
+        checkNotNull(conf);
+
+        final boolean infer = conf.isInfer() && inferenceEngine != null;
+        return Arrays.<Object>asList(
+                query.toString(),
+                dataset == null ? "" : dataset.toString(),
+                bindings.toString(),
+                infer ? inferenceEngine.getSchemaVersion() : -1L,
+                // sameAs resources are expanded into the plan when it is optimized.
+                infer && conf.isInferSameAs() ? inferenceEngine.getSameAsVersion() : -1L,
+                IndexMetadataVersion.get(),
+                conf.isInfer(),
+                conf.isPerformant(),
+                conf.isFilterPushdown(),
+                conf.isUseStats(),
+                conf.isUseSelectivity(),
+                conf.isUseCompositeCardinality(),
+                conf.isStatsPushEmptyRdftypeDown(),
+                conf.isInferAllValuesFrom(),
+                conf.isInferDomainRange(),
+                conf.isInferHasSelf(),
+                conf.isInferHasValue(),
+                conf.isInferIntersectionOf(),
+                conf.isInferInverseOf(),
+                conf.isInferOneOf(),
+                conf.isInferPropertyChain(),
+                conf.isInferReflexiveProperty(),
+                conf.isInferSameAs(),
+                conf.isInferSomeValuesFrom(),
+                conf.isInferSubClassOf(),
+                conf.isInferSubPropertyOf(),
+                conf.isInferSymmetricProperty(),
+                conf.isInferTransitiveProperty(),
+                conf.isInferClosureIndex(),
+                Arrays.asList(conf.getAuths()),
+                conf.getPcjTables(),
+                String.valueOf(conf.getPcjOptimizer()),
+                conf.getOptimizers().toString(),
+                conf.getUseStatementMetadata());
+    }
+
+    /**
+     * @param key - The key that was created by {@link #createKey}. (not null)
+     * @return A copy of the cached plan, or {@code null} if the plan is not cached.
+     */
+    public TupleExpr get(final List<Object> key) {
+        checkNotNull(key);
+        final TupleExpr plan = cache.getIfPresent(key);
+        return plan == null ? null : plan.clone();
+    }
+
+    /**
+     * Caches a copy of an optimized plan.
+     *
+     * @param key - The key that was created by {@link #createKey}. (not null)
+     * @param plan - The optimized plan. (not null)
+     */
+    public void put(final List<Object> key, final TupleExpr plan) {
+        checkNotNull(key);
+        checkNotNull(plan);
+        cache.put(key, plan.clone());
+    }
+
+    /**
+     * Removes every cached plan.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return A snapshot of the cache's hit, miss, and eviction counts.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.rdftriplestore.evaluation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.rya.api.persist.query.ScanMetrics;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+/**
+ * Records what each node of a query plan did while the query was evaluated:
+ * how many binding sets it was evaluated against, how many results it
+ * produced, how long it took to produce its first result, how long was spent
+ * within it in total, and how many ranges it scanned and bytes it read from
+ * the store. Times include the time spent within the node's children.
+ * <p>
+ * Instances are thread safe so that nodes may be evaluated by parallel joins.
+ */
+public class QueryProfiler {
+
+    private final Map<QueryModelNode, NodeProfile> profiles = new IdentityHashMap<>();
+
+    /**
+     * @param node - A node of the plan being profiled. (not null)
+     * @return The profile of the node, created if this is the first time it is requested.
+     */
+    public NodeProfile getProfile(final QueryModelNode node) {
+        checkNotNull(node);
+        synchronized (profiles) {
+            NodeProfile profile = profiles.get(node);
+            if (profile == null) {
+                profile = new NodeProfile();
+                profiles.put(node, profile);
+            }
+            return profile;
+        }
+    }
+
+    /**
+     * Wraps the results of one evaluation of a node so that the time spent
+     * reading them and the number of them are recorded.
+     *
+     * @param node - The node that was evaluated. (not null)
+     * @param bindingsIn - The number of binding sets the node was evaluated against.
+     * @param startNanos - When the evaluation started, from {@link System#nanoTime()}.
+     * @param results - The results of the evaluation. (not null)
+     * @return An iteration over the same results.
+     */
+    public CloseableIteration<BindingSet, QueryEvaluationException> profile(final QueryModelNode node, final int bindingsIn,
+            final long startNanos, final CloseableIteration<BindingSet, QueryEvaluationException> results) {
+        checkNotNull(results);
+        final NodeProfile profile = getProfile(node);
+        profile.evaluations.incrementAndGet();
+        profile.bindingsIn.addAndGet(bindingsIn);
+        profile.totalNanos.addAndGet(System.nanoTime() - startNanos);
+        return new ProfilingIteration(profile, startNanos, results);
+    }
+
+    /**
+     * Renders a plan in the same form as {@link TupleExpr#toString()}, with the
+     * profile of each node that was evaluated appended to its line.
+     *
+     * @param plan - The plan that was profiled. (not null)
+     * @return The annotated plan.
+     */
+    public String render(final TupleExpr plan) {
+        checkNotNull(plan);
+        final StringBuilder sb = new StringBuilder();
+        plan.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            private int indent = 0;
+
+            @Override
+            protected void meetNode(final QueryModelNode node) {
+                for (int i = 0; i < indent; i++) {
+                    sb.append("   ");
+                }
+                sb.append(node.getSignature());
+                final NodeProfile profile;
+                synchronized (profiles) {
+                    profile = profiles.get(node);
+                }
+                if (profile != null) {
+                    sb.append(" ").append(profile);
+                }
+                sb.append(System.lineSeparator());
+
+                indent++;
+                super.meetNode(node);
+                indent--;
+            }
+        });
+        return sb.toString();
+    }
+
+    /**
+     * What a single node of the plan did.
+     */
+    public static class NodeProfile implements ScanMetrics {
+        private final AtomicLong evaluations = new AtomicLong(0);
+        private final AtomicLong bindingsIn = new AtomicLong(0);
+        private final AtomicLong rowsOut = new AtomicLong(0);
+        private final AtomicLong firstRowNanos = new AtomicLong(-1);
+        private final AtomicLong totalNanos = new AtomicLong(0);
+        private final AtomicLong ranges = new AtomicLong(0);
+        private final AtomicLong bytes = new AtomicLong(0);
+
+        /**
+         * @return The number of times the node was evaluated.
+         */
+        public long getEvaluations() {
+            return evaluations.get();
+        }
+
+        /**
+         * @return The number of binding sets the node was evaluated against.
+         */
+        public long getRowsIn() {
+            return bindingsIn.get();
+        }
+
+        /**
+         * @return The number of results the node produced.
+         */
+        public long getRowsOut() {
+            return rowsOut.get();
+        }
+
+        /**
+         * @return How long the first evaluation of the node that produced a result took to produce it,
+         *   in milliseconds, or -1 if the node never produced a result.
+         */
+        public double getTimeToFirstRowMillis() {
+            final long nanos = firstRowNanos.get();
+            return nanos < 0 ? -1 : nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return How long was spent evaluating the node and reading its results, in milliseconds.
+         */
+        public double getTotalTimeMillis() {
+            return totalNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return The number of ranges the node scanned.
+         */
+        public long getRanges() {
+            return ranges.get();
+        }
+
+        /**
+         * @return The number of bytes the node read from the store.
+         */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        @Override
+        public void rangesIssued(final int count) {
+            ranges.addAndGet(count);
+        }
+
+        @Override
+        public void bytesRead(final long count) {
+            bytes.addAndGet(count);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("[");
+            sb.append("evaluations=").append(getEvaluations());
+            sb.append(", rowsIn=").append(getRowsIn());
+            sb.append(", rowsOut=").append(getRowsOut());
+            sb.append(String.format(", firstRow=%.3fms", getTimeToFirstRowMillis()));
+            sb.append(String.format(", total=%.3fms", getTotalTimeMillis()));
+            if (getRanges() > 0 || getBytes() > 0) {
+                sb.append(", ranges=").append(getRanges());
+                sb.append(", bytes=").append(getBytes());
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    /**
+     * Records the time spent reading the results of one evaluation of a node.
+     */
+    private static class ProfilingIteration implements CloseableIteration<BindingSet, QueryEvaluationException> {
+        private final NodeProfile profile;
+        private final long startNanos;
+        private final CloseableIteration<BindingSet, QueryEvaluationException> results;
+        private boolean seenFirstRow = false;
+
+        public ProfilingIteration(final NodeProfile profile, final long startNanos, final CloseableIteration<BindingSet, QueryEvaluationException> results) {
+            this.profile = profile;
+            this.startNanos = startNanos;
+            this.results = results;
+        }
+
+        @Override
+        public boolean hasNext() throws QueryEvaluationException {
+            final long start = System.nanoTime();
+            try {
+                return results.hasNext();
+            } finally {
+                profile.totalNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public BindingSet next() throws QueryEvaluationException {
+            final long start = System.nanoTime();
+            final BindingSet next;
+            try {
+                next = results.next();
+            } finally {
+                profile.totalNanos.addAndGet(System.nanoTime() - start);
+            }
+            profile.rowsOut.incrementAndGet();
+            if (!seenFirstRow) {
+                seenFirstRow = true;
+                profile.firstRowNanos.compareAndSet(-1, System.nanoTime() - startNanos);
+            }
+            return next;
+        }
+
+        @Override
+        public void remove() throws QueryEvaluationException {
+            results.remove();
+        }
+
+        @Override
+        public void close() throws QueryEvaluationException {
+            results.close();
+        }
+    }
+}
@@ -24,10 +24,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.persist.CardinalityRequest;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
 import org.apache.rya.rdftriplestore.inference.DoNotExpandSP;
@@ -47,6 +50,7 @@ import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 
 /**
  * Class RdfCloudTripleStoreEvaluationStatistics
@@ -57,6 +61,7 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
 
     private C conf;
     private RdfEvalStatsDAO<C> rdfEvalStatsDAO;
+    private final Map<CardinalityRequest, Double> prefetched = new HashMap<>();
     protected boolean pushEmptyRdfTypeDown = true;
     protected boolean useCompositeCardinalities = true;
 
@@ -88,6 +93,103 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
         return new RdfCloudTripleStoreCardinalityCalculator(this);
     }
 
+    /**
+     * Resolves the cardinality of every {@link StatementPattern} within a query
+     * with a single call to {@link RdfEvalStatsDAO#getCardinalities(RdfCloudTripleStoreConfiguration, Collection)}
+     * so that join ordering does not perform one lookup per pattern.
+     *
+     * @param expr - The query whose cardinalities will be looked up. (not null)
+     */
+    public void prefetchCardinalities(final TupleExpr expr) {
+        checkNotNull(expr);
+        final Set<CardinalityRequest> requests = new HashSet<>();
+        expr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(final StatementPattern sp) {
+                if (sp instanceof FixedStatementPattern) {
+                    return;
+                }
+                final Resource subj = (Resource) getConstantValue(sp.getSubjectVar());
+                final IRI pred = (IRI) getConstantValue(sp.getPredicateVar());
+                final Value obj = getConstantValue(sp.getObjectVar());
+                final Resource context = (Resource) getConstantValue(sp.getContextVar());
+                final CardinalityRequest request = createCardinalityRequest(subj, pred, obj, context);
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+        });
+        requests.removeAll(prefetched.keySet());
+        if (!requests.isEmpty()) {
+            prefetched.putAll(rdfEvalStatsDAO.getCardinalities(conf, requests));
+        }
+    }
+
+    /**
+     * Builds the lookup that is used to estimate the cardinality of a statement
+     * pattern with the provided constants.
+     *
+     * @return The lookup, or {@code null} if no lookup is required.
+     */
+    protected CardinalityRequest createCardinalityRequest(final Resource subj, final IRI pred, final Value obj, final Resource context) {
+        final List<Value> values = new ArrayList<Value>();
+        if (subj != null) {
+            CARDINALITY_OF card = RdfEvalStatsDAO.CARDINALITY_OF.SUBJECT;
+            values.add(subj);
+            if (useCompositeCardinalities){
+                if (pred != null){
+                    values.add(pred);
+                    card = RdfEvalStatsDAO.CARDINALITY_OF.SUBJECTPREDICATE;
+                }
+                else if (obj != null){
+                    values.add(obj);
+                    card = RdfEvalStatsDAO.CARDINALITY_OF.SUBJECTOBJECT;
+                }
+            }
+            return new CardinalityRequest(card, values, context);
+        }
+        else if (pred != null) {
+            // set rdf type to be a max value (as long as the object/subject aren't specified)
+            if (pushEmptyRdfTypeDown && RDF.TYPE.equals(pred) && obj == null) {
+                return null;
+            }
+            CARDINALITY_OF card = RdfEvalStatsDAO.CARDINALITY_OF.PREDICATE;
+            values.add(pred);
+            if (useCompositeCardinalities){
+                if (obj != null){
+                    values.add(obj);
+                    card = RdfEvalStatsDAO.CARDINALITY_OF.PREDICATEOBJECT;
+                }
+            }
+            return new CardinalityRequest(card, values, context);
+        }
+        else if (obj != null) {
+            values.add(obj);
+            return new CardinalityRequest(RdfEvalStatsDAO.CARDINALITY_OF.OBJECT, values, context);
+        }
+        return null;
+    }
+
+    /**
+     * @return The cardinality of the request, served from the prefetched
+     *   cardinalities when possible.
+     */
+    protected double lookupCardinality(final CardinalityRequest request) {
+        final Double cardinality = prefetched.get(request);
+        if (cardinality != null) {
+            return cardinality;
+        }
+        return rdfEvalStatsDAO.getCardinality(conf, request.getCardinalityOf(), request.getValues(), request.getContext());
+    }
+
+    protected static Value getConstantValue(final Var var) {
+        if (var != null) {
+            return var.getValue();
+        } else {
+            return null;
+        }
+    }
+
     public RdfEvalStatsDAO<C> getRdfEvalStatsDAO() {
         return rdfEvalStatsDAO;
     }
@@ -162,7 +264,7 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
                     for (final Statement statement : statements) {
                         final List<Value> values = new ArrayList<Value>();
                         values.add(statement.getSubject());
-                        fspCard  += rdfEvalStatsDAO.getCardinality(conf, cardinality_of, values, context);
+                        fspCard  += lookupCardinality(new CardinalityRequest(cardinality_of, values, context));
                     }
                     return fspCard;
                 }
@@ -174,58 +276,19 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
              * asking the full rdf:type of everything.
              */
             double cardinality = Double.MAX_VALUE - 1;
-            try {
-                if (subj != null) {
-                    final List<Value> values = new ArrayList<Value>();
-                    CARDINALITY_OF card = RdfEvalStatsDAO.CARDINALITY_OF.SUBJECT;
-                    values.add(subj);
-                    if (useCompositeCardinalities){
-                           if (pred != null){
-                            values.add(pred);
-                            card = RdfEvalStatsDAO.CARDINALITY_OF.SUBJECTPREDICATE;
-                        }
-                           else if (obj != null){
-                            values.add(obj);
-                            card = RdfEvalStatsDAO.CARDINALITY_OF.SUBJECTOBJECT;
-                           }
-                    }
-                    double evalCard = evalCard = rdfEvalStatsDAO.getCardinality(conf, card, values, context);
+            final CardinalityRequest request = createCardinalityRequest(subj, pred, obj, context);
+            if (request != null) {
+                try {
+                    final double evalCard = lookupCardinality(request);
                     // the cardinality will be -1 if there was no value found (if the index does not exist)
                     if (evalCard >= 0) {
                         cardinality = Math.min(cardinality, evalCard);
                     } else {
                         cardinality = 1;
                     }
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
                 }
-                else if (pred != null) {
-                    final List<Value> values = new ArrayList<Value>();
-                    CARDINALITY_OF card = RdfEvalStatsDAO.CARDINALITY_OF.PREDICATE;
-                    values.add(pred);
-                    if (useCompositeCardinalities){
-                           if (obj != null){
-                            values.add(obj);
-                            card = RdfEvalStatsDAO.CARDINALITY_OF.PREDICATEOBJECT;
-                           }
-                    }
-                    double evalCard = evalCard = rdfEvalStatsDAO.getCardinality(conf, card, values, context);
-                    if (evalCard >= 0) {
-                        cardinality = Math.min(cardinality, evalCard);
-                    } else {
-                        cardinality = 1;
-                    }
-                }
-                else if (obj != null) {
-                    final List<Value> values = new ArrayList<Value>();
-                    values.add(obj);
-                    final double evalCard = rdfEvalStatsDAO.getCardinality(conf, RdfEvalStatsDAO.CARDINALITY_OF.OBJECT, values, context);
-                    if (evalCard >= 0) {
-                        cardinality = Math.min(cardinality, evalCard);
-                    } else {
-                        cardinality = 1;
-                    }
-                }
-            } catch (final Exception e) {
-                throw new RuntimeException(e);
             }
 
             return cardinality;
@@ -263,14 +326,6 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
                 cardinality = leftArgCost;    //TODO: Is this ok?
             }
         }
-
-        protected Value getConstantValue(final Var var) {
-            if (var != null) {
-                return var.getValue();
-            } else {
-                return null;
-            }
-        }
     }
 
 }
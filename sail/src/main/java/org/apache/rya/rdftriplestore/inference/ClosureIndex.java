@@ -0,0 +1,461 @@
+package org.apache.rya.rdftriplestore.inference;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * An in memory index of owl:sameAs equivalence classes and of the edges of
+ * transitive properties. It lets the {@link InferenceEngine} answer sameAs and
+ * transitive property expansions without scanning the store once per hop.
+ * <p>
+ * sameAs resources are grouped union-find style: every resource points
+ * directly at the canonical resource of its class, and classes are merged by
+ * moving the members of the smaller class into the larger one. The explicit
+ * sameAs edges are kept as well, so a class can be split again when an edge
+ * is removed.
+ * <p>
+ * Between full refreshes the index is only kept current by the writes the
+ * {@link InferenceEngine} is told about, which are the writes made through
+ * the Rya sail. Statements written directly through a RyaDAO are not seen
+ * until the next full refresh or {@link InferenceEngine#rebuildClosureIndex()}
+ * loads a new index from the store.
+ * <p>
+ * This class is thread safe.
+ */
+public class ClosureIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Resource, Resource> canonical = new HashMap<>();
+    private final Map<Resource, Set<Resource>> members = new HashMap<>();
+    private final Map<Resource, Set<Resource>> sameAsEdges = new HashMap<>();
+
+    private final Map<IRI, Map<Resource, Set<Value>>> successors = new HashMap<>();
+    private final Map<IRI, Map<Value, Set<Resource>>> predecessors = new HashMap<>();
+    private final Set<IRI> properties = new HashSet<>();
+
+    private long size = 0;
+
+    /**
+     * Records that two resources are the same.
+     *
+     * @param a - A resource. (not null)
+     * @param b - A resource that is the same as {@code a}. (not null)
+     */
+    public void addSameAs(final Resource a, final Resource b) {
+        lock.writeLock().lock();
+        try {
+            if (a.equals(b)) {
+                return;
+            }
+            if (link(sameAsEdges, a, b)) {
+                size++;
+            }
+            link(sameAsEdges, b, a);
+
+            Resource rootA = getCanonical(a);
+            Resource rootB = getCanonical(b);
+            if (rootA.equals(rootB)) {
+                return;
+            }
+            Set<Resource> classA = membersOf(rootA);
+            Set<Resource> classB = membersOf(rootB);
+            if (classA.size() < classB.size()) {
+                final Resource root = rootA;
+                rootA = rootB;
+                rootB = root;
+                final Set<Resource> members = classA;
+                classA = classB;
+                classB = members;
+            }
+            members.remove(rootB);
+            for (final Resource member : classB) {
+                canonical.put(member, rootA);
+            }
+            classA.addAll(classB);
+            members.put(rootA, classA);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the sameAs edge between two resources. If the resources are no
+     * longer connected through other sameAs edges, their class is split.
+     *
+     * @param a - A resource. (not null)
+     * @param b - A resource that was the same as {@code a}. (not null)
+     */
+    public void removeSameAs(final Resource a, final Resource b) {
+        lock.writeLock().lock();
+        try {
+            if (!unlink(sameAsEdges, a, b) | !unlink(sameAsEdges, b, a)) {
+                // The edge was not in the index.
+                return;
+            }
+            size--;
+
+            final Resource root = getCanonical(a);
+            final Set<Resource> remaining = members.remove(root);
+            if (remaining == null) {
+                return;
+            }
+            // Rebuild the classes of the old members from the remaining edges.
+            while (!remaining.isEmpty()) {
+                final Resource start = remaining.iterator().next();
+                final Set<Resource> component = reachable(sameAsEdges, start);
+                component.add(start);
+                remaining.removeAll(component);
+                if (component.size() == 1) {
+                    canonical.remove(start);
+                    continue;
+                }
+                for (final Resource member : component) {
+                    canonical.put(member, start);
+                }
+                members.put(start, component);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param resource - The resource whose canonical resource is returned. (not null)
+     * @return The canonical resource of the resource's sameAs class. This is
+     *   the resource itself if it is not the same as any other resource.
+     */
+    public Resource getCanonicalResource(final Resource resource) {
+        lock.readLock().lock();
+        try {
+            return getCanonical(resource);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param resource - The resource whose sameAs class is returned. (not null)
+     * @return Every resource that is the same as the resource, including itself.
+     */
+    public Set<Resource> getSameAs(final Resource resource) {
+        lock.readLock().lock();
+        try {
+            final Set<Resource> sameAs = members.get(getCanonical(resource));
+            return sameAs == null ? Collections.singleton(resource) : new HashSet<>(sameAs);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param resource - A resource. (not null)
+     * @return The resources that have an explicit sameAs edge to the resource.
+     */
+    public Set<Resource> getSameAsEdges(final Resource resource) {
+        lock.readLock().lock();
+        try {
+            return copy(sameAsEdges.get(resource));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Every explicit sameAs edge of the index, keyed by both of its ends.
+     */
+    public Map<Resource, Set<Resource>> getSameAsEdges() {
+        lock.readLock().lock();
+        try {
+            return copy(sameAsEdges);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the edges of a property are indexed, even if it has none yet.
+     *
+     * @param property - The transitive property. (not null)
+     */
+    public void addProperty(final IRI property) {
+        lock.writeLock().lock();
+        try {
+            properties.add(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The properties whose edges are indexed.
+     */
+    public Set<IRI> getProperties() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(properties);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an edge of a transitive property.
+     *
+     * @param property - The transitive property. (not null)
+     * @param subject - The subject of the edge. (not null)
+     * @param object - The object of the edge. (not null)
+     */
+    public void addEdge(final IRI property, final Resource subject, final Value object) {
+        lock.writeLock().lock();
+        try {
+            properties.add(property);
+            if (link(successorsOf(property), subject, object)) {
+                size++;
+            }
+            link(predecessorsOf(property), object, subject);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an edge of a transitive property.
+     *
+     * @param property - The transitive property. (not null)
+     * @param subject - The subject of the edge. (not null)
+     * @param object - The object of the edge. (not null)
+     */
+    public void removeEdge(final IRI property, final Resource subject, final Value object) {
+        lock.writeLock().lock();
+        try {
+            if (unlink(successorsOf(property), subject, object)) {
+                size--;
+            }
+            unlink(predecessorsOf(property), object, subject);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every edge of a property, for example when it is no longer transitive.
+     *
+     * @param property - The property whose edges are removed. (not null)
+     */
+    public void removeProperty(final IRI property) {
+        lock.writeLock().lock();
+        try {
+            final Map<Resource, Set<Value>> edges = successors.remove(property);
+            if (edges != null) {
+                for (final Set<Value> objects : edges.values()) {
+                    size -= objects.size();
+                }
+            }
+            predecessors.remove(property);
+            properties.remove(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param property - A transitive property. (not null)
+     * @param subject - The subject of the edges. (not null)
+     * @return The objects of the edges that start at the subject.
+     */
+    public Set<Value> getEdges(final IRI property, final Resource subject) {
+        lock.readLock().lock();
+        try {
+            final Map<Resource, Set<Value>> edges = successors.get(property);
+            return edges == null ? new HashSet<>() : copy(edges.get(subject));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param property - A transitive property. (not null)
+     * @param object - The object of the edges. (not null)
+     * @return The subjects of the edges that end at the object.
+     */
+    public Set<Resource> getReverseEdges(final IRI property, final Value object) {
+        lock.readLock().lock();
+        try {
+            final Map<Value, Set<Resource>> edges = predecessors.get(property);
+            return edges == null ? new HashSet<>() : copy(edges.get(object));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param property - A transitive property. (not null)
+     * @return Every edge of the property, keyed by subject.
+     */
+    public Map<Resource, Set<Value>> getEdges(final IRI property) {
+        lock.readLock().lock();
+        try {
+            final Map<Resource, Set<Value>> edges = successors.get(property);
+            return edges == null ? new HashMap<>() : copy(edges);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of sameAs and transitive property edges in the index.
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param property - A transitive property. (not null)
+     * @param subject - The resource the walk starts at. (not null)
+     * @return Every value that can be reached from the subject by following
+     *   one or more edges of the property.
+     */
+    public Set<Value> getReachable(final IRI property, final Resource subject) {
+        lock.readLock().lock();
+        try {
+            final Map<Resource, Set<Value>> edges = successors.get(property);
+            return edges == null ? new HashSet<Value>() : reachable(edges, subject);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param property - A transitive property. (not null)
+     * @param object - The value the walk ends at. (not null)
+     * @return Every resource that reaches the object by following one or more
+     *   edges of the property.
+     */
+    public Set<Resource> getReaching(final IRI property, final Value object) {
+        lock.readLock().lock();
+        try {
+            final Map<Value, Set<Resource>> edges = predecessors.get(property);
+            return edges == null ? new HashSet<Resource>() : reachable(edges, object);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Resource getCanonical(final Resource resource) {
+        final Resource root = canonical.get(resource);
+        return root == null ? resource : root;
+    }
+
+    private Set<Resource> membersOf(final Resource root) {
+        final Set<Resource> rootMembers = members.get(root);
+        return rootMembers == null ? new HashSet<>(Collections.singleton(root)) : rootMembers;
+    }
+
+    private Map<Resource, Set<Value>> successorsOf(final IRI property) {
+        Map<Resource, Set<Value>> edges = successors.get(property);
+        if (edges == null) {
+            edges = new HashMap<>();
+            successors.put(property, edges);
+        }
+        return edges;
+    }
+
+    private Map<Value, Set<Resource>> predecessorsOf(final IRI property) {
+        Map<Value, Set<Resource>> edges = predecessors.get(property);
+        if (edges == null) {
+            edges = new HashMap<>();
+            predecessors.put(property, edges);
+        }
+        return edges;
+    }
+
+    /**
+     * Walks the edges from a start node.
+     * @return The nodes that were reached, including the start node only if
+     *   the walk returned to it.
+     */
+    private static <V> Set<V> reachable(final Map<?, Set<V>> edges, final Value start) {
+        final Set<V> reached = new HashSet<>();
+        final Deque<Object> toVisit = new ArrayDeque<>();
+        toVisit.add(start);
+        while (!toVisit.isEmpty()) {
+            final Set<V> next = edges.get(toVisit.poll());
+            if (next != null) {
+                for (final V value : next) {
+                    if (reached.add(value)) {
+                        toVisit.add(value);
+                    }
+                }
+            }
+        }
+        return reached;
+    }
+
+    private static <K, V> boolean link(final Map<K, Set<V>> edges, final K from, final V to) {
+        Set<V> targets = edges.get(from);
+        if (targets == null) {
+            targets = new HashSet<>();
+            edges.put(from, targets);
+        }
+        return targets.add(to);
+    }
+
+    private static <K, V> boolean unlink(final Map<K, Set<V>> edges, final K from, final V to) {
+        final Set<V> targets = edges.get(from);
+        if (targets == null || !targets.remove(to)) {
+            return false;
+        }
+        if (targets.isEmpty()) {
+            edges.remove(from);
+        }
+        return true;
+    }
+
+    private static <V> Set<V> copy(final Set<V> values) {
+        return values == null ? new HashSet<V>() : new HashSet<>(values);
+    }
+
+    private static <K, V> Map<K, Set<V>> copy(final Map<K, Set<V>> edges) {
+        final Map<K, Set<V>> copy = new HashMap<>();
+        for (final Map.Entry<K, Set<V>> entry : edges.entrySet()) {
+            copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
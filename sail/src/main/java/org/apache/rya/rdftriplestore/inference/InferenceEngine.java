@@ -22,6 +22,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -63,6 +65,7 @@ import org.eclipse.rdf4j.model.vocabulary.OWL;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.RDFS;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.rio.RDFHandler;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
 
@@ -78,6 +81,7 @@ public class InferenceEngine {
     private static final ValueFactory VF = SimpleValueFactory.getInstance();
     private static final IRI HAS_SELF = VF.createIRI(OWL.NAMESPACE, "hasSelf");
     private static final IRI REFLEXIVE_PROPERTY = VF.createIRI(OWL.NAMESPACE, "ReflexiveProperty");
+    private static final IRI PROPERTY_CHAIN_AXIOM = VF.createIRI(OWL.NAMESPACE, "propertyChainAxiom");
     public static final String URI_PROP = "uri";
 
     private final ReentrantLock refreshLock = new ReentrantLock();
@@ -85,22 +89,22 @@ public class InferenceEngine {
     private final AtomicReference<Graph> subClassOfGraph = new AtomicReference<>();
     private final AtomicReference<Graph> subPropertyOfGraph = new AtomicReference<>();
 
-    private final Set<IRI> symmetricPropertySet = ConcurrentHashMap.newKeySet();;
-    private final Map<IRI, IRI> inverseOfMap = new ConcurrentHashMap<>();
-    private final Set<IRI> transitivePropertySet = ConcurrentHashMap.newKeySet();;
-    private final Set<IRI> reflexivePropertySet = ConcurrentHashMap.newKeySet();;
-    private final Map<IRI, Set<IRI>> domainByType = new ConcurrentHashMap<>();
-    private final Map<IRI, Set<IRI>> rangeByType = new ConcurrentHashMap<>();
-    private final Map<Resource, Map<IRI, Value>> hasValueByType = new ConcurrentHashMap<>();
-    private final Map<IRI, Map<Resource, Value>> hasValueByProperty = new ConcurrentHashMap<>();
-    private final Map<Resource, Map<Resource, IRI>> someValuesFromByRestrictionType = new ConcurrentHashMap<>();
-    private final Map<Resource, Map<Resource, IRI>> allValuesFromByValueType = new ConcurrentHashMap<>();
-    private final Map<Resource, List<Set<Resource>>> intersections = new ConcurrentHashMap<>();
-    private final Map<Resource, Set<Resource>> enumerations = new ConcurrentHashMap<>();
-    private final Map<IRI, List<IRI>> propertyChainPropertyToChain = new ConcurrentHashMap<>();
-    // hasSelf maps.
-    private final Map<IRI, Set<Resource>> hasSelfByProperty = new ConcurrentHashMap<>();
-    private final Map<Resource, Set<IRI>> hasSelfByType = new ConcurrentHashMap<>();
+    // The schema maps are never modified once they are published. A refresh
+    // builds new maps and swaps them in, so readers never see a partial update.
+    private volatile Set<IRI> symmetricPropertySet = Collections.emptySet();
+    private volatile Map<IRI, IRI> inverseOfMap = Collections.emptyMap();
+    private volatile Set<IRI> transitivePropertySet = Collections.emptySet();
+    private volatile Set<IRI> reflexivePropertySet = Collections.emptySet();
+    private volatile Map<IRI, Set<IRI>> domainByType = Collections.emptyMap();
+    private volatile Map<IRI, Set<IRI>> rangeByType = Collections.emptyMap();
+    private final AtomicReference<Restrictions> restrictions = new AtomicReference<>(new Restrictions());
+    private volatile Map<Resource, List<Set<Resource>>> intersections = Collections.emptyMap();
+    private volatile Map<Resource, Set<Resource>> enumerations = Collections.emptyMap();
+    private volatile Map<IRI, List<IRI>> propertyChainPropertyToChain = Collections.emptyMap();
+    private final AtomicReference<ClosureIndex> closureIndex = new AtomicReference<>();
+    // The index that a full refresh is loading, which also receives the writes made while it loads.
+    private final AtomicReference<ClosureIndex> loadingClosureIndex = new AtomicReference<>();
+    private final AtomicBoolean closureIndexOverflowed = new AtomicBoolean();
 
     private RyaDAO<?> ryaDAO;
     private RdfCloudTripleStoreConfiguration conf;
@@ -109,8 +113,85 @@ public class InferenceEngine {
     private final AtomicBoolean schedule = new AtomicBoolean(true);
 
     private final AtomicLong refreshGraphSchedule = new AtomicLong(5 * 60 * 1000); //5 min
+    private final AtomicLong fullRefreshGraphSchedule = new AtomicLong(60 * 60 * 1000); //1 hour
+    private final AtomicLong lastFullRefresh = new AtomicLong();
+    private final AtomicLong schemaVersion = new AtomicLong();
+    private final AtomicLong sameAsVersion = new AtomicLong();
+    private final Set<SchemaSection> changedSections = ConcurrentHashMap.newKeySet();
     private Timer timer;
 
+    /**
+     * The parts of the schema that are refreshed together, in the order they
+     * have to be refreshed.
+     */
+    private enum SchemaSection {
+        CLASSES(RDFS.SUBCLASSOF, OWL.EQUIVALENTCLASS, OWL.UNIONOF, OWL.INTERSECTIONOF, RDF.FIRST, RDF.REST),
+        PROPERTIES(RDFS.SUBPROPERTYOF, OWL.EQUIVALENTPROPERTY),
+        ONE_OF(OWL.ONEOF, RDF.FIRST, RDF.REST),
+        PROPERTY_TYPES,
+        CLOSURE_INDEX,
+        INVERSE_OF(OWL.INVERSEOF),
+        PROPERTY_CHAINS(PROPERTY_CHAIN_AXIOM, RDF.FIRST, RDF.REST),
+        DOMAIN_RANGE(RDFS.DOMAIN, RDFS.RANGE),
+        RESTRICTIONS(OWL.ONPROPERTY, OWL.HASVALUE, OWL.SOMEVALUESFROM, OWL.ALLVALUESFROM, HAS_SELF);
+
+        private final Set<IRI> predicates;
+
+        private SchemaSection(final IRI... predicates) {
+            this.predicates = Sets.newHashSet(predicates);
+        }
+
+        /**
+         * @return The sections that are computed from this section and have to
+         *   be refreshed after it.
+         */
+        private Set<SchemaSection> getDependents() {
+            switch (this) {
+                case CLASSES:
+                    return EnumSet.of(DOMAIN_RANGE, RESTRICTIONS);
+                case PROPERTIES:
+                case INVERSE_OF:
+                    return EnumSet.of(DOMAIN_RANGE);
+                case PROPERTY_TYPES:
+                    return EnumSet.of(CLOSURE_INDEX);
+                default:
+                    return EnumSet.noneOf(SchemaSection.class);
+            }
+        }
+    }
+
+    /**
+     * The maps of the owl:hasValue, owl:someValuesFrom, owl:allValuesFrom and
+     * owl:hasSelf restrictions. They are computed from the same restrictions,
+     * so a refresh publishes all of them at once.
+     */
+    private static class Restrictions {
+        private final Map<Resource, Map<IRI, Value>> hasValueByType;
+        private final Map<IRI, Map<Resource, Value>> hasValueByProperty;
+        private final Map<Resource, Map<Resource, IRI>> someValuesFromByRestrictionType;
+        private final Map<Resource, Map<Resource, IRI>> allValuesFromByValueType;
+        private final Map<Resource, Set<IRI>> hasSelfByType;
+        private final Map<IRI, Set<Resource>> hasSelfByProperty;
+
+        private Restrictions() {
+            this(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>());
+        }
+
+        private Restrictions(final Map<Resource, Map<IRI, Value>> hasValueByType,
+                final Map<IRI, Map<Resource, Value>> hasValueByProperty,
+                final Map<Resource, Map<Resource, IRI>> someValuesFromByRestrictionType,
+                final Map<Resource, Map<Resource, IRI>> allValuesFromByValueType,
+                final Map<Resource, Set<IRI>> hasSelfByType,
+                final Map<IRI, Set<Resource>> hasSelfByProperty) {
+            this.hasValueByType = hasValueByType;
+            this.hasValueByProperty = hasValueByProperty;
+            this.someValuesFromByRestrictionType = someValuesFromByRestrictionType;
+            this.allValuesFromByValueType = allValuesFromByValueType;
+            this.hasSelfByType = hasSelfByType;
+            this.hasSelfByProperty = hasSelfByProperty;
+        }
+    }
+
     public void init() throws InferenceEngineException {
         try {
             if (isInitialized()) {
@@ -130,7 +211,15 @@ public class InferenceEngine {
                     @Override
                     public void run() {
                         try {
-                            refreshGraph();
+                            // Measured from the scheduled time so a full refresh due every run is not skipped by jitter.
+                            final long scheduledTime = scheduledExecutionTime();
+                            final long fullSchedule = getFullRefreshGraphSchedule();
+                            if (fullSchedule > 0 && scheduledTime - lastFullRefresh.get() >= fullSchedule) {
+                                refreshGraph();
+                                lastFullRefresh.set(scheduledTime);
+                            } else {
+                                refreshSchemaChanges();
+                            }
                         } catch (final InferenceEngineException e) {
                             throw new RuntimeException(e);
                         }
@@ -151,48 +240,91 @@ public class InferenceEngine {
         }
     }
 
+    /**
+     * Rebuilds the whole schema from the store.
+     */
     public void refreshGraph() throws InferenceEngineException {
-        refreshLock.lock();
-        try {
-            //get all subclassof
-            Graph graph = TinkerGraph.open();
-            addPredicateEdges(RDFS.SUBCLASSOF, Direction.OUT, graph, RDFS.SUBCLASSOF.stringValue());
-            //equivalentClass is the same as subClassOf both ways
-            addPredicateEdges(OWL.EQUIVALENTCLASS, Direction.BOTH, graph, RDFS.SUBCLASSOF.stringValue());
-            // Add unions to the subclass graph
-            addUnions(graph);
-            subClassOfGraph.set(graph);
+        lastFullRefresh.set(System.currentTimeMillis());
+        refreshSections(EnumSet.allOf(SchemaSection.class), true);
+    }
 
-            graph = TinkerGraph.open();
-            addPredicateEdges(RDFS.SUBPROPERTYOF, Direction.OUT, graph, RDFS.SUBPROPERTYOF.stringValue());
-            //equiv property really is the same as a subPropertyOf both ways
-            addPredicateEdges(OWL.EQUIVALENTPROPERTY, Direction.BOTH, graph, RDFS.SUBPROPERTYOF.stringValue());
-            subPropertyOfGraph.set(graph);
+    /**
+     * Refreshes only the parts of the schema whose statements were added or
+     * removed through {@link #statementAdded(Resource, IRI, Value)} and
+     * {@link #statementsRemoved(Resource, IRI, Value)} since the last refresh.
+     */
+    public void refreshSchemaChanges() throws InferenceEngineException {
+        final Set<SchemaSection> sections = EnumSet.noneOf(SchemaSection.class);
+        for (final SchemaSection section : SchemaSection.values()) {
+            if (changedSections.remove(section)) {
+                sections.add(section);
+            }
+        }
+        if (!sections.isEmpty()) {
+            boolean refreshed = false;
+            try {
+                refreshSections(sections, false);
+                refreshed = true;
+            } finally {
+                if (!refreshed) {
+                    // Keep the changes so the next refresh tries again.
+                    changedSections.addAll(sections);
+                }
+            }
+        }
+    }
 
-            refreshIntersectionOf();
+    /**
+     * @return {@code true} if schema statements were written since the last
+     *   refresh and {@link #refreshSchemaChanges()} has work to do.
+     */
+    public boolean hasSchemaChanges() {
+        return !changedSections.isEmpty();
+    }
 
-            refreshOneOf();
+    private void refreshSections(final Set<SchemaSection> requested, final boolean full) throws InferenceEngineException {
+        final Set<SchemaSection> sections = EnumSet.copyOf(requested);
+        for (final SchemaSection section : requested) {
+            sections.addAll(section.getDependents());
+        }
 
-            synchronized(symmetricPropertySet) {
-                symmetricPropertySet.clear();
-                symmetricPropertySet.addAll(fetchInstances(OWL.SYMMETRICPROPERTY));
+        refreshLock.lock();
+        try {
+            if (sections.contains(SchemaSection.CLASSES)) {
+                refreshClasses();
             }
-            synchronized(transitivePropertySet) {
-                transitivePropertySet.clear();
-                transitivePropertySet.addAll(fetchInstances(OWL.TRANSITIVEPROPERTY));
+            if (sections.contains(SchemaSection.PROPERTIES)) {
+                final Graph graph = TinkerGraph.open();
+                addPredicateEdges(RDFS.SUBPROPERTYOF, Direction.OUT, graph, RDFS.SUBPROPERTYOF.stringValue());
+                //equiv property really is the same as a subPropertyOf both ways
+                addPredicateEdges(OWL.EQUIVALENTPROPERTY, Direction.BOTH, graph, RDFS.SUBPROPERTYOF.stringValue());
+                subPropertyOfGraph.set(graph);
             }
-            synchronized(reflexivePropertySet) {
-                reflexivePropertySet.clear();
-                reflexivePropertySet.addAll(fetchInstances(REFLEXIVE_PROPERTY));
+            if (sections.contains(SchemaSection.ONE_OF)) {
+                refreshOneOf();
+            }
+            if (sections.contains(SchemaSection.PROPERTY_TYPES)) {
+                symmetricPropertySet = fetchInstances(OWL.SYMMETRICPROPERTY);
+                transitivePropertySet = fetchInstances(OWL.TRANSITIVEPROPERTY);
+                reflexivePropertySet = fetchInstances(REFLEXIVE_PROPERTY);
+            }
+            if (sections.contains(SchemaSection.CLOSURE_INDEX)) {
+                refreshClosureIndex(full);
+            }
+            if (sections.contains(SchemaSection.INVERSE_OF)) {
+                refreshInverseOf();
+            }
+            if (sections.contains(SchemaSection.PROPERTY_CHAINS)) {
+                refreshPropertyChainPropertyToChain();
+            }
+            if (sections.contains(SchemaSection.DOMAIN_RANGE)) {
+                refreshDomainRange();
+            }
+            if (sections.contains(SchemaSection.RESTRICTIONS)) {
+                refreshPropertyRestrictions();
             }
 
-            refreshInverseOf();
-
-            refreshPropertyChainPropertyToChain();
-
-            refreshDomainRange();
-
-            refreshPropertyRestrictions();
+            schemaVersion.incrementAndGet();
         } catch (final QueryEvaluationException e) {
             throw new InferenceEngineException(e);
         } finally {
@@ -200,6 +332,22 @@ public class InferenceEngine {
         }
     }
 
+    private void refreshClasses() throws QueryEvaluationException {
+        //get all subclassof
+        final Graph graph = TinkerGraph.open();
+        addPredicateEdges(RDFS.SUBCLASSOF, Direction.OUT, graph, RDFS.SUBCLASSOF.stringValue());
+        //equivalentClass is the same as subClassOf both ways
+        addPredicateEdges(OWL.EQUIVALENTCLASS, Direction.BOTH, graph, RDFS.SUBCLASSOF.stringValue());
+        // Add unions to the subclass graph
+        addUnions(graph);
+        // Intersections add to the subclass graph as well, so it is only
+        // published once they are complete.
+        final Map<Resource, List<Set<Resource>>> newIntersections = new HashMap<>();
+        refreshIntersectionOf(graph, newIntersections);
+        subClassOfGraph.set(graph);
+        intersections = newIntersections;
+    }
+
     /**
      * Query for and collect all instances of a given type. Should only be called for types expected
      * to have few members, such as ontology vocabulary terms, as instances will be collected in
@@ -319,10 +467,7 @@ public class InferenceEngine {
                 iter.close();
             }
         }
-        synchronized(inverseOfMap) {
-            inverseOfMap.clear();
-            inverseOfMap.putAll(invProp);
-        }
+        inverseOfMap = invProp;
     }
 
     private void refreshPropertyChainPropertyToChain() throws QueryEvaluationException {
@@ -466,10 +611,7 @@ public class InferenceEngine {
             }
         }
 
-        synchronized(propertyChainPropertyToChain) {
-            propertyChainPropertyToChain.clear();
-            propertyChainPropertyToChain.putAll(tempPropertyChainPropertyToChain);
-        }
+        propertyChainPropertyToChain = tempPropertyChainPropertyToChain;
     }
 
     /**
@@ -626,14 +768,8 @@ public class InferenceEngine {
                 }
             }
         }
-        synchronized(domainByType) {
-            domainByType.clear();
-            domainByType.putAll(domainByTypePartial);
-        }
-        synchronized(rangeByType) {
-            rangeByType.clear();
-            rangeByType.putAll(rangeByTypePartial);
-        }
+        domainByType = domainByTypePartial;
+        rangeByType = rangeByTypePartial;
     }
 
     private void refreshPropertyRestrictions() throws QueryEvaluationException {
@@ -650,16 +786,23 @@ public class InferenceEngine {
                 iter.close();
             }
         }
-        // Query for specific types of restriction and add their details to the schema
-        refreshHasValueRestrictions(restrictions);
-        refreshSomeValuesFromRestrictions(restrictions);
-        refreshAllValuesFromRestrictions(restrictions);
-        refreshHasSelfRestrictions(restrictions);
-    }
-
-    private void refreshHasValueRestrictions(final Map<Resource, IRI> restrictions) throws QueryEvaluationException {
-        hasValueByType.clear();
-        hasValueByProperty.clear();
+        // Query for specific types of restriction and publish their details together
+        final Map<Resource, Map<IRI, Value>> hasValueByType = new HashMap<>();
+        final Map<IRI, Map<Resource, Value>> hasValueByProperty = new HashMap<>();
+        final Map<Resource, Map<Resource, IRI>> someValuesFromByRestrictionType = new HashMap<>();
+        final Map<Resource, Map<Resource, IRI>> allValuesFromByValueType = new HashMap<>();
+        final Map<Resource, Set<IRI>> hasSelfByType = new HashMap<>();
+        final Map<IRI, Set<Resource>> hasSelfByProperty = new HashMap<>();
+        refreshHasValueRestrictions(restrictions, hasValueByType, hasValueByProperty);
+        refreshSomeValuesFromRestrictions(restrictions, someValuesFromByRestrictionType);
+        refreshAllValuesFromRestrictions(restrictions, allValuesFromByValueType);
+        refreshHasSelfRestrictions(restrictions, hasSelfByType, hasSelfByProperty);
+        this.restrictions.set(new Restrictions(hasValueByType, hasValueByProperty,
+                someValuesFromByRestrictionType, allValuesFromByValueType, hasSelfByType, hasSelfByProperty));
+    }
+
+    private void refreshHasValueRestrictions(final Map<Resource, IRI> restrictions, final Map<Resource, Map<IRI, Value>> hasValueByType,
+            final Map<IRI, Map<Resource, Value>> hasValueByProperty) throws QueryEvaluationException {
         final CloseableIteration<Statement, QueryEvaluationException> iter = RyaDAOHelper.query(ryaDAO, null, OWL.HASVALUE, null, conf);
         try {
             while (iter.hasNext()) {
@@ -685,8 +828,8 @@ public class InferenceEngine {
         }
     }
 
-    private void refreshSomeValuesFromRestrictions(final Map<Resource, IRI> restrictions) throws QueryEvaluationException {
-        someValuesFromByRestrictionType.clear();
+    private void refreshSomeValuesFromRestrictions(final Map<Resource, IRI> restrictions,
+            final Map<Resource, Map<Resource, IRI>> someValuesFromByRestrictionType) throws QueryEvaluationException {
         ryaDaoQueryWrapper.queryAll(null, OWL.SOMEVALUESFROM, null, new AbstractRDFHandler() {
             @Override
             public void handleStatement(final Statement statement) throws RDFHandlerException {
@@ -711,8 +854,8 @@ public class InferenceEngine {
         });
     }
 
-    private void refreshAllValuesFromRestrictions(final Map<Resource, IRI> restrictions) throws QueryEvaluationException {
-        allValuesFromByValueType.clear();
+    private void refreshAllValuesFromRestrictions(final Map<Resource, IRI> restrictions,
+            final Map<Resource, Map<Resource, IRI>> allValuesFromByValueType) throws QueryEvaluationException {
         ryaDaoQueryWrapper.queryAll(null, OWL.ALLVALUESFROM, null, new AbstractRDFHandler() {
             @Override
             public void handleStatement(final Statement statement) throws RDFHandlerException {
@@ -737,10 +880,8 @@ public class InferenceEngine {
         });
     }
 
-    private void refreshHasSelfRestrictions(final Map<Resource, IRI> restrictions) throws QueryEvaluationException {
-        hasSelfByType.clear();
-        hasSelfByProperty.clear();
-
+    private void refreshHasSelfRestrictions(final Map<Resource, IRI> restrictions, final Map<Resource, Set<IRI>> hasSelfByType,
+            final Map<IRI, Set<Resource>> hasSelfByProperty) throws QueryEvaluationException {
         for(final Resource type : restrictions.keySet()) {
             final IRI property = restrictions.get(type);
             final CloseableIteration<Statement, QueryEvaluationException> iter = RyaDAOHelper.query(ryaDAO, type, HAS_SELF, null, conf);
@@ -770,7 +911,7 @@ public class InferenceEngine {
         }
     }
 
-    private void refreshIntersectionOf() throws QueryEvaluationException {
+    private void refreshIntersectionOf(final Graph graph, final Map<Resource, List<Set<Resource>>> intersections) throws QueryEvaluationException {
         final Map<Resource, List<Set<Resource>>> intersectionsProp = new HashMap<>();
 
         // First query for all the owl:intersectionOf's.
@@ -808,7 +949,6 @@ public class InferenceEngine {
             }
         });
 
-        intersections.clear();
         for (final Entry<Resource, List<Set<Resource>>> entry : intersectionsProp.entrySet()) {
             final Resource type = entry.getKey();
             final List<Set<Resource>> intersectionList = entry.getValue();
@@ -823,22 +963,22 @@ public class InferenceEngine {
                 // :A subclassOf :C
                 // So add each type that's part of the intersection to the
                 // subClassOf graph.
-                addSubClassOf(type, other);
+                addSubClassOf(graph, type, other);
                 for (final Set<Resource> intersection : intersectionList) {
                     if (!intersection.contains(other)) {
-                        addIntersection(intersection, other);
+                        addIntersection(intersections, intersection, other);
                     }
                 }
             }
             for (final Set<Resource> intersection : intersectionList) {
-                addIntersection(intersection, type);
+                addIntersection(intersections, intersection, type);
             }
         }
         for (final Entry<Resource, List<Set<Resource>>> entry : intersectionsProp.entrySet()) {
             final Resource type = entry.getKey();
             final List<Set<Resource>> intersectionList = entry.getValue();
 
-            final Set<IRI> superClasses = getSuperClasses((IRI) type);
+            final Set<IRI> superClasses = findChildren(graph, (IRI) type);
             for (final IRI superClass : superClasses) {
                 // Add intersections to super classes if applicable.
                 // IF:
@@ -848,7 +988,7 @@ public class InferenceEngine {
                 // Then we can infer:
                 // intersectionOf[:B, :C] subclassOf :D
                 for (final Set<Resource> intersection : intersectionList) {
-                    addIntersection(intersection, superClass);
+                    addIntersection(intersections, intersection, superClass);
                 }
             }
             // Check if other keys have any of the same intersections and infer
@@ -859,8 +999,8 @@ public class InferenceEngine {
                 otherKeys.remove(type);
                 for (final Resource otherKey : otherKeys) {
                     if (intersectionsProp.get(otherKey).contains(intersection)) {
-                        addSubClassOf(otherKey, type);
-                        addSubClassOf(type, otherKey);
+                        addSubClassOf(graph, otherKey, type);
+                        addSubClassOf(graph, type, otherKey);
                     }
                 }
             }
@@ -903,10 +1043,7 @@ public class InferenceEngine {
             }
         });
 
-        synchronized(enumerations) {
-            enumerations.clear();
-            enumerations.putAll(enumTypes);
-        }
+        enumerations = enumTypes;
     }
 
     /**
@@ -926,6 +1063,7 @@ public class InferenceEngine {
      */
     public Set<IRI> getHasSelfImplyingType(final Resource type){
         // return properties that imply this type if reflexive
+        final Map<Resource, Set<IRI>> hasSelfByType = restrictions.get().hasSelfByType;
         final Set<IRI> properties = new HashSet<>();
         Set<IRI> tempProperties = hasSelfByType.get(type);
 
@@ -958,7 +1096,7 @@ public class InferenceEngine {
     public Set<Resource> getHasSelfImplyingProperty(final IRI property) {
         // return types that imply this type if reflexive
         final Set<Resource> types = new HashSet<>();
-        final Set<Resource> baseTypes = hasSelfByProperty.get(property);
+        final Set<Resource> baseTypes = restrictions.get().hasSelfByProperty.get(property);
 
         if (baseTypes != null) {
             types.addAll(baseTypes);
@@ -1026,14 +1164,14 @@ public class InferenceEngine {
         return list;
     }
 
-    private void addSubClassOf(final Resource s, final Resource o) {
+    private static void addSubClassOf(final Graph graph, final Resource s, final Resource o) {
         final Statement statement = VF.createStatement(s, RDFS.SUBCLASSOF, o);
         final String edgeName = RDFS.SUBCLASSOF.stringValue();
 
-        addStatementEdge(subClassOfGraph.get(), edgeName, statement);
+        addStatementEdge(graph, edgeName, statement);
     }
 
-    private void addIntersection(final Set<Resource> intersection, final Resource type) {
+    private static void addIntersection(final Map<Resource, List<Set<Resource>>> intersections, final Set<Resource> intersection, final Resource type) {
         if (type != null && intersection != null && !intersection.isEmpty()) {
             List<Set<Resource>> intersectionList = intersections.get(type);
             if (intersectionList == null) {
@@ -1231,12 +1369,29 @@ public class InferenceEngine {
     }
 
     /**
-     * TODO: This chaining can be slow at query execution. the other option is to perform this in the query itself, but that will be constrained to how many levels we decide to go
+     * Finds the statements implied by a transitive property. When the closure
+     * index is enabled and no context is given, the answer comes from the
+     * index. Otherwise the chain is followed with one query per hop.
      */
     public Set<Statement> findTransitiveProperty(final Resource subj, final IRI prop, final Value obj, final Resource... contxts) throws InferenceEngineException {
         if (transitivePropertySet.contains(prop)) {
             final Set<Statement> sts = new HashSet<>();
             final boolean goUp = subj == null;
+            final ClosureIndex index = closureIndex.get();
+            if (index != null && isAnyContext(contxts)) {
+                if (goUp) {
+                    for (final Resource reaching : index.getReaching(prop, obj)) {
+                        sts.add(VF.createStatement(reaching, prop, obj));
+                    }
+                } else {
+                    for (final Value reached : index.getReachable(prop, subj)) {
+                        if (obj == null || obj.equals(reached)) {
+                            sts.add(VF.createStatement(subj, prop, reached));
+                        }
+                    }
+                }
+                return sts;
+            }
             chainTransitiveProperty(subj, prop, obj, (goUp) ? (obj) : (subj), sts, goUp, contxts);
             return sts;
         } else {
@@ -1245,15 +1400,365 @@ public class InferenceEngine {
     }
 
     /**
-     * TODO: This chaining can be slow at query execution. the other option is to perform this in the query itself, but that will be constrained to how many levels we decide to go
+     * Finds every resource that is the same as the given resource. When the
+     * closure index is enabled and no context is given, the answer comes from
+     * the index. Otherwise the sameAs chain is followed with two queries per hop.
      */
     public Set<Resource> findSameAs(final Resource value, final Resource... contxts) throws InferenceEngineException{
+        final ClosureIndex index = closureIndex.get();
+        if (index != null && isAnyContext(contxts)) {
+            return index.getSameAs(value);
+        }
         final Set<Resource> sameAs = new HashSet<>();
         sameAs.add(value);
         findSameAsChaining(value, sameAs, contxts);
         return sameAs;
     }
 
+    private static boolean isAnyContext(final Resource... contxts) {
+        if (contxts != null) {
+            for (final Resource context : contxts) {
+                if (context != null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Brings the closure index in line with the schema, or drops it if the
+     * index is disabled. A full refresh loads a new index from the store, so
+     * statements that were written directly through a {@link RyaDAO}, by a
+     * bulk loader or by another sail are picked up. Between full refreshes only
+     * the edges of properties that became transitive are loaded, and the edges
+     * of properties that are no longer transitive are dropped; the remaining
+     * edges are kept current by {@link #statementAdded} and
+     * {@link #statementsRemoved}. Queries keep using the previous index until
+     * the new one is complete.
+     *
+     * @param full - {@code true} if the whole index is loaded from the store again.
+     */
+    private void refreshClosureIndex(final boolean full) throws QueryEvaluationException {
+        if (conf == null || !conf.isInferClosureIndex()) {
+            closureIndex.set(null);
+            return;
+        }
+        if (closureIndexOverflowed.get()) {
+            return;
+        }
+
+        final ClosureIndex current = closureIndex.get();
+        if (current == null || full) {
+            final ClosureIndex index = new ClosureIndex();
+            loadingClosureIndex.set(index);
+            try {
+                if (loadSameAs(index) && loadTransitiveProperties(index, transitivePropertySet)) {
+                    closureIndex.set(index);
+                } else {
+                    closureIndex.set(null);
+                }
+            } finally {
+                loadingClosureIndex.set(null);
+            }
+            return;
+        }
+
+        final Set<IRI> indexed = current.getProperties();
+        for (final IRI property : indexed) {
+            if (!transitivePropertySet.contains(property)) {
+                current.removeProperty(property);
+            }
+        }
+        final Set<IRI> added = new HashSet<>(transitivePropertySet);
+        added.removeAll(indexed);
+        loadTransitiveProperties(current, added);
+    }
+
+    /**
+     * Drops the closure index and loads it from the store again, without
+     * waiting for the next full refresh. It also re-enables an index that was
+     * dropped because it grew too large.
+     *
+     * @throws InferenceEngineException The index could not be loaded.
+     */
+    public void rebuildClosureIndex() throws InferenceEngineException {
+        refreshLock.lock();
+        try {
+            closureIndexOverflowed.set(false);
+            closureIndex.set(null);
+            refreshClosureIndex(true);
+        } catch (final QueryEvaluationException e) {
+            throw new InferenceEngineException(e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Loads every owl:sameAs statement into an index.
+     *
+     * @return {@code false} if the index grew too large and was dropped.
+     */
+    private boolean loadSameAs(final ClosureIndex index) throws QueryEvaluationException {
+        return load(index, OWL.SAMEAS, new AbstractRDFHandler() {
+            @Override
+            public void handleStatement(final Statement statement) throws RDFHandlerException {
+                if (statement.getObject() instanceof Resource) {
+                    index.addSameAs(statement.getSubject(), (Resource) statement.getObject());
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the statements of transitive properties into an index.
+     *
+     * @return {@code false} if the index grew too large and was dropped.
+     */
+    private boolean loadTransitiveProperties(final ClosureIndex index, final Set<IRI> properties) throws QueryEvaluationException {
+        for (final IRI transitiveProperty : properties) {
+            index.addProperty(transitiveProperty);
+            final boolean loaded = load(index, transitiveProperty, new AbstractRDFHandler() {
+                @Override
+                public void handleStatement(final Statement statement) throws RDFHandlerException {
+                    index.addEdge(transitiveProperty, statement.getSubject(), statement.getObject());
+                }
+            });
+            if (!loaded) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean load(final ClosureIndex index, final IRI predicate, final RDFHandler handler) throws QueryEvaluationException {
+        try {
+            ryaDaoQueryWrapper.queryAll(null, predicate, null, new AbstractRDFHandler() {
+                @Override
+                public void handleStatement(final Statement statement) throws RDFHandlerException {
+                    handler.handleStatement(statement);
+                    if (isTooLarge(index)) {
+                        throw new RDFHandlerException("The closure index grew too large.");
+                    }
+                }
+            });
+        } catch (final QueryEvaluationException e) {
+            if (!isTooLarge(index)) {
+                throw e;
+            }
+        }
+        return !dropIfTooLarge(index);
+    }
+
+    private boolean isTooLarge(final ClosureIndex index) {
+        return index.size() > conf.getInferClosureIndexMaxSize();
+    }
+
+    /**
+     * Drops the closure index if it holds more edges than the configured
+     * maximum. It stays dropped until {@link #rebuildClosureIndex()} is called.
+     *
+     * @return {@code true} if the index was dropped.
+     */
+    private boolean dropIfTooLarge(final ClosureIndex index) {
+        if (!isTooLarge(index)) {
+            return false;
+        }
+        log.warn("The closure index holds more than " + conf.getInferClosureIndexMaxSize()
+                + " edges. It is dropped until rebuildClosureIndex() is called.");
+        closureIndexOverflowed.set(true);
+        closureIndex.compareAndSet(index, null);
+        return true;
+    }
+
+    /**
+     * Records that a statement was added through the Rya sail. Schema
+     * statements mark their part of the schema for the next
+     * {@link #refreshSchemaChanges()}, and the closure index is updated right away.
+     */
+    public void statementAdded(final Resource subject, final IRI predicate, final Value object) {
+        markSchemaChange(predicate, object);
+        if (OWL.SAMEAS.equals(predicate)) {
+            sameAsVersion.incrementAndGet();
+        }
+        final ClosureIndex loading = loadingClosureIndex.get();
+        if (loading != null) {
+            addEdge(loading, subject, predicate, object);
+        }
+        final ClosureIndex index = closureIndex.get();
+        if (index != null) {
+            addEdge(index, subject, predicate, object);
+            dropIfTooLarge(index);
+        }
+    }
+
+    private void addEdge(final ClosureIndex index, final Resource subject, final IRI predicate, final Value object) {
+        if (OWL.SAMEAS.equals(predicate)) {
+            if (object instanceof Resource) {
+                index.addSameAs(subject, (Resource) object);
+            }
+        } else if (transitivePropertySet.contains(predicate)) {
+            index.addEdge(predicate, subject, object);
+        }
+    }
+
+    /**
+     * Records that the statements matching a pattern were removed through the
+     * Rya sail. Schema statements mark their part of the schema for the next
+     * {@link #refreshSchemaChanges()}. Edges of the closure index that match
+     * the pattern are dropped right away if the store no longer holds them in
+     * any context. If the subject or object is bound, only the matching edges
+     * of the index are checked against the store. Otherwise every indexed
+     * predicate the pattern covers is scanned once and the edges the store no
+     * longer holds are dropped.
+     */
+    public void statementsRemoved(final Resource subject, final IRI predicate, final Value object) throws InferenceEngineException {
+        markSchemaChange(predicate, object);
+        if (predicate == null || OWL.SAMEAS.equals(predicate)) {
+            sameAsVersion.incrementAndGet();
+        }
+        try {
+            final ClosureIndex loading = loadingClosureIndex.get();
+            if (loading != null) {
+                removeEdges(loading, subject, predicate, object);
+            }
+            final ClosureIndex index = closureIndex.get();
+            if (index != null) {
+                removeEdges(index, subject, predicate, object);
+            }
+        } catch (final QueryEvaluationException e) {
+            throw new InferenceEngineException(e);
+        }
+    }
+
+    private void removeEdges(final ClosureIndex index, final Resource subject, final IRI predicate, final Value object) throws QueryEvaluationException {
+        if (subject == null && object == null) {
+            if (predicate == null || OWL.SAMEAS.equals(predicate)) {
+                retainStoredSameAs(index);
+            }
+            for (final IRI transitiveProperty : index.getProperties()) {
+                if (predicate == null || transitiveProperty.equals(predicate)) {
+                    retainStoredEdges(index, transitiveProperty);
+                }
+            }
+            return;
+        }
+
+        if (predicate == null || OWL.SAMEAS.equals(predicate)) {
+            final Map<Resource, Set<Resource>> candidates;
+            if (subject != null) {
+                candidates = Collections.singletonMap(subject, index.getSameAsEdges(subject));
+            } else if (object instanceof Resource) {
+                // sameAs edges are indexed in both directions.
+                candidates = Collections.singletonMap((Resource) object, index.getSameAsEdges((Resource) object));
+            } else {
+                candidates = Collections.emptyMap();
+            }
+            for (final Map.Entry<Resource, Set<Resource>> entry : candidates.entrySet()) {
+                for (final Resource candidate : entry.getValue()) {
+                    final Resource from = entry.getKey();
+                    final boolean matched = matches(subject, object, from, candidate) || matches(subject, object, candidate, from);
+                    if (matched && !exists(from, OWL.SAMEAS, candidate) && !exists(candidate, OWL.SAMEAS, from)) {
+                        index.removeSameAs(from, candidate);
+                    }
+                }
+            }
+        }
+        for (final IRI transitiveProperty : index.getProperties()) {
+            if (predicate == null || transitiveProperty.equals(predicate)) {
+                final Map<Resource, Set<Value>> candidates;
+                if (subject != null) {
+                    candidates = Collections.singletonMap(subject, index.getEdges(transitiveProperty, subject));
+                } else {
+                    candidates = new HashMap<>();
+                    for (final Resource reaching : index.getReverseEdges(transitiveProperty, object)) {
+                        candidates.put(reaching, Collections.singleton(object));
+                    }
+                }
+                for (final Map.Entry<Resource, Set<Value>> entry : candidates.entrySet()) {
+                    for (final Value candidate : entry.getValue()) {
+                        if (matches(subject, object, entry.getKey(), candidate) && !exists(entry.getKey(), transitiveProperty, candidate)) {
+                            index.removeEdge(transitiveProperty, entry.getKey(), candidate);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the sameAs edges of an index that the store no longer holds,
+     * with a single scan of the owl:sameAs statements.
+     */
+    private void retainStoredSameAs(final ClosureIndex index) throws QueryEvaluationException {
+        final Map<Resource, Set<Value>> stored = scanEdges(OWL.SAMEAS);
+        for (final Map.Entry<Resource, Set<Resource>> entry : index.getSameAsEdges().entrySet()) {
+            final Resource from = entry.getKey();
+            for (final Resource candidate : entry.getValue()) {
+                if (!isStored(stored, from, candidate) && !isStored(stored, candidate, from)) {
+                    index.removeSameAs(from, candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the edges of a transitive property that the store no longer
+     * holds, with a single scan of the property's statements.
+     */
+    private void retainStoredEdges(final ClosureIndex index, final IRI property) throws QueryEvaluationException {
+        final Map<Resource, Set<Value>> stored = scanEdges(property);
+        for (final Map.Entry<Resource, Set<Value>> entry : index.getEdges(property).entrySet()) {
+            for (final Value candidate : entry.getValue()) {
+                if (!isStored(stored, entry.getKey(), candidate)) {
+                    index.removeEdge(property, entry.getKey(), candidate);
+                }
+            }
+        }
+    }
+
+    private Map<Resource, Set<Value>> scanEdges(final IRI predicate) throws QueryEvaluationException {
+        final Map<Resource, Set<Value>> edges = new HashMap<>();
+        ryaDaoQueryWrapper.queryAll(null, predicate, null, new AbstractRDFHandler() {
+            @Override
+            public void handleStatement(final Statement statement) throws RDFHandlerException {
+                edges.computeIfAbsent(statement.getSubject(), key -> new HashSet<>()).add(statement.getObject());
+            }
+        });
+        return edges;
+    }
+
+    private static boolean isStored(final Map<Resource, Set<Value>> stored, final Resource subject, final Value object) {
+        final Set<Value> objects = stored.get(subject);
+        return objects != null && objects.contains(object);
+    }
+
+    private static boolean matches(final Resource subject, final Value object, final Resource edgeSubject, final Value edgeObject) {
+        return (subject == null || subject.equals(edgeSubject)) && (object == null || object.equals(edgeObject));
+    }
+
+    private void markSchemaChange(final IRI predicate, final Value object) {
+        for (final SchemaSection section : SchemaSection.values()) {
+            if (predicate == null || section.predicates.contains(predicate)) {
+                changedSections.add(section);
+            }
+        }
+        if (RDF.TYPE.equals(predicate) && (object == null || OWL.SYMMETRICPROPERTY.equals(object)
+                || OWL.TRANSITIVEPROPERTY.equals(object) || REFLEXIVE_PROPERTY.equals(object))) {
+            changedSections.add(SchemaSection.PROPERTY_TYPES);
+        }
+    }
+
+    private boolean exists(final Resource subject, final IRI predicate, final Value object) throws QueryEvaluationException {
+        final CloseableIteration<Statement, QueryEvaluationException> iter = queryDao(subject, predicate, object);
+        try {
+            return iter.hasNext();
+        } finally {
+            iter.close();
+        }
+    }
+
     public CloseableIteration<Statement, QueryEvaluationException> queryDao(final Resource subject, final IRI predicate, final Value object, final Resource... contexts) throws QueryEvaluationException {
         return RyaDAOHelper.query(ryaDAO, subject, predicate, object, conf, contexts);
     }
@@ -1373,6 +1878,24 @@ public class InferenceEngine {
         return subPropertyOfGraph.get();
     }
 
+    /**
+     * @return A counter that changes every time the schema has been reloaded.
+     *   Anything derived from the schema may be keyed on this value.
+     */
+    public long getSchemaVersion() {
+        return schemaVersion.get();
+    }
+
+    /**
+     * @return A counter that changes every time owl:sameAs statements are
+     *   added or removed through the Rya sail. sameAs statements are instance
+     *   data, so they do not change the {@link #getSchemaVersion() schema version},
+     *   but anything that expanded sameAs resources may be keyed on this value.
+     */
+    public long getSameAsVersion() {
+        return sameAsVersion.get();
+    }
+
     public long getRefreshGraphSchedule() {
         return refreshGraphSchedule.get();
     }
@@ -1381,6 +1904,28 @@ public class InferenceEngine {
         this.refreshGraphSchedule.set(refreshGraphSchedule);
     }
 
+    /**
+     * @return The minimum time in milliseconds between scheduled full refreshes,
+     *   or 0 if they never run. Defaults to one hour; the scheduled refreshes in
+     *   between only reload the parts of the schema that changed.
+     */
+    public long getFullRefreshGraphSchedule() {
+        return fullRefreshGraphSchedule.get();
+    }
+
+    /**
+     * Scheduled refreshes that are not full refreshes only reload the parts of
+     * the schema that were written through the sail. Schema statements that are
+     * written through the RyaDAO or bulk loaded are only picked up by a full
+     * refresh. Setting a shorter schedule bounds that staleness at the cost of
+     * reloading the whole schema more often.
+     * @param fullRefreshGraphSchedule - The minimum time in milliseconds between
+     *   scheduled full refreshes, or 0 to never run one.
+     */
+    public void setFullRefreshGraphSchedule(final long fullRefreshGraphSchedule) {
+        this.fullRefreshGraphSchedule.set(fullRefreshGraphSchedule);
+    }
+
     public Set<IRI> getSymmetricPropertySet() {
         return symmetricPropertySet;
     }
@@ -1393,6 +1938,14 @@ public class InferenceEngine {
         return transitivePropertySet;
     }
 
+    /**
+     * @return The owl:sameAs and transitive property closure index, or {@code null}
+     *   if it is disabled.
+     */
+    public ClosureIndex getClosureIndex() {
+        return closureIndex.get();
+    }
+
     public boolean isSchedule() {
         return schedule.get();
     }
@@ -1413,6 +1966,7 @@ public class InferenceEngine {
      */
     public Map<IRI, Set<Value>> getHasValueByType(final Resource type) {
         final Map<IRI, Set<Value>> implications = new HashMap<>();
+        final Map<Resource, Map<IRI, Value>> hasValueByType = restrictions.get().hasValueByType;
         if (hasValueByType != null) {
             final Set<Resource> types = new HashSet<>();
             types.add(type);
@@ -1446,6 +2000,7 @@ public class InferenceEngine {
      */
     public Map<Resource, Set<Value>> getHasValueByProperty(final IRI property) {
         final Map<Resource, Set<Value>> implications = new HashMap<>();
+        final Map<IRI, Map<Resource, Value>> hasValueByProperty = restrictions.get().hasValueByProperty;
         if (hasValueByProperty != null && hasValueByProperty.containsKey(property)) {
             for (final Map.Entry<Resource, Value> typeToValue : hasValueByProperty.get(property).entrySet()) {
                 final Resource type = typeToValue.getKey();
@@ -1568,7 +2123,7 @@ public class InferenceEngine {
      *      someValuesFrom schema has not been populated.
      */
     public Map<Resource, Set<IRI>> getSomeValuesFromByRestrictionType(final Resource restrictionType) {
-        return getTypePropertyImplyingType(restrictionType, someValuesFromByRestrictionType);
+        return getTypePropertyImplyingType(restrictionType, restrictions.get().someValuesFromByRestrictionType);
     }
 
     /**
@@ -1589,7 +2144,7 @@ public class InferenceEngine {
      *      parameter is {@code null} or if the allValuesFrom schema has not been populated.
      */
     public Map<Resource, Set<IRI>> getAllValuesFromByValueType(final Resource valueType) {
-        return getTypePropertyImplyingType(valueType, allValuesFromByValueType);
+        return getTypePropertyImplyingType(valueType, restrictions.get().allValuesFromByValueType);
     }
 
     /**
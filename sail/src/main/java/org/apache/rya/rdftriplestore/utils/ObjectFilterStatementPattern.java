@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.rdftriplestore.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import org.apache.rya.api.persist.query.ObjectFilter;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+
+/**
+ * A {@link StatementPattern} whose matching statements are only returned if
+ * their objects pass an {@link ObjectFilter} that the query engine evaluates
+ * while it scans.
+ */
+public class ObjectFilterStatementPattern extends StatementPattern {
+
+    private final ObjectFilter filter;
+
+    /**
+     * Constructs an instance of {@link ObjectFilterStatementPattern}.
+     *
+     * @param pattern - The pattern whose statements are filtered. Its variables are
+     *   moved to the new pattern, so it should be replaced by it. (not null)
+     * @param filter - The filter the objects of the matching statements must pass. (not null)
+     */
+    public ObjectFilterStatementPattern(final StatementPattern pattern, final ObjectFilter filter) {
+        super(pattern.getScope(), pattern.getSubjectVar(), pattern.getPredicateVar(), pattern.getObjectVar(), pattern.getContextVar());
+        this.filter = requireNonNull(filter);
+    }
+
+    /**
+     * @return The filter the objects of the matching statements must pass.
+     */
+    public ObjectFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public String getSignature() {
+        return super.getSignature() + " object filter " + filter;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof ObjectFilterStatementPattern && super.equals(other)
+                && filter.equals(((ObjectFilterStatementPattern) other).filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() ^ filter.hashCode();
+    }
+
+    @Override
+    public ObjectFilterStatementPattern clone() {
+        return (ObjectFilterStatementPattern) super.clone();
+    }
+}
@@ -47,6 +47,7 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.query.QueryResultHandlerException;
 import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.TupleQueryResultHandler;
 import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
 import org.eclipse.rdf4j.query.Update;
@@ -1206,6 +1207,34 @@ public class RdfCloudTripleStoreConnectionTest extends TestCase {
         conn.close();
     }
 
+    public void testProfileQuery() throws Exception {
+        RepositoryConnection conn = repository.getConnection();
+        IRI loadPerc = VF.createIRI(litdupsNS, "loadPerc");
+        IRI measuredBy = VF.createIRI(litdupsNS, "measuredBy");
+        conn.add(cpu, loadPerc, VF.createLiteral("12"));
+        conn.add(cpu, measuredBy, VF.createIRI(litdupsNS, "sensor1"));
+        conn.commit();
+
+        String query = "select * where { ?x <" + loadPerc.stringValue() + "> ?load. ?x <" + measuredBy.stringValue() + "> ?sensor. }";
+        TupleQuery tupleQuery = conn.prepareTupleQuery(QueryLanguage.SPARQL, query);
+        tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE, VF.createLiteral(true));
+
+        TupleQueryResult result = tupleQuery.evaluate();
+        assertTrue(result.hasNext());
+        BindingSet bs = result.next();
+        assertFalse(result.hasNext());
+        result.close();
+
+        assertEquals(1, bs.size());
+        String plan = bs.getValue(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE).stringValue();
+        assertTrue(plan, plan.startsWith("Query returned 1 results"));
+        assertTrue(plan, plan.contains("StatementPattern"));
+        assertTrue(plan, plan.contains("rowsOut=1"));
+        assertTrue(plan, plan.contains("ranges="));
+
+        conn.close();
+    }
+
     public void testUpdateData() throws Exception {
         RepositoryConnection conn = repository.getConnection();
 
@@ -0,0 +1,70 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link AdaptiveBatchSizer}.
+ */
+public class AdaptiveBatchSizerTest {
+
+    @Test
+    public void fastFullBatch_grows() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 10, 1000, 100, TimeUnit.MILLISECONDS, 1000000);
+        sizer.record(100, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(200, sizer.getBatchSize());
+    }
+
+    @Test
+    public void fastPartialBatch_doesNotGrow() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 10, 1000, 100, TimeUnit.MILLISECONDS, 1000000);
+        sizer.record(20, 20, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(100, sizer.getBatchSize());
+    }
+
+    @Test
+    public void slowBatch_shrinks() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 10, 1000, 100, TimeUnit.MILLISECONDS, 1000000);
+        sizer.record(100, 100, TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(50, sizer.getBatchSize());
+    }
+
+    @Test
+    public void largeFanOut_cappedByMaxResults() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 10, 1000, 100, TimeUnit.MILLISECONDS, 2000);
+        // Every binding produced 100 results, so only 20 bindings fit under the cap.
+        sizer.record(100, 10000, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(20, sizer.getBatchSize());
+    }
+
+    @Test
+    public void staysWithinBounds() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 80, 150, 100, TimeUnit.MILLISECONDS, 1000000);
+        sizer.record(100, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(150, sizer.getBatchSize());
+        sizer.record(150, 150, TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(80, sizer.getBatchSize());
+    }
+}
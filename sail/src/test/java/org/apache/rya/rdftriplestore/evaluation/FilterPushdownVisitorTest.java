@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.rdftriplestore.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.rya.api.persist.query.ObjectFilter;
+import org.apache.rya.rdftriplestore.utils.ObjectFilterStatementPattern;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.ValueConstant;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link FilterPushdownVisitor}.
+ */
+public class FilterPushdownVisitorTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    public void pushesObjectConditions() throws Exception {
+        final TupleExpr query = parse("SELECT * WHERE { ?s <urn:age> ?age . ?s <urn:name> ?name . "
+                + "FILTER(?age > 18 && STRSTARTS(?name, \"A\") && LANGMATCHES(LANG(?name), \"en\") && ?age != ?s) }");
+        final FilterPushdownVisitor visitor = new FilterPushdownVisitor();
+        query.visit(visitor);
+
+        assertEquals(3, visitor.getPushedFilters().size());
+
+        final List<ObjectFilterStatementPattern> patterns = getFilteredPatterns(query);
+        assertEquals(2, patterns.size());
+        for (final ObjectFilterStatementPattern pattern : patterns) {
+            if (pattern.getObjectVar().getName().equals("age")) {
+                assertEquals(new ObjectFilter(Arrays.asList(ObjectFilter.compare(CompareOp.GT, VF.createLiteral("18", XMLSchema.INTEGER), true))),
+                        pattern.getFilter());
+            } else {
+                assertEquals(new ObjectFilter(Arrays.asList(ObjectFilter.strStarts("A"), ObjectFilter.langMatches("en"))),
+                        pattern.getFilter());
+            }
+        }
+
+        // Conditions that do not only test an object stay in the filter.
+        final Filter filter = getFilter(query);
+        assertTrue(filter.getCondition() instanceof Compare);
+        assertEquals(CompareOp.NE, ((Compare) filter.getCondition()).getOperator());
+    }
+
+    @Test
+    public void pushesWholeCondition() throws Exception {
+        final TupleExpr query = parse("SELECT * WHERE { ?s <urn:name> ?name . FILTER(REGEX(?name, \"^a\", \"i\")) }");
+        final FilterPushdownVisitor visitor = new FilterPushdownVisitor();
+        query.visit(visitor);
+
+        assertEquals(1, getFilteredPatterns(query).size());
+        assertTrue(getFilter(query).getCondition() instanceof ValueConstant);
+    }
+
+    @Test
+    public void doesNotPushThroughOptional() throws Exception {
+        final TupleExpr query = parse("SELECT * WHERE { ?s <urn:type> <urn:Person> . OPTIONAL { ?s <urn:age> ?age } FILTER(?age > 18) }");
+        final FilterPushdownVisitor visitor = new FilterPushdownVisitor();
+        query.visit(visitor);
+
+        assertTrue(visitor.getPushedFilters().isEmpty());
+        assertTrue(getFilteredPatterns(query).isEmpty());
+    }
+
+    @Test
+    public void doesNotPushUnsupportedConditions() throws Exception {
+        final TupleExpr query = parse("SELECT * WHERE { ?s <urn:name> ?name . FILTER(REGEX(?name, \"a\", \"z\") || ?name = \"b\") }");
+        final FilterPushdownVisitor visitor = new FilterPushdownVisitor();
+        query.visit(visitor);
+
+        assertTrue(visitor.getPushedFilters().isEmpty());
+        assertTrue(getFilteredPatterns(query).isEmpty());
+    }
+
+    private static TupleExpr parse(final String sparql) throws Exception {
+        return new SPARQLParser().parseQuery(sparql, null).getTupleExpr();
+    }
+
+    private static List<ObjectFilterStatementPattern> getFilteredPatterns(final TupleExpr query) {
+        final List<ObjectFilterStatementPattern> patterns = new ArrayList<>();
+        query.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(final StatementPattern node) {
+                if (node instanceof ObjectFilterStatementPattern) {
+                    patterns.add((ObjectFilterStatementPattern) node);
+                }
+            }
+        });
+        return patterns;
+    }
+
+    private static Filter getFilter(final TupleExpr query) {
+        final List<Filter> filters = new ArrayList<>();
+        query.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(final Filter node) {
+                filters.add(node);
+                super.meet(node);
+            }
+        });
+        return filters.get(0);
+    }
+}
@@ -0,0 +1,149 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Unit tests the methods of {@link ParallelJoinIterator}.
+ */
+public class ParallelJoinIteratorTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private final StatementPattern left = new StatementPattern(new Var("s"), new Var("p"), new Var("o"));
+    private final StatementPattern right = new StatementPattern(new Var("o"), new Var("p2"), new Var("o2"));
+    private final StatementPattern outerRight = new StatementPattern(new Var("o2"), new Var("p3"), new Var("o3"));
+
+    @Test
+    public void joinsEveryLeftBinding() throws Exception {
+        final EvaluationStrategy strategy = mockStrategy(3, 50);
+
+        final ParallelJoinIterator join = new ParallelJoinIterator(strategy, new Join(left, right), new QueryBindingSet(), 2, 4);
+        int count = 0;
+        while (join.hasNext()) {
+            join.next();
+            count++;
+        }
+        join.close();
+
+        assertEquals(150, count);
+        // The buffers never grow past their bounds.
+        assertTrue(join.getMaxQueueDepth() <= 2 * (4 + 1));
+    }
+
+    @Test
+    public void close_releasesWorkers() throws Exception {
+        final EvaluationStrategy strategy = mockStrategy(10, 1000);
+
+        final ParallelJoinIterator join = new ParallelJoinIterator(strategy, new Join(left, right), new QueryBindingSet(), 2, 4);
+        join.next();
+        join.close();
+
+        assertEquals(0, join.getInFlightWork());
+        assertEquals(0, join.getQueueDepth());
+    }
+
+    @Test(timeout = 30000)
+    public void nestedOnTheLeft_drainsWithoutStarving() throws Exception {
+        final EvaluationStrategy strategy = mockStrategy(4, 10);
+        final Join inner = new Join(left, right);
+        // The inner join is the left hand side of the outer one, as in a left deep plan.
+        when(strategy.evaluate(eq(inner), any(BindingSet.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                return new ParallelJoinIterator(strategy, inner, (BindingSet) invocation.getArguments()[1], 1, 1);
+            }
+        });
+        when(strategy.evaluate(eq(outerRight), any(BindingSet.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final List<BindingSet> results = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    final QueryBindingSet bs = new QueryBindingSet((BindingSet) invocation.getArguments()[1]);
+                    bs.addBinding("o3", VF.createLiteral(i));
+                    results.add(bs);
+                }
+                return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(results.iterator());
+            }
+        });
+
+        // Tiny buffers make every worker block until the consumer catches up.
+        final ParallelJoinIterator join = new ParallelJoinIterator(strategy, new Join(inner, outerRight), new QueryBindingSet(), 1, 1);
+        int count = 0;
+        while (join.hasNext()) {
+            join.next();
+            count++;
+        }
+        join.close();
+
+        assertEquals(4 * 10 * 5, count);
+    }
+
+    private EvaluationStrategy mockStrategy(final int leftCount, final int rightCount) throws QueryEvaluationException {
+        final EvaluationStrategy strategy = mock(EvaluationStrategy.class);
+
+        final List<BindingSet> leftResults = new ArrayList<>();
+        for (int i = 0; i < leftCount; i++) {
+            final QueryBindingSet bs = new QueryBindingSet();
+            bs.addBinding("o", VF.createIRI("urn:left" + i));
+            leftResults.add(bs);
+        }
+        when(strategy.evaluate(eq(left), any(BindingSet.class))).thenReturn(
+                new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(leftResults.iterator()));
+
+        when(strategy.evaluate(eq(right), any(BindingSet.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final BindingSet leftBs = (BindingSet) invocation.getArguments()[1];
+                final List<BindingSet> results = new ArrayList<>();
+                for (int i = 0; i < rightCount; i++) {
+                    final QueryBindingSet bs = new QueryBindingSet(leftBs);
+                    bs.addBinding("o2", VF.createLiteral(i));
+                    results.add(bs);
+                }
+                return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(results.iterator());
+            }
+        });
+        return strategy;
+    }
+}
@@ -0,0 +1,127 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.api.instance.IndexMetadataVersion;
+import org.apache.rya.rdftriplestore.inference.InferenceEngine;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link QueryPlanCache}.
+ */
+public class QueryPlanCacheTest {
+
+    private static final TupleExpr QUERY = new StatementPattern(new Var("s"), new Var("p"), new Var("o"));
+
+    @Test
+    public void putAndGet_returnsCopy() {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        final QueryPlanCache cache = new QueryPlanCache(10);
+        final List<Object> key = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+        assertNull(cache.get(key));
+
+        cache.put(key, QUERY);
+        final TupleExpr cached = cache.get(key);
+        assertEquals(QUERY, cached);
+        assertNotSame(QUERY, cached);
+    }
+
+    @Test
+    public void createKey_dependsOnSchemaVersion() {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        conf.setInfer(true);
+        final InferenceEngine inferenceEngine = mock(InferenceEngine.class);
+
+        when(inferenceEngine.getSchemaVersion()).thenReturn(1L);
+        final List<Object> before = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, inferenceEngine);
+        when(inferenceEngine.getSchemaVersion()).thenReturn(2L);
+        final List<Object> after = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, inferenceEngine);
+
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    public void createKey_dependsOnSameAsVersion() {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        conf.setInfer(true);
+        final InferenceEngine inferenceEngine = mock(InferenceEngine.class);
+
+        when(inferenceEngine.getSameAsVersion()).thenReturn(1L);
+        final List<Object> before = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, inferenceEngine);
+        when(inferenceEngine.getSameAsVersion()).thenReturn(2L);
+        final List<Object> after = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, inferenceEngine);
+        assertNotEquals(before, after);
+
+        // Plans are not expanded with sameAs resources when sameAs is not inferred.
+        conf.setInferSameAs(false);
+        final List<Object> withoutSameAs = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, inferenceEngine);
+        when(inferenceEngine.getSameAsVersion()).thenReturn(3L);
+        assertEquals(withoutSameAs, QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, inferenceEngine));
+    }
+
+    @Test
+    public void createKey_dependsOnIndexMetadataVersion() {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        final QueryPlanCache cache = new QueryPlanCache(10);
+        final List<Object> before = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+        cache.put(before, QUERY);
+
+        // Creating or dropping a PCJ makes the old plans unreachable.
+        IndexMetadataVersion.increment();
+        final List<Object> after = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+
+        assertNotEquals(before, after);
+        assertNull(cache.get(after));
+    }
+
+    @Test
+    public void createKey_dependsOnConfiguration() {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        final List<Object> before = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+        conf.setUseStats(!conf.isUseStats());
+        final List<Object> after = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    public void createKey_dependsOnClosureIndex() {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        final List<Object> before = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+        conf.setInferClosureIndex(!conf.isInferClosureIndex());
+        final List<Object> after = QueryPlanCache.createKey(QUERY, null, new QueryBindingSet(), conf, null);
+
+        assertNotEquals(before, after);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.rdftriplestore.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRdfEvalStatsDAO;
+import org.apache.rya.api.RdfCloudTripleStoreConstants;
+import org.apache.rya.api.persist.CardinalityRequest;
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link RdfCloudTripleStoreEvaluationStatistics} against
+ * an {@link AccumuloRdfEvalStatsDAO} over a mock instance of Accumulo.
+ */
+public class RdfCloudTripleStoreEvaluationStatisticsTest {
+
+    private static final String QUERY =
+            "SELECT * WHERE { " +
+            "  ?person <urn:worksAt> <urn:acme> . " +
+            "  ?person <urn:livesIn> ?city . " +
+            "  ?person <urn:knows> ?friend . " +
+            "  <urn:alice> <urn:knows> ?friend . " +
+            "}";
+
+    private Connector connector;
+    private AccumuloRdfConfiguration conf;
+    private AccumuloRdfEvalStatsDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        connector = new MockInstance("evaluationStatistics").getConnector("root", new PasswordToken(""));
+        conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix("evaluationstatistics_");
+
+        dao = new AccumuloRdfEvalStatsDAO();
+        dao.setConnector(connector);
+        dao.setConf(conf);
+        dao.init();
+
+        final BatchWriter writer = connector.createBatchWriter(conf.getTableLayoutStrategy().getEval(), new BatchWriterConfig());
+        try {
+            writer.addMutation(count(RdfCloudTripleStoreConstants.PREDOBJECT_CF_TXT, 5, "urn:worksAt", "urn:acme"));
+            writer.addMutation(count(RdfCloudTripleStoreConstants.PRED_CF_TXT, 11, "urn:livesIn"));
+            writer.addMutation(count(RdfCloudTripleStoreConstants.SUBJECTPRED_CF_TXT, 2, "urn:alice", "urn:knows"));
+            // urn:knows has no predicate cardinality, so its lookup is unknown.
+        } finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dao.destroy();
+        connector.tableOperations().delete(conf.getTableLayoutStrategy().getEval());
+    }
+
+    @Test
+    public void prefetchCardinalities_matchesPerPatternLookups() throws Exception {
+        final TupleExpr query = new SPARQLParser().parseQuery(QUERY, null).getTupleExpr();
+        final List<StatementPattern> patterns = StatementPatternCollector.process(query);
+
+        // The cardinalities when every pattern is looked up on its own.
+        final RdfCloudTripleStoreEvaluationStatistics<AccumuloRdfConfiguration> perPattern =
+                new RdfCloudTripleStoreEvaluationStatistics<>(conf, dao);
+        final List<Double> expected = new ArrayList<>();
+        for (final StatementPattern pattern : patterns) {
+            expected.add(perPattern.getCardinality(pattern));
+        }
+
+        // Prefetching resolves them all with one batched lookup.
+        final AccumuloRdfEvalStatsDAO batchedDao = spy(dao);
+        final RdfCloudTripleStoreEvaluationStatistics<AccumuloRdfConfiguration> batched =
+                new RdfCloudTripleStoreEvaluationStatistics<>(conf, batchedDao);
+        batched.prefetchCardinalities(query);
+
+        final List<Double> actual = new ArrayList<>();
+        for (final StatementPattern pattern : patterns) {
+            actual.add(batched.getCardinality(pattern));
+        }
+
+        assertEquals(expected, actual);
+        verify(batchedDao, times(1)).getCardinalities(any(AccumuloRdfConfiguration.class), anyCollectionOf(CardinalityRequest.class));
+        verify(batchedDao, never()).getCardinality(any(AccumuloRdfConfiguration.class), any(CARDINALITY_OF.class),
+                anyListOf(org.eclipse.rdf4j.model.Value.class), any(Resource.class));
+
+        // Nothing new is looked up when the same query is prefetched again.
+        batched.prefetchCardinalities(query);
+        verify(batchedDao, times(1)).getCardinalities(any(AccumuloRdfConfiguration.class), anyCollectionOf(CardinalityRequest.class));
+    }
+
+    private static Mutation count(final Text cf, final long count, final String... values) {
+        final Mutation mutation = new Mutation(new Text(String.join(RdfCloudTripleStoreConstants.DELIM, values).getBytes(StandardCharsets.UTF_8)));
+        mutation.put(cf, RdfCloudTripleStoreConstants.EMPTY_TEXT, new Value(Long.toString(count).getBytes(StandardCharsets.UTF_8)));
+        return mutation;
+    }
+}
@@ -0,0 +1,107 @@
+package org.apache.rya.rdftriplestore.inference;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class ClosureIndexTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final IRI A = VF.createIRI("urn:a");
+    private static final IRI B = VF.createIRI("urn:b");
+    private static final IRI C = VF.createIRI("urn:c");
+    private static final IRI D = VF.createIRI("urn:d");
+    private static final IRI MANAGES = VF.createIRI("urn:manages");
+
+    @Test
+    public void testSameAsClassesMerge() {
+        final ClosureIndex index = new ClosureIndex();
+        index.addSameAs(A, B);
+        index.addSameAs(C, D);
+        assertEquals(Sets.newHashSet(A, B), index.getSameAs(A));
+        assertEquals(Sets.newHashSet(C, D), index.getSameAs(D));
+
+        index.addSameAs(B, C);
+        assertEquals(Sets.newHashSet(A, B, C, D), index.getSameAs(A));
+        assertEquals(index.getCanonicalResource(A), index.getCanonicalResource(D));
+    }
+
+    @Test
+    public void testSameAsClassSplitsOnRemove() {
+        final ClosureIndex index = new ClosureIndex();
+        index.addSameAs(A, B);
+        index.addSameAs(B, C);
+        index.addSameAs(C, D);
+
+        index.removeSameAs(B, C);
+        assertEquals(Sets.newHashSet(A, B), index.getSameAs(A));
+        assertEquals(Sets.newHashSet(C, D), index.getSameAs(C));
+
+        index.removeSameAs(A, B);
+        assertEquals(Collections.singleton(A), index.getSameAs(A));
+        assertEquals(A, index.getCanonicalResource(A));
+    }
+
+    @Test
+    public void testTransitiveReachability() {
+        final ClosureIndex index = new ClosureIndex();
+        index.addEdge(MANAGES, A, B);
+        index.addEdge(MANAGES, B, C);
+        index.addEdge(MANAGES, B, D);
+
+        assertEquals(Sets.newHashSet(B, C, D), index.getReachable(MANAGES, A));
+        assertEquals(Sets.newHashSet(A, B), index.getReaching(MANAGES, D));
+        assertTrue(index.getReachable(MANAGES, D).isEmpty());
+
+        index.removeEdge(MANAGES, A, B);
+        assertTrue(index.getReachable(MANAGES, A).isEmpty());
+        assertEquals(Sets.newHashSet(B), index.getReaching(MANAGES, C));
+
+        index.removeProperty(MANAGES);
+        assertTrue(index.getReachable(MANAGES, B).isEmpty());
+    }
+
+    @Test
+    public void testSizeAndEdgeLookups() {
+        final ClosureIndex index = new ClosureIndex();
+        index.addSameAs(A, B);
+        index.addSameAs(B, A);
+        index.addEdge(MANAGES, A, C);
+        index.addEdge(MANAGES, B, C);
+        assertEquals(3, index.size());
+        assertEquals(Sets.newHashSet(A, B), index.getReverseEdges(MANAGES, C));
+        assertEquals(Sets.newHashSet(A, B), index.getEdges(MANAGES).keySet());
+        assertEquals(Sets.newHashSet(A, B), index.getSameAsEdges().keySet());
+
+        index.removeSameAs(A, B);
+        index.removeProperty(MANAGES);
+        assertEquals(0, index.size());
+        assertTrue(index.getProperties().isEmpty());
+    }
+}
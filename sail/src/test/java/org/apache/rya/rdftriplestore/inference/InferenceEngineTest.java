@@ -30,6 +30,7 @@ import org.apache.accumulo.core.client.mock.MockInstance;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.rya.accumulo.AccumuloRdfConfiguration;
 import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.resolver.RdfToRyaConversions;
 import org.apache.rya.rdftriplestore.RdfCloudTripleStore;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.eclipse.rdf4j.model.IRI;
@@ -37,6 +38,7 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.OWL;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
 import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
@@ -126,6 +128,51 @@ public class InferenceEngineTest extends TestCase {
         Assert.assertEquals(belowLevel4, inferenceEngine.getSubClasses(g));
     }
 
+    @Test
+    public void testRefreshSchemaChanges() throws Exception {
+        final IRI a = VF.createIRI("urn:A");
+        final IRI b = VF.createIRI("urn:B");
+        final IRI p = VF.createIRI("urn:p");
+        final IRI q = VF.createIRI("urn:q");
+        conn.prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { <urn:A> rdfs:subClassOf <urn:B> . }").execute();
+        Assert.assertTrue(inferenceEngine.hasSchemaChanges());
+        // The schema is not updated until the changes are refreshed.
+        Assert.assertEquals(new HashSet<>(), inferenceEngine.getSuperClasses(a));
+
+        final long version = inferenceEngine.getSchemaVersion();
+        inferenceEngine.refreshSchemaChanges();
+        Assert.assertFalse(inferenceEngine.hasSchemaChanges());
+        Assert.assertEquals(Sets.newHashSet(b), inferenceEngine.getSuperClasses(a));
+        Assert.assertTrue(inferenceEngine.getSchemaVersion() > version);
+
+        // Writes of instance data do not cause a refresh.
+        conn.prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { <urn:x> <urn:y> <urn:z> . }").execute();
+        Assert.assertFalse(inferenceEngine.hasSchemaChanges());
+
+        conn.prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { <urn:p> rdfs:subPropertyOf <urn:q> . }").execute();
+        inferenceEngine.refreshSchemaChanges();
+        Assert.assertEquals(Sets.newHashSet(q), inferenceEngine.getSuperProperties(p));
+        Assert.assertEquals(Sets.newHashSet(b), inferenceEngine.getSuperClasses(a));
+
+        conn.prepareUpdate(QueryLanguage.SPARQL, "DELETE DATA { <urn:A> rdfs:subClassOf <urn:B> . }").execute();
+        inferenceEngine.refreshSchemaChanges();
+        Assert.assertEquals(new HashSet<>(), inferenceEngine.getSuperClasses(a));
+    }
+
+    @Test
+    public void testFullRefreshScheduleDefault() throws Exception {
+        final InferenceEngine engine = new InferenceEngine();
+        // Scheduled refreshes only reload the schema changes, with a full refresh every hour.
+        Assert.assertEquals(60 * 60 * 1000, engine.getFullRefreshGraphSchedule());
+        Assert.assertTrue(engine.getFullRefreshGraphSchedule() > engine.getRefreshGraphSchedule());
+        engine.setRefreshGraphSchedule(1000);
+        Assert.assertEquals(60 * 60 * 1000, engine.getFullRefreshGraphSchedule());
+        engine.setFullRefreshGraphSchedule(60 * 1000);
+        Assert.assertEquals(60 * 1000, engine.getFullRefreshGraphSchedule());
+        engine.setFullRefreshGraphSchedule(0);
+        Assert.assertEquals(0, engine.getFullRefreshGraphSchedule());
+    }
+
     @Test
     public void testSubPropertyGraph() throws Exception {
         final String insert = "INSERT DATA { GRAPH <http://updated/test> {\n"
@@ -620,4 +667,94 @@ public class InferenceEngineTest extends TestCase {
         Assert.assertTrue(inferenceEngine.isReflexiveProperty(knows));
         Assert.assertTrue(inferenceEngine.isReflexiveProperty(sameAge));
     }
+
+    @Test
+    public void testClosureIndexIsMaintainedIncrementally() throws Exception {
+        conf.setInferClosureIndex(true);
+        final String insert = "INSERT DATA {\n"
+                + "  <urn:manages> a owl:TransitiveProperty .\n"
+                + "  <urn:A> <urn:manages> <urn:B> .\n"
+                + "  <urn:B> <urn:manages> <urn:C> .\n"
+                + "}";
+        conn.prepareUpdate(QueryLanguage.SPARQL, insert).execute();
+        inferenceEngine.refreshGraph();
+        final IRI manages = VF.createIRI("urn:manages");
+        final IRI a = VF.createIRI("urn:A");
+        final IRI b = VF.createIRI("urn:B");
+        final IRI c = VF.createIRI("urn:C");
+        final IRI z = VF.createIRI("urn:Z");
+        final ClosureIndex index = inferenceEngine.getClosureIndex();
+        Assert.assertNotNull(index);
+        Assert.assertEquals(Sets.newHashSet(b, c), index.getReachable(manages, a));
+
+        // Refreshing the schema changes keeps the index, so a write that bypasses the sail is not seen...
+        dao.add(RdfToRyaConversions.convertStatement(VF.createStatement(z, manages, a)));
+        conn.prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { <urn:knows> a owl:SymmetricProperty . }").execute();
+        inferenceEngine.refreshSchemaChanges();
+        Assert.assertSame(index, inferenceEngine.getClosureIndex());
+        Assert.assertTrue(index.getReaching(manages, a).isEmpty());
+
+        // ...until the next full refresh loads the index from the store again.
+        inferenceEngine.refreshGraph();
+        Assert.assertNotSame(index, inferenceEngine.getClosureIndex());
+        Assert.assertEquals(Sets.newHashSet(z), inferenceEngine.getClosureIndex().getReaching(manages, a));
+
+        // Removing with an unbound subject only checks the matching edges.
+        conn.remove((Resource) null, manages, c);
+        Assert.assertEquals(Sets.newHashSet(b), inferenceEngine.getClosureIndex().getReachable(manages, a));
+    }
+
+    @Test
+    public void testClosureIndexRemoveUnboundPattern() throws Exception {
+        conf.setInferClosureIndex(true);
+        final String insert = "INSERT DATA {\n"
+                + "  <urn:manages> a owl:TransitiveProperty .\n"
+                + "  <urn:A> <urn:manages> <urn:B> .\n"
+                + "  <urn:B> <urn:manages> <urn:C> .\n"
+                + "  <urn:A> owl:sameAs <urn:D> .\n"
+                + "  <urn:E> owl:sameAs <urn:F> .\n"
+                + "}";
+        conn.prepareUpdate(QueryLanguage.SPARQL, insert).execute();
+        inferenceEngine.refreshGraph();
+        final IRI manages = VF.createIRI("urn:manages");
+        final IRI a = VF.createIRI("urn:A");
+        final IRI b = VF.createIRI("urn:B");
+        final IRI c = VF.createIRI("urn:C");
+        final IRI d = VF.createIRI("urn:D");
+        final IRI e = VF.createIRI("urn:E");
+        final IRI f = VF.createIRI("urn:F");
+
+        // Delete behind the index's back, then report a removal that binds nothing.
+        dao.delete(RdfToRyaConversions.convertStatement(VF.createStatement(b, manages, c)), conf);
+        dao.delete(RdfToRyaConversions.convertStatement(VF.createStatement(e, OWL.SAMEAS, f)), conf);
+        inferenceEngine.statementsRemoved(null, null, null);
+
+        final ClosureIndex index = inferenceEngine.getClosureIndex();
+        Assert.assertEquals(Sets.newHashSet(b), index.getReachable(manages, a));
+        Assert.assertEquals(Sets.newHashSet(a, d), index.getSameAs(a));
+        Assert.assertEquals(Sets.newHashSet(e), index.getSameAs(e));
+    }
+
+    @Test
+    public void testClosureIndexIsDroppedWhenTooLarge() throws Exception {
+        conf.setInferClosureIndex(true);
+        conf.setInferClosureIndexMaxSize(1L);
+        final String insert = "INSERT DATA {\n"
+                + "  <urn:A> owl:sameAs <urn:B> .\n"
+                + "  <urn:B> owl:sameAs <urn:C> .\n"
+                + "}";
+        conn.prepareUpdate(QueryLanguage.SPARQL, insert).execute();
+        inferenceEngine.refreshGraph();
+        Assert.assertNull(inferenceEngine.getClosureIndex());
+
+        // sameAs expansion falls back to following the chain in the store.
+        final IRI a = VF.createIRI("urn:A");
+        Assert.assertEquals(Sets.newHashSet(a, VF.createIRI("urn:B"), VF.createIRI("urn:C")), inferenceEngine.findSameAs(a));
+
+        conf.setInferClosureIndexMaxSize(10L);
+        inferenceEngine.refreshGraph();
+        Assert.assertNull(inferenceEngine.getClosureIndex());
+        inferenceEngine.rebuildClosureIndex();
+        Assert.assertNotNull(inferenceEngine.getClosureIndex());
+    }
 }
@@ -0,0 +1,187 @@
+package org.apache.cloud.rdf.web.sail;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cloud.rdf.web.sail.RunningQuery.Owner;
+import org.apache.cloud.rdf.web.sail.RunningQuery.State;
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+/**
+ * Tracks the {@link RunningQuery}s that are being streamed to clients so that they may be
+ * resumed with a cursor, listed, and killed by the {@link Owner} that started them. Queries that nobody reads from for longer than
+ * the idle timeout are cancelled so that their scanners are not held open forever.
+ */
+public class QueryRegistry implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(QueryRegistry.class);
+
+    private final ConcurrentMap<String, RunningQuery> queries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final long idleTimeoutMillis;
+
+    /**
+     * Constructs an instance of {@link QueryRegistry}.
+     *
+     * @param idleTimeout - How long a query may sit idle before it is cancelled.
+     * @param unit - The unit of {@code idleTimeout}. (not null)
+     */
+    public QueryRegistry(final long idleTimeout, final TimeUnit unit) {
+        requireNonNull(unit);
+        this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "rya-query-registry");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        final long period = Math.max(1000L, idleTimeoutMillis / 2);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                reap();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start tracking a query.
+     *
+     * @param query - The SPARQL that is being evaluated. (not null)
+     * @param owner - Who started the query. (not null)
+     * @param conn - The connection the query is evaluated with. It is closed with the query. (not null)
+     * @param result - The results of the query. (not null)
+     * @return The {@link RunningQuery} that was registered.
+     * @throws QueryEvaluationException The binding names of the result could not be read.
+     */
+    public RunningQuery register(final String query, final Owner owner, final RepositoryConnection conn, final TupleQueryResult result) throws QueryEvaluationException {
+        final RunningQuery running = new RunningQuery(UUID.randomUUID().toString(), query, owner, conn, result);
+        queries.put(running.getId(), running);
+        return running;
+    }
+
+    /**
+     * @param id - The ID of the query to fetch. (not null)
+     * @param owner - Who is asking for the query. (not null)
+     * @return The query with that ID, or {@code null} if it is not tracked or was started by someone else.
+     */
+    public RunningQuery get(final String id, final Owner owner) {
+        requireNonNull(id);
+        requireNonNull(owner);
+        final RunningQuery running = queries.get(id);
+        return running != null && running.getOwner().equals(owner) ? running : null;
+    }
+
+    /**
+     * @param owner - Who is asking for the queries. (not null)
+     * @return The tracked queries that were started by the owner.
+     */
+    public List<RunningQuery> list(final Owner owner) {
+        requireNonNull(owner);
+        final List<RunningQuery> owned = new ArrayList<>();
+        for (final RunningQuery running : queries.values()) {
+            if (running.getOwner().equals(owner)) {
+                owned.add(running);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Kill a query. It stays listed as cancelled until the idle timeout passes.
+     *
+     * @param id - The ID of the query to kill. (not null)
+     * @param owner - Who is asking to kill the query. (not null)
+     * @return {@code true} if the query is tracked and was started by the owner; otherwise {@code false}.
+     */
+    public boolean cancel(final String id, final Owner owner) {
+        final RunningQuery running = get(id, owner);
+        if (running == null) {
+            return false;
+        }
+        running.cancel();
+        return true;
+    }
+
+    /**
+     * Cancel a query if it is still being read from after a period of time.
+     *
+     * @param running - The query to watch. (not null)
+     * @param timeoutMillis - How long the query may run before it is cancelled.
+     * @return A future that may be used to disarm the timeout.
+     */
+    public ScheduledFuture<?> scheduleTimeout(final RunningQuery running, final long timeoutMillis) {
+        requireNonNull(running);
+        return scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (running.cancelIfRunning()) {
+                    log.info("Query " + running.getId() + " exceeded its time limit and was cancelled.");
+                }
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancel the queries that have been idle for longer than the idle timeout. Queries that
+     * have finished or were cancelled are remembered for the same amount of time so that a
+     * client following a stale cursor is told what happened to it.
+     */
+    void reap() {
+        final long now = System.currentTimeMillis();
+        for (final RunningQuery running : queries.values()) {
+            final State state = running.getState();
+            if (state == State.RUNNING || now - running.getLastAccessTime() <= idleTimeoutMillis) {
+                continue;
+            }
+            queries.remove(running.getId(), running);
+            if (state == State.IDLE) {
+                log.info("Query " + running.getId() + " was idle for too long and was cancelled.");
+                running.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (final RunningQuery running : queries.values()) {
+            running.cancel();
+        }
+        queries.clear();
+    }
+}
@@ -23,15 +23,22 @@ import static org.apache.rya.api.RdfCloudTripleStoreConstants.VALUE_FACTORY;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.cloud.rdf.web.sail.RunningQuery.Owner;
+import org.apache.cloud.rdf.web.sail.RunningQuery.State;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.log4j.Logger;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
@@ -41,6 +48,7 @@ import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection;
 import org.apache.rya.rdftriplestore.utils.RdfFormatUtils;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.MalformedQueryException;
@@ -48,6 +56,7 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.query.QueryResultHandlerException;
 import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.TupleQueryResultHandler;
 import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
 import org.eclipse.rdf4j.query.Update;
@@ -71,6 +80,7 @@ import org.eclipse.rdf4j.rio.rdfxml.RDFXMLWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -93,6 +103,23 @@ public class RdfController {
     @Autowired
     SecurityProvider provider;
 
+    /**
+     * The response header that holds the ID of a streamed query.
+     */
+    public static final String QUERY_ID_HEADER = "X-Rya-Query-Id";
+
+    /**
+     * The response header that holds the cursor used to fetch the next page of a streamed query.
+     */
+    public static final String CURSOR_HEADER = "X-Rya-Cursor";
+
+    private final QueryRegistry queryRegistry = new QueryRegistry(QUERY_TIME_OUT_SECONDS, TimeUnit.SECONDS);
+
+    @PreDestroy
+    public void close() {
+        queryRegistry.close();
+    }
+
     @RequestMapping(value = "/queryrdf", method = {RequestMethod.GET, RequestMethod.POST})
     public void queryRdf(@RequestParam("query") final String query,
                          @RequestParam(value = RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, required = false) String auth,
@@ -102,6 +129,7 @@ public class RdfController {
                          @RequestParam(value = RdfCloudTripleStoreConfiguration.CONF_RESULT_FORMAT, required = false) final String emit,
                          @RequestParam(value = "padding", required = false) final String padding,
                          @RequestParam(value = "callback", required = false) final String callback,
+                         @RequestParam(value = RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE, required = false) final String profile,
                          final HttpServletRequest request,
                          final HttpServletResponse response) {
         // WARNING: if you add to the above request variables,
@@ -136,6 +164,10 @@ public class RdfController {
                     final RDFHandler handler = new RDFXMLWriter(os);
                     response.setContentType("text/xml");
                     performGraphQuery(query, conn, auth, infer, nullout, handler);
+                } else if (operation instanceof ParsedTupleQuery && Boolean.parseBoolean(profile)) {
+                    // Profile Tuple Query
+                    response.setContentType("text/plain");
+                    performProfiledQuery(query, conn, auth, infer, os);
                 } else if (operation instanceof ParsedTupleQuery) {
                     // Perform Tuple Query
                     TupleQueryResultHandler handler;
@@ -176,6 +208,270 @@ public class RdfController {
         timer.cancel();
     }
 
+    /**
+     * Streams the results of a SELECT query. When {@code maxRows} or {@code maxTime} is provided, at most that
+     * many results are written, or results are written for at most that many seconds, and the
+     * {@value #CURSOR_HEADER} header holds a cursor that fetches the next page. The last page of a query is
+     * one that holds fewer than {@code maxRows} results, or that comes back without a cursor. A query that is
+     * not resumed within {@value #QUERY_TIME_OUT_SECONDS} seconds is cancelled, as is one whose client stops
+     * reading its results.
+     */
+    @RequestMapping(value = "/queryrdf/stream", method = {RequestMethod.GET, RequestMethod.POST})
+    public void streamQueryRdf(@RequestParam(value = "query", required = false) final String query,
+                               @RequestParam(value = "cursor", required = false) final String cursor,
+                               @RequestParam(value = "maxRows", required = false) final Integer maxRows,
+                               @RequestParam(value = "maxTime", required = false) final Integer maxTime,
+                               @RequestParam(value = RdfCloudTripleStoreConfiguration.CONF_INFER, required = false) final String infer,
+                               @RequestParam(value = RdfCloudTripleStoreConfiguration.CONF_RESULT_FORMAT, required = false) final String emit,
+                               final HttpServletRequest request,
+                               final HttpServletResponse response) throws IOException {
+        // WARNING: if you add to the above request variables,
+        // Be sure to validate and encode since they come from the outside and could contain odd damaging character sequences.
+        if (StringUtils.isEmpty(query) == StringUtils.isEmpty(cursor)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Exactly one of the query and cursor parameters must be provided.");
+            return;
+        }
+        if ((maxRows != null && maxRows <= 0) || (maxTime != null && maxTime <= 0)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The maxRows and maxTime parameters must be positive.");
+            return;
+        }
+
+        final RunningQuery running;
+        if (StringUtils.isEmpty(cursor)) {
+            running = startQuery(query, infer, request, response);
+            if (running == null) {
+                return;
+            }
+        } else {
+            // Queries started by someone else are reported as unknown so their IDs can not be probed.
+            running = queryRegistry.get(cursor, getOwner(request));
+            if (running == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "The cursor does not reference a known query.");
+                return;
+            }
+        }
+
+        final boolean acquired;
+        try {
+            acquired = running.acquire();
+        } catch (final IllegalStateException e) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "The query is already being read by another request.");
+            return;
+        }
+        if (!acquired && running.getState() == State.CANCELLED) {
+            response.sendError(HttpServletResponse.SC_GONE, "The query was cancelled.");
+            return;
+        }
+
+        response.setHeader(QUERY_ID_HEADER, running.getId());
+        final boolean paged = maxRows != null || maxTime != null;
+        if (acquired && paged) {
+            response.setHeader(CURSOR_HEADER, running.getId());
+        }
+
+        final TupleQueryResultHandler handler;
+        if (!StringUtils.isEmpty(emit) && emit.equalsIgnoreCase("json")) {
+            handler = new SPARQLResultsJSONWriter(response.getOutputStream());
+            response.setContentType("application/json");
+        } else {
+            handler = new SPARQLResultsXMLWriter(response.getOutputStream());
+            response.setContentType("text/xml");
+        }
+
+        if (!acquired) {
+            // The query has already been read to the end, so the page is empty.
+            try {
+                handler.startQueryResult(running.getBindingNames());
+                handler.endQueryResult();
+            } catch (final TupleQueryResultHandlerException e) {
+                log.debug("Could not write the final page of query " + running.getId(), e);
+            }
+            return;
+        }
+
+        final long seconds = maxTime == null ? QUERY_TIME_OUT_SECONDS : Math.min(maxTime, QUERY_TIME_OUT_SECONDS);
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        final ScheduledFuture<?> timeout = queryRegistry.scheduleTimeout(running, TimeUnit.SECONDS.toMillis(QUERY_TIME_OUT_SECONDS));
+
+        boolean exhausted = false;
+        try {
+            final TupleQueryResult result = running.getResult();
+            handler.startQueryResult(running.getBindingNames());
+
+            int rows = 0;
+            while (true) {
+                if ((maxRows != null && rows >= maxRows) || (maxTime != null && System.currentTimeMillis() >= deadline)) {
+                    exhausted = !result.hasNext();
+                    break;
+                }
+                if (!result.hasNext()) {
+                    exhausted = true;
+                    break;
+                }
+                handler.handleSolution(result.next());
+                running.incrementRowCount();
+                rows++;
+            }
+
+            handler.endQueryResult();
+        } catch (final QueryResultHandlerException e) {
+            // The client stopped reading, so there is no reason to keep the scanners open.
+            log.info("Cancelling query " + running.getId() + " because its results could not be written.", e);
+            running.cancel();
+        } catch (final QueryEvaluationException e) {
+            if (running.getState() == State.CANCELLED) {
+                log.info("Query " + running.getId() + " was cancelled while its results were being read.");
+            } else {
+                log.error("Error running query " + running.getId(), e);
+                running.cancel();
+            }
+        } finally {
+            timeout.cancel(false);
+            running.release(exhausted);
+
+            // A cancellation may have interrupted this thread. Clear it so the servlet container does not see it.
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Lists the queries the caller is streaming, and those that finished or were cancelled recently.
+     */
+    @RequestMapping(value = "/queries", method = RequestMethod.GET)
+    public void listQueries(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final StringBuilder json = new StringBuilder("[");
+        boolean first = true;
+        for (final RunningQuery running : queryRegistry.list(getOwner(request))) {
+            if (!first) {
+                json.append(",");
+            }
+            first = false;
+            json.append("{\"id\":\"").append(running.getId())
+                .append("\",\"query\":\"").append(escapeJson(running.getQuery()))
+                .append("\",\"state\":\"").append(running.getState())
+                .append("\",\"started\":").append(running.getStartTime())
+                .append(",\"lastAccess\":").append(running.getLastAccessTime())
+                .append(",\"rows\":").append(running.getRowCount())
+                .append("}");
+        }
+        json.append("]");
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().print(json);
+    }
+
+    /**
+     * Kills a query the caller is streaming.
+     */
+    @RequestMapping(value = "/queries/{id}", method = {RequestMethod.DELETE, RequestMethod.POST})
+    public void cancelQuery(@PathVariable("id") final String id, final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (queryRegistry.cancel(id, getOwner(request))) {
+            log.info("Query " + LogUtils.clean(id) + " was cancelled by request.");
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "The query is not known.");
+        }
+    }
+
+    /**
+     * @return The user making the request and the authorizations their queries are evaluated with.
+     */
+    private Owner getOwner(final HttpServletRequest request) {
+        final Principal principal = request.getUserPrincipal();
+        final String auths = StringUtils.arrayToCommaDelimitedString(provider.getUserAuths(request));
+        return new Owner(principal == null ? null : principal.getName(), auths);
+    }
+
+    private RunningQuery startQuery(final String query, final String infer, final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final ParsedOperation operation;
+        try {
+            operation = QueryParserUtil.parseOperation(QueryLanguage.SPARQL, query, null);
+        } catch (final MalformedQueryException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The query could not be parsed.");
+            return null;
+        }
+        if (!(operation instanceof ParsedTupleQuery)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Only SELECT queries may be streamed.");
+            return null;
+        }
+
+        final Owner owner = getOwner(request);
+        final String auth = owner.getAuths();
+        SailRepositoryConnection conn = null;
+        TupleQueryResult result = null;
+        try {
+            conn = repository.getConnection();
+            final TupleQuery tupleQuery = conn.prepareTupleQuery(QueryLanguage.SPARQL, query);
+            if (auth != null && auth.length() > 0) {
+                tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, VALUE_FACTORY.createLiteral(auth));
+            }
+            if (infer != null && infer.length() > 0) {
+                tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_INFER, VALUE_FACTORY.createLiteral(Boolean.parseBoolean(infer)));
+            }
+            result = tupleQuery.evaluate();
+            return queryRegistry.register(query, owner, conn, result);
+        } catch (final RepositoryException | MalformedQueryException | QueryEvaluationException e) {
+            log.error("Error running query", e);
+            if (result != null) {
+                try {
+                    result.close();
+                } catch (final QueryEvaluationException ce) {
+                    log.error("Error closing query result", ce);
+                }
+            }
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (final RepositoryException ce) {
+                    log.error("Error closing connection", ce);
+                }
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String escapeJson(final String value) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+        for (final char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20 || c == '<' || c == '>' || c == '&') {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Runs a SELECT query to completion and writes the plan it was evaluated with, annotated with what each
+     * node of the plan did, instead of its results.
+     */
+    private void performProfiledQuery(final String query, final RepositoryConnection conn, final String auth, final String infer, final ServletOutputStream os) throws RepositoryException, MalformedQueryException, QueryEvaluationException, IOException {
+        final TupleQuery tupleQuery = conn.prepareTupleQuery(QueryLanguage.SPARQL, query);
+        if (auth != null && auth.length() > 0) {
+            tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, VALUE_FACTORY.createLiteral(auth));
+        }
+        if (infer != null && infer.length() > 0) {
+            tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_INFER, VALUE_FACTORY.createLiteral(Boolean.parseBoolean(infer)));
+        }
+        tupleQuery.setBinding(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE, VALUE_FACTORY.createLiteral(true));
+
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            final Value plan = result.hasNext() ? result.next().getValue(RdfCloudTripleStoreConfiguration.CONF_QUERY_PROFILE) : null;
+            os.print(plan != null ? plan.stringValue() : "The query was not profiled.");
+        }
+    }
+
     private void performQuery(final String query, final RepositoryConnection conn, final String auth, final String infer, final String nullout, final TupleQueryResultHandler handler) throws RepositoryException, MalformedQueryException, QueryEvaluationException, TupleQueryResultHandlerException {
         final TupleQuery tupleQuery = conn.prepareTupleQuery(QueryLanguage.SPARQL, query);
         if (auth != null && auth.length() > 0) {
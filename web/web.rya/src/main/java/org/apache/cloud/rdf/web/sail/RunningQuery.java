@@ -0,0 +1,278 @@
+package org.apache.cloud.rdf.web.sail;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+
+/**
+ * A SPARQL query whose results are being streamed to a client, possibly across several requests.
+ * It owns the {@link RepositoryConnection} and the {@link TupleQueryResult} the results are read from,
+ * so cancelling it closes the underlying iteration and the scanners it holds open. The results were
+ * evaluated with the authorizations of the {@link Owner} that started the query, so only that owner
+ * may see, resume, or cancel it.
+ */
+public class RunningQuery {
+    private static final Logger log = Logger.getLogger(RunningQuery.class);
+
+    /**
+     * The states a {@link RunningQuery} may be in.
+     */
+    public static enum State {
+        /** A request is reading results from the query. */
+        RUNNING,
+        /** More results are available, but no request is reading them. */
+        IDLE,
+        /** Every result has been read. */
+        FINISHED,
+        /** The query was stopped before every result was read. */
+        CANCELLED;
+    }
+
+    /**
+     * Identifies who started a query: the name of the authenticated user, if any, and the
+     * authorizations the query was evaluated with.
+     */
+    public static final class Owner {
+        private final String principal;
+        private final String auths;
+
+        /**
+         * Constructs an instance of {@link Owner}.
+         *
+         * @param principal - The name of the authenticated user, or {@code null} if the request was not authenticated.
+         * @param auths - The comma delimited authorizations the query is evaluated with. (not null)
+         */
+        public Owner(final String principal, final String auths) {
+            this.principal = principal;
+            this.auths = requireNonNull(auths);
+        }
+
+        public String getPrincipal() {
+            return principal;
+        }
+
+        public String getAuths() {
+            return auths;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Owner)) {
+                return false;
+            }
+            final Owner other = (Owner) o;
+            return Objects.equals(principal, other.principal) && auths.equals(other.auths);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(principal, auths);
+        }
+    }
+
+    private final String id;
+    private final String query;
+    private final Owner owner;
+    private final RepositoryConnection conn;
+    private final TupleQueryResult result;
+    private final List<String> bindingNames;
+    private final long startTime;
+
+    private final AtomicLong rowCount = new AtomicLong(0);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private volatile long lastAccessTime;
+    private State state = State.IDLE;
+    private Thread worker = null;
+
+    /**
+     * Constructs an instance of {@link RunningQuery}.
+     *
+     * @param id - Uniquely identifies the query. Clients use it as the query's continuation cursor. (not null)
+     * @param query - The SPARQL that is being evaluated. (not null)
+     * @param owner - Who started the query. (not null)
+     * @param conn - The connection the query is evaluated with. It is closed with the query. (not null)
+     * @param result - The results of the query. (not null)
+     * @throws QueryEvaluationException The binding names of the result could not be read.
+     */
+    public RunningQuery(final String id, final String query, final Owner owner, final RepositoryConnection conn, final TupleQueryResult result) throws QueryEvaluationException {
+        this.id = requireNonNull(id);
+        this.query = requireNonNull(query);
+        this.owner = requireNonNull(owner);
+        this.conn = requireNonNull(conn);
+        this.result = requireNonNull(result);
+        this.bindingNames = result.getBindingNames();
+        this.startTime = System.currentTimeMillis();
+        this.lastAccessTime = startTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Owner getOwner() {
+        return owner;
+    }
+
+    public TupleQueryResult getResult() {
+        return result;
+    }
+
+    public List<String> getBindingNames() {
+        return bindingNames;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * @return The number of results that have been sent to the client.
+     */
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    /**
+     * Record that a result was sent to the client.
+     */
+    public void incrementRowCount() {
+        rowCount.incrementAndGet();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Claim the query for a request that will read its results on the calling thread.
+     *
+     * @return {@code true} if the query was claimed; {@code false} if it has already finished or been cancelled.
+     * @throws IllegalStateException Another request is already reading the query's results.
+     */
+    public synchronized boolean acquire() {
+        if (state == State.FINISHED || state == State.CANCELLED) {
+            return false;
+        }
+        if (state == State.RUNNING) {
+            throw new IllegalStateException("Query " + id + " is already being read by another request.");
+        }
+        state = State.RUNNING;
+        worker = Thread.currentThread();
+        lastAccessTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Release the query after a request has read some of its results. If every result has been read,
+     * the query finishes and its resources are closed.
+     *
+     * @param exhausted - {@code true} if there are no more results to read.
+     */
+    public void release(final boolean exhausted) {
+        synchronized (this) {
+            worker = null;
+            lastAccessTime = System.currentTimeMillis();
+            if (state != State.RUNNING) {
+                return;
+            }
+            state = exhausted ? State.FINISHED : State.IDLE;
+        }
+        if (exhausted) {
+            close();
+        }
+    }
+
+    /**
+     * Stop the query. A request that is reading its results is interrupted, and the query's
+     * result and connection are closed.
+     *
+     * @return {@code true} if the query was stopped; {@code false} if it had already finished or been cancelled.
+     */
+    public boolean cancel() {
+        return cancel(false);
+    }
+
+    /**
+     * Stop the query only if a request is currently reading its results. This is how a request
+     * that has run for too long is killed without affecting a query that is waiting for its next page.
+     *
+     * @return {@code true} if the query was stopped; otherwise {@code false}.
+     */
+    public boolean cancelIfRunning() {
+        return cancel(true);
+    }
+
+    private boolean cancel(final boolean onlyIfRunning) {
+        synchronized (this) {
+            if (state == State.FINISHED || state == State.CANCELLED) {
+                return false;
+            }
+            if (onlyIfRunning && state != State.RUNNING) {
+                return false;
+            }
+            state = State.CANCELLED;
+
+            // Interrupt while holding the lock so the worker can not be interrupted after it has released the query.
+            if (worker != null && worker != Thread.currentThread()) {
+                worker.interrupt();
+            }
+        }
+        close();
+        return true;
+    }
+
+    private void close() {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                result.close();
+            } catch (final QueryEvaluationException e) {
+                log.warn("Error closing the results of query " + id, e);
+            }
+            try {
+                conn.close();
+            } catch (final RepositoryException e) {
+                log.warn("Error closing the connection of query " + id, e);
+            }
+        }
+    }
+}
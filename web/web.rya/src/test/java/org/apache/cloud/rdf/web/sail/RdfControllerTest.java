@@ -21,12 +21,18 @@ package org.apache.cloud.rdf.web.sail;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 
+import java.security.Principal;
+
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
@@ -45,6 +51,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.util.NestedServletException;
@@ -54,6 +61,9 @@ import org.springframework.web.util.NestedServletException;
 @ContextConfiguration("/controllerTest-context.xml")
 public class RdfControllerTest {
 
+    private static final Principal ALICE = () -> "alice";
+    private static final Principal BOB = () -> "bob";
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -190,4 +200,184 @@ public class RdfControllerTest {
 
     }
 
+    @Test
+    public void streamQueryWithCursor() throws Exception {
+        final String query = "SELECT ?x WHERE { VALUES ?x { 1 2 3 } }";
+
+        // The first page holds two of the three results and a cursor to the rest.
+        MvcResult result = this.mockMvc.perform(get("/queryrdf/stream")
+                .param("query", query)
+                .param("maxRows", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.TEXT_XML))
+                .andReturn();
+        assertEquals(2, countResults(result));
+        final String cursor = result.getResponse().getHeader(RdfController.CURSOR_HEADER);
+        assertNotNull(cursor);
+        assertEquals(cursor, result.getResponse().getHeader(RdfController.QUERY_ID_HEADER));
+
+        // The second page holds the last result.
+        result = this.mockMvc.perform(get("/queryrdf/stream")
+                .param("cursor", cursor)
+                .param("maxRows", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(1, countResults(result));
+
+        // The query is finished, so following the cursor again returns an empty page without a cursor.
+        result = this.mockMvc.perform(get("/queryrdf/stream")
+                .param("cursor", cursor)
+                .param("maxRows", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(0, countResults(result));
+        assertNull(result.getResponse().getHeader(RdfController.CURSOR_HEADER));
+
+        this.mockMvc.perform(get("/queries"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"id\":\"" + cursor + "\"")))
+                .andExpect(content().string(containsString("\"state\":\"FINISHED\"")));
+    }
+
+    @Test
+    public void streamQueryWithoutLimits() throws Exception {
+        final MvcResult result = this.mockMvc.perform(get("/queryrdf/stream")
+                .param("query", "SELECT ?x WHERE { VALUES ?x { 1 2 3 } }")
+                .param("query.resultformat", "json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        assertNotNull(result.getResponse().getHeader(RdfController.QUERY_ID_HEADER));
+        assertNull(result.getResponse().getHeader(RdfController.CURSOR_HEADER));
+    }
+
+    @Test
+    public void cancelStreamedQuery() throws Exception {
+        final MvcResult result = this.mockMvc.perform(get("/queryrdf/stream")
+                .param("query", "SELECT ?x WHERE { VALUES ?x { 1 2 3 } }")
+                .param("maxRows", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        final String cursor = result.getResponse().getHeader(RdfController.CURSOR_HEADER);
+
+        this.mockMvc.perform(delete("/queries/" + cursor))
+                .andExpect(status().isNoContent());
+
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .param("cursor", cursor))
+                .andExpect(status().isGone());
+
+        this.mockMvc.perform(get("/queries"))
+                .andExpect(content().string(containsString("\"state\":\"CANCELLED\"")));
+    }
+
+    @Test
+    public void streamUnknownCursor() throws Exception {
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .param("cursor", "not-a-query"))
+                .andExpect(status().isNotFound());
+
+        this.mockMvc.perform(delete("/queries/not-a-query"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void streamQuery_otherUserMayNotResume() throws Exception {
+        final String cursor = startPagedQuery(ALICE, "U");
+
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .principal(BOB)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U")
+                .param("cursor", cursor))
+                .andExpect(status().isNotFound());
+
+        // The same user may not read results that were evaluated with other authorizations.
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .principal(ALICE)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U,S")
+                .param("cursor", cursor))
+                .andExpect(status().isNotFound());
+
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .param("cursor", cursor))
+                .andExpect(status().isNotFound());
+
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .principal(ALICE)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U")
+                .param("cursor", cursor))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void listQueries_onlyOwnQueries() throws Exception {
+        final String aliceCursor = startPagedQuery(ALICE, "U");
+        final String bobCursor = startPagedQuery(BOB, "U");
+
+        this.mockMvc.perform(get("/queries")
+                .principal(ALICE)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"id\":\"" + aliceCursor + "\"")))
+                .andExpect(content().string(not(containsString(bobCursor))));
+
+        this.mockMvc.perform(get("/queries"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString(aliceCursor))))
+                .andExpect(content().string(not(containsString(bobCursor))));
+    }
+
+    @Test
+    public void cancelQuery_otherUserMayNotCancel() throws Exception {
+        final String cursor = startPagedQuery(ALICE, "U");
+
+        this.mockMvc.perform(delete("/queries/" + cursor)
+                .principal(BOB)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U"))
+                .andExpect(status().isNotFound());
+
+        // The query is still running for its owner.
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .principal(ALICE)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U")
+                .param("cursor", cursor)
+                .param("maxRows", "1"))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(delete("/queries/" + cursor)
+                .principal(ALICE)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, "U"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void streamConstructQuery() throws Exception {
+        this.mockMvc.perform(get("/queryrdf/stream")
+                .param("query", "CONSTRUCT { ?s ?p ?o } WHERE { ?s ?p ?o }"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String startPagedQuery(final Principal principal, final String auths) throws Exception {
+        final MvcResult result = this.mockMvc.perform(get("/queryrdf/stream")
+                .principal(principal)
+                .param(RdfCloudTripleStoreConfiguration.CONF_QUERY_AUTH, auths)
+                .param("query", "SELECT ?x WHERE { VALUES ?x { 1 2 3 } }")
+                .param("maxRows", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        final String cursor = result.getResponse().getHeader(RdfController.CURSOR_HEADER);
+        assertNotNull(cursor);
+        return cursor;
+    }
+
+    private static int countResults(final MvcResult result) throws Exception {
+        final String content = result.getResponse().getContentAsString();
+        int count = 0;
+        int index = content.indexOf("<result>");
+        while (index >= 0) {
+            count++;
+            index = content.indexOf("<result>", index + 1);
+        }
+        return count;
+    }
 }